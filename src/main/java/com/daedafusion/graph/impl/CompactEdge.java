@@ -0,0 +1,108 @@
+package com.daedafusion.graph.impl;
+
+import com.daedafusion.graph.util.Edge;
+
+/**
+ * View on a single edge of a CompactGraph. The iterators of the graph reuse one instance and move it
+ * from edge to edge.
+ */
+public class CompactEdge implements Edge
+{
+    private final CompactGraph graph;
+    int edge;
+
+    CompactEdge(CompactGraph graph, int edge)
+    {
+        this.graph = graph;
+        this.edge = edge;
+    }
+
+    /**
+     * @return the dense index of this edge inside its graph
+     */
+    public int getEdgeIndex()
+    {
+        return edge;
+    }
+
+    /**
+     * Moves this view to another edge of the same graph, e.g. for cursors which want to avoid an
+     * allocation per edge. Do not call this on edges handed out by the graph to other code.
+     */
+    public CompactEdge setEdgeIndex( int edge )
+    {
+        this.edge = edge;
+        return this;
+    }
+
+    /**
+     * @return the dense index of the predicate of this edge inside its graph
+     */
+    public int getPredicateIndex()
+    {
+        return graph.getEdgePredicate(edge);
+    }
+
+    public CompactGraph getGraph()
+    {
+        return graph;
+    }
+
+    @Override
+    public long getEdgeId()
+    {
+        return graph.getEdgeId(edge);
+    }
+
+    @Override
+    public long getSubject()
+    {
+        return graph.getNodeId(graph.getEdgeSubject(edge));
+    }
+
+    @Override
+    public long getPredicate()
+    {
+        return graph.getPredicateId(graph.getEdgePredicate(edge));
+    }
+
+    @Override
+    public long getObject()
+    {
+        return graph.getNodeId(graph.getEdgeObject(edge));
+    }
+
+    @Override
+    public Direction getPredicateDirection()
+    {
+        return Direction.S2O;
+    }
+
+    @Override
+    public double getDistance()
+    {
+        return graph.getEdgeDistance(edge);
+    }
+
+    @Override
+    public boolean equals( Object obj )
+    {
+        if (!(obj instanceof CompactEdge))
+            return false;
+
+        CompactEdge other = (CompactEdge) obj;
+        return other.graph == graph && other.edge == edge;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return edge;
+    }
+
+    @Override
+    public String toString()
+    {
+        return getSubject() + " -(" + getPredicate() + ")-> " + getObject() + " distance:" + getDistance();
+    }
+}
@@ -0,0 +1,131 @@
+package com.daedafusion.graph.impl;
+
+import com.daedafusion.graph.util.Edge;
+import com.daedafusion.graph.util.EdgeExplorer;
+import com.daedafusion.graph.util.EdgeFilter;
+import com.daedafusion.graph.util.Traversal;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterates the outgoing followed by the incoming edges of a CompactGraph node, skipping edges
+ * rejected by the filter. Like DefaultEdgeIterable every incident edge is returned once. Forward
+ * and reverse explorers only walk the out respectively the in chain of the node.
+ */
+public class CompactEdgeIterator implements EdgeExplorer, Iterator<Edge>
+{
+    private final CompactGraph graph;
+    private final EdgeFilter filter;
+    private final Traversal traversal;
+    private final PredicateEdgeFilter predicateFilter;
+    private final CompactEdge current;
+    private final CompactEdge probe;
+    private int baseIndex;
+    private int pending = CompactGraph.NO_EDGE;
+    private boolean incoming;
+    private int adjIndex = CompactGraph.NO_NODE;
+
+    public CompactEdgeIterator(CompactGraph graph, EdgeFilter filter)
+    {
+        this(graph, filter, Traversal.UNDIRECTED);
+    }
+
+    public CompactEdgeIterator(CompactGraph graph, EdgeFilter filter, Traversal traversal)
+    {
+        this.graph = graph;
+        this.filter = filter;
+        this.traversal = traversal;
+        // predicate filters of this graph are evaluated on the raw predicate index
+        this.predicateFilter = filter instanceof PredicateEdgeFilter && ((PredicateEdgeFilter) filter).getGraph() == graph
+                ? (PredicateEdgeFilter) filter : null;
+        this.current = new CompactEdge(graph, CompactGraph.NO_EDGE);
+        this.probe = new CompactEdge(graph, CompactGraph.NO_EDGE);
+    }
+
+    @Override
+    public Iterator<Edge> setBaseNode(long baseNode)
+    {
+        baseIndex = graph.getNodeIndex(baseNode);
+        adjIndex = CompactGraph.NO_NODE;
+        if (baseIndex == CompactGraph.NO_NODE)
+        {
+            pending = CompactGraph.NO_EDGE;
+            incoming = true;
+        }
+        else
+        {
+            incoming = !traversal.followsOutgoing();
+            pending = incoming ? graph.getFirstInEdge(baseIndex) : graph.getFirstOutEdge(baseIndex);
+            skipRejected();
+        }
+        return this;
+    }
+
+    private void skipRejected()
+    {
+        while (true)
+        {
+            if (pending == CompactGraph.NO_EDGE)
+            {
+                if (incoming || !traversal.followsIncoming())
+                    return;
+
+                incoming = true;
+                pending = graph.getFirstInEdge(baseIndex);
+                continue;
+            }
+
+            // self loops are already returned with the outgoing edges
+            boolean accepted = !(incoming && traversal == Traversal.UNDIRECTED && graph.getEdgeSubject(pending) == baseIndex)
+                    && !graph.isEdgeRemoved(pending);
+            if (accepted && predicateFilter != null)
+            {
+                accepted = predicateFilter.acceptPredicate(graph.getEdgePredicate(pending));
+            } else if (accepted && filter != null)
+            {
+                probe.edge = pending;
+                accepted = filter.accept(probe);
+            }
+
+            if (accepted)
+                return;
+
+            pending = incoming ? graph.getNextInEdge(pending) : graph.getNextOutEdge(pending);
+        }
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        return pending != CompactGraph.NO_EDGE;
+    }
+
+    @Override
+    public Edge next()
+    {
+        if (pending == CompactGraph.NO_EDGE)
+            throw new NoSuchElementException();
+
+        current.edge = pending;
+        adjIndex = incoming ? graph.getEdgeSubject(pending) : graph.getEdgeObject(pending);
+        pending = incoming ? graph.getNextInEdge(pending) : graph.getNextOutEdge(pending);
+        skipRejected();
+        return current;
+    }
+
+    @Override
+    public long getAdjNode()
+    {
+        if (adjIndex == CompactGraph.NO_NODE)
+            throw new IllegalStateException("next() was not called");
+
+        return graph.getNodeId(adjIndex);
+    }
+
+    @Override
+    public void remove()
+    {
+        throw new UnsupportedOperationException("Remove not supported");
+    }
+}
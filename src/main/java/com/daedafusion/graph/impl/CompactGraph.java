@@ -0,0 +1,792 @@
+package com.daedafusion.graph.impl;
+
+import com.daedafusion.graph.routing.util.Weighting;
+import com.daedafusion.graph.storage.Graph;
+import com.daedafusion.graph.storage.IndexedEdgeAccess;
+import com.daedafusion.graph.storage.NodeAccess;
+import com.daedafusion.graph.util.Edge;
+import com.daedafusion.graph.util.EdgeExplorer;
+import com.daedafusion.graph.util.EdgeFilter;
+import com.daedafusion.graph.util.Traversal;
+import com.daedafusion.graph.util.jfr.IngestRecorder;
+import gnu.trove.map.TLongIntMap;
+import gnu.trove.map.hash.TLongIntHashMap;
+import org.apache.log4j.Logger;
+
+import java.util.*;
+
+/**
+ * Graph storing nodes, predicates and edges in primitive arrays addressed by dense indices. Node and
+ * predicate ids are translated through dictionaries, the adjacency of a node is kept as two linked
+ * lists (outgoing and incoming) threaded through the edge arrays like the GraphHopper BaseGraph.
+ *
+ * Edges returned while iterating an explorer are reused between calls to next(), use getEdge to
+ * obtain a detached instance.
+ */
+public class CompactGraph implements Graph, IndexedEdgeAccess
+{
+    private static final Logger log = Logger.getLogger(CompactGraph.class);
+
+    public static final int NO_EDGE = -1;
+    public static final int NO_NODE = -1;
+
+    private final TLongIntMap nodeIndex;
+    private long[] nodeIds;
+    private int[] firstOut;
+    private int[] firstIn;
+    private int nodeCount;
+
+    private final TLongIntMap predicateIndex;
+    private long[] predicateIds;
+    private int predicateCount;
+
+    private final TLongIntMap edgeIndex;
+    private long[] edgeIds;
+    private int[] edgeSubjects;
+    private int[] edgeObjects;
+    private int[] edgePredicates;
+    private double[] edgeDistances;
+    private int[] nextOut;
+    private int[] nextIn;
+    private int edgeCount;
+    // number of distance changes of existing edges, lets derived data detect staleness
+    private int distanceUpdates;
+    // tombstones of removed edges, allocated on the first removal
+    private long[] removedEdges;
+    private int removedCount;
+    private long version;
+
+    // allocated on first use
+    private NodeCoordinates coordinates;
+
+    private volatile PredicateAdjacency predicateAdjacency;
+
+    private WeightCache weightCache;
+
+    private final IngestRecorder ingest = new IngestRecorder(CompactGraph.class.getSimpleName());
+
+    private final NodeAccess nodeAccess = new CompactNodeAccess();
+
+    public CompactGraph()
+    {
+        this(16, 16);
+    }
+
+    public CompactGraph(int expectedNodes, int expectedEdges)
+    {
+        expectedNodes = Math.max(expectedNodes, 1);
+        expectedEdges = Math.max(expectedEdges, 1);
+
+        nodeIndex = new TLongIntHashMap(expectedNodes, 0.5f, Long.MIN_VALUE, NO_NODE);
+        nodeIds = new long[expectedNodes];
+        firstOut = new int[expectedNodes];
+        firstIn = new int[expectedNodes];
+
+        predicateIndex = new TLongIntHashMap(16, 0.5f, Long.MIN_VALUE, -1);
+        predicateIds = new long[16];
+
+        edgeIndex = new TLongIntHashMap(expectedEdges, 0.5f, Long.MIN_VALUE, NO_EDGE);
+        edgeIds = new long[expectedEdges];
+        edgeSubjects = new int[expectedEdges];
+        edgeObjects = new int[expectedEdges];
+        edgePredicates = new int[expectedEdges];
+        edgeDistances = new double[expectedEdges];
+        nextOut = new int[expectedEdges];
+        nextIn = new int[expectedEdges];
+    }
+
+    /**
+     * Creates a CompactGraph containing all edges and node coordinates of the specified graph.
+     */
+    public static CompactGraph copyOf( Graph graph )
+    {
+        CompactGraph copy = new CompactGraph();
+        Iterator<Edge> iter = graph.getAllEdges();
+        while (iter.hasNext())
+        {
+            Edge e = iter.next();
+            copy.edge(e.getSubject(), e.getPredicate(), e.getObject(), e.getDistance());
+        }
+
+        NodeAccess access = graph.getNodeAccess();
+        if (access.hasCoordinates())
+        {
+            for (int n = 0; n < copy.nodeCount; n++)
+            {
+                long node = copy.nodeIds[n];
+                if (!access.hasCoordinates(node))
+                    continue;
+
+                if (access.is3D())
+                    copy.setNode(node, access.getLatitude(node), access.getLongitude(node), access.getElevation(node));
+                else
+                    copy.setNode(node, access.getLatitude(node), access.getLongitude(node));
+            }
+        }
+        copy.flushIngest();
+        return copy;
+    }
+
+    @Override
+    public Edge edge(long subject, long predicate, long object)
+    {
+        return edge(subject, predicate, object, 1.0);
+    }
+
+    @Override
+    public Edge edge(long subject, long predicate, long object, double distance)
+    {
+        long edgeId = DefaultEdge.createEdgeId(subject, predicate, object);
+        int edge = edgeIndex.get(edgeId);
+        if (edge != NO_EDGE && !isTriple(edge, subject, predicate, object))
+        {
+            // a different triple with the same id, both stay reachable but the id maps to the new one
+            log.warn("Edge id " + edgeId + " of " + subject + " " + predicate + " " + object + " collides with "
+                    + getNodeId(edgeSubjects[edge]) + " " + getPredicateId(edgePredicates[edge]) + " "
+                    + getNodeId(edgeObjects[edge]));
+            edge = NO_EDGE;
+        }
+
+        if (edge == NO_EDGE)
+            edge = addEdge(edgeId, addNode(subject), addPredicate(predicate), addNode(object), distance);
+        else if (edgeDistances[edge] != distance)
+        {
+            edgeDistances[edge] = distance;
+            distanceUpdates++;
+            version++;
+        }
+
+        ingest.edgeAdded();
+        return new CompactEdge(this, edge);
+    }
+
+    /**
+     * @return true if the edge at the dense index connects exactly these ids
+     */
+    boolean isTriple( int edge, long subject, long predicate, long object )
+    {
+        return nodeIds[edgeSubjects[edge]] == subject && predicateIds[edgePredicates[edge]] == predicate
+                && nodeIds[edgeObjects[edge]] == object;
+    }
+
+    /**
+     * Marks the edge as removed. Its slot stays in the adjacency lists and is skipped by the
+     * explorers until the graph is compacted, adding the same triple again appends a new edge.
+     *
+     * @return true if the edge existed
+     */
+    @Override
+    public boolean removeEdge( long edgeId )
+    {
+        int edge = edgeIndex.get(edgeId);
+        if (edge == NO_EDGE)
+            return false;
+
+        if (removedEdges == null)
+            removedEdges = new long[(edgeIds.length >>> 6) + 1];
+        else if ((edge >>> 6) >= removedEdges.length)
+            removedEdges = Arrays.copyOf(removedEdges, (edgeIds.length >>> 6) + 1);
+
+        removedEdges[edge >>> 6] |= 1L << edge;
+        edgeIndex.remove(edgeId);
+        removedCount++;
+        version++;
+        return true;
+    }
+
+    @Override
+    public boolean updateDistance( long edgeId, double distance )
+    {
+        int edge = edgeIndex.get(edgeId);
+        if (edge == NO_EDGE)
+            return false;
+
+        if (edgeDistances[edge] != distance)
+        {
+            edgeDistances[edge] = distance;
+            distanceUpdates++;
+            version++;
+        }
+        return true;
+    }
+
+    @Override
+    public long getVersion()
+    {
+        return version;
+    }
+
+    /**
+     * @return true if the edge at the specified dense index was removed
+     */
+    public boolean isEdgeRemoved( int edge )
+    {
+        long[] removed = removedEdges;
+        return removed != null && (edge >>> 6) < removed.length && (removed[edge >>> 6] & (1L << edge)) != 0;
+    }
+
+    /**
+     * @return the number of removed edges still occupying a slot
+     */
+    public int getRemovedEdgeCount()
+    {
+        return removedCount;
+    }
+
+    /**
+     * Creates a copy of this graph without the removed edges. Node and predicate indices are kept,
+     * edge indices are renumbered. This graph is not modified, so readers can keep using it until
+     * they are switched to the copy.
+     * <p>
+     * This is a full copy, O(nodes + edges) with both graphs in memory while it runs. For graphs which
+     * are compacted while they change use the ConcurrentGraph, it only merges its delta log.
+     */
+    public CompactGraph compact()
+    {
+        CompactGraph copy = new CompactGraph(nodeCount, edgeCount - removedCount);
+        for (int n = 0; n < nodeCount; n++)
+        {
+            copy.addNode(nodeIds[n]);
+        }
+        for (int p = 0; p < predicateCount; p++)
+        {
+            copy.addPredicate(predicateIds[p]);
+        }
+        for (int e = 0; e < edgeCount; e++)
+        {
+            if (!isEdgeRemoved(e))
+                copy.addEdge(edgeIds[e], edgeSubjects[e], edgePredicates[e], edgeObjects[e], edgeDistances[e]);
+        }
+        if (coordinates != null)
+        {
+            for (int n = 0; n < nodeCount; n++)
+            {
+                if (!coordinates.has(n))
+                    continue;
+
+                copy.setNodeInt(n, coordinates.getLatitudeInt(n), coordinates.getLongitudeInt(n));
+                if (coordinates.is3D())
+                    copy.setElevationInt(n, coordinates.getElevationInt(n));
+            }
+        }
+
+        // the edges inserted into this graph so far end with the compaction
+        ingest.flush();
+        if (log.isDebugEnabled())
+            log.debug("Compacted " + removedCount + " removed edges, " + copy);
+        return copy;
+    }
+
+    /**
+     * Appends an edge between the specified dense node indices and links it into the adjacency of
+     * both nodes. No duplicate check is done.
+     *
+     * @return the dense index of the new edge
+     */
+    int addEdge( long edgeId, int subject, int predicate, int object, double distance )
+    {
+        int edge = edgeCount;
+        ensureEdgeCapacity(edge + 1);
+        edgeIds[edge] = edgeId;
+        edgeSubjects[edge] = subject;
+        edgeObjects[edge] = object;
+        edgePredicates[edge] = predicate;
+        edgeDistances[edge] = distance;
+
+        nextOut[edge] = firstOut[subject];
+        firstOut[subject] = edge;
+        nextIn[edge] = firstIn[object];
+        firstIn[object] = edge;
+
+        edgeIndex.put(edgeId, edge);
+        edgeCount++;
+        version++;
+        return edge;
+    }
+
+    /**
+     * @return the dense index of the specified node, creating it if not yet known
+     */
+    public int addNode( long node )
+    {
+        int index = nodeIndex.get(node);
+        if (index != NO_NODE)
+            return index;
+
+        index = nodeCount;
+        ensureNodeCapacity(index + 1);
+        nodeIds[index] = node;
+        firstOut[index] = NO_EDGE;
+        firstIn[index] = NO_EDGE;
+        nodeIndex.put(node, index);
+        nodeCount++;
+        return index;
+    }
+
+    /**
+     * @return the dense index of the specified predicate, creating it if not yet known
+     */
+    public int addPredicate( long predicate )
+    {
+        int index = predicateIndex.get(predicate);
+        if (index != -1)
+            return index;
+
+        index = predicateCount;
+        if (index >= predicateIds.length)
+            predicateIds = Arrays.copyOf(predicateIds, index * 2);
+
+        predicateIds[index] = predicate;
+        predicateIndex.put(predicate, index);
+        predicateCount++;
+        return index;
+    }
+
+    private void ensureNodeCapacity( int size )
+    {
+        if (size <= nodeIds.length)
+            return;
+
+        int cap = Math.max(size, nodeIds.length * 2);
+        nodeIds = Arrays.copyOf(nodeIds, cap);
+        firstOut = Arrays.copyOf(firstOut, cap);
+        firstIn = Arrays.copyOf(firstIn, cap);
+        if (coordinates != null)
+            coordinates.ensureCapacity(cap);
+    }
+
+    private void ensureEdgeCapacity( int size )
+    {
+        if (size <= edgeIds.length)
+            return;
+
+        int cap = Math.max(size, edgeIds.length * 2);
+        edgeIds = Arrays.copyOf(edgeIds, cap);
+        edgeSubjects = Arrays.copyOf(edgeSubjects, cap);
+        edgeObjects = Arrays.copyOf(edgeObjects, cap);
+        edgePredicates = Arrays.copyOf(edgePredicates, cap);
+        edgeDistances = Arrays.copyOf(edgeDistances, cap);
+        nextOut = Arrays.copyOf(nextOut, cap);
+        nextIn = Arrays.copyOf(nextIn, cap);
+    }
+
+    @Override
+    public void setNode( long node, double lat, double lon )
+    {
+        getCoordinates().set(addNode(node), lat, lon);
+    }
+
+    @Override
+    public void setNode( long node, double lat, double lon, double ele )
+    {
+        getCoordinates().set(addNode(node), lat, lon, ele);
+    }
+
+    @Override
+    public void setNodes( long[] nodes, double[] lats, double[] lons, double[] eles )
+    {
+        if (lats.length < nodes.length || lons.length < nodes.length || eles != null && eles.length < nodes.length)
+            throw new IllegalArgumentException("Coordinate arrays are shorter than the " + nodes.length + " nodes");
+
+        NodeCoordinates coords = getCoordinates();
+        coords.ensureCapacity(nodeCount + nodes.length);
+        for (int i = 0; i < nodes.length; i++)
+        {
+            int index = addNode(nodes[i]);
+            if (eles == null)
+                coords.set(index, lats[i], lons[i]);
+            else
+                coords.set(index, lats[i], lons[i], eles[i]);
+        }
+        flushIngest();
+    }
+
+    @Override
+    public void flushIngest()
+    {
+        ingest.flush();
+    }
+
+    private NodeCoordinates getCoordinates()
+    {
+        if (coordinates == null)
+            coordinates = new NodeCoordinates(nodeIds.length);
+
+        return coordinates;
+    }
+
+    public boolean hasCoordinates()
+    {
+        return coordinates != null;
+    }
+
+    /**
+     * @return true if coordinates were set for the specified node index
+     */
+    public boolean hasCoordinates( int nodeIndex )
+    {
+        return coordinates != null && coordinates.has(nodeIndex);
+    }
+
+    public boolean hasElevation()
+    {
+        return coordinates != null && coordinates.is3D();
+    }
+
+    @Override
+    public Edge getEdge(long edgeId)
+    {
+        int edge = edgeIndex.get(edgeId);
+        if (edge == NO_EDGE)
+            return null;
+
+        return new CompactEdge(this, edge);
+    }
+
+    /**
+     * @return an edge view not positioned on any edge, move it with CompactEdge.setEdgeIndex
+     */
+    public CompactEdge createEdgeCursor()
+    {
+        return new CompactEdge(this, NO_EDGE);
+    }
+
+    @Override
+    public Iterator<Edge> getAllEdges()
+    {
+        return new Iterator<Edge>()
+        {
+            int edge = skipRemoved(0);
+
+            private int skipRemoved( int e )
+            {
+                while (e < edgeCount && isEdgeRemoved(e))
+                {
+                    e++;
+                }
+                return e;
+            }
+
+            @Override
+            public boolean hasNext()
+            {
+                return edge < edgeCount;
+            }
+
+            @Override
+            public Edge next()
+            {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+
+                CompactEdge e = new CompactEdge(CompactGraph.this, edge);
+                edge = skipRemoved(edge + 1);
+                return e;
+            }
+
+            @Override
+            public void remove()
+            {
+                throw new UnsupportedOperationException("Remove not supported");
+            }
+        };
+    }
+
+    /**
+     * Explorers for a PredicateEdgeFilter of this graph only visit the edges of the allowed
+     * predicates via the PredicateAdjacency, all other filters are tested edge by edge.
+     */
+    @Override
+    public EdgeExplorer createEdgeExplorer(EdgeFilter filter)
+    {
+        return createEdgeExplorer(filter, Traversal.UNDIRECTED);
+    }
+
+    /**
+     * Both orientations are stored as the out and in chains of a node, forward and reverse
+     * explorers walk only one of them.
+     */
+    @Override
+    public EdgeExplorer createEdgeExplorer(EdgeFilter filter, Traversal traversal)
+    {
+        if (filter instanceof PredicateEdgeFilter && ((PredicateEdgeFilter) filter).getGraph() == this)
+            return new PredicateEdgeIterator(this, (PredicateEdgeFilter) filter, traversal);
+
+        return new CompactEdgeIterator(this, filter, traversal);
+    }
+
+    /**
+     * @return the predicate partitioned adjacency of this graph, rebuilt if edges or nodes were added
+     * since the last call. Explorers call this per base node, so only the rebuild is locked.
+     */
+    public PredicateAdjacency getPredicateAdjacency()
+    {
+        PredicateAdjacency adjacency = predicateAdjacency;
+        if (adjacency != null && !adjacency.isStale(this))
+            return adjacency;
+
+        synchronized (this)
+        {
+            adjacency = predicateAdjacency;
+            if (adjacency == null || adjacency.isStale(this))
+            {
+                adjacency = new PredicateAdjacency(this);
+                predicateAdjacency = adjacency;
+            }
+            return adjacency;
+        }
+    }
+
+    /**
+     * @return the precomputed weights of this graph which routing algorithms use for registered
+     * weightings
+     */
+    public synchronized WeightCache getWeightCache()
+    {
+        if (weightCache == null)
+            weightCache = new WeightCache(this);
+        return weightCache;
+    }
+
+    /**
+     * @return the number of distance changes of existing edges so far
+     */
+    public int getDistanceUpdates()
+    {
+        return distanceUpdates;
+    }
+
+    @Override
+    public NodeAccess getNodeAccess()
+    {
+        return nodeAccess;
+    }
+
+    public int getNodeCount()
+    {
+        return nodeCount;
+    }
+
+    /**
+     * @return the number of edge slots including removed edges, i.e. the bound of the dense edge
+     * indices
+     */
+    public int getEdgeCount()
+    {
+        return edgeCount;
+    }
+
+    public int getPredicateCount()
+    {
+        return predicateCount;
+    }
+
+    /**
+     * @return the dense index of the specified node or NO_NODE
+     */
+    public int getNodeIndex( long node )
+    {
+        return nodeIndex.get(node);
+    }
+
+    public long getNodeId( int nodeIndex )
+    {
+        return nodeIds[nodeIndex];
+    }
+
+    /**
+     * @return the dense index of the specified predicate or -1
+     */
+    public int getPredicateIndex( long predicate )
+    {
+        return predicateIndex.get(predicate);
+    }
+
+    public long getPredicateId( int predicateIndex )
+    {
+        return predicateIds[predicateIndex];
+    }
+
+    /**
+     * @return the dense index of the specified edge or NO_EDGE
+     */
+    @Override
+    public int getEdgeIndex( long edgeId )
+    {
+        return edgeIndex.get(edgeId);
+    }
+
+    public long getEdgeId( int edge )
+    {
+        return edgeIds[edge];
+    }
+
+    public int getEdgeSubject( int edge )
+    {
+        return edgeSubjects[edge];
+    }
+
+    public int getEdgeObject( int edge )
+    {
+        return edgeObjects[edge];
+    }
+
+    public int getEdgePredicate( int edge )
+    {
+        return edgePredicates[edge];
+    }
+
+    @Override
+    public double getEdgeDistance( int edge )
+    {
+        return edgeDistances[edge];
+    }
+
+    /**
+     * @param view a CompactEdge of this graph or null
+     */
+    @Override
+    public Edge moveEdgeView( Edge view, int edge )
+    {
+        if (view == null)
+            return new CompactEdge(this, edge);
+
+        return ((CompactEdge) view).setEdgeIndex(edge);
+    }
+
+    /**
+     * @return the weights registered for the weighting in the WeightCache or null
+     */
+    @Override
+    public double[] getCachedWeights( Weighting weighting )
+    {
+        return getWeightCache().getWeights(weighting);
+    }
+
+    /**
+     * @return the first outgoing edge of the specified node index or NO_EDGE
+     */
+    public int getFirstOutEdge( int nodeIndex )
+    {
+        return firstOut[nodeIndex];
+    }
+
+    public int getNextOutEdge( int edge )
+    {
+        return nextOut[edge];
+    }
+
+    /**
+     * @return the first incoming edge of the specified node index or NO_EDGE
+     */
+    public int getFirstInEdge( int nodeIndex )
+    {
+        return firstIn[nodeIndex];
+    }
+
+    public int getNextInEdge( int edge )
+    {
+        return nextIn[edge];
+    }
+
+    /**
+     * @return the raw latitude of the specified node index as stored via Helper.degreeToInt
+     */
+    public int getLatitudeInt( int nodeIndex )
+    {
+        return coordinates == null ? 0 : coordinates.getLatitudeInt(nodeIndex);
+    }
+
+    public int getLongitudeInt( int nodeIndex )
+    {
+        return coordinates == null ? 0 : coordinates.getLongitudeInt(nodeIndex);
+    }
+
+    /**
+     * @return the raw elevation of the specified node index as stored via Helper.eleToInt
+     */
+    public int getElevationInt( int nodeIndex )
+    {
+        return coordinates == null ? 0 : coordinates.getElevationInt(nodeIndex);
+    }
+
+    void setNodeInt( int nodeIndex, int lat, int lon )
+    {
+        getCoordinates().setInt(nodeIndex, lat, lon);
+    }
+
+    void setElevationInt( int nodeIndex, int ele )
+    {
+        getCoordinates().setElevationInt(nodeIndex, ele);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "nodes:" + nodeCount + ", edges:" + (edgeCount - removedCount) + ", predicates:" + predicateCount;
+    }
+
+    private class CompactNodeAccess implements NodeAccess
+    {
+        @Override
+        public Set<Edge> getEdges(long baseNode)
+        {
+            Set<Edge> result = new HashSet<>();
+            Iterator<Edge> iter = new CompactEdgeIterator(CompactGraph.this, null).setBaseNode(baseNode);
+            while (iter.hasNext())
+            {
+                result.add(new CompactEdge(CompactGraph.this, ((CompactEdge) iter.next()).edge));
+            }
+            return result;
+        }
+
+        @Override
+        public double getLatitude(long toNode)
+        {
+            int index = nodeIndex.get(toNode);
+            if (index == NO_NODE || coordinates == null)
+                return 0;
+
+            return coordinates.getLatitude(index);
+        }
+
+        @Override
+        public double getLongitude(long toNode)
+        {
+            int index = nodeIndex.get(toNode);
+            if (index == NO_NODE || coordinates == null)
+                return 0;
+
+            return coordinates.getLongitude(index);
+        }
+
+        @Override
+        public double getElevation(long toNode)
+        {
+            int index = nodeIndex.get(toNode);
+            if (index == NO_NODE || coordinates == null)
+                return 0;
+
+            return coordinates.getElevation(index);
+        }
+
+        @Override
+        public boolean hasCoordinates()
+        {
+            return CompactGraph.this.hasCoordinates();
+        }
+
+        @Override
+        public boolean hasCoordinates( long node )
+        {
+            int index = nodeIndex.get(node);
+            return index != NO_NODE && CompactGraph.this.hasCoordinates(index);
+        }
+
+        @Override
+        public boolean is3D()
+        {
+            return hasElevation();
+        }
+    }
+}
@@ -0,0 +1,1181 @@
+package com.daedafusion.graph.impl;
+
+import com.daedafusion.graph.storage.Graph;
+import com.daedafusion.graph.storage.NodeAccess;
+import com.daedafusion.graph.util.Edge;
+import com.daedafusion.graph.util.EdgeExplorer;
+import com.daedafusion.graph.util.EdgeFilter;
+import com.daedafusion.graph.util.Traversal;
+import com.daedafusion.graph.util.jfr.IngestRecorder;
+import gnu.trove.map.TLongIntMap;
+import gnu.trove.map.hash.TLongIntHashMap;
+import org.apache.log4j.Logger;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Graph which can be written while queries are running. The edges are kept in an immutable
+ * CompactGraph base and an append only delta log written by the writers. A query works on a
+ * snapshot: a read only view of the base and the first entries of the delta log at the time the
+ * snapshot was taken, so readers never take a lock and never see a half written edge or an edge
+ * added after their snapshot. Route on graph.snapshot() to get a consistent result, the read
+ * methods of this class itself each use the latest version.
+ * <p>
+ * Adding an edge appends it to the log, changing the distance of an existing edge appends a new
+ * version which hides the previous one from later snapshots and removing an edge appends a
+ * tombstone version. Setting the coordinates of a node appends a position entry to the same log,
+ * so a snapshot does not see coordinates set after it was taken either. Compaction merges the log
+ * into a new base while writers continue appending, snapshots taken before keep their old base. It
+ * can run automatically on an executor once the log reaches a threshold.
+ * <p>
+ * Writers look up the newest entry of a node or edge in primitive maps guarded by the write lock.
+ * Readers search the newest entries linearly and the older ones in immutable index levels which are
+ * published together with the entries, merging levels of equal size keeps their number logarithmic.
+ */
+public class ConcurrentGraph implements Graph
+{
+    private static final Logger log = Logger.getLogger(ConcurrentGraph.class);
+
+    private static final int NOT_SUPERSEDED = Integer.MAX_VALUE;
+    private static final int NO_ENTRY = -1;
+    // number of newest entries readers search linearly before they are indexed
+    private static final int TAIL_SIZE = 32;
+
+    // kinds of keys in the index
+    private static final int OUT_HEAD = 0;
+    private static final int IN_HEAD = 1;
+    private static final int LATEST = 2;
+    private static final int POSITION = 3;
+
+    private final Object writeLock = new Object();
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+    private final IngestRecorder ingest = new IngestRecorder(ConcurrentGraph.class.getSimpleName());
+    private final NodeAccess nodeAccess = new LatestNodeAccess();
+    private volatile State state;
+    private volatile Executor compactionExecutor;
+    private volatile int compactionThreshold;
+
+    public ConcurrentGraph()
+    {
+        this(new CompactGraph());
+    }
+
+    /**
+     * @param base the initial edges, the graph takes ownership and the caller must not modify it
+     *             afterwards
+     */
+    public ConcurrentGraph( CompactGraph base )
+    {
+        this.state = new State(base);
+    }
+
+    private static TLongIntMap createMap( int expected )
+    {
+        return new TLongIntHashMap(expected, 0.5f, Long.MIN_VALUE, NO_ENTRY);
+    }
+
+    /**
+     * Base and delta log of one generation between two compactions.
+     */
+    private static class State
+    {
+        final CompactGraph base;
+        final Delta delta;
+        // delta entries of all previous generations, set before the state is published
+        long versionOffset;
+
+        State( CompactGraph base )
+        {
+            this.base = base;
+            this.delta = new Delta(base.getEdgeCount());
+        }
+    }
+
+    /**
+     * Coordinates of a node set after the base was built, the elevation is NaN if not set.
+     */
+    private static class Position
+    {
+        final long node;
+        final double lat;
+        final double lon;
+        final double ele;
+
+        Position( long node, double lat, double lon, double ele )
+        {
+            this.node = node;
+            this.lat = lat;
+            this.lon = lon;
+            this.ele = ele;
+        }
+    }
+
+    /**
+     * Arrays of the delta log, an entry holds either an edge or a position. Writers fill an entry
+     * before it becomes visible through Delta.count, only supersededAt of an entry is written again
+     * later. Growing copies the arrays into a new instance.
+     */
+    private static class Entries
+    {
+        final Edge[] edges;
+        final Position[] positions;
+        final int[] nextOut;
+        final int[] nextIn;
+        final int[] prevVersion;
+        final int[] supersededAt;
+        final boolean[] removed;
+
+        Entries( int capacity )
+        {
+            edges = new Edge[capacity];
+            positions = new Position[capacity];
+            nextOut = new int[capacity];
+            nextIn = new int[capacity];
+            prevVersion = new int[capacity];
+            supersededAt = new int[capacity];
+            removed = new boolean[capacity];
+        }
+
+        Entries( Entries other, int capacity )
+        {
+            edges = Arrays.copyOf(other.edges, capacity);
+            positions = Arrays.copyOf(other.positions, capacity);
+            nextOut = Arrays.copyOf(other.nextOut, capacity);
+            nextIn = Arrays.copyOf(other.nextIn, capacity);
+            prevVersion = Arrays.copyOf(other.prevVersion, capacity);
+            supersededAt = Arrays.copyOf(other.supersededAt, capacity);
+            removed = Arrays.copyOf(other.removed, capacity);
+        }
+    }
+
+    /**
+     * Newest entries of the delta log range [from, to) per key, immutable once published. The maps
+     * are indexed by the kind of key: outgoing and incoming adjacency head per node, latest version
+     * per edge id and latest position per node.
+     */
+    private static class Level
+    {
+        final int from;
+        final int to;
+        final TLongIntMap[] maps = new TLongIntMap[4];
+
+        Level( int from, int to )
+        {
+            this.from = from;
+            this.to = to;
+            for (int kind = 0; kind < maps.length; kind++)
+            {
+                maps[kind] = createMap(to - from);
+            }
+        }
+
+        Level( Entries entries, int from, int to )
+        {
+            this(from, to);
+            for (int idx = from; idx < to; idx++)
+            {
+                Edge e = entries.edges[idx];
+                if (e == null)
+                {
+                    maps[POSITION].put(entries.positions[idx].node, idx);
+                    continue;
+                }
+
+                if (!entries.removed[idx])
+                {
+                    maps[OUT_HEAD].put(e.getSubject(), idx);
+                    maps[IN_HEAD].put(e.getObject(), idx);
+                }
+                maps[LATEST].put(e.getEdgeId(), idx);
+            }
+        }
+
+        Level merge( Level newer )
+        {
+            Level result = new Level(from, newer.to);
+            for (int kind = 0; kind < maps.length; kind++)
+            {
+                result.maps[kind].putAll(maps[kind]);
+                result.maps[kind].putAll(newer.maps[kind]);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Levels covering the delta log up to end, oldest first.
+     */
+    private static class Index
+    {
+        static final Index EMPTY = new Index(new Level[0], 0);
+
+        final Level[] levels;
+        final int end;
+
+        Index( Level[] levels, int end )
+        {
+            this.levels = levels;
+            this.end = end;
+        }
+
+        /**
+         * @return an index which also covers the entries up to the specified end
+         */
+        Index append( Entries entries, int to )
+        {
+            Level level = new Level(entries, end, to);
+            int n = levels.length;
+            while (n > 0 && levels[n - 1].to - levels[n - 1].from <= level.to - level.from)
+            {
+                level = levels[--n].merge(level);
+            }
+            Level[] result = Arrays.copyOf(levels, n + 1);
+            result[n] = level;
+            return new Index(result, to);
+        }
+    }
+
+    /**
+     * Append only log of edge versions and positions. The adjacency of a node is a linked list from
+     * its newest to its oldest entry, older versions of an edge or a position are linked by
+     * prevVersion and edges are marked with the entry which superseded them. Tombstones only
+     * supersede and are not linked into the adjacency.
+     */
+    private static class Delta
+    {
+        volatile Entries entries = new Entries(16);
+        volatile Index index = Index.EMPTY;
+        volatile int count;
+        // newest entries of the writers, only accessed under the write lock
+        final TLongIntMap outHead = createMap(16);
+        final TLongIntMap inHead = createMap(16);
+        final TLongIntMap latest = createMap(16);
+        final TLongIntMap positions = createMap(16);
+        // one bit per base edge with a delta version, spares readers the index search for the others
+        final int[] baseSuperseded;
+        // written once before the entry is published
+        int firstPosition = NO_ENTRY;
+        int firstElevation = NO_ENTRY;
+
+        Delta( int baseEdges )
+        {
+            baseSuperseded = new int[(baseEdges + 31) >>> 5];
+        }
+    }
+
+    /**
+     * @return a read only view of the current version, unaffected by later writes
+     */
+    public Graph snapshot()
+    {
+        State st = state;
+        return new Version(st, st.delta.count);
+    }
+
+    /**
+     * @return the number of edge versions and positions appended so far, compaction does not change it
+     */
+    @Override
+    public long getVersion()
+    {
+        State st = state;
+        return st.versionOffset + st.delta.count;
+    }
+
+    /**
+     * @return the number of edge versions and positions not yet merged into the base
+     */
+    public int getDeltaEdgeCount()
+    {
+        return state.delta.count;
+    }
+
+    /**
+     * Compacts on the specified executor whenever the delta log reaches the specified number of
+     * entries after a write. Pass a null executor to disable it.
+     */
+    public ConcurrentGraph setAutoCompaction( Executor executor, int deltaThreshold )
+    {
+        if (executor != null && deltaThreshold <= 0)
+            throw new IllegalArgumentException("Delta threshold must be positive but was " + deltaThreshold);
+
+        this.compactionThreshold = deltaThreshold;
+        this.compactionExecutor = executor;
+        return this;
+    }
+
+    @Override
+    public Edge edge( long subject, long predicate, long object )
+    {
+        return edge(subject, predicate, object, 1.0);
+    }
+
+    @Override
+    public Edge edge( long subject, long predicate, long object, double distance )
+    {
+        // hashing the id happens outside of the lock
+        Edge edge = new DefaultEdge(subject, predicate, object, Edge.Direction.S2O, distance);
+        Edge result;
+        synchronized (writeLock)
+        {
+            result = append(state, edge, false);
+            ingest.edgeAdded();
+        }
+        scheduleCompaction();
+        return result;
+    }
+
+    /**
+     * Tombstones the visible version of the edge, readers of older snapshots still see it.
+     */
+    @Override
+    public boolean removeEdge( long edgeId )
+    {
+        synchronized (writeLock)
+        {
+            State st = state;
+            Edge visible = getLatest(st, edgeId);
+            if (visible == null)
+                return false;
+
+            append(st, visible, true);
+        }
+        scheduleCompaction();
+        return true;
+    }
+
+    @Override
+    public boolean updateDistance( long edgeId, double distance )
+    {
+        Edge e = getEdge(edgeId);
+        if (e == null)
+            return false;
+
+        Edge updated = new DefaultEdge(e.getSubject(), e.getPredicate(), e.getObject(), Edge.Direction.S2O, distance);
+        synchronized (writeLock)
+        {
+            // removed meanwhile
+            if (getLatest(state, edgeId) == null)
+                return false;
+
+            append(state, updated, false);
+        }
+        scheduleCompaction();
+        return true;
+    }
+
+    /**
+     * @return the latest version of the edge including entries not yet published or null
+     */
+    private static Edge getLatest( State st, long edgeId )
+    {
+        int idx = st.delta.latest.get(edgeId);
+        if (idx != NO_ENTRY)
+        {
+            Entries entries = st.delta.entries;
+            return entries.removed[idx] ? null : entries.edges[idx];
+        }
+
+        int baseEdge = st.base.getEdgeIndex(edgeId);
+        return baseEdge == CompactGraph.NO_EDGE ? null : new CompactEdge(st.base, baseEdge);
+    }
+
+    /**
+     * Appends a new version or a tombstone of the edge. A new version is skipped if the visible
+     * version has the same distance.
+     */
+    private static Edge append( State st, Edge edge, boolean removal )
+    {
+        Delta delta = st.delta;
+        Entries entries = delta.entries;
+        long edgeId = edge.getEdgeId();
+        int previous = delta.latest.get(edgeId);
+        int baseEdge = CompactGraph.NO_EDGE;
+        if (previous != NO_ENTRY)
+        {
+            Edge latest = entries.edges[previous];
+            if (latest.getSubject() != edge.getSubject() || latest.getPredicate() != edge.getPredicate()
+                    || latest.getObject() != edge.getObject())
+                throw new IllegalArgumentException(collision(edge));
+            if (!removal && !entries.removed[previous] && entries.edges[previous].getDistance() == edge.getDistance())
+                return entries.edges[previous];
+        } else
+        {
+            baseEdge = st.base.getEdgeIndex(edgeId);
+            if (baseEdge != CompactGraph.NO_EDGE
+                    && !st.base.isTriple(baseEdge, edge.getSubject(), edge.getPredicate(), edge.getObject()))
+                throw new IllegalArgumentException(collision(edge));
+            if (!removal && baseEdge != CompactGraph.NO_EDGE && st.base.getEdgeDistance(baseEdge) == edge.getDistance())
+                return new CompactEdge(st.base, baseEdge);
+        }
+
+        int idx = delta.count;
+        if (idx >= entries.edges.length)
+            entries = new Entries(entries, idx * 2);
+
+        entries.edges[idx] = edge;
+        entries.nextOut[idx] = removal ? NO_ENTRY : delta.outHead.get(edge.getSubject());
+        entries.nextIn[idx] = removal ? NO_ENTRY : delta.inHead.get(edge.getObject());
+        entries.prevVersion[idx] = previous;
+        entries.supersededAt[idx] = NOT_SUPERSEDED;
+        entries.removed[idx] = removal;
+        if (previous != NO_ENTRY)
+            entries.supersededAt[previous] = idx;
+
+        if (baseEdge != CompactGraph.NO_EDGE)
+            delta.baseSuperseded[baseEdge >>> 5] |= 1 << baseEdge;
+        if (!removal)
+        {
+            delta.outHead.put(edge.getSubject(), idx);
+            delta.inHead.put(edge.getObject(), idx);
+        }
+        delta.latest.put(edgeId, idx);
+        publish(delta, entries, idx);
+        return edge;
+    }
+
+    /**
+     * Appends a new position of the node, versioned like the edges.
+     */
+    private static void append( State st, Position position )
+    {
+        Delta delta = st.delta;
+        Entries entries = delta.entries;
+        int idx = delta.count;
+        if (idx >= entries.edges.length)
+            entries = new Entries(entries, idx * 2);
+
+        entries.positions[idx] = position;
+        entries.nextOut[idx] = NO_ENTRY;
+        entries.nextIn[idx] = NO_ENTRY;
+        entries.prevVersion[idx] = delta.positions.get(position.node);
+        entries.supersededAt[idx] = NOT_SUPERSEDED;
+
+        if (delta.firstPosition == NO_ENTRY)
+            delta.firstPosition = idx;
+        if (delta.firstElevation == NO_ENTRY && !Double.isNaN(position.ele))
+            delta.firstElevation = idx;
+        delta.positions.put(position.node, idx);
+        publish(delta, entries, idx);
+    }
+
+    /**
+     * Makes the filled entry visible, indexing the tail of the log once it is long enough.
+     */
+    private static void publish( Delta delta, Entries entries, int idx )
+    {
+        delta.entries = entries;
+        if (idx + 1 - delta.index.end >= TAIL_SIZE)
+            delta.index = delta.index.append(entries, idx + 1);
+        // publishes the entry to new snapshots
+        delta.count = idx + 1;
+    }
+
+    private static void setPosition( CompactGraph graph, Position position )
+    {
+        if (Double.isNaN(position.ele))
+            graph.setNode(position.node, position.lat, position.lon);
+        else
+            graph.setNode(position.node, position.lat, position.lon, position.ele);
+    }
+
+    private static String collision( Edge edge )
+    {
+        return "Edge id " + edge.getEdgeId() + " of " + edge.getSubject() + " " + edge.getPredicate() + " "
+                + edge.getObject() + " is already used by another triple, versions are kept per id";
+    }
+
+    private void scheduleCompaction()
+    {
+        Executor executor = compactionExecutor;
+        if (executor == null || state.delta.count < compactionThreshold || !compactionScheduled.compareAndSet(false, true))
+            return;
+
+        executor.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    compact();
+                } catch (RuntimeException ex)
+                {
+                    log.error("Compaction failed", ex);
+                } finally
+                {
+                    compactionScheduled.set(false);
+                }
+            }
+        });
+    }
+
+    /**
+     * Merges the delta log into a new base, dropping removed edges. The merge itself runs
+     * without blocking writers, only the edges written meanwhile are carried over to the new log
+     * under the write lock. A second concurrent call returns immediately.
+     *
+     * @return true if a new base was installed
+     */
+    public boolean compact()
+    {
+        if (!compacting.compareAndSet(false, true))
+            return false;
+
+        try
+        {
+            long start = System.nanoTime();
+            State st = state;
+            int merged = st.delta.count;
+            if (merged == 0)
+                return false;
+
+            CompactGraph old = st.base;
+            CompactGraph base = new CompactGraph(old.getNodeCount(), old.getEdgeCount() + merged);
+            // keeps the node indices of the old base
+            for (int n = 0; n < old.getNodeCount(); n++)
+            {
+                base.addNode(old.getNodeId(n));
+            }
+
+            Iterator<Edge> iter = new Version(st, merged).getAllEdges();
+            while (iter.hasNext())
+            {
+                Edge e = iter.next();
+                base.addEdge(e.getEdgeId(), base.addNode(e.getSubject()), base.addPredicate(e.getPredicate()),
+                        base.addNode(e.getObject()), e.getDistance());
+            }
+
+            if (old.hasCoordinates())
+            {
+                for (int n = 0; n < old.getNodeCount(); n++)
+                {
+                    if (!old.hasCoordinates(n))
+                        continue;
+
+                    base.setNodeInt(n, old.getLatitudeInt(n), old.getLongitudeInt(n));
+                    if (old.hasElevation())
+                        base.setElevationInt(n, old.getElevationInt(n));
+                }
+            }
+
+            Entries mergedEntries = st.delta.entries;
+            for (int idx = 0; idx < merged; idx++)
+            {
+                if (mergedEntries.positions[idx] != null)
+                    setPosition(base, mergedEntries.positions[idx]);
+            }
+
+            int carried;
+            synchronized (writeLock)
+            {
+                State next = new State(base);
+                Entries entries = st.delta.entries;
+                carried = st.delta.count - merged;
+                for (int idx = merged; idx < st.delta.count; idx++)
+                {
+                    if (entries.positions[idx] != null)
+                    {
+                        append(next, entries.positions[idx]);
+                        continue;
+                    }
+
+                    Edge e = entries.removed[idx] ? getLatest(next, entries.edges[idx].getEdgeId()) : entries.edges[idx];
+                    if (e != null)
+                        append(next, e, entries.removed[idx]);
+                }
+                next.versionOffset = st.versionOffset + st.delta.count - next.delta.count;
+                state = next;
+                ingest.flush();
+            }
+
+            if (log.isDebugEnabled())
+                log.debug("Compacted " + merged + " delta edges into " + base + ", carried over " + carried
+                        + " in " + (System.nanoTime() - start) / 1000000 + "ms");
+            return true;
+        } finally
+        {
+            compacting.set(false);
+        }
+    }
+
+    @Override
+    public Edge getEdge( long edgeId )
+    {
+        return snapshot().getEdge(edgeId);
+    }
+
+    @Override
+    public Iterator<Edge> getAllEdges()
+    {
+        return snapshot().getAllEdges();
+    }
+
+    @Override
+    public void setNode( long node, double lat, double lon )
+    {
+        setNode(node, lat, lon, Double.NaN);
+    }
+
+    @Override
+    public void setNode( long node, double lat, double lon, double ele )
+    {
+        Position position = new Position(node, lat, lon, ele);
+        synchronized (writeLock)
+        {
+            append(state, position);
+        }
+        scheduleCompaction();
+    }
+
+    @Override
+    public void setNodes( long[] nodes, double[] lats, double[] lons, double[] eles )
+    {
+        if (lats.length < nodes.length || lons.length < nodes.length || eles != null && eles.length < nodes.length)
+            throw new IllegalArgumentException("Coordinate arrays are shorter than the " + nodes.length + " nodes");
+
+        synchronized (writeLock)
+        {
+            State st = state;
+            for (int i = 0; i < nodes.length; i++)
+            {
+                append(st, new Position(nodes[i], lats[i], lons[i], eles == null ? Double.NaN : eles[i]));
+            }
+            ingest.flush();
+        }
+        scheduleCompaction();
+    }
+
+    @Override
+    public void flushIngest()
+    {
+        synchronized (writeLock)
+        {
+            ingest.flush();
+        }
+    }
+
+    /**
+     * The explorer is bound to the version at the time of this call.
+     */
+    @Override
+    public EdgeExplorer createEdgeExplorer( EdgeFilter filter )
+    {
+        return snapshot().createEdgeExplorer(filter);
+    }
+
+    /**
+     * The explorer is bound to the version at the time of this call.
+     */
+    @Override
+    public EdgeExplorer createEdgeExplorer( EdgeFilter filter, Traversal traversal )
+    {
+        return snapshot().createEdgeExplorer(filter, traversal);
+    }
+
+    @Override
+    public NodeAccess getNodeAccess()
+    {
+        return nodeAccess;
+    }
+
+    @Override
+    public String toString()
+    {
+        State st = state;
+        return "base:[" + st.base + "], delta edges:" + st.delta.count;
+    }
+
+    private class LatestNodeAccess implements NodeAccess
+    {
+        @Override
+        public Set<Edge> getEdges( long baseNode )
+        {
+            return snapshot().getNodeAccess().getEdges(baseNode);
+        }
+
+        @Override
+        public double getLatitude( long toNode )
+        {
+            return snapshot().getNodeAccess().getLatitude(toNode);
+        }
+
+        @Override
+        public double getLongitude( long toNode )
+        {
+            return snapshot().getNodeAccess().getLongitude(toNode);
+        }
+
+        @Override
+        public double getElevation( long toNode )
+        {
+            return snapshot().getNodeAccess().getElevation(toNode);
+        }
+
+        @Override
+        public boolean hasCoordinates()
+        {
+            return snapshot().getNodeAccess().hasCoordinates();
+        }
+
+        @Override
+        public boolean hasCoordinates( long node )
+        {
+            return snapshot().getNodeAccess().hasCoordinates(node);
+        }
+
+        @Override
+        public boolean is3D()
+        {
+            return snapshot().getNodeAccess().is3D();
+        }
+    }
+
+    /**
+     * Read only view of the base and the first count entries of the delta log.
+     */
+    private static class Version implements Graph
+    {
+        private final State st;
+        private final int count;
+        private final NodeAccess nodeAccess = new VersionNodeAccess();
+
+        Version( State st, int count )
+        {
+            this.st = st;
+            this.count = count;
+        }
+
+        /**
+         * @return the newest entry before count for the key or NO_ENTRY. If the index already covers
+         * entries beyond count the result can be a newer entry from which the caller follows the
+         * chains, the entries must therefore have been read after the index.
+         */
+        int find( Index index, Entries entries, int kind, long key )
+        {
+            for (int idx = count - 1; idx >= index.end; idx--)
+            {
+                if (matches(entries, idx, kind, key))
+                    return idx;
+            }
+            for (int i = index.levels.length - 1; i >= 0; i--)
+            {
+                Level level = index.levels[i];
+                if (level.from >= count)
+                    continue;
+
+                int idx = level.maps[kind].get(key);
+                if (idx != NO_ENTRY)
+                    return idx;
+            }
+            return NO_ENTRY;
+        }
+
+        private static boolean matches( Entries entries, int idx, int kind, long key )
+        {
+            Edge e = entries.edges[idx];
+            switch (kind)
+            {
+                case OUT_HEAD:
+                    return e != null && !entries.removed[idx] && e.getSubject() == key;
+                case IN_HEAD:
+                    return e != null && !entries.removed[idx] && e.getObject() == key;
+                case LATEST:
+                    return e != null && e.getEdgeId() == key;
+                default:
+                    return e == null && entries.positions[idx].node == key;
+            }
+        }
+
+        /**
+         * @return the newest version before count of the edge or position with the specified key
+         */
+        int findVersion( int kind, long key )
+        {
+            Index index = st.delta.index;
+            Entries entries = st.delta.entries;
+            int idx = find(index, entries, kind, key);
+            while (idx >= count)
+            {
+                idx = entries.prevVersion[idx];
+            }
+            return idx;
+        }
+
+        boolean isVisibleBase( CompactEdge edge )
+        {
+            int baseEdge = edge.getEdgeIndex();
+            if ((st.delta.baseSuperseded[baseEdge >>> 5] & (1 << baseEdge)) == 0)
+                return true;
+
+            return findVersion(LATEST, edge.getEdgeId()) == NO_ENTRY;
+        }
+
+        boolean isVisible( int firstEntry )
+        {
+            return firstEntry != NO_ENTRY && firstEntry < count;
+        }
+
+        Position getPosition( long node )
+        {
+            if (!isVisible(st.delta.firstPosition))
+                return null;
+
+            int idx = findVersion(POSITION, node);
+            return idx == NO_ENTRY ? null : st.delta.entries.positions[idx];
+        }
+
+        @Override
+        public long getVersion()
+        {
+            return st.versionOffset + count;
+        }
+
+        boolean isVisibleEntry( Entries entries, int idx )
+        {
+            return idx < count && entries.edges[idx] != null && entries.supersededAt[idx] >= count
+                    && !entries.removed[idx];
+        }
+
+        @Override
+        public Edge edge( long subject, long predicate, long object )
+        {
+            throw new UnsupportedOperationException("Snapshots are read only");
+        }
+
+        @Override
+        public Edge edge( long subject, long predicate, long object, double distance )
+        {
+            throw new UnsupportedOperationException("Snapshots are read only");
+        }
+
+        @Override
+        public boolean removeEdge( long edgeId )
+        {
+            throw new UnsupportedOperationException("Snapshots are read only");
+        }
+
+        @Override
+        public boolean updateDistance( long edgeId, double distance )
+        {
+            throw new UnsupportedOperationException("Snapshots are read only");
+        }
+
+        @Override
+        public void setNode( long node, double lat, double lon )
+        {
+            throw new UnsupportedOperationException("Snapshots are read only");
+        }
+
+        @Override
+        public void setNode( long node, double lat, double lon, double ele )
+        {
+            throw new UnsupportedOperationException("Snapshots are read only");
+        }
+
+        @Override
+        public void setNodes( long[] nodes, double[] lats, double[] lons, double[] eles )
+        {
+            throw new UnsupportedOperationException("Snapshots are read only");
+        }
+
+        @Override
+        public Edge getEdge( long edgeId )
+        {
+            int idx = findVersion(LATEST, edgeId);
+            if (idx != NO_ENTRY)
+            {
+                Entries entries = st.delta.entries;
+                return entries.removed[idx] ? null : entries.edges[idx];
+            }
+
+            int baseEdge = st.base.getEdgeIndex(edgeId);
+            if (baseEdge == CompactGraph.NO_EDGE)
+                return null;
+
+            return new CompactEdge(st.base, baseEdge);
+        }
+
+        @Override
+        public Iterator<Edge> getAllEdges()
+        {
+            final Iterator<Edge> baseEdges = st.base.getAllEdges();
+            final Entries entries = st.delta.entries;
+            return new Iterator<Edge>()
+            {
+                Edge pending;
+                int idx;
+
+                {
+                    advance();
+                }
+
+                private void advance()
+                {
+                    while (baseEdges.hasNext())
+                    {
+                        CompactEdge e = (CompactEdge) baseEdges.next();
+                        if (isVisibleBase(e))
+                        {
+                            pending = e;
+                            return;
+                        }
+                    }
+                    while (idx < count)
+                    {
+                        if (isVisibleEntry(entries, idx++))
+                        {
+                            pending = entries.edges[idx - 1];
+                            return;
+                        }
+                    }
+                    pending = null;
+                }
+
+                @Override
+                public boolean hasNext()
+                {
+                    return pending != null;
+                }
+
+                @Override
+                public Edge next()
+                {
+                    if (pending == null)
+                        throw new NoSuchElementException();
+
+                    Edge e = pending;
+                    advance();
+                    return e;
+                }
+
+                @Override
+                public void remove()
+                {
+                    throw new UnsupportedOperationException("Remove not supported");
+                }
+            };
+        }
+
+        @Override
+        public EdgeExplorer createEdgeExplorer( EdgeFilter filter )
+        {
+            return new VersionEdgeIterator(this, filter, Traversal.UNDIRECTED);
+        }
+
+        @Override
+        public EdgeExplorer createEdgeExplorer( EdgeFilter filter, Traversal traversal )
+        {
+            return new VersionEdgeIterator(this, filter, traversal);
+        }
+
+        @Override
+        public NodeAccess getNodeAccess()
+        {
+            return nodeAccess;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "base:[" + st.base + "], delta edges:" + count;
+        }
+
+        private class VersionNodeAccess implements NodeAccess
+        {
+            @Override
+            public Set<Edge> getEdges( long baseNode )
+            {
+                Set<Edge> result = new HashSet<>();
+                Iterator<Edge> iter = createEdgeExplorer(null).setBaseNode(baseNode);
+                while (iter.hasNext())
+                {
+                    Edge e = iter.next();
+                    result.add(e instanceof CompactEdge ? st.base.getEdge(e.getEdgeId()) : e);
+                }
+                return result;
+            }
+
+            @Override
+            public double getLatitude( long toNode )
+            {
+                Position p = getPosition(toNode);
+                return p == null ? st.base.getNodeAccess().getLatitude(toNode) : p.lat;
+            }
+
+            @Override
+            public double getLongitude( long toNode )
+            {
+                Position p = getPosition(toNode);
+                return p == null ? st.base.getNodeAccess().getLongitude(toNode) : p.lon;
+            }
+
+            @Override
+            public double getElevation( long toNode )
+            {
+                Position p = getPosition(toNode);
+                if (p == null)
+                    return st.base.getNodeAccess().getElevation(toNode);
+
+                return Double.isNaN(p.ele) ? 0 : p.ele;
+            }
+
+            @Override
+            public boolean hasCoordinates()
+            {
+                return st.base.hasCoordinates() || isVisible(st.delta.firstPosition);
+            }
+
+            @Override
+            public boolean hasCoordinates( long node )
+            {
+                return getPosition(node) != null || st.base.getNodeAccess().hasCoordinates(node);
+            }
+
+            @Override
+            public boolean is3D()
+            {
+                return st.base.hasElevation() || isVisible(st.delta.firstElevation);
+            }
+        }
+    }
+
+    /**
+     * Iterates the visible edges of a node in the base followed by its visible outgoing and
+     * incoming delta entries. Base edges are reused between calls to next() like in the
+     * CompactGraph explorers. Forward and reverse explorers only follow one of the delta chains.
+     */
+    private static class VersionEdgeIterator implements EdgeExplorer, Iterator<Edge>
+    {
+        private final Version version;
+        private final EdgeFilter filter;
+        private final Traversal traversal;
+        private final EdgeExplorer baseExplorer;
+        private Iterator<Edge> baseIter;
+        private Index index;
+        private Entries entries;
+        private long baseNode;
+        private int pending = NO_ENTRY;
+        private boolean incoming;
+        private Edge next;
+        private long nextAdj;
+        private long adj;
+        private boolean returned;
+
+        VersionEdgeIterator( Version version, EdgeFilter filter, Traversal traversal )
+        {
+            this.version = version;
+            this.filter = filter;
+            this.traversal = traversal;
+            this.baseExplorer = version.st.base.createEdgeExplorer(filter, traversal);
+        }
+
+        @Override
+        public Iterator<Edge> setBaseNode( long baseNode )
+        {
+            this.baseNode = baseNode;
+            this.baseIter = baseExplorer.setBaseNode(baseNode);
+            // the entries are read after the index so that they contain the entries it refers to
+            this.index = version.st.delta.index;
+            this.entries = version.st.delta.entries;
+            this.incoming = !traversal.followsOutgoing();
+            this.pending = version.find(index, entries, incoming ? IN_HEAD : OUT_HEAD, baseNode);
+            this.next = null;
+            this.returned = false;
+            return this;
+        }
+
+        /**
+         * Finds the next edge only when asked for, the base explorer reuses its edge instance.
+         */
+        private void advance()
+        {
+            while (baseIter.hasNext())
+            {
+                CompactEdge e = (CompactEdge) baseIter.next();
+                if (version.isVisibleBase(e))
+                {
+                    next = e;
+                    nextAdj = baseExplorer.getAdjNode();
+                    return;
+                }
+            }
+
+            while (true)
+            {
+                if (pending == NO_ENTRY)
+                {
+                    if (incoming || !traversal.followsIncoming())
+                    {
+                        next = null;
+                        return;
+                    }
+
+                    incoming = true;
+                    pending = version.find(index, entries, IN_HEAD, baseNode);
+                    continue;
+                }
+
+                int idx = pending;
+                pending = incoming ? entries.nextIn[idx] : entries.nextOut[idx];
+                if (!version.isVisibleEntry(entries, idx))
+                    continue;
+
+                Edge e = entries.edges[idx];
+                // self loops are already returned with the outgoing edges
+                if (incoming && traversal == Traversal.UNDIRECTED && e.getSubject() == baseNode)
+                    continue;
+
+                if (filter == null || filter.accept(e))
+                {
+                    next = e;
+                    nextAdj = incoming ? e.getSubject() : e.getObject();
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            if (next == null)
+                advance();
+            return next != null;
+        }
+
+        @Override
+        public Edge next()
+        {
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            Edge e = next;
+            next = null;
+            adj = nextAdj;
+            returned = true;
+            return e;
+        }
+
+        @Override
+        public long getAdjNode()
+        {
+            if (!returned)
+                throw new IllegalStateException("next() was not called");
+
+            return adj;
+        }
+
+        @Override
+        public void remove()
+        {
+            throw new UnsupportedOperationException("Remove not supported");
+        }
+    }
+}
@@ -4,8 +4,6 @@ import com.daedafusion.graph.util.Edge;
 import com.google.common.hash.Hashing;
 import org.apache.log4j.Logger;
 
-import java.nio.charset.Charset;
-
 /**
  * Created by mphilpot on 3/25/15.
  */
@@ -33,7 +31,20 @@ public class DefaultEdge implements Edge
         this.direction = direction;
         this.distance = distance;
 
-        edgeId = Hashing.murmur3_128().hashString(String.format("%d%d%d", subject, predicate, object), Charset.forName("UTF-8")).asLong();
+        edgeId = createEdgeId(subject, predicate, object);
+    }
+
+    /**
+     * @return the identifier every Graph implementation uses for the (subject, predicate, object) triple,
+     * a hash of the three longs in this order
+     */
+    public static long createEdgeId(long subject, long predicate, long object)
+    {
+        return Hashing.murmur3_128().newHasher()
+                .putLong(subject)
+                .putLong(predicate)
+                .putLong(object)
+                .hash().asLong();
     }
 
     @Override
@@ -4,9 +4,13 @@ import com.daedafusion.graph.storage.Graph;
 import com.daedafusion.graph.util.Edge;
 import com.daedafusion.graph.util.EdgeExplorer;
 import com.daedafusion.graph.util.EdgeFilter;
+import com.daedafusion.graph.util.Traversal;
 import org.apache.log4j.Logger;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
 
 /**
  * Created by mphilpot on 3/25/15.
@@ -16,39 +20,134 @@ public class DefaultEdgeIterable implements EdgeExplorer, Iterator<Edge>
     private static final Logger log = Logger.getLogger(DefaultEdgeIterable.class);
     private final EdgeFilter filter;
     private final Graph graph;
+    private final Traversal traversal;
+    // true if the edges of each orientation are read from the sets of a DefaultMemoryGraph
+    private final boolean orientedSets;
     private long baseNode;
 
-    private Iterator<Edge> currentEdgesIter;
+    // the outgoing and incoming edges of the base node, the first one is consumed before the second
+    private Iterator<Edge> firstIter;
+    private Iterator<Edge> secondIter;
+    private Edge pending;
+    private Edge current;
 
     public DefaultEdgeIterable(Graph graph, EdgeFilter filter)
+    {
+        this(graph, filter, Traversal.UNDIRECTED);
+    }
+
+    public DefaultEdgeIterable(Graph graph, EdgeFilter filter, Traversal traversal)
     {
         this.graph = graph;
         this.filter = filter;
+        this.traversal = traversal;
+        this.orientedSets = graph instanceof DefaultMemoryGraph;
     }
 
+    /**
+     * A DefaultMemoryGraph stores the edges of both orientations, so forward and reverse explorers
+     * iterate the matching set directly and only undirected ones visit both. Other graphs return
+     * the edges of both orientations as one set, which is copied per base node.
+     */
     @Override
     public Iterator<Edge> setBaseNode(long baseNode)
     {
         this.baseNode = baseNode;
-        currentEdgesIter = graph.getNodeAccess().getEdges(baseNode).iterator();
+        if (orientedSets)
+        {
+            DefaultMemoryGraph memoryGraph = (DefaultMemoryGraph) graph;
+            firstIter = traversal.followsOutgoing() ? memoryGraph.getOutEdges(baseNode).iterator() : null;
+            secondIter = traversal.followsIncoming() ? memoryGraph.getInEdges(baseNode).iterator() : null;
+        } else
+        {
+            firstIter = graph.getNodeAccess().getEdges(baseNode).iterator();
+            secondIter = null;
+        }
+        current = null;
+        advance();
         return this;
     }
 
+    private void advance()
+    {
+        pending = null;
+        if (firstIter != null)
+        {
+            while (firstIter.hasNext())
+            {
+                Edge e = firstIter.next();
+                if (orientedSets || traversal == Traversal.UNDIRECTED
+                        || traversal.accept(e, baseNode))
+                {
+                    pending = e;
+                    return;
+                }
+            }
+            firstIter = null;
+        }
+        if (secondIter != null)
+        {
+            while (secondIter.hasNext())
+            {
+                Edge e = secondIter.next();
+                // self loops are already returned with the outgoing edges
+                if (traversal != Traversal.UNDIRECTED || e.getSubject() != baseNode)
+                {
+                    pending = e;
+                    return;
+                }
+            }
+            secondIter = null;
+        }
+    }
+
     @Override
     public boolean hasNext()
     {
-        return currentEdgesIter.hasNext();
+        return pending != null;
     }
 
     @Override
     public Edge next()
     {
-        return currentEdgesIter.next();
+        if (pending == null)
+            throw new NoSuchElementException();
+
+        current = pending;
+        advance();
+        return current;
+    }
+
+    @Override
+    public long getAdjNode()
+    {
+        if (current == null)
+            throw new IllegalStateException("next() was not called");
+
+        return traversal.getAdjNode(current, baseNode);
     }
 
+    /**
+     * Removes the last returned edge from the graph. The remaining edges of the base node are
+     * copied first so that the iteration is not affected.
+     */
     @Override
     public void remove()
     {
-        throw new RuntimeException("Remove not supported");
+        if (current == null)
+            throw new IllegalStateException("next() was not called");
+
+        List<Edge> remaining = new ArrayList<>();
+        while (pending != null)
+        {
+            remaining.add(pending);
+            advance();
+        }
+        firstIter = remaining.iterator();
+        secondIter = null;
+        advance();
+
+        graph.removeEdge(current.getEdgeId());
+        current = null;
     }
 }
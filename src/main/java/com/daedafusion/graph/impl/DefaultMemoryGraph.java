@@ -5,6 +5,10 @@ import com.daedafusion.graph.storage.NodeAccess;
 import com.daedafusion.graph.util.Edge;
 import com.daedafusion.graph.util.EdgeExplorer;
 import com.daedafusion.graph.util.EdgeFilter;
+import com.daedafusion.graph.util.Traversal;
+import com.daedafusion.graph.util.jfr.IngestRecorder;
+import gnu.trove.map.TLongIntMap;
+import gnu.trove.map.hash.TLongIntHashMap;
 import org.apache.log4j.Logger;
 
 import java.util.*;
@@ -21,6 +25,13 @@ public class DefaultMemoryGraph implements Graph
     private final Map<Long, Set<Edge>> nodesS2O;
     private final Map<Long, Set<Edge>> nodesO2S;
 
+    private final IngestRecorder ingest = new IngestRecorder(DefaultMemoryGraph.class.getSimpleName());
+
+    // dense index of the nodes with coordinates, both allocated on first use
+    private TLongIntMap coordinateIndex;
+    private NodeCoordinates coordinates;
+    private long version;
+
     public DefaultMemoryGraph()
     {
         edges = new LinkedHashMap<>();
@@ -38,28 +49,164 @@ public class DefaultMemoryGraph implements Graph
     public Edge edge(long subject, long predicate, long object, double distance)
     {
         Edge e = new DefaultEdge(subject, predicate, object, Edge.Direction.S2O, distance);
-        edges.put(e.getEdgeId(), e);
+        Edge previous = edges.put(e.getEdgeId(), e);
+        // an id collision of another triple keeps the adjacency of both edges
+        boolean replaced = previous != null && previous.getSubject() == subject
+                && previous.getPredicate() == predicate && previous.getObject() == object;
+        if(replaced)
+            unlink(previous);
+        if(!replaced || previous.getDistance() != distance)
+            version++;
         if(!nodesS2O.containsKey(subject))
             nodesS2O.put(subject, new HashSet<Edge>());
         if(!nodesO2S.containsKey(object))
             nodesO2S.put(object, new HashSet<Edge>());
         nodesS2O.get(subject).add(e);
         nodesO2S.get(object).add(e);
+        ingest.edgeAdded();
         return e;
     }
 
+    @Override
+    public boolean removeEdge(long edgeId)
+    {
+        Edge e = edges.remove(edgeId);
+        if(e == null)
+            return false;
+
+        unlink(e);
+        version++;
+        return true;
+    }
+
+    @Override
+    public boolean updateDistance(long edgeId, double distance)
+    {
+        Edge e = edges.get(edgeId);
+        if(e == null)
+            return false;
+
+        if(e.getDistance() != distance)
+            edge(e.getSubject(), e.getPredicate(), e.getObject(), distance);
+        return true;
+    }
+
+    @Override
+    public long getVersion()
+    {
+        return version;
+    }
+
+    private void unlink(Edge e)
+    {
+        Set<Edge> out = nodesS2O.get(e.getSubject());
+        if(out != null)
+            out.remove(e);
+        Set<Edge> in = nodesO2S.get(e.getObject());
+        if(in != null)
+            in.remove(e);
+    }
+
+    @Override
+    public void setNode(long node, double lat, double lon)
+    {
+        getCoordinates().set(getCoordinateIndex(node), lat, lon);
+    }
+
+    @Override
+    public void setNode(long node, double lat, double lon, double ele)
+    {
+        getCoordinates().set(getCoordinateIndex(node), lat, lon, ele);
+    }
+
+    @Override
+    public void setNodes(long[] nodes, double[] lats, double[] lons, double[] eles)
+    {
+        if (lats.length < nodes.length || lons.length < nodes.length || eles != null && eles.length < nodes.length)
+            throw new IllegalArgumentException("Coordinate arrays are shorter than the " + nodes.length + " nodes");
+
+        NodeCoordinates coords = getCoordinates();
+        coords.ensureCapacity(coordinateIndex.size() + nodes.length);
+        for (int i = 0; i < nodes.length; i++)
+        {
+            int index = getCoordinateIndex(nodes[i]);
+            if (eles == null)
+                coords.set(index, lats[i], lons[i]);
+            else
+                coords.set(index, lats[i], lons[i], eles[i]);
+        }
+        flushIngest();
+    }
+
+    @Override
+    public void flushIngest()
+    {
+        ingest.flush();
+    }
+
+    private NodeCoordinates getCoordinates()
+    {
+        if (coordinates == null)
+        {
+            coordinateIndex = new TLongIntHashMap(16, 0.5f, Long.MIN_VALUE, -1);
+            coordinates = new NodeCoordinates(16);
+        }
+        return coordinates;
+    }
+
+    private int getCoordinateIndex(long node)
+    {
+        int index = coordinateIndex.get(node);
+        if (index == -1)
+        {
+            index = coordinateIndex.size();
+            coordinateIndex.put(node, index);
+        }
+        return index;
+    }
+
     @Override
     public Edge getEdge(long edgeId)
     {
         return edges.get(edgeId);
     }
 
+    @Override
+    public Iterator<Edge> getAllEdges()
+    {
+        return Collections.unmodifiableCollection(edges.values()).iterator();
+    }
+
+    /**
+     * @return the stored set of edges with the node as subject, empty if there are none
+     */
+    Set<Edge> getOutEdges(long node)
+    {
+        Set<Edge> out = nodesS2O.get(node);
+        return out == null ? Collections.<Edge>emptySet() : out;
+    }
+
+    /**
+     * @return the stored set of edges with the node as object, empty if there are none
+     */
+    Set<Edge> getInEdges(long node)
+    {
+        Set<Edge> in = nodesO2S.get(node);
+        return in == null ? Collections.<Edge>emptySet() : in;
+    }
+
     @Override
     public EdgeExplorer createEdgeExplorer(EdgeFilter filter)
     {
         return new DefaultEdgeIterable(this, filter);
     }
 
+    @Override
+    public EdgeExplorer createEdgeExplorer(EdgeFilter filter, Traversal traversal)
+    {
+        return new DefaultEdgeIterable(this, filter, traversal);
+    }
+
     @Override
     public NodeAccess getNodeAccess()
     {
@@ -79,13 +226,40 @@ public class DefaultMemoryGraph implements Graph
             @Override
             public double getLatitude(long toNode)
             {
-                return 0;
+                int index = coordinates == null ? -1 : coordinateIndex.get(toNode);
+                return index == -1 ? 0 : coordinates.getLatitude(index);
             }
 
             @Override
             public double getLongitude(long toNode)
             {
-                return 0;
+                int index = coordinates == null ? -1 : coordinateIndex.get(toNode);
+                return index == -1 ? 0 : coordinates.getLongitude(index);
+            }
+
+            @Override
+            public double getElevation(long toNode)
+            {
+                int index = coordinates == null ? -1 : coordinateIndex.get(toNode);
+                return index == -1 ? 0 : coordinates.getElevation(index);
+            }
+
+            @Override
+            public boolean hasCoordinates()
+            {
+                return coordinates != null;
+            }
+
+            @Override
+            public boolean hasCoordinates(long node)
+            {
+                return coordinates != null && coordinateIndex.containsKey(node);
+            }
+
+            @Override
+            public boolean is3D()
+            {
+                return coordinates != null && coordinates.is3D();
             }
         };
     }
@@ -0,0 +1,518 @@
+package com.daedafusion.graph.impl;
+
+import com.daedafusion.graph.storage.Graph;
+import com.daedafusion.graph.util.VarIntHelper;
+import com.daedafusion.graph.util.jfr.JfrEvents;
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Versioned binary snapshot of a graph. The file starts with a fixed header followed by a stream of
+ * checksummed blocks which are optionally compressed:
+ * <pre>
+ * header: magic, version, flags, nodes, predicates, edges, blockSize
+ * block:  rawLength, storedLength, crc32(raw), bytes (deflated if storedLength &lt; rawLength)
+ * </pre>
+ * The block stream carries the predicate dictionary and the node dictionary as zig zag encoded
+ * deltas, then for every node its outgoing edges sorted by object index as (object delta, predicate
+ * index, distance) and finally the int encoded coordinates and, since version 2, elevations if
+ * present. Since version 3 graphs where only some nodes carry coordinates write one bit per node
+ * ahead of the coordinates, which then only cover the marked nodes. A block with rawLength 0
+ * terminates the stream.
+ *
+ * Loading decodes the blocks straight into the arrays of a CompactGraph.
+ */
+public class GraphSnapshot
+{
+    private static final Logger log = Logger.getLogger(GraphSnapshot.class);
+
+    static final int MAGIC = 0x44464753; // DFGS
+    static final int VERSION = 3;
+    static final int FLAG_COMPRESSED = 1;
+    static final int FLAG_COORDINATES = 1 << 1;
+    static final int FLAG_ELEVATION = 1 << 2;
+    static final int FLAG_PARTIAL_COORDINATES = 1 << 3;
+    private static final int HEADER_SIZE = 7 * 4;
+    private static final int BLOCK_HEADER_SIZE = 3 * 4;
+
+    private boolean compress = true;
+    private int blockSize = 1 << 16;
+
+    /**
+     * @param compress if true blocks are deflated when that makes them smaller
+     */
+    public GraphSnapshot setCompress( boolean compress )
+    {
+        this.compress = compress;
+        return this;
+    }
+
+    /**
+     * @param blockSize the uncompressed size of the blocks in bytes
+     */
+    public GraphSnapshot setBlockSize( int blockSize )
+    {
+        if (blockSize < 64)
+            throw new IllegalArgumentException("Block size too small: " + blockSize);
+
+        this.blockSize = blockSize;
+        return this;
+    }
+
+    public void write( Graph graph, File file ) throws IOException
+    {
+        CompactGraph g = graph instanceof CompactGraph ? (CompactGraph) graph : CompactGraph.copyOf(graph);
+        if (g.getRemovedEdgeCount() > 0)
+            g = g.compact();
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            boolean partial = false;
+            for (int n = 0; n < g.getNodeCount() && g.hasCoordinates() && !partial; n++)
+            {
+                partial = !g.hasCoordinates(n);
+            }
+            int flags = (compress ? FLAG_COMPRESSED : 0) | (g.hasCoordinates() ? FLAG_COORDINATES : 0)
+                    | (g.hasElevation() ? FLAG_ELEVATION : 0) | (partial ? FLAG_PARTIAL_COORDINATES : 0);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(flags)
+                    .putInt(g.getNodeCount()).putInt(g.getPredicateCount()).putInt(g.getEdgeCount())
+                    .putInt(blockSize);
+            header.flip();
+            writeFully(channel, header);
+
+            BlockOutput out = new BlockOutput(channel, blockSize, compress);
+
+            long prev = 0;
+            for (int p = 0; p < g.getPredicateCount(); p++)
+            {
+                long id = g.getPredicateId(p);
+                out.writeVarLong(VarIntHelper.zigZag(id - prev));
+                prev = id;
+            }
+
+            prev = 0;
+            for (int n = 0; n < g.getNodeCount(); n++)
+            {
+                long id = g.getNodeId(n);
+                out.writeVarLong(VarIntHelper.zigZag(id - prev));
+                prev = id;
+            }
+
+            long[] adjacency = new long[16];
+            for (int n = 0; n < g.getNodeCount(); n++)
+            {
+                int degree = 0;
+                for (int e = g.getFirstOutEdge(n); e != CompactGraph.NO_EDGE; e = g.getNextOutEdge(e))
+                {
+                    if (degree == adjacency.length)
+                        adjacency = Arrays.copyOf(adjacency, degree * 2);
+
+                    adjacency[degree++] = ((long) g.getEdgeObject(e) << 32) | e;
+                }
+                Arrays.sort(adjacency, 0, degree);
+
+                out.writeVarLong(degree);
+                int prevObject = 0;
+                for (int i = 0; i < degree; i++)
+                {
+                    int e = (int) adjacency[i];
+                    int object = (int) (adjacency[i] >>> 32);
+                    out.writeVarLong(object - prevObject);
+                    out.writeVarLong(g.getEdgePredicate(e));
+                    out.writeDouble(g.getEdgeDistance(e));
+                    prevObject = object;
+                }
+            }
+
+            if (partial)
+            {
+                for (int n = 0; n < g.getNodeCount(); n += 8)
+                {
+                    int bits = 0;
+                    for (int i = 0; i < 8 && n + i < g.getNodeCount(); i++)
+                    {
+                        if (g.hasCoordinates(n + i))
+                            bits |= 1 << i;
+                    }
+                    out.writeByte(bits);
+                }
+            }
+
+            if (g.hasCoordinates())
+            {
+                int prevLat = 0, prevLon = 0;
+                for (int n = 0; n < g.getNodeCount(); n++)
+                {
+                    if (!g.hasCoordinates(n))
+                        continue;
+
+                    int lat = g.getLatitudeInt(n);
+                    int lon = g.getLongitudeInt(n);
+                    out.writeVarLong(VarIntHelper.zigZag(lat - prevLat) & 0xFFFFFFFFL);
+                    out.writeVarLong(VarIntHelper.zigZag(lon - prevLon) & 0xFFFFFFFFL);
+                    prevLat = lat;
+                    prevLon = lon;
+                }
+            }
+
+            if (g.hasElevation())
+            {
+                int prevEle = 0;
+                for (int n = 0; n < g.getNodeCount(); n++)
+                {
+                    if (!g.hasCoordinates(n))
+                        continue;
+
+                    int ele = g.getElevationInt(n);
+                    out.writeVarLong(VarIntHelper.zigZag(ele - prevEle) & 0xFFFFFFFFL);
+                    prevEle = ele;
+                }
+            }
+
+            out.close();
+        }
+    }
+
+    public CompactGraph read( File file ) throws IOException
+    {
+        Object loadEvent = JfrEvents.beginGraphLoad();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(channel, header, 0);
+            header.flip();
+            if (header.getInt() != MAGIC)
+                throw new IOException("Not a graph snapshot: " + file);
+
+            int version = header.getInt();
+            if (version < 1 || version > VERSION)
+                throw new IOException("Unsupported snapshot version " + version + " in " + file);
+
+            int flags = header.getInt();
+            int nodes = header.getInt();
+            int predicates = header.getInt();
+            int edges = header.getInt();
+            int storedBlockSize = header.getInt();
+
+            BlockInput in = new BlockInput(channel, HEADER_SIZE, storedBlockSize);
+            CompactGraph g = new CompactGraph(nodes, edges);
+
+            long prev = 0;
+            for (int p = 0; p < predicates; p++)
+            {
+                prev += VarIntHelper.unZigZag(in.readVarLong());
+                g.addPredicate(prev);
+            }
+
+            prev = 0;
+            for (int n = 0; n < nodes; n++)
+            {
+                prev += VarIntHelper.unZigZag(in.readVarLong());
+                if (g.addNode(prev) != n)
+                    throw new IOException("Duplicate node " + prev + " in " + file);
+            }
+
+            for (int n = 0; n < nodes; n++)
+            {
+                int degree = (int) in.readVarLong();
+                long subject = g.getNodeId(n);
+                int object = 0;
+                for (int i = 0; i < degree; i++)
+                {
+                    object += (int) in.readVarLong();
+                    int predicate = (int) in.readVarLong();
+                    double distance = in.readDouble();
+                    long edgeId = DefaultEdge.createEdgeId(subject, g.getPredicateId(predicate), g.getNodeId(object));
+                    g.addEdge(edgeId, n, predicate, object, distance);
+                }
+            }
+
+            if (g.getEdgeCount() != edges)
+                throw new IOException("Expected " + edges + " edges but read " + g.getEdgeCount() + " from " + file);
+
+            // before version 3 either all nodes carry coordinates or none
+            boolean[] present = null;
+            if ((flags & FLAG_PARTIAL_COORDINATES) != 0)
+            {
+                present = new boolean[nodes];
+                for (int n = 0; n < nodes; n += 8)
+                {
+                    int bits = in.readByte();
+                    for (int i = 0; i < 8 && n + i < nodes; i++)
+                    {
+                        present[n + i] = (bits & (1 << i)) != 0;
+                    }
+                }
+            }
+
+            if ((flags & FLAG_COORDINATES) != 0)
+            {
+                int lat = 0, lon = 0;
+                for (int n = 0; n < nodes; n++)
+                {
+                    if (present != null && !present[n])
+                        continue;
+
+                    lat += VarIntHelper.unZigZag((int) in.readVarLong());
+                    lon += VarIntHelper.unZigZag((int) in.readVarLong());
+                    g.setNodeInt(n, lat, lon);
+                }
+            }
+
+            if ((flags & FLAG_ELEVATION) != 0)
+            {
+                int ele = 0;
+                for (int n = 0; n < nodes; n++)
+                {
+                    if (present != null && !present[n])
+                        continue;
+
+                    ele += VarIntHelper.unZigZag((int) in.readVarLong());
+                    g.setElevationInt(n, ele);
+                }
+            }
+
+            in.checkEnd();
+            g.flushIngest();
+            log.debug("Loaded " + g + " from " + file);
+            JfrEvents.commitGraphLoad(loadEvent, file.getPath(), g.getNodeCount(), g.getEdgeCount());
+            return g;
+        }
+    }
+
+    private static void writeFully( FileChannel channel, ByteBuffer buffer ) throws IOException
+    {
+        while (buffer.hasRemaining())
+        {
+            channel.write(buffer);
+        }
+    }
+
+    private static void readFully( FileChannel channel, ByteBuffer buffer, long position ) throws IOException
+    {
+        while (buffer.hasRemaining())
+        {
+            int read = channel.read(buffer, position);
+            if (read < 0)
+                throw new IOException("Unexpected end of snapshot at " + position);
+
+            position += read;
+        }
+    }
+
+    private static class BlockOutput
+    {
+        private final FileChannel channel;
+        private final boolean compress;
+        private final byte[] raw;
+        private final byte[] deflated;
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        private final CRC32 crc = new CRC32();
+        private final ByteBuffer blockHeader = ByteBuffer.allocate(BLOCK_HEADER_SIZE);
+        private int pos;
+
+        BlockOutput( FileChannel channel, int blockSize, boolean compress )
+        {
+            this.channel = channel;
+            this.compress = compress;
+            this.raw = new byte[blockSize];
+            // deflate output is only used if smaller than the input
+            this.deflated = compress ? new byte[blockSize] : null;
+        }
+
+        void writeByte( int b ) throws IOException
+        {
+            if (pos == raw.length)
+                flush();
+
+            raw[pos++] = (byte) b;
+        }
+
+        void writeVarLong( long value ) throws IOException
+        {
+            while ((value & ~0x7FL) != 0)
+            {
+                writeByte((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            writeByte((int) value);
+        }
+
+        void writeDouble( double value ) throws IOException
+        {
+            long bits = Double.doubleToRawLongBits(value);
+            for (int shift = 56; shift >= 0; shift -= 8)
+            {
+                writeByte((int) (bits >>> shift));
+            }
+        }
+
+        private void flush() throws IOException
+        {
+            crc.reset();
+            crc.update(raw, 0, pos);
+
+            byte[] stored = raw;
+            int storedLength = pos;
+            if (compress && pos > 0)
+            {
+                deflater.reset();
+                deflater.setInput(raw, 0, pos);
+                deflater.finish();
+                int len = deflater.deflate(deflated, 0, deflated.length);
+                if (deflater.finished() && len < pos)
+                {
+                    stored = deflated;
+                    storedLength = len;
+                }
+            }
+
+            blockHeader.clear();
+            blockHeader.putInt(pos).putInt(storedLength).putInt((int) crc.getValue());
+            blockHeader.flip();
+            writeFully(channel, blockHeader);
+            writeFully(channel, ByteBuffer.wrap(stored, 0, storedLength));
+            pos = 0;
+        }
+
+        void close() throws IOException
+        {
+            if (pos > 0)
+                flush();
+
+            // terminating empty block
+            flush();
+            deflater.end();
+        }
+    }
+
+    private static class BlockInput
+    {
+        private final FileChannel channel;
+        private final ByteBuffer blockHeader = ByteBuffer.allocate(BLOCK_HEADER_SIZE);
+        private final CRC32 crc = new CRC32();
+        private final Inflater inflater = new Inflater();
+        private byte[] raw;
+        private byte[] stored;
+        private long position;
+        private int pos;
+        private int limit;
+        private boolean ended;
+
+        BlockInput( FileChannel channel, long position, int blockSize )
+        {
+            this.channel = channel;
+            this.position = position;
+            this.raw = new byte[blockSize];
+            this.stored = new byte[blockSize];
+        }
+
+        private void nextBlock() throws IOException
+        {
+            if (ended)
+                throw new IOException("Unexpected end of snapshot data at " + position);
+
+            blockHeader.clear();
+            readFully(channel, blockHeader, position);
+            blockHeader.flip();
+            int rawLength = blockHeader.getInt();
+            int storedLength = blockHeader.getInt();
+            int checksum = blockHeader.getInt();
+            position += BLOCK_HEADER_SIZE;
+
+            if (rawLength < 0 || storedLength < 0 || storedLength > rawLength)
+                throw new IOException("Corrupt block header at " + (position - BLOCK_HEADER_SIZE));
+
+            if (rawLength > raw.length)
+                raw = new byte[rawLength];
+            if (storedLength > stored.length)
+                stored = new byte[storedLength];
+
+            if (storedLength == rawLength)
+            {
+                readFully(channel, ByteBuffer.wrap(raw, 0, rawLength), position);
+            } else
+            {
+                readFully(channel, ByteBuffer.wrap(stored, 0, storedLength), position);
+                inflater.reset();
+                inflater.setInput(stored, 0, storedLength);
+                try
+                {
+                    if (inflater.inflate(raw, 0, rawLength) != rawLength)
+                        throw new IOException("Truncated block at " + position);
+                } catch (DataFormatException ex)
+                {
+                    throw new IOException("Corrupt block at " + position, ex);
+                }
+            }
+            position += storedLength;
+
+            crc.reset();
+            crc.update(raw, 0, rawLength);
+            if ((int) crc.getValue() != checksum)
+                throw new IOException("Checksum mismatch in block ending at " + position);
+
+            pos = 0;
+            limit = rawLength;
+            ended = rawLength == 0;
+        }
+
+        int readByte() throws IOException
+        {
+            while (pos == limit)
+            {
+                nextBlock();
+            }
+            return raw[pos++] & 0xFF;
+        }
+
+        long readVarLong() throws IOException
+        {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7)
+            {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0)
+                    return value;
+            }
+            throw new IOException("Malformed varint before " + position);
+        }
+
+        double readDouble() throws IOException
+        {
+            long bits = 0;
+            for (int i = 0; i < 8; i++)
+            {
+                bits = (bits << 8) | readByte();
+            }
+            return Double.longBitsToDouble(bits);
+        }
+
+        void checkEnd() throws IOException
+        {
+            if (pos != limit)
+                throw new IOException("Unread data in snapshot before " + position);
+
+            if (!ended)
+                nextBlock();
+
+            if (!ended || limit != 0)
+                throw new IOException("Missing end of snapshot marker at " + position);
+
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.daedafusion.graph.impl;
+
+import com.daedafusion.graph.util.Helper;
+
+import java.util.Arrays;
+
+/**
+ * Coordinates of nodes indexed by a dense node index. Latitude and longitude are stored as int via
+ * Helper.degreeToInt, the elevation via Helper.eleToInt and only once the first elevation is set.
+ * Nodes without coordinates report 0 and are told apart from a node at 0,0 through has.
+ */
+public class NodeCoordinates
+{
+    private int[] latitudes;
+    private int[] longitudes;
+    private int[] elevations;
+    // one bit per index that had coordinates set
+    private long[] present;
+
+    public NodeCoordinates(int capacity)
+    {
+        capacity = Math.max(capacity, 1);
+        latitudes = new int[capacity];
+        longitudes = new int[capacity];
+        present = new long[words(capacity)];
+    }
+
+    private static int words( int capacity )
+    {
+        return (capacity + 63) >>> 6;
+    }
+
+    public void ensureCapacity( int size )
+    {
+        if (size <= latitudes.length)
+            return;
+
+        int cap = Math.max(size, latitudes.length * 2);
+        latitudes = Arrays.copyOf(latitudes, cap);
+        longitudes = Arrays.copyOf(longitudes, cap);
+        if (elevations != null)
+            elevations = Arrays.copyOf(elevations, cap);
+        present = Arrays.copyOf(present, words(cap));
+    }
+
+    public int getCapacity()
+    {
+        return latitudes.length;
+    }
+
+    public boolean is3D()
+    {
+        return elevations != null;
+    }
+
+    public void set( int index, double lat, double lon )
+    {
+        setInt(index, Helper.degreeToInt(lat), Helper.degreeToInt(lon));
+    }
+
+    public void set( int index, double lat, double lon, double ele )
+    {
+        setInt(index, Helper.degreeToInt(lat), Helper.degreeToInt(lon));
+        setElevationInt(index, Helper.eleToInt(ele));
+    }
+
+    public void setInt( int index, int lat, int lon )
+    {
+        ensureCapacity(index + 1);
+        latitudes[index] = lat;
+        longitudes[index] = lon;
+        present[index >>> 6] |= 1L << index;
+    }
+
+    /**
+     * @return true if coordinates were set for the specified index
+     */
+    public boolean has( int index )
+    {
+        return index < latitudes.length && (present[index >>> 6] & (1L << index)) != 0;
+    }
+
+    public void setElevationInt( int index, int ele )
+    {
+        ensureCapacity(index + 1);
+        if (elevations == null)
+            elevations = new int[latitudes.length];
+
+        elevations[index] = ele;
+    }
+
+    public int getLatitudeInt( int index )
+    {
+        return index < latitudes.length ? latitudes[index] : 0;
+    }
+
+    public int getLongitudeInt( int index )
+    {
+        return index < longitudes.length ? longitudes[index] : 0;
+    }
+
+    public int getElevationInt( int index )
+    {
+        return elevations != null && index < elevations.length ? elevations[index] : 0;
+    }
+
+    public double getLatitude( int index )
+    {
+        return Helper.intToDegree(getLatitudeInt(index));
+    }
+
+    public double getLongitude( int index )
+    {
+        return Helper.intToDegree(getLongitudeInt(index));
+    }
+
+    public double getElevation( int index )
+    {
+        return Helper.intToEle(getElevationInt(index));
+    }
+}
@@ -0,0 +1,160 @@
+package com.daedafusion.graph.impl;
+
+import java.util.Arrays;
+
+/**
+ * Immutable adjacency layout of a CompactGraph where the edges of every node are stored
+ * contiguously, sorted by predicate and indexed by a per node predicate directory:
+ * <pre>
+ * nodeGroups[n] .. nodeGroups[n + 1]     groups of node n
+ * groupPredicates[g]                     dense predicate index of group g
+ * groupEdges[g] .. groupEdges[g + 1]     positions in edges[] belonging to group g
+ * </pre>
+ * Outgoing and incoming edges are kept in separate layouts. Expanding a node for a small set of
+ * predicates only touches the matching ranges instead of every edge of the node which matters for
+ * hub nodes like the objects of rdf:type.
+ */
+public class PredicateAdjacency
+{
+    private final int edgeCount;
+    private final int nodeCount;
+    private final Layout out;
+    private final Layout in;
+
+    PredicateAdjacency( CompactGraph graph )
+    {
+        this.edgeCount = graph.getEdgeCount();
+        this.nodeCount = graph.getNodeCount();
+        int nodes = nodeCount;
+        int predicates = graph.getPredicateCount();
+
+        int[] subjects = new int[edgeCount];
+        int[] objects = new int[edgeCount];
+        int[] edgePredicates = new int[edgeCount];
+        for (int e = 0; e < edgeCount; e++)
+        {
+            subjects[e] = graph.getEdgeSubject(e);
+            objects[e] = graph.getEdgeObject(e);
+            edgePredicates[e] = graph.getEdgePredicate(e);
+        }
+
+        // stable counting sort by predicate, the per node sort below keeps that order
+        int[] byPredicate = countingSort(liveEdges(graph), edgePredicates, predicates);
+        out = new Layout(countingSort(byPredicate, subjects, nodes), subjects, edgePredicates, nodes);
+        in = new Layout(countingSort(byPredicate, objects, nodes), objects, edgePredicates, nodes);
+    }
+
+    private static int[] liveEdges( CompactGraph graph )
+    {
+        int[] result = new int[graph.getEdgeCount() - graph.getRemovedEdgeCount()];
+        int count = 0;
+        for (int e = 0; e < graph.getEdgeCount() && count < result.length; e++)
+        {
+            if (!graph.isEdgeRemoved(e))
+                result[count++] = e;
+        }
+        return result;
+    }
+
+    private static int[] countingSort( int[] edges, int[] keys, int keyCount )
+    {
+        int[] start = new int[keyCount + 1];
+        for (int e : edges)
+        {
+            start[keys[e] + 1]++;
+        }
+        for (int k = 0; k < keyCount; k++)
+        {
+            start[k + 1] += start[k];
+        }
+
+        int[] sorted = new int[edges.length];
+        for (int e : edges)
+        {
+            sorted[start[keys[e]]++] = e;
+        }
+        return sorted;
+    }
+
+    /**
+     * @return true if edges or nodes were added to the graph since this layout was built, nodes
+     * without edges are added by setNode and addNode. Removed edges are skipped by the iterators
+     * and dropped on the next rebuild.
+     */
+    boolean isStale( CompactGraph graph )
+    {
+        return graph.getEdgeCount() != edgeCount || graph.getNodeCount() != nodeCount;
+    }
+
+    Layout getOut()
+    {
+        return out;
+    }
+
+    Layout getIn()
+    {
+        return in;
+    }
+
+    static class Layout
+    {
+        final int[] edges;
+        final int[] nodeGroups;
+        final int[] groupPredicates;
+        final int[] groupEdges;
+
+        Layout( int[] sortedEdges, int[] nodeKeys, int[] predicateKeys, int nodes )
+        {
+            this.edges = sortedEdges;
+            this.nodeGroups = new int[nodes + 1];
+
+            int groups = 0;
+            int[] tmpPredicates = new int[Math.max(16, nodes)];
+            int[] tmpEdges = new int[tmpPredicates.length + 1];
+            int prevNode = -1, prevPredicate = -1;
+            for (int i = 0; i < sortedEdges.length; i++)
+            {
+                int e = sortedEdges[i];
+                int node = nodeKeys[e];
+                int predicate = predicateKeys[e];
+                if (node != prevNode || predicate != prevPredicate)
+                {
+                    if (groups + 1 >= tmpEdges.length)
+                    {
+                        tmpPredicates = Arrays.copyOf(tmpPredicates, groups * 2);
+                        tmpEdges = Arrays.copyOf(tmpEdges, groups * 2 + 1);
+                    }
+                    // nodes without edges in between start with the same group
+                    for (int n = prevNode + 1; n <= node; n++)
+                    {
+                        nodeGroups[n] = groups;
+                    }
+                    tmpPredicates[groups] = predicate;
+                    tmpEdges[groups] = i;
+                    groups++;
+                    prevNode = node;
+                    prevPredicate = predicate;
+                }
+            }
+            for (int n = prevNode + 1; n <= nodes; n++)
+            {
+                nodeGroups[n] = groups;
+            }
+            tmpEdges[groups] = sortedEdges.length;
+
+            this.groupPredicates = Arrays.copyOf(tmpPredicates, groups);
+            this.groupEdges = Arrays.copyOf(tmpEdges, groups + 1);
+        }
+
+        /**
+         * Finds the group of the specified predicate between fromGroup (inclusive) and toGroup
+         * (exclusive).
+         *
+         * @return the group or a negative value if the node has no edge with this predicate
+         */
+        int findGroup( int fromGroup, int toGroup, int predicate )
+        {
+            return Arrays.binarySearch(groupPredicates, fromGroup, toGroup, predicate);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.daedafusion.graph.impl;
+
+import com.daedafusion.graph.util.Edge;
+import com.daedafusion.graph.util.EdgeFilter;
+
+import java.util.Arrays;
+
+/**
+ * Accepts only edges with one of the specified predicates. The predicate ids are compiled into a
+ * bitset over the dense predicate indices of a CompactGraph so that the per edge test is a single
+ * array lookup. Predicates added to the graph later on trigger a recompilation.
+ */
+public class PredicateEdgeFilter implements EdgeFilter
+{
+    private final CompactGraph graph;
+    private final long[] predicates;
+    private Compiled compiled;
+
+    public PredicateEdgeFilter(CompactGraph graph, long... predicates)
+    {
+        this.graph = graph;
+        this.predicates = Arrays.copyOf(predicates, predicates.length);
+        this.compiled = compile();
+    }
+
+    private Compiled compile()
+    {
+        int count = graph.getPredicateCount();
+        long[] bits = new long[(count + 63) >>> 6];
+        int[] indices = new int[predicates.length];
+        int size = 0;
+        for (long predicate : predicates)
+        {
+            int index = graph.getPredicateIndex(predicate);
+            if (index >= 0 && index < count && (bits[index >>> 6] & (1L << index)) == 0)
+            {
+                bits[index >>> 6] |= 1L << index;
+                indices[size++] = index;
+            }
+        }
+        indices = Arrays.copyOf(indices, size);
+        Arrays.sort(indices);
+        return new Compiled(bits, indices, count);
+    }
+
+    /**
+     * @return true if the predicate with the specified dense index is allowed
+     */
+    public boolean acceptPredicate( int predicateIndex )
+    {
+        Compiled c = compiled;
+        if (predicateIndex >= c.count)
+        {
+            c = compile();
+            compiled = c;
+            if (predicateIndex >= c.count)
+                return false;
+        }
+        return (c.bits[predicateIndex >>> 6] & (1L << predicateIndex)) != 0;
+    }
+
+    /**
+     * @return the sorted dense indices of the allowed predicates known to the graph
+     */
+    int[] getPredicateIndices()
+    {
+        Compiled c = compiled;
+        if (c.count != graph.getPredicateCount())
+        {
+            c = compile();
+            compiled = c;
+        }
+        return c.indices;
+    }
+
+    public CompactGraph getGraph()
+    {
+        return graph;
+    }
+
+    @Override
+    public boolean accept(Edge edge)
+    {
+        if (edge instanceof CompactEdge && ((CompactEdge) edge).getGraph() == graph)
+            return acceptPredicate(((CompactEdge) edge).getPredicateIndex());
+
+        int index = graph.getPredicateIndex(edge.getPredicate());
+        return index >= 0 && acceptPredicate(index);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "predicates:" + Arrays.toString(predicates);
+    }
+
+    private static class Compiled
+    {
+        final long[] bits;
+        final int[] indices;
+        final int count;
+
+        Compiled( long[] bits, int[] indices, int count )
+        {
+            this.bits = bits;
+            this.indices = indices;
+            this.count = count;
+        }
+    }
+}
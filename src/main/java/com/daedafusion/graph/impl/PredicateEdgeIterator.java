@@ -0,0 +1,170 @@
+package com.daedafusion.graph.impl;
+
+import com.daedafusion.graph.util.Edge;
+import com.daedafusion.graph.util.EdgeExplorer;
+import com.daedafusion.graph.util.Traversal;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Explorer over the PredicateAdjacency of a CompactGraph which only visits the edge ranges of the
+ * predicates accepted by a PredicateEdgeFilter. Like CompactEdgeIterator the outgoing edges are
+ * returned before the incoming ones, only one side is collected for forward and reverse explorers
+ * and the returned edge is reused.
+ */
+public class PredicateEdgeIterator implements EdgeExplorer, Iterator<Edge>
+{
+    // below this many groups per node a linear scan of the directory beats binary searches
+    private static final int LINEAR_SCAN_GROUPS = 8;
+
+    private final CompactGraph graph;
+    private final PredicateEdgeFilter filter;
+    private final Traversal traversal;
+    private final CompactEdge current;
+    private int[] ranges = new int[16];
+    private int rangeCount;
+    private int rangeIndex;
+    private int position;
+    private int end;
+    private int baseIndex;
+    private int[] edges;
+    private int[] inEdges;
+    private int inRangesStart;
+    private int adjIndex = CompactGraph.NO_NODE;
+
+    public PredicateEdgeIterator(CompactGraph graph, PredicateEdgeFilter filter)
+    {
+        this(graph, filter, Traversal.UNDIRECTED);
+    }
+
+    public PredicateEdgeIterator(CompactGraph graph, PredicateEdgeFilter filter, Traversal traversal)
+    {
+        if (filter.getGraph() != graph)
+            throw new IllegalArgumentException("Filter was compiled for another graph");
+
+        this.graph = graph;
+        this.filter = filter;
+        this.traversal = traversal;
+        this.current = new CompactEdge(graph, CompactGraph.NO_EDGE);
+    }
+
+    @Override
+    public Iterator<Edge> setBaseNode(long baseNode)
+    {
+        rangeCount = 0;
+        rangeIndex = 0;
+        position = end = 0;
+        adjIndex = CompactGraph.NO_NODE;
+        baseIndex = graph.getNodeIndex(baseNode);
+        if (baseIndex == CompactGraph.NO_NODE)
+            return this;
+
+        PredicateAdjacency adjacency = graph.getPredicateAdjacency();
+        int[] allowed = filter.getPredicateIndices();
+        if (traversal.followsOutgoing())
+            collectRanges(adjacency.getOut(), allowed);
+        inRangesStart = rangeCount;
+        if (traversal.followsIncoming())
+            collectRanges(adjacency.getIn(), allowed);
+        edges = adjacency.getOut().edges;
+        inEdges = adjacency.getIn().edges;
+        nextRange();
+        skipHidden();
+        return this;
+    }
+
+    private void collectRanges( PredicateAdjacency.Layout layout, int[] allowed )
+    {
+        int from = layout.nodeGroups[baseIndex];
+        int to = layout.nodeGroups[baseIndex + 1];
+        if (to - from <= LINEAR_SCAN_GROUPS || allowed.length >= to - from)
+        {
+            for (int g = from; g < to; g++)
+            {
+                if (filter.acceptPredicate(layout.groupPredicates[g]))
+                    addRange(layout.groupEdges[g], layout.groupEdges[g + 1]);
+            }
+        } else
+        {
+            for (int predicate : allowed)
+            {
+                int g = layout.findGroup(from, to, predicate);
+                if (g >= 0)
+                    addRange(layout.groupEdges[g], layout.groupEdges[g + 1]);
+            }
+        }
+    }
+
+    private void addRange( int start, int stop )
+    {
+        if (rangeCount * 2 + 2 > ranges.length)
+            ranges = Arrays.copyOf(ranges, ranges.length * 2);
+
+        ranges[rangeCount * 2] = start;
+        ranges[rangeCount * 2 + 1] = stop;
+        rangeCount++;
+    }
+
+    private void nextRange()
+    {
+        while (position == end && rangeIndex < rangeCount)
+        {
+            position = ranges[rangeIndex * 2];
+            end = ranges[rangeIndex * 2 + 1];
+            rangeIndex++;
+        }
+    }
+
+    private int edgeAt( int pos )
+    {
+        return rangeIndex > inRangesStart ? inEdges[pos] : edges[pos];
+    }
+
+    // skips removed edges and self loops which are already returned with the outgoing edges
+    private void skipHidden()
+    {
+        while (position < end && (graph.isEdgeRemoved(edgeAt(position)) || traversal == Traversal.UNDIRECTED
+                && rangeIndex > inRangesStart && graph.getEdgeSubject(inEdges[position]) == baseIndex))
+        {
+            position++;
+            nextRange();
+        }
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        return position < end;
+    }
+
+    @Override
+    public Edge next()
+    {
+        if (position >= end)
+            throw new NoSuchElementException();
+
+        current.edge = edgeAt(position);
+        adjIndex = rangeIndex > inRangesStart ? graph.getEdgeSubject(current.edge) : graph.getEdgeObject(current.edge);
+        position++;
+        nextRange();
+        skipHidden();
+        return current;
+    }
+
+    @Override
+    public long getAdjNode()
+    {
+        if (adjIndex == CompactGraph.NO_NODE)
+            throw new IllegalStateException("next() was not called");
+
+        return graph.getNodeId(adjIndex);
+    }
+
+    @Override
+    public void remove()
+    {
+        throw new UnsupportedOperationException("Remove not supported");
+    }
+}
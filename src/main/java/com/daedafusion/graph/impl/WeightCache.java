@@ -0,0 +1,139 @@
+package com.daedafusion.graph.impl;
+
+import com.daedafusion.graph.routing.util.Weighting;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Precomputed weights of a CompactGraph, one dense array per registered weighting indexed by the
+ * dense edge index. Routing algorithms on a CompactGraph look up the array of their weighting when
+ * they are created and read the weight of an edge from it instead of calling
+ * Weighting.calcWeight.
+ * <p>
+ * Arrays are refreshed lazily when they are requested: edges appended to the graph are computed
+ * additionally, a changed edge distance recomputes the whole array. Weightings depending on other
+ * state than the edges have to be invalidated explicitly. A refresh publishes a new array, so
+ * algorithms already running keep reading a consistent one.
+ */
+public class WeightCache
+{
+    private static final Logger log = Logger.getLogger(WeightCache.class);
+
+    private final CompactGraph graph;
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    WeightCache( CompactGraph graph )
+    {
+        this.graph = graph;
+    }
+
+    private static class Entry
+    {
+        final Weighting weighting;
+        volatile double[] weights = new double[0];
+        int computedEdges;
+        int distanceUpdates = -1;
+
+        Entry( Weighting weighting )
+        {
+            this.weighting = weighting;
+        }
+    }
+
+    /**
+     * Computes the weights of all edges for the specified weighting and keeps them under the
+     * specified name, replacing a weighting registered under the same name before.
+     */
+    public synchronized void register( String name, Weighting weighting )
+    {
+        if (name == null || weighting == null)
+            throw new IllegalArgumentException("Name and weighting must not be null");
+
+        Entry entry = new Entry(weighting);
+        refresh(entry);
+        entries.put(name, entry);
+    }
+
+    public synchronized void remove( String name )
+    {
+        entries.remove(name);
+    }
+
+    /**
+     * @return the weighting registered under the specified name or null
+     */
+    public synchronized Weighting getWeighting( String name )
+    {
+        Entry entry = entries.get(name);
+        return entry == null ? null : entry.weighting;
+    }
+
+    public synchronized List<String> getNames()
+    {
+        return new ArrayList<>(entries.keySet());
+    }
+
+    /**
+     * @return the up to date weights of the specified weighting, indexed by the dense edge index,
+     * or null if the weighting instance is not registered
+     */
+    public synchronized double[] getWeights( Weighting weighting )
+    {
+        for (Entry entry : entries.values())
+        {
+            if (entry.weighting == weighting)
+                return refresh(entry);
+        }
+        return null;
+    }
+
+    /**
+     * @return the up to date weights registered under the specified name or null
+     */
+    public synchronized double[] getWeights( String name )
+    {
+        Entry entry = entries.get(name);
+        return entry == null ? null : refresh(entry);
+    }
+
+    /**
+     * Forces a full recomputation of all arrays on their next use, e.g. after properties a
+     * weighting consults have changed.
+     */
+    public synchronized void invalidate()
+    {
+        for (Entry entry : entries.values())
+        {
+            entry.distanceUpdates = -1;
+        }
+    }
+
+    private double[] refresh( Entry entry )
+    {
+        int edgeCount = graph.getEdgeCount();
+        int distanceUpdates = graph.getDistanceUpdates();
+        if (entry.distanceUpdates == distanceUpdates && entry.computedEdges == edgeCount)
+            return entry.weights;
+
+        int from = entry.distanceUpdates == distanceUpdates ? entry.computedEdges : 0;
+        double[] weights = from == 0 ? new double[edgeCount] : Arrays.copyOf(entry.weights, edgeCount);
+        CompactEdge edge = new CompactEdge(graph, CompactGraph.NO_EDGE);
+        for (int e = from; e < edgeCount; e++)
+        {
+            weights[e] = entry.weighting.calcWeight(edge.setEdgeIndex(e));
+        }
+
+        if (log.isDebugEnabled())
+            log.debug("Computed " + (edgeCount - from) + " weights of " + entry.weighting);
+
+        entry.computedEdges = edgeCount;
+        entry.distanceUpdates = distanceUpdates;
+        entry.weights = weights;
+        return weights;
+    }
+}
@@ -0,0 +1,175 @@
+package com.daedafusion.graph.partition;
+
+import com.daedafusion.graph.impl.CompactGraph;
+import org.apache.log4j.Logger;
+
+import java.util.Arrays;
+
+/**
+ * Balanced partitioning with a small edge cut, computed in memory in the spirit of the METIS
+ * refinement phase but without coarsening: shards are grown one after another by breadth first
+ * search over the undirected adjacency until they reach their target size, then nodes on the
+ * border are moved greedily to the neighboring shard they have the most edges to as long as the
+ * shard sizes stay within the imbalance.
+ */
+public class BalancedPartitioner implements Partitioner
+{
+    private static final Logger log = Logger.getLogger(BalancedPartitioner.class);
+
+    private double imbalance = 0.03;
+    private int refinementPasses = 4;
+
+    /**
+     * @param imbalance the allowed relative size excess of a shard over the average, 0.03 by default
+     */
+    public BalancedPartitioner setImbalance( double imbalance )
+    {
+        if (imbalance < 0)
+            throw new IllegalArgumentException("Imbalance must not be negative but was " + imbalance);
+
+        this.imbalance = imbalance;
+        return this;
+    }
+
+    public BalancedPartitioner setRefinementPasses( int refinementPasses )
+    {
+        this.refinementPasses = refinementPasses;
+        return this;
+    }
+
+    @Override
+    public int[] partition( CompactGraph graph, int shardCount )
+    {
+        if (shardCount <= 0)
+            throw new IllegalArgumentException("Shard count must be positive but was " + shardCount);
+
+        int nodes = graph.getNodeCount();
+        int[] shards = new int[nodes];
+        Arrays.fill(shards, -1);
+        int[] sizes = new int[shardCount];
+        int maxSize = (int) Math.ceil((double) nodes / shardCount * (1 + imbalance));
+
+        grow(graph, shards, sizes, shardCount);
+        int cut = countCut(graph, shards);
+        for (int pass = 0; pass < refinementPasses; pass++)
+        {
+            int moved = refine(graph, shards, sizes, maxSize);
+            if (moved == 0)
+                break;
+        }
+
+        if (log.isDebugEnabled())
+            log.debug("Partitioned " + nodes + " nodes into " + shardCount + " shards, cut edges after growing "
+                    + cut + ", after refinement " + countCut(graph, shards));
+        return shards;
+    }
+
+    private void grow( CompactGraph graph, int[] shards, int[] sizes, int shardCount )
+    {
+        int nodes = graph.getNodeCount();
+        int[] queue = new int[nodes];
+        int nextSeed = 0;
+        int assigned = 0;
+        for (int shard = 0; shard < shardCount; shard++)
+        {
+            // the remaining nodes are spread evenly over the remaining shards
+            int target = (nodes - assigned + shardCount - shard - 1) / (shardCount - shard);
+            int head = 0, tail = 0;
+            while (sizes[shard] < target)
+            {
+                if (head == tail)
+                {
+                    while (shards[nextSeed] != -1)
+                    {
+                        nextSeed++;
+                    }
+                    shards[nextSeed] = shard;
+                    sizes[shard]++;
+                    queue[tail++] = nextSeed;
+                    continue;
+                }
+
+                int node = queue[head++];
+                for (int pass = 0; pass < 2 && sizes[shard] < target; pass++)
+                {
+                    int edge = pass == 0 ? graph.getFirstOutEdge(node) : graph.getFirstInEdge(node);
+                    while (edge != CompactGraph.NO_EDGE && sizes[shard] < target)
+                    {
+                        int adj = pass == 0 ? graph.getEdgeObject(edge) : graph.getEdgeSubject(edge);
+                        if (shards[adj] == -1)
+                        {
+                            shards[adj] = shard;
+                            sizes[shard]++;
+                            queue[tail++] = adj;
+                        }
+                        edge = pass == 0 ? graph.getNextOutEdge(edge) : graph.getNextInEdge(edge);
+                    }
+                }
+            }
+            assigned += sizes[shard];
+        }
+    }
+
+    /**
+     * @return the number of moved nodes
+     */
+    private int refine( CompactGraph graph, int[] shards, int[] sizes, int maxSize )
+    {
+        int[] connections = new int[sizes.length];
+        int[] touched = new int[sizes.length];
+        int moved = 0;
+        for (int node = 0; node < shards.length; node++)
+        {
+            int own = shards[node];
+            int touchedCount = 0;
+            for (int pass = 0; pass < 2; pass++)
+            {
+                int edge = pass == 0 ? graph.getFirstOutEdge(node) : graph.getFirstInEdge(node);
+                while (edge != CompactGraph.NO_EDGE)
+                {
+                    int adj = pass == 0 ? graph.getEdgeObject(edge) : graph.getEdgeSubject(edge);
+                    if (adj != node)
+                    {
+                        int shard = shards[adj];
+                        if (connections[shard]++ == 0)
+                            touched[touchedCount++] = shard;
+                    }
+                    edge = pass == 0 ? graph.getNextOutEdge(edge) : graph.getNextInEdge(edge);
+                }
+            }
+
+            int best = own;
+            for (int i = 0; i < touchedCount; i++)
+            {
+                int shard = touched[i];
+                if (connections[shard] > connections[best] && sizes[shard] < maxSize)
+                    best = shard;
+            }
+            for (int i = 0; i < touchedCount; i++)
+            {
+                connections[touched[i]] = 0;
+            }
+
+            // never empty a shard
+            if (best != own && sizes[own] > 1)
+            {
+                shards[node] = best;
+                sizes[own]--;
+                sizes[best]++;
+                moved++;
+            }
+        }
+        return moved;
+    }
+
+    static int countCut( CompactGraph graph, int[] shards )
+    {
+        int cut = 0;
+        for (int e = 0; e < graph.getEdgeCount(); e++)
+        {
+            if (!graph.isEdgeRemoved(e) && shards[graph.getEdgeSubject(e)] != shards[graph.getEdgeObject(e)])
+                cut++;
+        }
+        return cut;
+    }
+}
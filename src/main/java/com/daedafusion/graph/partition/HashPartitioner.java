@@ -0,0 +1,36 @@
+package com.daedafusion.graph.partition;
+
+import com.daedafusion.graph.impl.CompactGraph;
+
+/**
+ * Assigns nodes by a hash of their id. Cheap and stateless, the shard of a node can be computed
+ * without any lookup, but nearly every edge is cut for more than a few shards.
+ */
+public class HashPartitioner implements Partitioner
+{
+    @Override
+    public int[] partition( CompactGraph graph, int shardCount )
+    {
+        if (shardCount <= 0)
+            throw new IllegalArgumentException("Shard count must be positive but was " + shardCount);
+
+        int[] shards = new int[graph.getNodeCount()];
+        for (int n = 0; n < shards.length; n++)
+        {
+            shards[n] = getShard(graph.getNodeId(n), shardCount);
+        }
+        return shards;
+    }
+
+    public static int getShard( long node, int shardCount )
+    {
+        // murmur3 finalizer to spread sequential ids
+        long h = node;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) ((h & Long.MAX_VALUE) % shardCount);
+    }
+}
@@ -0,0 +1,149 @@
+package com.daedafusion.graph.partition;
+
+import com.daedafusion.graph.impl.CompactGraph;
+import com.daedafusion.graph.impl.GraphSnapshot;
+import com.daedafusion.graph.routing.DenseDijkstra;
+import com.daedafusion.graph.routing.Dijkstra;
+import com.daedafusion.graph.routing.Path;
+import com.daedafusion.graph.routing.util.Weighting;
+import com.daedafusion.graph.storage.Graph;
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * In process transport holding the shards in memory. Shards are either handed over directly or
+ * loaded from the snapshot files written by PartitionedGraph.write on their first use, so a
+ * process only pays for the shards it actually touches.
+ */
+public class LocalShardTransport implements ShardTransport
+{
+    private static final Logger log = Logger.getLogger(LocalShardTransport.class);
+
+    private final Weighting weighting;
+    private final File directory;
+    private final AtomicReferenceArray<CompactGraph> shards;
+    // reusable searches per shard, a search is not thread safe
+    private final AtomicReferenceArray<Queue<DenseDijkstra>> searches;
+
+    public LocalShardTransport( Weighting weighting, CompactGraph... shards )
+    {
+        this(weighting, null, shards.length);
+        for (int i = 0; i < shards.length; i++)
+        {
+            this.shards.set(i, shards[i]);
+        }
+    }
+
+    /**
+     * Loads the shards lazily from the specified directory.
+     */
+    public LocalShardTransport( Weighting weighting, File directory, int shardCount )
+    {
+        this.weighting = weighting;
+        this.directory = directory;
+        this.shards = new AtomicReferenceArray<>(shardCount);
+        this.searches = new AtomicReferenceArray<>(shardCount);
+        for (int i = 0; i < shardCount; i++)
+        {
+            searches.set(i, new ConcurrentLinkedQueue<DenseDijkstra>());
+        }
+    }
+
+    static File getShardFile( File directory, int shard )
+    {
+        return new File(directory, "shard-" + shard + ".graph");
+    }
+
+    @Override
+    public int getShardCount()
+    {
+        return shards.length();
+    }
+
+    /**
+     * @return true if the shard is in memory
+     */
+    public boolean isLoaded( int shard )
+    {
+        return shards.get(shard) != null;
+    }
+
+    public CompactGraph getShard( int shard )
+    {
+        CompactGraph graph = shards.get(shard);
+        if (graph != null)
+            return graph;
+
+        synchronized (this)
+        {
+            graph = shards.get(shard);
+            if (graph == null)
+            {
+                if (directory == null)
+                    throw new IllegalStateException("Shard " + shard + " was not provided");
+
+                File file = getShardFile(directory, shard);
+                try
+                {
+                    graph = new GraphSnapshot().read(file);
+                } catch (IOException ex)
+                {
+                    throw new UncheckedIOException("Cannot load shard " + shard + " from " + file, ex);
+                }
+                if (log.isDebugEnabled())
+                    log.debug("Loaded shard " + shard + ": " + graph);
+                shards.set(shard, graph);
+            }
+            return graph;
+        }
+    }
+
+    @Override
+    public double[] calcWeights( int shard, long node, long[] targets, boolean reverse )
+    {
+        CompactGraph graph = getShard(shard);
+        int source = graph.getNodeIndex(node);
+        if (source == CompactGraph.NO_NODE)
+        {
+            double[] result = new double[targets.length];
+            Arrays.fill(result, Double.POSITIVE_INFINITY);
+            return result;
+        }
+
+        int[] targetIndices = new int[targets.length];
+        for (int i = 0; i < targets.length; i++)
+        {
+            targetIndices[i] = graph.getNodeIndex(targets[i]);
+        }
+
+        DenseDijkstra search = searches.get(shard).poll();
+        if (search == null)
+            search = new DenseDijkstra(graph, weighting);
+        try
+        {
+            return search.setReverse(reverse).calcWeights(source, targetIndices);
+        } finally
+        {
+            searches.get(shard).offer(search);
+        }
+    }
+
+    @Override
+    public Path calcPath( int shard, long from, long to )
+    {
+        return new Dijkstra(getShard(shard), weighting).calcPath(from, to);
+    }
+
+    @Override
+    public Graph getGraph( int shard )
+    {
+        return getShard(shard);
+    }
+}
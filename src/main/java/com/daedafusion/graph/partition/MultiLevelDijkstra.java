@@ -0,0 +1,165 @@
+package com.daedafusion.graph.partition;
+
+import com.daedafusion.graph.impl.CompactGraph;
+import com.daedafusion.graph.routing.Path;
+import gnu.trove.list.array.TIntArrayList;
+
+/**
+ * Bidirectional multi-level Dijkstra on a customized MultiLevelOverlay. A node is expanded on the
+ * highest level on which its cell contains neither the source nor the target, so the searches
+ * follow original edges only close to source and target and jump over the rest of the graph with
+ * the boundary matrices. Matrix edges of the resulting path are unpacked by searches restricted to
+ * their cell one level below. Not thread safe, use one instance per thread.
+ */
+public class MultiLevelDijkstra
+{
+    private final MultiLevelOverlay overlay;
+    private final MultiLevelPartition partition;
+    private final CompactGraph graph;
+    private final MultiLevelOverlay.Search forward;
+    private final MultiLevelOverlay.Search backward;
+    private final MultiLevelOverlay.Search unpacker;
+    private int source;
+    private int target;
+    private int settledCount;
+
+    public MultiLevelDijkstra( MultiLevelOverlay overlay )
+    {
+        this.overlay = overlay;
+        this.partition = overlay.getPartition();
+        this.graph = partition.getGraph();
+        this.forward = overlay.new Search(false);
+        this.backward = overlay.new Search(true);
+        this.unpacker = overlay.new Search(false);
+    }
+
+    /**
+     * @return the weight of the shortest path, infinity if there is none
+     */
+    public double calcWeight( long from, long to )
+    {
+        return search(from, to) ? getBestWeight() : Double.POSITIVE_INFINITY;
+    }
+
+    public Path calcPath( long from, long to )
+    {
+        if (!search(from, to))
+            return new Path(graph);
+
+        MultiLevelOverlay.Search meetingSearch = forward.getBestWeight() <= backward.getBestWeight() ? forward : backward;
+        int meeting = meetingSearch.getMeetingNode();
+        TIntArrayList arcs = collect(forward, meeting);
+        arcs.addAll(collect(backward, meeting));
+
+        PartitionedPath path = new PartitionedPath(graph, from);
+        unpack(arcs, path);
+        return path.finish(getBestWeight());
+    }
+
+    /**
+     * @return the number of nodes settled by both searches of the last query
+     */
+    public int getSettledCount()
+    {
+        return settledCount;
+    }
+
+    public MultiLevelOverlay getOverlay()
+    {
+        return overlay;
+    }
+
+    private double getBestWeight()
+    {
+        return Math.min(forward.getBestWeight(), backward.getBestWeight());
+    }
+
+    private boolean search( long from, long to )
+    {
+        settledCount = 0;
+        source = graph.getNodeIndex(from);
+        target = graph.getNodeIndex(to);
+        if (source == CompactGraph.NO_NODE || target == CompactGraph.NO_NODE)
+            return false;
+
+        forward.clear(backward);
+        backward.clear(forward);
+        forward.addSource(source);
+        backward.addSource(target);
+        while (true)
+        {
+            double forwardWeight = forward.peekWeight();
+            double backwardWeight = backward.peekWeight();
+            if (forwardWeight + backwardWeight >= getBestWeight())
+                break;
+
+            MultiLevelOverlay.Search search = forwardWeight <= backwardWeight ? forward : backward;
+            int node = search.poll();
+            if (node < 0)
+                continue;
+
+            settledCount++;
+            search.relax(node, getQueryLevel(node));
+        }
+        return getBestWeight() < Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * @return the highest level on which the node is neither in the cell of the source nor in the
+     * cell of the target, -1 if it shares the level 0 cell with one of them
+     */
+    private int getQueryLevel( int node )
+    {
+        for (int level = partition.getLevelCount() - 1; level >= 0; level--)
+        {
+            int cell = partition.getCell(level, node);
+            if (cell != partition.getCell(level, source) && cell != partition.getCell(level, target))
+                return level;
+        }
+        return -1;
+    }
+
+    /**
+     * @return the arcs of the search tree between its root and the node as (from, to, edge, level)
+     * in edge direction and path order
+     */
+    private static TIntArrayList collect( MultiLevelOverlay.Search search, int node )
+    {
+        TIntArrayList arcs = new TIntArrayList();
+        int edge;
+        while ((edge = search.getParentEdge(node)) != MultiLevelOverlay.NO_EDGE)
+        {
+            int parent = search.getParent(node);
+            int level = search.getParentLevel(node);
+            if (search.isReverse())
+                arcs.add(new int[]{node, parent, edge, level});
+            else
+                // added back to front, the whole list is reversed below
+                arcs.add(new int[]{level, edge, node, parent});
+            node = parent;
+        }
+        if (!search.isReverse())
+            arcs.reverse();
+        return arcs;
+    }
+
+    private void unpack( TIntArrayList arcs, PartitionedPath path )
+    {
+        for (int i = 0; i < arcs.size(); i += 4)
+        {
+            int from = arcs.get(i);
+            int to = arcs.get(i + 1);
+            int edge = arcs.get(i + 2);
+            int level = arcs.get(i + 3);
+            if (edge >= 0)
+            {
+                path.append(graph.getEdgeId(edge), graph.getNodeId(to));
+                continue;
+            }
+
+            // replace the matrix entry by the path through its cell one level below
+            unpacker.restrictedSearch(from, to, level, partition.getCell(level, from));
+            unpack(collect(unpacker, to), path);
+        }
+    }
+}
@@ -0,0 +1,373 @@
+package com.daedafusion.graph.partition;
+
+import com.daedafusion.graph.impl.CompactEdge;
+import com.daedafusion.graph.impl.CompactGraph;
+import com.daedafusion.graph.routing.util.Weighting;
+import com.daedafusion.graph.util.IntDoubleBinHeap;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Metric dependent part of Customizable Route Planning: the boundary weight matrices of all cells
+ * of a MultiLevelPartition for one weighting. Customization works bottom up, the matrix of a level
+ * 0 cell comes from searches on the original edges inside the cell, the matrix of a higher cell
+ * from searches on the matrices and cut edges of its sub cells. Cells of the same level are
+ * independent and customized in parallel, so a changed weighting only costs a customization and
+ * not a new partition.
+ */
+public class MultiLevelOverlay
+{
+    private static final Logger log = Logger.getLogger(MultiLevelOverlay.class);
+
+    static final int NO_EDGE = -1;
+    static final int CLIQUE = -2;
+
+    private final MultiLevelPartition partition;
+    private final Weighting weighting;
+    private final double[] edgeWeights;
+    // level -> concatenated row major boundary matrices
+    private final double[][] matrices;
+
+    private MultiLevelOverlay( MultiLevelPartition partition, Weighting weighting, double[] edgeWeights )
+    {
+        this.partition = partition;
+        this.weighting = weighting;
+        this.edgeWeights = edgeWeights;
+        this.matrices = new double[partition.getLevelCount()][];
+    }
+
+    /**
+     * Computes the boundary matrices for the weighting using the specified number of threads.
+     */
+    public static MultiLevelOverlay customize( MultiLevelPartition partition, Weighting weighting, int threads )
+    {
+        if (threads <= 0)
+            throw new IllegalArgumentException("Thread count must be positive but was " + threads);
+
+        long start = System.nanoTime();
+        CompactGraph graph = partition.getGraph();
+        double[] edgeWeights = new double[graph.getEdgeCount()];
+        CompactEdge cursor = graph.createEdgeCursor();
+        for (int e = 0; e < edgeWeights.length; e++)
+        {
+            edgeWeights[e] = graph.isEdgeRemoved(e)
+                    ? Double.POSITIVE_INFINITY : weighting.calcWeight(cursor.setEdgeIndex(e));
+        }
+
+        MultiLevelOverlay overlay = new MultiLevelOverlay(partition, weighting, edgeWeights);
+        ExecutorService executor = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+        try
+        {
+            for (int level = 0; level < partition.getLevelCount(); level++)
+            {
+                overlay.matrices[level] = new double[partition.getMatrixSize(level)];
+                overlay.customizeLevel(level, executor, threads);
+            }
+        } finally
+        {
+            if (executor != null)
+                executor.shutdown();
+        }
+
+        if (log.isDebugEnabled())
+            log.debug("Customized " + partition.getLevelCount() + " levels in "
+                    + (System.nanoTime() - start) / 1000000 + "ms with " + threads + " threads");
+        return overlay;
+    }
+
+    private void customizeLevel( final int level, ExecutorService executor, int threads )
+    {
+        final AtomicInteger nextCell = new AtomicInteger();
+        Runnable worker = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                Search search = new Search(false);
+                int cell;
+                while ((cell = nextCell.getAndIncrement()) < partition.getCellCount(level))
+                {
+                    customizeCell(search, level, cell);
+                }
+            }
+        };
+
+        if (executor == null)
+        {
+            worker.run();
+            return;
+        }
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++)
+        {
+            futures.add(executor.submit(worker));
+        }
+        for (Future<?> future : futures)
+        {
+            try
+            {
+                future.get();
+            } catch (InterruptedException ex)
+            {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Customization was interrupted", ex);
+            } catch (ExecutionException ex)
+            {
+                throw new IllegalStateException("Customization of level " + level + " failed", ex.getCause());
+            }
+        }
+    }
+
+    private void customizeCell( Search search, int level, int cell )
+    {
+        int[] boundary = partition.getBoundary(level, cell);
+        int offset = partition.getMatrixOffset(level, cell);
+        double[] matrix = matrices[level];
+        for (int i = 0; i < boundary.length; i++)
+        {
+            search.restrictedSearch(boundary[i], -1, level, cell);
+            for (int j = 0; j < boundary.length; j++)
+            {
+                matrix[offset + i * boundary.length + j] = search.getWeight(boundary[j]);
+            }
+        }
+    }
+
+    public MultiLevelPartition getPartition()
+    {
+        return partition;
+    }
+
+    public Weighting getWeighting()
+    {
+        return weighting;
+    }
+
+    /**
+     * @return the weight between two boundary nodes through the cell, infinity if there is no path
+     */
+    public double getBoundaryWeight( int level, int cell, int fromPosition, int toPosition )
+    {
+        int size = partition.getBoundary(level, cell).length;
+        return matrices[level][partition.getMatrixOffset(level, cell) + fromPosition * size + toPosition];
+    }
+
+    /**
+     * Dijkstra over the overlay, a node is expanded on a level: level -1 follows all original
+     * edges, a higher level the boundary matrix of the cell of the node and the edges cut on that
+     * level. Not thread safe.
+     */
+    final class Search
+    {
+        private final boolean reverse;
+        private final CompactGraph graph = partition.getGraph();
+        private final double[] weights;
+        private final int[] parents;
+        private final int[] parentEdges;
+        private final int[] parentLevels;
+        private final boolean[] settled;
+        private int[] touched = new int[16];
+        private int touchedCount;
+        private final IntDoubleBinHeap heap = new IntDoubleBinHeap();
+        private int restrictLevel = -1;
+        private int restrictCell;
+
+        // bidirectional queries record the best meeting point with the opposite search
+        private Search opposite;
+        private double bestWeight;
+        private int meetingNode;
+
+        Search( boolean reverse )
+        {
+            this.reverse = reverse;
+            int nodes = graph.getNodeCount();
+            this.weights = new double[nodes];
+            this.parents = new int[nodes];
+            this.parentEdges = new int[nodes];
+            this.parentLevels = new int[nodes];
+            this.settled = new boolean[nodes];
+            Arrays.fill(weights, Double.POSITIVE_INFINITY);
+        }
+
+        void clear( Search opposite )
+        {
+            for (int i = 0; i < touchedCount; i++)
+            {
+                int node = touched[i];
+                weights[node] = Double.POSITIVE_INFINITY;
+                settled[node] = false;
+            }
+            touchedCount = 0;
+            heap.clear();
+            this.opposite = opposite;
+            this.bestWeight = Double.POSITIVE_INFINITY;
+            this.meetingNode = -1;
+            this.restrictLevel = -1;
+        }
+
+        void addSource( int source )
+        {
+            update(source, 0, -1, NO_EDGE, -1);
+        }
+
+        /**
+         * Searches from the source on level - 1 without leaving the cell of the level until the
+         * target is settled, or until the queue is empty if the target is negative.
+         */
+        void restrictedSearch( int source, int target, int level, int cell )
+        {
+            clear(null);
+            restrictLevel = level;
+            restrictCell = cell;
+            addSource(source);
+            int node;
+            while ((node = poll()) >= 0 && node != target)
+            {
+                relax(node, level - 1);
+            }
+        }
+
+        boolean isReverse()
+        {
+            return reverse;
+        }
+
+        double getWeight( int node )
+        {
+            return weights[node];
+        }
+
+        boolean isSettled( int node )
+        {
+            return settled[node];
+        }
+
+        int getParent( int node )
+        {
+            return parents[node];
+        }
+
+        int getParentEdge( int node )
+        {
+            return parentEdges[node];
+        }
+
+        int getParentLevel( int node )
+        {
+            return parentLevels[node];
+        }
+
+        double getBestWeight()
+        {
+            return bestWeight;
+        }
+
+        int getMeetingNode()
+        {
+            return meetingNode;
+        }
+
+        /**
+         * @return a lower bound for the weight of the next settled node
+         */
+        double peekWeight()
+        {
+            return heap.isEmpty() ? Double.POSITIVE_INFINITY : heap.peekKey();
+        }
+
+        /**
+         * @return the next settled node or -1 if the queue is empty
+         */
+        int poll()
+        {
+            while (!heap.isEmpty())
+            {
+                int node = heap.poll();
+                if (!settled[node])
+                {
+                    settled[node] = true;
+                    return node;
+                }
+            }
+            return -1;
+        }
+
+        void relax( int node, int level )
+        {
+            double base = weights[node];
+            if (level >= 0)
+            {
+                int cell = partition.getCell(level, node);
+                int position = partition.getBoundaryPosition(level, node);
+                if (position >= 0)
+                {
+                    int[] boundary = partition.getBoundary(level, cell);
+                    int offset = partition.getMatrixOffset(level, cell);
+                    double[] matrix = matrices[level];
+                    for (int j = 0; j < boundary.length; j++)
+                    {
+                        double weight = reverse
+                                ? matrix[offset + j * boundary.length + position]
+                                : matrix[offset + position * boundary.length + j];
+                        if (j != position && weight < Double.POSITIVE_INFINITY && isAllowed(boundary[j]))
+                            update(boundary[j], base + weight, node, CLIQUE, level);
+                    }
+                }
+            }
+
+            int[] cells = level >= 0 ? partition.getCells(level) : null;
+            int edge = reverse ? graph.getFirstInEdge(node) : graph.getFirstOutEdge(node);
+            while (edge != CompactGraph.NO_EDGE)
+            {
+                int adj = reverse ? graph.getEdgeSubject(edge) : graph.getEdgeObject(edge);
+                double weight = edgeWeights[edge];
+                // edges inside the cell are covered by the boundary matrix
+                if (weight < Double.POSITIVE_INFINITY && (cells == null || cells[adj] != cells[node]) && isAllowed(adj))
+                    update(adj, base + weight, node, edge, level);
+                edge = reverse ? graph.getNextInEdge(edge) : graph.getNextOutEdge(edge);
+            }
+        }
+
+        private boolean isAllowed( int node )
+        {
+            return restrictLevel < 0 || partition.getCell(restrictLevel, node) == restrictCell;
+        }
+
+        private void update( int node, double weight, int parent, int edge, int level )
+        {
+            if (settled[node] || weight >= weights[node])
+                return;
+
+            if (weights[node] == Double.POSITIVE_INFINITY)
+            {
+                if (touchedCount == touched.length)
+                    touched = Arrays.copyOf(touched, touchedCount * 2);
+                touched[touchedCount++] = node;
+            }
+            weights[node] = weight;
+            parents[node] = parent;
+            parentEdges[node] = edge;
+            parentLevels[node] = level;
+            heap.insert(node, weight);
+
+            if (opposite != null)
+            {
+                double total = weight + opposite.weights[node];
+                if (total < bestWeight)
+                {
+                    bestWeight = total;
+                    meetingNode = node;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.daedafusion.graph.partition;
+
+import com.daedafusion.graph.impl.CompactGraph;
+import org.apache.log4j.Logger;
+
+import java.util.Arrays;
+
+/**
+ * Metric independent part of Customizable Route Planning: a nested partition of the nodes of a
+ * CompactGraph into cells on several levels. Level 0 has the smallest cells, every cell of a
+ * higher level is a union of cells of the level below. A node is a boundary node of its cell on a
+ * level if it has an edge to a node in another cell of that level, for every cell the overlay
+ * stores a weight matrix between its boundary nodes which is computed per weighting by
+ * MultiLevelOverlay.customize.
+ * <p>
+ * Level 0 is partitioned with the BalancedPartitioner, higher levels partition the graph of the
+ * adjacent cells of the level below. The partition does not depend on edge weights, so it is
+ * computed once and reused for every weighting. The graph must not change afterwards.
+ */
+public class MultiLevelPartition
+{
+    private static final Logger log = Logger.getLogger(MultiLevelPartition.class);
+
+    private final CompactGraph graph;
+    // level -> node -> cell
+    private final int[][] cells;
+    private final int[] cellCounts;
+    // level -> cell -> boundary nodes
+    private final int[][][] boundaries;
+    // level -> node -> position in the boundary of its cell or -1
+    private final int[][] boundaryPositions;
+    // level -> cell -> start of its boundary matrix in the level matrix
+    private final int[][] matrixOffsets;
+
+    private MultiLevelPartition( CompactGraph graph, int[][] cells, int[] cellCounts )
+    {
+        this.graph = graph;
+        this.cells = cells;
+        this.cellCounts = cellCounts;
+        int levels = cells.length;
+        this.boundaries = new int[levels][][];
+        this.boundaryPositions = new int[levels][];
+        this.matrixOffsets = new int[levels][];
+        for (int level = 0; level < levels; level++)
+        {
+            collectBoundaries(level);
+        }
+    }
+
+    /**
+     * @param cellCounts the number of cells per level starting with the finest level, strictly
+     *                   decreasing, e.g. {256, 16}
+     */
+    public static MultiLevelPartition create( CompactGraph graph, int... cellCounts )
+    {
+        if (cellCounts.length == 0)
+            throw new IllegalArgumentException("At least one level is required");
+        for (int level = 0; level < cellCounts.length; level++)
+        {
+            if (cellCounts[level] <= 0 || level > 0 && cellCounts[level] >= cellCounts[level - 1])
+                throw new IllegalArgumentException("Cell counts must be positive and strictly decreasing: "
+                        + Arrays.toString(cellCounts));
+        }
+
+        long start = System.nanoTime();
+        int nodes = graph.getNodeCount();
+        int[][] cells = new int[cellCounts.length][];
+        cells[0] = new BalancedPartitioner().partition(graph, cellCounts[0]);
+        for (int level = 1; level < cellCounts.length; level++)
+        {
+            // graph of the adjacent cells of the level below
+            int[] lower = cells[level - 1];
+            CompactGraph cellGraph = new CompactGraph(cellCounts[level - 1], cellCounts[level - 1] * 4);
+            for (int c = 0; c < cellCounts[level - 1]; c++)
+            {
+                cellGraph.addNode(c);
+            }
+            for (int e = 0; e < graph.getEdgeCount(); e++)
+            {
+                int a = lower[graph.getEdgeSubject(e)];
+                int b = lower[graph.getEdgeObject(e)];
+                if (a != b && !graph.isEdgeRemoved(e))
+                    cellGraph.edge(a, 0, b);
+            }
+
+            int[] cellParts = new BalancedPartitioner().partition(cellGraph, cellCounts[level]);
+            cells[level] = new int[nodes];
+            for (int n = 0; n < nodes; n++)
+            {
+                // the dense index of a cell in the cell graph is its id
+                cells[level][n] = cellParts[lower[n]];
+            }
+        }
+
+        MultiLevelPartition partition = new MultiLevelPartition(graph, cells, cellCounts.clone());
+        if (log.isDebugEnabled())
+            log.debug("Partitioned " + graph + " into " + Arrays.toString(cellCounts) + " cells in "
+                    + (System.nanoTime() - start) / 1000000 + "ms");
+        return partition;
+    }
+
+    private void collectBoundaries( int level )
+    {
+        int[] nodeCells = cells[level];
+        int nodes = nodeCells.length;
+        int[] positions = new int[nodes];
+        Arrays.fill(positions, -1);
+        int[] sizes = new int[cellCounts[level]];
+        for (int e = 0; e < graph.getEdgeCount(); e++)
+        {
+            int subject = graph.getEdgeSubject(e);
+            int object = graph.getEdgeObject(e);
+            if (nodeCells[subject] == nodeCells[object] || graph.isEdgeRemoved(e))
+                continue;
+
+            if (positions[subject] < 0)
+                positions[subject] = sizes[nodeCells[subject]]++;
+            if (positions[object] < 0)
+                positions[object] = sizes[nodeCells[object]]++;
+        }
+
+        int[][] cellBoundaries = new int[cellCounts[level]][];
+        int[] offsets = new int[cellCounts[level] + 1];
+        for (int c = 0; c < cellBoundaries.length; c++)
+        {
+            cellBoundaries[c] = new int[sizes[c]];
+            long end = (long) offsets[c] + (long) sizes[c] * sizes[c];
+            if (end > Integer.MAX_VALUE)
+                throw new IllegalStateException("Boundary matrices of level " + level + " are too large, use more cells");
+            offsets[c + 1] = (int) end;
+        }
+        for (int n = 0; n < nodes; n++)
+        {
+            if (positions[n] >= 0)
+                cellBoundaries[nodeCells[n]][positions[n]] = n;
+        }
+
+        boundaries[level] = cellBoundaries;
+        boundaryPositions[level] = positions;
+        matrixOffsets[level] = offsets;
+    }
+
+    public CompactGraph getGraph()
+    {
+        return graph;
+    }
+
+    public int getLevelCount()
+    {
+        return cells.length;
+    }
+
+    public int getCellCount( int level )
+    {
+        return cellCounts[level];
+    }
+
+    /**
+     * @return the cell of the dense node index on the specified level
+     */
+    public int getCell( int level, int node )
+    {
+        return cells[level][node];
+    }
+
+    /**
+     * @return the dense node indices of the boundary nodes of the cell
+     */
+    public int[] getBoundary( int level, int cell )
+    {
+        return boundaries[level][cell];
+    }
+
+    /**
+     * @return the position of the node in the boundary of its cell or -1 if it is no boundary node
+     * on this level
+     */
+    public int getBoundaryPosition( int level, int node )
+    {
+        return boundaryPositions[level][node];
+    }
+
+    /**
+     * @return the start of the row major boundary matrix of the cell within the matrix of the level
+     */
+    public int getMatrixOffset( int level, int cell )
+    {
+        return matrixOffsets[level][cell];
+    }
+
+    /**
+     * @return the number of matrix entries of all cells of the level
+     */
+    public int getMatrixSize( int level )
+    {
+        return matrixOffsets[level][cellCounts[level]];
+    }
+
+    /**
+     * @return the number of boundary nodes on the level
+     */
+    public int getBoundaryNodeCount( int level )
+    {
+        int count = 0;
+        for (int[] boundary : boundaries[level])
+        {
+            count += boundary.length;
+        }
+        return count;
+    }
+
+    int[] getCells( int level )
+    {
+        return cells[level];
+    }
+}
@@ -0,0 +1,761 @@
+package com.daedafusion.graph.partition;
+
+import com.daedafusion.graph.impl.CompactEdge;
+import com.daedafusion.graph.impl.CompactGraph;
+import com.daedafusion.graph.impl.GraphSnapshot;
+import com.daedafusion.graph.routing.DenseDijkstra;
+import com.daedafusion.graph.routing.Path;
+import com.daedafusion.graph.routing.util.Weighting;
+import com.daedafusion.graph.storage.Graph;
+import com.daedafusion.graph.storage.NodeAccess;
+import com.daedafusion.graph.util.Edge;
+import com.daedafusion.graph.util.EdgeExplorer;
+import com.daedafusion.graph.util.EdgeFilter;
+import com.daedafusion.graph.util.IntDoubleBinHeap;
+import com.daedafusion.graph.util.Traversal;
+import com.google.common.base.Predicate;
+import com.google.common.collect.Iterators;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.map.TLongIntMap;
+import gnu.trove.map.hash.TLongIntHashMap;
+import org.apache.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Graph split into shards, each stored in its own CompactGraph behind a ShardTransport, plus an
+ * overlay graph of the boundary nodes. The overlay holds the cut edges between the shards and per
+ * shard a shortcut between every pair of its boundary nodes weighted with the shortest path inside
+ * the shard, precomputed for the weighting of this graph.
+ * <p>
+ * calcPath searches from the source to the boundary nodes of its shard and from the boundary nodes
+ * of the target shard to the target, runs Dijkstra on the overlay in between and finally unpacks
+ * the shortcuts into shard local paths. Only the shards of the endpoints and of the unpacked
+ * shortcuts are touched.
+ * <p>
+ * The view through the Graph interface is read only, changes require to create the partitioning
+ * again. Edges with the predicate SHORTCUT are not allowed.
+ */
+public class PartitionedGraph implements Graph
+{
+    private static final Logger log = Logger.getLogger(PartitionedGraph.class);
+
+    /**
+     * Predicate of the overlay shortcuts.
+     */
+    public static final long SHORTCUT = Long.MIN_VALUE + 1;
+
+    static final int MAGIC = 0x44465054; // DFPT
+    static final int VERSION = 2;
+    static final String OVERLAY_FILE = "overlay.graph";
+    static final String NODES_FILE = "nodes.bin";
+
+    private final ShardTransport transport;
+    private final Weighting weighting;
+    private final TLongIntMap nodeShards;
+    private final CompactGraph overlay;
+    private final double[] overlayWeights;
+    private final long[][] boundaries;
+    private final NodeAccess nodeAccess = new PartitionedNodeAccess();
+
+    private final Predicate<Edge> notShortcut = new Predicate<Edge>()
+    {
+        @Override
+        public boolean apply( Edge edge )
+        {
+            return edge.getPredicate() != SHORTCUT;
+        }
+    };
+
+    PartitionedGraph( ShardTransport transport, Weighting weighting, TLongIntMap nodeShards, CompactGraph overlay )
+    {
+        this.transport = transport;
+        this.weighting = weighting;
+        this.nodeShards = nodeShards;
+        this.overlay = overlay;
+        this.boundaries = collectBoundaries(overlay, nodeShards, transport.getShardCount());
+
+        this.overlayWeights = new double[overlay.getEdgeCount()];
+        CompactEdge cursor = overlay.createEdgeCursor();
+        for (int e = 0; e < overlayWeights.length; e++)
+        {
+            overlayWeights[e] = isShortcut(e) ? overlay.getEdgeDistance(e) : weighting.calcWeight(cursor.setEdgeIndex(e));
+        }
+    }
+
+    /**
+     * Partitions the source graph and precomputes the overlay for the specified weighting. The
+     * shards are kept in memory by a LocalShardTransport.
+     */
+    public static PartitionedGraph create( Graph source, Partitioner partitioner, int shardCount, Weighting weighting )
+    {
+        long start = System.nanoTime();
+        CompactGraph graph = source instanceof CompactGraph ? (CompactGraph) source : CompactGraph.copyOf(source);
+        int[] parts = partitioner.partition(graph, shardCount);
+
+        int[] sizes = new int[shardCount];
+        for (int part : parts)
+        {
+            sizes[part]++;
+        }
+        CompactGraph[] shards = new CompactGraph[shardCount];
+        for (int i = 0; i < shardCount; i++)
+        {
+            shards[i] = new CompactGraph(sizes[i], sizes[i] * 2);
+        }
+
+        TLongIntMap nodeShards = new TLongIntHashMap(graph.getNodeCount(), 0.5f, Long.MIN_VALUE, -1);
+        NodeAccess access = graph.getNodeAccess();
+        for (int n = 0; n < graph.getNodeCount(); n++)
+        {
+            long node = graph.getNodeId(n);
+            CompactGraph shard = shards[parts[n]];
+            nodeShards.put(node, parts[n]);
+            shard.addNode(node);
+            if (!access.hasCoordinates(node))
+                continue;
+
+            if (access.is3D())
+                shard.setNode(node, access.getLatitude(node), access.getLongitude(node), access.getElevation(node));
+            else
+                shard.setNode(node, access.getLatitude(node), access.getLongitude(node));
+        }
+
+        CompactGraph overlay = new CompactGraph();
+        for (int e = 0; e < graph.getEdgeCount(); e++)
+        {
+            if (graph.isEdgeRemoved(e))
+                continue;
+
+            long predicate = graph.getPredicateId(graph.getEdgePredicate(e));
+            if (predicate == SHORTCUT)
+                throw new IllegalArgumentException("Predicate " + SHORTCUT + " is reserved for shortcuts");
+
+            int subject = graph.getEdgeSubject(e);
+            int object = graph.getEdgeObject(e);
+            CompactGraph target = parts[subject] == parts[object] ? shards[parts[subject]] : overlay;
+            target.edge(graph.getNodeId(subject), predicate, graph.getNodeId(object), graph.getEdgeDistance(e));
+        }
+        int cutEdges = overlay.getEdgeCount();
+
+        long[][] boundaries = collectBoundaries(overlay, nodeShards, shardCount);
+        for (int i = 0; i < shardCount; i++)
+        {
+            addShortcuts(shards[i], boundaries[i], weighting, overlay);
+            shards[i].flushIngest();
+        }
+        overlay.flushIngest();
+
+        PartitionedGraph result = new PartitionedGraph(new LocalShardTransport(weighting, shards), weighting,
+                nodeShards, overlay);
+        if (log.isDebugEnabled())
+            log.debug("Created " + shardCount + " shards with " + cutEdges + " cut edges, overlay " + overlay
+                    + " in " + (System.nanoTime() - start) / 1000000 + "ms");
+        return result;
+    }
+
+    private static void addShortcuts( CompactGraph shard, long[] boundary, Weighting weighting, CompactGraph overlay )
+    {
+        int[] targets = new int[boundary.length];
+        for (int i = 0; i < boundary.length; i++)
+        {
+            targets[i] = shard.getNodeIndex(boundary[i]);
+        }
+
+        DenseDijkstra search = new DenseDijkstra(shard, weighting);
+        for (int i = 0; i < boundary.length; i++)
+        {
+            double[] weights = search.calcWeights(targets[i], targets);
+            for (int j = 0; j < boundary.length; j++)
+            {
+                if (i != j && !Double.isInfinite(weights[j]))
+                    overlay.edge(boundary[i], SHORTCUT, boundary[j], weights[j]);
+            }
+        }
+    }
+
+    /**
+     * @return the boundary nodes of every shard in the order of the overlay node indices
+     */
+    private static long[][] collectBoundaries( CompactGraph overlay, TLongIntMap nodeShards, int shardCount )
+    {
+        TLongArrayList[] lists = new TLongArrayList[shardCount];
+        for (int i = 0; i < shardCount; i++)
+        {
+            lists[i] = new TLongArrayList();
+        }
+        for (int n = 0; n < overlay.getNodeCount(); n++)
+        {
+            long node = overlay.getNodeId(n);
+            lists[nodeShards.get(node)].add(node);
+        }
+
+        long[][] boundaries = new long[shardCount][];
+        for (int i = 0; i < shardCount; i++)
+        {
+            boundaries[i] = lists[i].toArray();
+        }
+        return boundaries;
+    }
+
+    /**
+     * Writes every shard into its own snapshot file plus the overlay and the node to shard
+     * assignment into the specified directory. The node file also records the weighting the
+     * shortcuts were computed for.
+     */
+    public void write( File directory ) throws IOException
+    {
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new IOException("Cannot create directory " + directory);
+
+        GraphSnapshot snapshot = new GraphSnapshot();
+        for (int i = 0; i < getShardCount(); i++)
+        {
+            snapshot.write(transport.getGraph(i), LocalShardTransport.getShardFile(directory, i));
+        }
+        snapshot.write(overlay, new File(directory, OVERLAY_FILE));
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(new File(directory, NODES_FILE)))))
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(weighting.getClass().getName());
+            out.writeLong(getWeightingFingerprint());
+            out.writeInt(getShardCount());
+            out.writeInt(nodeShards.size());
+            for (long node : nodeShards.keys())
+            {
+                out.writeLong(node);
+                out.writeInt(nodeShards.get(node));
+            }
+        }
+    }
+
+    /**
+     * Loads the overlay and the node assignment written by write, the shards are loaded on their
+     * first use. The weighting must be the one the graph was created with since the shortcuts are
+     * not computed again.
+     *
+     * @throws IllegalArgumentException if the weighting differs from the one recorded by write
+     */
+    public static PartitionedGraph load( File directory, Weighting weighting ) throws IOException
+    {
+        return load(directory, weighting, null);
+    }
+
+    /**
+     * Loads the overlay and the node assignment written by write and accesses the shards through
+     * the specified transport.
+     *
+     * @param transport the transport or null to load the shards lazily from the directory
+     * @throws IllegalArgumentException if the weighting differs from the one recorded by write
+     */
+    public static PartitionedGraph load( File directory, Weighting weighting, ShardTransport transport ) throws IOException
+    {
+        TLongIntMap nodeShards;
+        int shardCount;
+        String weightingName = null;
+        long fingerprint = 0;
+        File nodesFile = new File(directory, NODES_FILE);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(nodesFile))))
+        {
+            if (in.readInt() != MAGIC)
+                throw new IOException("Not a partition file: " + nodesFile);
+            int version = in.readInt();
+            if (version < 1 || version > VERSION)
+                throw new IOException("Unsupported partition version " + version + " of " + nodesFile);
+
+            if (version >= 2)
+            {
+                weightingName = in.readUTF();
+                fingerprint = in.readLong();
+                if (!weightingName.equals(weighting.getClass().getName()))
+                    throw new IllegalArgumentException(directory + " was created for weighting " + weightingName
+                            + " but is loaded with " + weighting.getClass().getName());
+            } else
+            {
+                log.warn("Cannot check the weighting of " + directory + ", it was written before it was recorded");
+            }
+
+            shardCount = in.readInt();
+            int nodes = in.readInt();
+            nodeShards = new TLongIntHashMap(nodes, 0.5f, Long.MIN_VALUE, -1);
+            for (int i = 0; i < nodes; i++)
+            {
+                nodeShards.put(in.readLong(), in.readInt());
+            }
+        }
+
+        if (transport == null)
+            transport = new LocalShardTransport(weighting, directory, shardCount);
+        else if (transport.getShardCount() != shardCount)
+            throw new IllegalArgumentException("Transport has " + transport.getShardCount() + " shards but "
+                    + directory + " " + shardCount);
+
+        CompactGraph overlay = new GraphSnapshot().read(new File(directory, OVERLAY_FILE));
+        PartitionedGraph graph = new PartitionedGraph(transport, weighting, nodeShards, overlay);
+        if (weightingName != null && graph.getWeightingFingerprint() != fingerprint)
+            throw new IllegalArgumentException(directory + " was created for another configuration of weighting "
+                    + weightingName + ", the weights of the cut edges differ");
+        return graph;
+    }
+
+    /**
+     * @return a hash of the weights of the cut edges in the overlay which tells apart differently
+     * configured instances of the same weighting class. Independent of the edge order which a
+     * snapshot does not keep.
+     */
+    long getWeightingFingerprint()
+    {
+        long hash = 0;
+        for (int e = 0; e < overlayWeights.length; e++)
+        {
+            if (isShortcut(e))
+                continue;
+
+            long h = overlay.getEdgeId(e) ^ Double.doubleToLongBits(overlayWeights[e]) * 0x9E3779B97F4A7C15L;
+            hash += h ^ (h >>> 29);
+        }
+        return hash;
+    }
+
+    private boolean isShortcut( int overlayEdge )
+    {
+        return overlay.getPredicateId(overlay.getEdgePredicate(overlayEdge)) == SHORTCUT;
+    }
+
+    /**
+     * @return the shard of the node or -1 if the node is unknown
+     */
+    public int getShard( long node )
+    {
+        return nodeShards.get(node);
+    }
+
+    public int getShardCount()
+    {
+        return transport.getShardCount();
+    }
+
+    public ShardTransport getTransport()
+    {
+        return transport;
+    }
+
+    public Weighting getWeighting()
+    {
+        return weighting;
+    }
+
+    /**
+     * @return the number of nodes with an edge to another shard
+     */
+    public int getBoundaryNodeCount()
+    {
+        return overlay.getNodeCount();
+    }
+
+    /**
+     * Calculates the shortest path for the weighting of this graph.
+     *
+     * @return the path, not found if the target is unreachable or a node is unknown
+     */
+    public Path calcPath( long from, long to )
+    {
+        int fromShard = getShard(from);
+        int toShard = getShard(to);
+        if (fromShard < 0 || toShard < 0)
+            return new Path(this);
+        if (from == to)
+            return new PartitionedPath(this, from).finish(0);
+
+        double best = Double.POSITIVE_INFINITY;
+        Path direct = null;
+        if (fromShard == toShard)
+        {
+            direct = transport.calcPath(fromShard, from, to);
+            if (direct.isFound())
+                best = direct.getWeight();
+        }
+
+        double[] fromWeights = transport.calcWeights(fromShard, from, boundaries[fromShard], false);
+        double[] toWeights = transport.calcWeights(toShard, to, boundaries[toShard], true);
+
+        // multi source Dijkstra on the overlay starting at the boundary of the source shard
+        int nodes = overlay.getNodeCount();
+        double[] weights = new double[nodes];
+        int[] parents = new int[nodes];
+        double[] remaining = new double[nodes];
+        Arrays.fill(weights, Double.POSITIVE_INFINITY);
+        Arrays.fill(remaining, Double.POSITIVE_INFINITY);
+        IntDoubleBinHeap heap = new IntDoubleBinHeap();
+        for (int i = 0; i < fromWeights.length; i++)
+        {
+            int node = overlay.getNodeIndex(boundaries[fromShard][i]);
+            if (fromWeights[i] < weights[node])
+            {
+                weights[node] = fromWeights[i];
+                parents[node] = CompactGraph.NO_EDGE;
+                heap.insert(node, fromWeights[i]);
+            }
+        }
+        for (int i = 0; i < toWeights.length; i++)
+        {
+            remaining[overlay.getNodeIndex(boundaries[toShard][i])] = toWeights[i];
+        }
+
+        int exit = -1;
+        boolean[] settled = new boolean[nodes];
+        while (!heap.isEmpty())
+        {
+            double weight = heap.peekKey();
+            int node = heap.poll();
+            if (settled[node] || weight > weights[node])
+                continue;
+            if (weight >= best)
+                break;
+
+            settled[node] = true;
+            if (weight + remaining[node] < best)
+            {
+                best = weight + remaining[node];
+                exit = node;
+            }
+
+            for (int e = overlay.getFirstOutEdge(node); e != CompactGraph.NO_EDGE; e = overlay.getNextOutEdge(e))
+            {
+                int adj = overlay.getEdgeObject(e);
+                double w = weight + overlayWeights[e];
+                if (w < weights[adj])
+                {
+                    weights[adj] = w;
+                    parents[adj] = e;
+                    heap.insert(adj, w);
+                }
+            }
+        }
+
+        if (exit < 0)
+            return direct != null && direct.isFound() ? new PartitionedPath(this, from).append(direct).finish(best)
+                    : new Path(this);
+
+        return unpack(from, to, fromShard, toShard, exit, parents, best);
+    }
+
+    private Path unpack( long from, long to, int fromShard, int toShard, int exit, int[] parents, double weight )
+    {
+        TIntArrayList edges = new TIntArrayList();
+        int entry = exit;
+        while (parents[entry] != CompactGraph.NO_EDGE)
+        {
+            edges.add(parents[entry]);
+            entry = overlay.getEdgeSubject(parents[entry]);
+        }
+        edges.reverse();
+
+        PartitionedPath path = new PartitionedPath(this, from);
+        long entryNode = overlay.getNodeId(entry);
+        if (entryNode != from)
+            path.append(transport.calcPath(fromShard, from, entryNode));
+
+        for (int i = 0; i < edges.size(); i++)
+        {
+            int e = edges.get(i);
+            long subject = overlay.getNodeId(overlay.getEdgeSubject(e));
+            long object = overlay.getNodeId(overlay.getEdgeObject(e));
+            if (isShortcut(e))
+                path.append(transport.calcPath(getShard(subject), subject, object));
+            else
+                path.append(overlay.getEdgeId(e), object);
+        }
+
+        long exitNode = overlay.getNodeId(exit);
+        if (exitNode != to)
+            path.append(transport.calcPath(toShard, exitNode, to));
+        return path.finish(weight);
+    }
+
+    @Override
+    public Edge edge( long subject, long predicate, long object )
+    {
+        throw new UnsupportedOperationException("Partitioned graphs are read only");
+    }
+
+    @Override
+    public Edge edge( long subject, long predicate, long object, double distance )
+    {
+        throw new UnsupportedOperationException("Partitioned graphs are read only");
+    }
+
+    @Override
+    public boolean removeEdge( long edgeId )
+    {
+        throw new UnsupportedOperationException("Partitioned graphs are read only");
+    }
+
+    @Override
+    public boolean updateDistance( long edgeId, double distance )
+    {
+        throw new UnsupportedOperationException("Partitioned graphs are read only");
+    }
+
+    @Override
+    public long getVersion()
+    {
+        return 0;
+    }
+
+    @Override
+    public void setNode( long node, double lat, double lon )
+    {
+        throw new UnsupportedOperationException("Partitioned graphs are read only");
+    }
+
+    @Override
+    public void setNode( long node, double lat, double lon, double ele )
+    {
+        throw new UnsupportedOperationException("Partitioned graphs are read only");
+    }
+
+    @Override
+    public void setNodes( long[] nodes, double[] lats, double[] lons, double[] eles )
+    {
+        throw new UnsupportedOperationException("Partitioned graphs are read only");
+    }
+
+    /**
+     * Looks up cut edges in the overlay and all other edges shard by shard, which loads every shard.
+     */
+    @Override
+    public Edge getEdge( long edgeId )
+    {
+        int e = overlay.getEdgeIndex(edgeId);
+        if (e != CompactGraph.NO_EDGE)
+            return isShortcut(e) ? null : overlay.getEdge(edgeId);
+
+        for (int i = 0; i < getShardCount(); i++)
+        {
+            Edge edge = transport.getGraph(i).getEdge(edgeId);
+            if (edge != null)
+                return edge;
+        }
+        return null;
+    }
+
+    @Override
+    public Iterator<Edge> getAllEdges()
+    {
+        Iterator<Edge> result = Iterators.filter(overlay.getAllEdges(), notShortcut);
+        for (int i = 0; i < getShardCount(); i++)
+        {
+            result = Iterators.concat(result, transport.getGraph(i).getAllEdges());
+        }
+        return result;
+    }
+
+    @Override
+    public EdgeExplorer createEdgeExplorer( EdgeFilter filter )
+    {
+        return new PartitionedEdgeExplorer(filter, Traversal.UNDIRECTED);
+    }
+
+    @Override
+    public EdgeExplorer createEdgeExplorer( EdgeFilter filter, Traversal traversal )
+    {
+        return new PartitionedEdgeExplorer(filter, traversal);
+    }
+
+    /**
+     * Returns the edges of the shard of the base node followed by its cut edges in the overlay,
+     * the adjacent node is taken from the explorer which returned the edge.
+     */
+    private class PartitionedEdgeExplorer implements EdgeExplorer, Iterator<Edge>
+    {
+        private final EdgeFilter filter;
+        private final Traversal traversal;
+        private final EdgeExplorer[] shardExplorers = new EdgeExplorer[getShardCount()];
+        private final EdgeExplorer overlayExplorer;
+        private EdgeExplorer active;
+        private Iterator<Edge> activeIter = Collections.<Edge>emptyIterator();
+        private Iterator<Edge> overlayIter;
+        private EdgeExplorer last;
+
+        PartitionedEdgeExplorer( final EdgeFilter filter, Traversal traversal )
+        {
+            this.filter = filter;
+            this.traversal = traversal;
+            this.overlayExplorer = overlay.createEdgeExplorer(new EdgeFilter()
+            {
+                @Override
+                public boolean accept( Edge edge )
+                {
+                    return edge.getPredicate() != SHORTCUT && (filter == null || filter.accept(edge));
+                }
+            }, traversal);
+        }
+
+        @Override
+        public Iterator<Edge> setBaseNode( long baseNode )
+        {
+            last = null;
+            overlayIter = null;
+            int shard = getShard(baseNode);
+            if (shard < 0)
+            {
+                activeIter = Collections.<Edge>emptyIterator();
+                return this;
+            }
+
+            if (shardExplorers[shard] == null)
+                shardExplorers[shard] = transport.getGraph(shard).createEdgeExplorer(filter, traversal);
+
+            active = shardExplorers[shard];
+            activeIter = active.setBaseNode(baseNode);
+            if (overlay.getNodeIndex(baseNode) != CompactGraph.NO_NODE)
+                overlayIter = overlayExplorer.setBaseNode(baseNode);
+            return this;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            if (activeIter.hasNext())
+                return true;
+
+            if (overlayIter == null)
+                return false;
+
+            active = overlayExplorer;
+            activeIter = overlayIter;
+            overlayIter = null;
+            return activeIter.hasNext();
+        }
+
+        @Override
+        public Edge next()
+        {
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            Edge e = activeIter.next();
+            last = active;
+            return e;
+        }
+
+        @Override
+        public long getAdjNode()
+        {
+            if (last == null)
+                throw new IllegalStateException("next() was not called");
+
+            return last.getAdjNode();
+        }
+
+        @Override
+        public void remove()
+        {
+            throw new UnsupportedOperationException("Remove not supported");
+        }
+    }
+
+    @Override
+    public NodeAccess getNodeAccess()
+    {
+        return nodeAccess;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "shards:" + getShardCount() + ", nodes:" + nodeShards.size() + ", overlay:[" + overlay + "]";
+    }
+
+    private class PartitionedNodeAccess implements NodeAccess
+    {
+        @Override
+        public Set<Edge> getEdges( long baseNode )
+        {
+            Set<Edge> result = new HashSet<>();
+            Iterator<Edge> iter = createEdgeExplorer(null).setBaseNode(baseNode);
+            while (iter.hasNext())
+            {
+                // detach the edges reused by the explorers
+                Edge e = iter.next();
+                result.add(e instanceof CompactEdge ? ((CompactEdge) e).getGraph().getEdge(e.getEdgeId()) : e);
+            }
+            return result;
+        }
+
+        private NodeAccess getShardAccess( long node )
+        {
+            int shard = getShard(node);
+            return shard < 0 ? null : transport.getGraph(shard).getNodeAccess();
+        }
+
+        @Override
+        public double getLatitude( long toNode )
+        {
+            NodeAccess access = getShardAccess(toNode);
+            return access == null ? 0 : access.getLatitude(toNode);
+        }
+
+        @Override
+        public double getLongitude( long toNode )
+        {
+            NodeAccess access = getShardAccess(toNode);
+            return access == null ? 0 : access.getLongitude(toNode);
+        }
+
+        @Override
+        public double getElevation( long toNode )
+        {
+            NodeAccess access = getShardAccess(toNode);
+            return access == null ? 0 : access.getElevation(toNode);
+        }
+
+        @Override
+        public boolean hasCoordinates()
+        {
+            // nodes without coordinates may leave single shards without any
+            for (int shard = 0; shard < getShardCount(); shard++)
+            {
+                if (transport.getGraph(shard).getNodeAccess().hasCoordinates())
+                    return true;
+            }
+            return false;
+        }
+
+        @Override
+        public boolean hasCoordinates( long node )
+        {
+            NodeAccess access = getShardAccess(node);
+            return access != null && access.hasCoordinates(node);
+        }
+
+        @Override
+        public boolean is3D()
+        {
+            for (int shard = 0; shard < getShardCount(); shard++)
+            {
+                if (transport.getGraph(shard).getNodeAccess().is3D())
+                    return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.daedafusion.graph.partition;
+
+import com.daedafusion.graph.routing.Path;
+import com.daedafusion.graph.storage.Graph;
+import gnu.trove.list.array.TLongArrayList;
+
+/**
+ * Path stitched together from shard local paths, overlay edges or unpacked boundary matrix entries.
+ */
+class PartitionedPath extends Path
+{
+    private final TLongArrayList nodes = new TLongArrayList();
+    private final TLongArrayList edgeIds = new TLongArrayList();
+
+    PartitionedPath( Graph graph, long from )
+    {
+        super(graph);
+        nodes.add(from);
+    }
+
+    PartitionedPath append( Path path )
+    {
+        for (int i = 0; i < path.getEdgeCount(); i++)
+        {
+            append(path.getEdgeId(i), path.getNode(i + 1));
+        }
+        return this;
+    }
+
+    PartitionedPath append( long edgeId, long adjNode )
+    {
+        edgeIds.add(edgeId);
+        nodes.add(adjNode);
+        return this;
+    }
+
+    /**
+     * Copies the collected edges into the path arrays.
+     */
+    Path finish( double weight )
+    {
+        initPath(edgeIds.size());
+        setFromNode(nodes.get(0));
+        for (int i = 0; i < edgeIds.size(); i++)
+        {
+            setEdge(i, edgeIds.get(i), nodes.get(i + 1));
+        }
+        setWeight(weight);
+        return setFound(true);
+    }
+}
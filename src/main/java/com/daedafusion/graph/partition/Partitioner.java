@@ -0,0 +1,15 @@
+package com.daedafusion.graph.partition;
+
+import com.daedafusion.graph.impl.CompactGraph;
+
+/**
+ * Assigns the nodes of a graph to shards.
+ */
+public interface Partitioner
+{
+    /**
+     * @return the shard between 0 (inclusive) and shardCount (exclusive) of every node, indexed by
+     * the dense node index of the graph
+     */
+    int[] partition( CompactGraph graph, int shardCount );
+}
@@ -0,0 +1,32 @@
+package com.daedafusion.graph.partition;
+
+import com.daedafusion.graph.routing.Path;
+import com.daedafusion.graph.storage.Graph;
+
+/**
+ * Access of a PartitionedGraph to its shards. The searches run next to the shard storage so a
+ * remote implementation only has to ship the small results, LocalShardTransport keeps the shards
+ * in the same JVM.
+ */
+public interface ShardTransport
+{
+    int getShardCount();
+
+    /**
+     * Searches inside the shard from the node to the targets, or from the targets to the node in
+     * reverse mode.
+     *
+     * @return the weights of the targets at the same positions, infinity if unreachable
+     */
+    double[] calcWeights( int shard, long node, long[] targets, boolean reverse );
+
+    /**
+     * @return the shortest path between two nodes of the shard using only edges of the shard
+     */
+    Path calcPath( int shard, long from, long to );
+
+    /**
+     * @return the edges of the shard for reading through the Graph interface
+     */
+    Graph getGraph( int shard );
+}
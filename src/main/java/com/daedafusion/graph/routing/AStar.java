@@ -73,11 +73,12 @@ public class AStar extends AbstractRoutingAlgorithm
     public Path calcPath( long from, long to )
     {
         checkAlreadyRun();
+        startQuery(from, to);
         to1 = to;
         weightApprox.setGoalNode(to);
         currEdge = createEdgeEntry(from, 0);
         fromMap.put(from, currEdge);
-        return runAlgo();
+        return finishQuery(runAlgo());
     }
 
     private Path runAlgo()
@@ -102,19 +103,11 @@ public class AStar extends AbstractRoutingAlgorithm
                 if (!accept(e, currEdge.edge))
                     continue;
 
-                long traversalId;
-                if(isFollowIncoming())
-                {
-                    traversalId = (currEdge.adjNode == e.getSubject()) ? e.getObject() : e.getSubject();
-                }
-                else
-                {
-                    traversalId = e.getObject();
-                }
+                long traversalId = explorer.getAdjNode();
 
                 long neighborNode = traversalId;
                 // cast to float to avoid rounding errors in comparison to float entry of AStarEdge weight
-                float alreadyVisitedWeight = (float) (weighting.calcWeight(e)
+                float alreadyVisitedWeight = (float) (calcWeight(e, currEdge.weightOfVisitedPath)
                         + currEdge.weightOfVisitedPath);
                 if (Double.isInfinite(alreadyVisitedWeight))
                     continue;
@@ -128,6 +121,8 @@ public class AStar extends AbstractRoutingAlgorithm
                     {
                         ase = new AStarEdge(e.getEdgeId(), neighborNode, distEstimation, alreadyVisitedWeight);
                         fromMap.put(traversalId, ase);
+                        if (stats != null)
+                            stats.heapInserted(prioQueueOpenSet.size() + 1);
                     } else
                     {
                         assert (ase.weight > distEstimation) : "Inconsistent distance estimate";
@@ -135,6 +130,8 @@ public class AStar extends AbstractRoutingAlgorithm
                         ase.edge = e.getEdgeId();
                         ase.weight = distEstimation;
                         ase.weightOfVisitedPath = alreadyVisitedWeight;
+                        if (stats != null)
+                            stats.heapDecreaseKeys++;
                     }
 
                     ase.parent = currEdge;
@@ -148,10 +145,13 @@ public class AStar extends AbstractRoutingAlgorithm
                 return createEmptyPath();
 
             currEdge = prioQueueOpenSet.poll();
+            if (stats != null)
+                stats.heapPolls++;
             if (currEdge == null)
                 throw new AssertionError("Empty edge cannot happen");
         }
 
+        startExtractStats();
         return extractPath();
     }
 
@@ -173,12 +173,19 @@ public class AStar extends AbstractRoutingAlgorithm
         return currEdge.adjNode == to1;
     }
 
+    @Override
+    protected int getMapSize()
+    {
+        return fromMap.size();
+    }
+
     @Override
     public int getVisitedNodes()
     {
         return visitedCount;
     }
 
+    @Override
     protected boolean isWeightLimitReached()
     {
         return currEdge.weight >= weightLimit;
@@ -150,7 +150,7 @@ public class AStarBidirection extends AbstractBidirAlgo
 
     public static Edge getEdge( Graph graph, long base, long adj )
     {
-        Iterator<Edge> iter = graph.createEdgeExplorer(new DefaultEdgeFilter()).setBaseNode(base);
+        Iterator<Edge> iter = graph.createEdgeExplorer(new DefaultEdgeFilter(), Traversal.FORWARD).setBaseNode(base);
         while (iter.hasNext())
         {
             Edge e = iter.next();
@@ -205,6 +205,8 @@ public class AStarBidirection extends AbstractBidirAlgo
             return false;
 
         currFrom = prioQueueOpenSetFrom.poll();
+        if (stats != null)
+            stats.heapPolls++;
         bestWeightMapOther = bestWeightMapTo;
         fillEdges(currFrom, prioQueueOpenSetFrom, bestWeightMapFrom, outEdgeExplorer, false);
         visitedCountFrom++;
@@ -218,6 +220,8 @@ public class AStarBidirection extends AbstractBidirAlgo
             return false;
 
         currTo = prioQueueOpenSetTo.poll();
+        if (stats != null)
+            stats.heapPolls++;
         bestWeightMapOther = bestWeightMapFrom;
         fillEdges(currTo, prioQueueOpenSetTo, bestWeightMapTo, inEdgeExplorer, true);
         visitedCountTo++;
@@ -237,20 +241,12 @@ public class AStarBidirection extends AbstractBidirAlgo
             if (!accept(e, currEdge.edge))
                 continue;
 
-            long traversalId;
-            if(isFollowIncoming())
-            {
-                traversalId = (currNode == e.getSubject()) ? e.getObject() : e.getSubject();
-            }
-            else
-            {
-                traversalId = reverse ? e.getSubject() : e.getObject();
-            }
+            long traversalId = explorer.getAdjNode();
 
             long neighborNode = traversalId;
             // TODO performance: check if the node is already existent in the opposite direction
             // then we could avoid the approximation as we already know the exact complete path!
-            float alreadyVisitedWeight = (float) (weighting.calcWeight(e)
+            float alreadyVisitedWeight = (float) (calcWeight(e)
                     + currEdge.weightOfVisitedPath);
             if (Double.isInfinite(alreadyVisitedWeight))
                 continue;
@@ -264,6 +260,8 @@ public class AStarBidirection extends AbstractBidirAlgo
                 {
                     ase = new AStarEdge(e.getEdgeId(), neighborNode, estimationFullDist, alreadyVisitedWeight);
                     shortestWeightMap.put(traversalId, ase);
+                    if (stats != null)
+                        stats.heapInserted(prioQueueOpenSet.size() + 1);
                 } else
                 {
                     assert (ase.weight > estimationFullDist) : "Inconsistent distance estimate";
@@ -271,6 +269,8 @@ public class AStarBidirection extends AbstractBidirAlgo
                     ase.edge = e.getEdgeId();
                     ase.weight = estimationFullDist;
                     ase.weightOfVisitedPath = alreadyVisitedWeight;
+                    if (stats != null)
+                        stats.heapDecreaseKeys++;
                 }
 
                 ase.parent = currEdge;
@@ -317,6 +317,12 @@ public class AStarBidirection extends AbstractBidirAlgo
         }
     }
 
+    @Override
+    protected int getMapSize()
+    {
+        return bestWeightMapFrom.size() + bestWeightMapTo.size();
+    }
+
     @Override
     public String getName()
     {
@@ -37,8 +37,6 @@ public abstract class AbstractBidirAlgo extends AbstractRoutingAlgorithm
 
     protected abstract Path createAndInitPath();
 
-    protected abstract boolean isWeightLimitReached();
-
     abstract void checkState( long fromBase, long fromAdj, long toBase, long toAdj );
 
     abstract boolean fillEdgesFrom();
@@ -54,11 +52,13 @@ public abstract class AbstractBidirAlgo extends AbstractRoutingAlgorithm
     public Path calcPath( long from, long to )
     {
         checkAlreadyRun();
+        startQuery(from, to);
         createAndInitPath();
         initFrom(from, 0);
         initTo(to, 0);
         runAlgo();
-        return extractPath();
+        startExtractStats();
+        return finishQuery(extractPath());
     }
 
     protected void runAlgo()
@@ -17,6 +17,11 @@
  */
 package com.daedafusion.graph.routing;
 
+import com.daedafusion.graph.impl.CompactEdge;
+import com.daedafusion.graph.impl.CompactGraph;
+import com.daedafusion.graph.impl.PredicateEdgeFilter;
+import com.daedafusion.graph.routing.metrics.AlgorithmMetrics;
+import com.daedafusion.graph.routing.metrics.RoutingMetrics;
 import com.daedafusion.graph.routing.util.*;
 import com.daedafusion.graph.storage.EdgeEntry;
 import com.daedafusion.graph.storage.Graph;
@@ -24,21 +29,32 @@ import com.daedafusion.graph.storage.NodeAccess;
 import com.daedafusion.graph.util.Edge;
 import com.daedafusion.graph.util.EdgeExplorer;
 import com.daedafusion.graph.util.EdgeFilter;
+import com.daedafusion.graph.util.Traversal;
+import com.daedafusion.graph.util.jfr.JfrEvents;
 
 /**
  * @author Peter Karich
  */
 public abstract class AbstractRoutingAlgorithm implements RoutingAlgorithm
 {
-    protected boolean followIncoming = false;
+    // FORWARD follows directed edges, UNDIRECTED lets the search treat every edge as bidirectional
+    protected Traversal traversal = Traversal.FORWARD;
     private EdgeFilter additionalEdgeFilter;
     protected final Graph graph;
     protected NodeAccess nodeAccess;
     protected EdgeExplorer inEdgeExplorer;
     protected EdgeExplorer outEdgeExplorer;
     protected final Weighting weighting;
+    // precomputed weights of the weighting indexed by the dense edge index, null if not registered
+    private final double[] weights;
     protected double weightLimit = Double.MAX_VALUE;
+    protected QueryStats stats;
+    private AlgorithmMetrics metrics;
+    private long queryStart;
     private boolean alreadyRun;
+    private Object queryEvent;
+    private long queryFrom;
+    private long queryTo;
 
     /**
      * @param graph specifies the graph where this algorithm will run on
@@ -49,8 +65,19 @@ public abstract class AbstractRoutingAlgorithm implements RoutingAlgorithm
         this.weighting = weighting;
         this.graph = graph;
         this.nodeAccess = graph.getNodeAccess();
-        outEdgeExplorer = graph.createEdgeExplorer(new DefaultEdgeFilter());
-        inEdgeExplorer = graph.createEdgeExplorer(new DefaultEdgeFilter());
+        this.weights = graph instanceof CompactGraph ? ((CompactGraph) graph).getWeightCache().getWeights(weighting)
+                : null;
+        createExplorers(new DefaultEdgeFilter());
+    }
+
+    /**
+     * The out explorer follows the traversal, the in explorer of backward searches the opposite
+     * direction. Searches read the neighbor from EdgeExplorer.getAdjNode().
+     */
+    private void createExplorers( EdgeFilter filter )
+    {
+        outEdgeExplorer = graph.createEdgeExplorer(filter, traversal);
+        inEdgeExplorer = graph.createEdgeExplorer(filter, traversal.reverse());
     }
 
     @Override
@@ -58,19 +85,119 @@ public abstract class AbstractRoutingAlgorithm implements RoutingAlgorithm
     {
         this.weightLimit = weight;
     }
+
+    @Override
+    public double getWeightLimit()
+    {
+        return weightLimit;
+    }
        
     public RoutingAlgorithm setEdgeFilter( EdgeFilter additionalEdgeFilter )
     {
         this.additionalEdgeFilter = additionalEdgeFilter;
+        createExplorers(getExplorerFilter());
+        return this;
+    }
+
+    /**
+     * Predicate filters let the storage skip whole blocks of rejected edges, accept() still checks
+     * them for storages which ignore the filter. Other filters are only evaluated by accept() so
+     * that they do not run twice per edge.
+     */
+    private EdgeFilter getExplorerFilter()
+    {
+        return additionalEdgeFilter instanceof PredicateEdgeFilter ? additionalEdgeFilter : new DefaultEdgeFilter();
+    }
+
+    /**
+     * Sets the direction in which the search follows edges, FORWARD by default. REVERSE searches
+     * from the target of the directed edges towards their source.
+     */
+    public AbstractRoutingAlgorithm setTraversal( Traversal traversal )
+    {
+        this.traversal = traversal;
+        createExplorers(getExplorerFilter());
+        return this;
+    }
+
+    public Traversal getTraversal()
+    {
+        return traversal;
+    }
+
+    /**
+     * @return the configuration beyond weighting, edge filter and traversal which changes the
+     * results of this algorithm, compared with equals by the PathCache, or null
+     */
+    Object getCacheVariant()
+    {
+        return null;
+    }
+
+    /**
+     * Enables collecting counters and timings of the query into the specified stats, null disables
+     * it again. Disabled stats only cost a null check per edge.
+     */
+    public AbstractRoutingAlgorithm setQueryStats( QueryStats stats )
+    {
+        this.stats = stats;
+        return this;
+    }
+
+    public QueryStats getQueryStats()
+    {
+        return stats;
+    }
+
+    /**
+     * Records latency, result and visited nodes of the query into the metrics registered under
+     * getName(), null disables it again.
+     */
+    public AbstractRoutingAlgorithm setMetrics( RoutingMetrics metrics )
+    {
+        this.metrics = metrics == null ? null : metrics.getAlgorithm(getName());
         return this;
     }
 
     protected boolean accept( Edge edge, long prevOrNextEdgeId )
     {
+        if (stats != null)
+            stats.edgesScanned++;
+
         if (edge.getEdgeId() == prevOrNextEdgeId)
             return false;
 
-        return additionalEdgeFilter == null || additionalEdgeFilter.accept(edge);
+        if (additionalEdgeFilter == null || additionalEdgeFilter.accept(edge))
+            return true;
+
+        if (stats != null)
+            stats.edgesRejected++;
+        return false;
+    }
+
+    /**
+     * @return the weight of the specified edge, read from the WeightCache of a CompactGraph if the
+     * weighting is registered there
+     */
+    protected double calcWeight( Edge edge )
+    {
+        if (weights != null && edge instanceof CompactEdge)
+        {
+            int index = ((CompactEdge) edge).getEdgeIndex();
+            if (index < weights.length)
+                return weights[index];
+        }
+        return weighting.calcWeight(edge);
+    }
+
+    /**
+     * @param pathWeight the weight of the path from the start up to the edge
+     * @return the weight of the edge when it is reached with the specified path weight, the same as
+     * calcWeight(edge) unless a time dependent search evaluates the edge at its arrival time
+     */
+    protected double calcWeight( Edge edge, double pathWeight )
+    {
+        return calcWeight(edge);
     }
 
     protected void updateBestPath( Edge edgeState, EdgeEntry bestEdgeEntry, long traversalId )
@@ -90,9 +217,25 @@ public abstract class AbstractRoutingAlgorithm implements RoutingAlgorithm
         return new EdgeEntry(Long.MIN_VALUE, node, dist);
     }
 
+    /**
+     * @return true if edges are followed in both directions
+     */
     public boolean isFollowIncoming()
     {
-        return followIncoming;
+        return traversal == Traversal.UNDIRECTED;
+    }
+
+    public Weighting getWeighting()
+    {
+        return weighting;
+    }
+
+    /**
+     * @return the additional edge filter or null
+     */
+    public EdgeFilter getEdgeFilter()
+    {
+        return additionalEdgeFilter;
     }
 
     /**
@@ -109,6 +252,66 @@ public abstract class AbstractRoutingAlgorithm implements RoutingAlgorithm
      */
     protected abstract Path extractPath();
 
+    /**
+     * @return true if the search stopped because the weight limit was exceeded
+     */
+    protected abstract boolean isWeightLimitReached();
+
+    /**
+     * @return the number of shortest path tree entries held by this algorithm, reported to the
+     * QueryStats
+     */
+    protected int getMapSize()
+    {
+        return 0;
+    }
+
+    /**
+     * Starts the QueryStats and metrics timing and the RoutingQuery flight recorder event of a
+     * calcPath call.
+     */
+    protected void startQuery( long from, long to )
+    {
+        if (stats != null)
+            stats.startSearch();
+
+        if (metrics != null)
+            queryStart = System.nanoTime();
+
+        queryFrom = from;
+        queryTo = to;
+        queryEvent = JfrEvents.beginQuery();
+    }
+
+    protected void startExtractStats()
+    {
+        if (stats != null)
+            stats.startExtract();
+    }
+
+    protected Path finishQuery( Path path )
+    {
+        if (stats != null)
+        {
+            stats.mapSize(getMapSize());
+            stats.finish();
+        }
+
+        if (metrics != null)
+        {
+            boolean found = path.isFound();
+            metrics.record(System.nanoTime() - queryStart, found, !found && isWeightLimitReached(), getVisitedNodes());
+        }
+
+        if (queryEvent != null)
+        {
+            JfrEvents.commitQuery(queryEvent, getName(), queryFrom, queryTo, getVisitedNodes(), path.isFound(),
+                    path.getWeight());
+            queryEvent = null;
+        }
+        return path;
+    }
+
     protected Path createEmptyPath()
     {
         return new Path(graph);
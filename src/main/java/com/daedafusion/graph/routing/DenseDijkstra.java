@@ -0,0 +1,259 @@
+package com.daedafusion.graph.routing;
+
+import com.daedafusion.graph.impl.CompactEdge;
+import com.daedafusion.graph.impl.CompactGraph;
+import com.daedafusion.graph.routing.util.Weighting;
+import com.daedafusion.graph.util.IntDoubleBinHeap;
+
+import java.util.Arrays;
+
+/**
+ * Dijkstra over the dense node indices of a CompactGraph for one-to-many and one-to-all searches,
+ * e.g. to precompute distance tables. Weights and parents are kept in arrays sized by the node
+ * count which are reset in time proportional to the nodes touched by the previous search, so an
+ * instance should be reused for many searches. Not thread safe.
+ *
+ * Follows outgoing edges, or incoming edges in reverse mode to compute the weights towards the
+ * source.
+ */
+public class DenseDijkstra
+{
+    private final CompactGraph graph;
+    private final Weighting weighting;
+    private final double[] weights;
+    private final CompactEdge cursor;
+    private boolean reverse;
+    private double maxWeight = Double.POSITIVE_INFINITY;
+
+    private double[] nodeWeights = new double[0];
+    private int[] parents = new int[0];
+    private boolean[] settled = new boolean[0];
+    private boolean[] pending = new boolean[0];
+    private int[] touched = new int[16];
+    private int touchedCount;
+    private final IntDoubleBinHeap heap = new IntDoubleBinHeap();
+    private int settledCount;
+
+    public DenseDijkstra( CompactGraph graph, Weighting weighting )
+    {
+        this.graph = graph;
+        this.weighting = weighting;
+        this.weights = graph.getWeightCache().getWeights(weighting);
+        this.cursor = graph.createEdgeCursor();
+    }
+
+    public DenseDijkstra setReverse( boolean reverse )
+    {
+        this.reverse = reverse;
+        return this;
+    }
+
+    /**
+     * Stops the searches once the smallest unsettled weight exceeds the limit.
+     */
+    public DenseDijkstra setMaxWeight( double maxWeight )
+    {
+        this.maxWeight = maxWeight;
+        return this;
+    }
+
+    /**
+     * Searches from the source until all targets are settled.
+     *
+     * @return the weights of the targets at the same positions, infinity if unreachable
+     */
+    public double[] calcWeights( int source, int[] targets )
+    {
+        init(source);
+        // a target listed twice is counted only once
+        int remaining = 0;
+        for (int t : targets)
+        {
+            if (t >= 0 && !pending[t])
+            {
+                pending[t] = true;
+                remaining++;
+            }
+        }
+
+        while (remaining > 0)
+        {
+            int node = settleNext();
+            if (node < 0)
+                break;
+            if (pending[node])
+                remaining--;
+        }
+
+        double[] result = new double[targets.length];
+        for (int i = 0; i < targets.length; i++)
+        {
+            int t = targets[i];
+            result[i] = t >= 0 && settled[t] ? nodeWeights[t] : Double.POSITIVE_INFINITY;
+            if (t >= 0)
+                pending[t] = false;
+        }
+        return result;
+    }
+
+    /**
+     * Searches from the source until the target is settled.
+     *
+     * @return the weight of the target, infinity if unreachable
+     */
+    public double calcWeight( int source, int target )
+    {
+        init(source);
+        while (!settled[target])
+        {
+            if (settleNext() < 0)
+                return Double.POSITIVE_INFINITY;
+        }
+        return nodeWeights[target];
+    }
+
+    /**
+     * Settles every node reachable from the source within the max weight.
+     */
+    public void calcAll( int source )
+    {
+        init(source);
+        while (settleNext() >= 0)
+        {
+        }
+    }
+
+    /**
+     * @return the weight of the node settled by the last search, infinity if it was not settled
+     */
+    public double getWeight( int node )
+    {
+        return node < settled.length && settled[node] ? nodeWeights[node] : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * @return the edge over which the node was settled by the last search or NO_EDGE for the source
+     * and unsettled nodes
+     */
+    public int getParentEdge( int node )
+    {
+        return node < settled.length && settled[node] ? parents[node] : CompactGraph.NO_EDGE;
+    }
+
+    /**
+     * @return the number of nodes settled by the last search
+     */
+    public int getSettledCount()
+    {
+        return settledCount;
+    }
+
+    /**
+     * @return the dense edge indices between the source of the last search and the specified
+     * settled node in edge direction, i.e. starting at the source for forward searches and at the
+     * node for reverse searches
+     */
+    public int[] extractEdges( int node )
+    {
+        int count = 0;
+        for (int n = node; parents[n] != CompactGraph.NO_EDGE; n = towardsSource(parents[n]))
+        {
+            count++;
+        }
+        int[] edges = new int[count];
+        int i = reverse ? 0 : count - 1;
+        for (int n = node; parents[n] != CompactGraph.NO_EDGE; n = towardsSource(parents[n]))
+        {
+            edges[i] = parents[n];
+            i += reverse ? 1 : -1;
+        }
+        return edges;
+    }
+
+    // the parent edge of a node leads back towards the source
+    private int towardsSource( int edge )
+    {
+        return reverse ? graph.getEdgeObject(edge) : graph.getEdgeSubject(edge);
+    }
+
+    private void init( int source )
+    {
+        int nodes = graph.getNodeCount();
+        if (nodeWeights.length < nodes)
+        {
+            nodeWeights = new double[nodes];
+            parents = new int[nodes];
+            settled = new boolean[nodes];
+            pending = new boolean[nodes];
+            Arrays.fill(nodeWeights, Double.POSITIVE_INFINITY);
+            touchedCount = 0;
+        } else
+        {
+            for (int i = 0; i < touchedCount; i++)
+            {
+                int n = touched[i];
+                nodeWeights[n] = Double.POSITIVE_INFINITY;
+                settled[n] = false;
+            }
+            touchedCount = 0;
+        }
+        heap.clear();
+        settledCount = 0;
+
+        touch(source, 0, CompactGraph.NO_EDGE);
+    }
+
+    private void touch( int node, double weight, int parent )
+    {
+        if (nodeWeights[node] == Double.POSITIVE_INFINITY)
+        {
+            if (touchedCount == touched.length)
+                touched = Arrays.copyOf(touched, touchedCount * 2);
+            touched[touchedCount++] = node;
+        }
+        nodeWeights[node] = weight;
+        parents[node] = parent;
+        heap.insert(node, weight);
+    }
+
+    /**
+     * @return the settled node or -1 if the search is exhausted
+     */
+    private int settleNext()
+    {
+        while (!heap.isEmpty())
+        {
+            double weight = heap.peekKey();
+            int node = heap.poll();
+            if (settled[node] || weight > nodeWeights[node])
+                continue;
+            if (weight > maxWeight)
+                return -1;
+
+            settled[node] = true;
+            settledCount++;
+            int edge = reverse ? graph.getFirstInEdge(node) : graph.getFirstOutEdge(node);
+            while (edge != CompactGraph.NO_EDGE)
+            {
+                int adj = reverse ? graph.getEdgeSubject(edge) : graph.getEdgeObject(edge);
+                if (!settled[adj] && !graph.isEdgeRemoved(edge))
+                {
+                    double w = weight + calcWeight(edge);
+                    if (w < nodeWeights[adj])
+                        touch(adj, w, edge);
+                }
+                edge = reverse ? graph.getNextInEdge(edge) : graph.getNextOutEdge(edge);
+            }
+            return node;
+        }
+        return -1;
+    }
+
+    private double calcWeight( int edge )
+    {
+        if (weights != null && edge < weights.length)
+            return weights[edge];
+
+        return weighting.calcWeight(cursor.setEdgeIndex(edge));
+    }
+}
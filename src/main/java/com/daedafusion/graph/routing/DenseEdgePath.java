@@ -0,0 +1,32 @@
+package com.daedafusion.graph.routing;
+
+import com.daedafusion.graph.impl.CompactGraph;
+import gnu.trove.list.array.TIntArrayList;
+
+/**
+ * Path built from dense edge indices of a CompactGraph.
+ */
+class DenseEdgePath extends Path
+{
+    DenseEdgePath( CompactGraph graph )
+    {
+        super(graph);
+    }
+
+    /**
+     * @param edges the dense edge indices in path order
+     */
+    Path init( long from, TIntArrayList edges, double weight )
+    {
+        CompactGraph compact = (CompactGraph) graph;
+        initPath(edges.size());
+        setFromNode(from);
+        for (int i = 0; i < edges.size(); i++)
+        {
+            int edge = edges.get(i);
+            setEdge(i, compact.getEdgeId(edge), compact.getNodeId(compact.getEdgeObject(edge)));
+        }
+        setWeight(weight);
+        return setFound(true);
+    }
+}
@@ -22,6 +22,7 @@ import com.daedafusion.graph.storage.EdgeEntry;
 import com.daedafusion.graph.storage.Graph;
 import com.daedafusion.graph.util.Edge;
 import com.daedafusion.graph.util.EdgeExplorer;
+import com.daedafusion.graph.util.Traversal;
 import gnu.trove.map.TLongObjectMap;
 import gnu.trove.map.hash.TLongObjectHashMap;
 
@@ -48,9 +49,12 @@ public class Dijkstra extends AbstractRoutingAlgorithm
         initCollections(1000);
     }
 
+    /**
+     * Same as setTraversal(UNDIRECTED) respectively setTraversal(FORWARD).
+     */
     public void setFollowIncoming(boolean followIncoming)
     {
-        this.followIncoming = followIncoming;
+        setTraversal(followIncoming ? Traversal.UNDIRECTED : Traversal.FORWARD);
     }
 
     protected void initCollections( int size )
@@ -63,13 +67,15 @@ public class Dijkstra extends AbstractRoutingAlgorithm
     public Path calcPath( long from, long to )
     {
         checkAlreadyRun();
+        startQuery(from, to);
         this.to = to;
         currEdge = createEdgeEntry(from, 0);
 
         fromMap.put(from, currEdge);
 
         runAlgo();
-        return extractPath();
+        startExtractStats();
+        return finishQuery(extractPath());
     }
 
     protected void runAlgo()
@@ -90,17 +96,9 @@ public class Dijkstra extends AbstractRoutingAlgorithm
                 if (!accept(e, currEdge.edge))
                     continue;
 
-                long traversalId;
-                if(isFollowIncoming())
-                {
-                    traversalId = (startNode == e.getSubject()) ? e.getObject() : e.getSubject();
-                }
-                else
-                {
-                    traversalId = e.getObject();
-                }
+                long traversalId = explorer.getAdjNode();
 
-                double tmpWeight = weighting.calcWeight(e) + currEdge.weight;
+                double tmpWeight = calcWeight(e, currEdge.weight) + currEdge.weight;
                 if (Double.isInfinite(tmpWeight))
                     continue;
 
@@ -111,6 +109,8 @@ public class Dijkstra extends AbstractRoutingAlgorithm
                     nEdge.parent = currEdge;
                     fromMap.put(traversalId, nEdge);
                     fromHeap.add(nEdge);
+                    if (stats != null)
+                        stats.heapInserted(fromHeap.size());
                 } else if (nEdge.weight > tmpWeight)
                 {
                     fromHeap.remove(nEdge);
@@ -118,6 +118,8 @@ public class Dijkstra extends AbstractRoutingAlgorithm
                     nEdge.weight = tmpWeight;
                     nEdge.parent = currEdge;
                     fromHeap.add(nEdge);
+                    if (stats != null)
+                        stats.heapDecreaseKeys++;
                 } else
                     continue;
 
@@ -128,6 +130,8 @@ public class Dijkstra extends AbstractRoutingAlgorithm
                 break;
 
             currEdge = fromHeap.poll();
+            if (stats != null)
+                stats.heapPolls++;
             if (currEdge == null)
                 throw new AssertionError("Empty edge cannot happen");
         }
@@ -148,12 +152,19 @@ public class Dijkstra extends AbstractRoutingAlgorithm
         return new Path(graph).setWeight(currEdge.weight).setEdgeEntry(currEdge).extract();
     }
 
+    @Override
+    protected int getMapSize()
+    {
+        return fromMap.size();
+    }
+
     @Override
     public int getVisitedNodes()
     {
         return visitedNodes;
     }
 
+    @Override
     protected boolean isWeightLimitReached()
     {
         return currEdge.weight >= weightLimit;
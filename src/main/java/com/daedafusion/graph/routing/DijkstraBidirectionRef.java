@@ -23,6 +23,7 @@ import com.daedafusion.graph.storage.EdgeEntry;
 import com.daedafusion.graph.storage.Graph;
 import com.daedafusion.graph.util.Edge;
 import com.daedafusion.graph.util.EdgeExplorer;
+import com.daedafusion.graph.util.Traversal;
 import gnu.trove.map.TLongObjectMap;
 import gnu.trove.map.hash.TLongObjectHashMap;
 
@@ -114,7 +115,7 @@ public class DijkstraBidirectionRef extends AbstractBidirAlgo
 
     public static Edge getEdge( Graph graph, long base, long adj )
     {
-        Iterator<Edge> iter = graph.createEdgeExplorer(new DefaultEdgeFilter()).setBaseNode(base);
+        Iterator<Edge> iter = graph.createEdgeExplorer(new DefaultEdgeFilter(), Traversal.FORWARD).setBaseNode(base);
         while (iter.hasNext())
         {
             Edge e = iter.next();
@@ -154,8 +155,10 @@ public class DijkstraBidirectionRef extends AbstractBidirAlgo
             return false;
 
         currFrom = openSetFrom.poll();
+        if (stats != null)
+            stats.heapPolls++;
         bestWeightMapOther = bestWeightMapTo;
-        fillEdges(currFrom, openSetFrom, bestWeightMapFrom, outEdgeExplorer, false);
+        fillEdges(currFrom, openSetFrom, bestWeightMapFrom, outEdgeExplorer);
         visitedCountFrom++;
         return true;
     }
@@ -166,8 +169,10 @@ public class DijkstraBidirectionRef extends AbstractBidirAlgo
         if (openSetTo.isEmpty())
             return false;
         currTo = openSetTo.poll();
+        if (stats != null)
+            stats.heapPolls++;
         bestWeightMapOther = bestWeightMapFrom;
-        fillEdges(currTo, openSetTo, bestWeightMapTo, inEdgeExplorer, true);
+        fillEdges(currTo, openSetTo, bestWeightMapTo, inEdgeExplorer);
         visitedCountTo++;
         return true;
     }
@@ -192,7 +197,7 @@ public class DijkstraBidirectionRef extends AbstractBidirAlgo
     }
 
     void fillEdges( EdgeEntry currEdge, PriorityQueue<EdgeEntry> prioQueue,
-            TLongObjectMap<EdgeEntry> shortestWeightMap, EdgeExplorer explorer, boolean reverse )
+            TLongObjectMap<EdgeEntry> shortestWeightMap, EdgeExplorer explorer )
     {
         long currNode = currEdge.adjNode;
         Iterator<Edge> iter = explorer.setBaseNode(currNode);
@@ -203,17 +208,9 @@ public class DijkstraBidirectionRef extends AbstractBidirAlgo
             if (!accept(e, currEdge.edge))
                 continue;
 
-            long traversalId;
-            if(isFollowIncoming())
-            {
-                traversalId = (currNode == e.getSubject()) ? e.getObject() : e.getSubject();
-            }
-            else
-            {
-                traversalId = reverse ? e.getSubject() : e.getObject();
-            }
+            long traversalId = explorer.getAdjNode();
 
-            double tmpWeight = weighting.calcWeight(e) + currEdge.weight;
+            double tmpWeight = calcWeight(e) + currEdge.weight;
             if (Double.isInfinite(tmpWeight))
                 continue;
 
@@ -224,6 +221,8 @@ public class DijkstraBidirectionRef extends AbstractBidirAlgo
                 ee.parent = currEdge;
                 shortestWeightMap.put(traversalId, ee);
                 prioQueue.add(ee);
+                if (stats != null)
+                    stats.heapInserted(prioQueue.size());
             } else if (ee.weight > tmpWeight)
             {
                 prioQueue.remove(ee);
@@ -231,6 +230,8 @@ public class DijkstraBidirectionRef extends AbstractBidirAlgo
                 ee.weight = tmpWeight;
                 ee.parent = currEdge;
                 prioQueue.add(ee);
+                if (stats != null)
+                    stats.heapDecreaseKeys++;
             } else
                 continue;
 
@@ -322,6 +323,12 @@ public class DijkstraBidirectionRef extends AbstractBidirAlgo
         this.bestPath = bestPath;
     }
 
+    @Override
+    protected int getMapSize()
+    {
+        return bestWeightMapFrom.size() + bestWeightMapTo.size();
+    }
+
     @Override
     public String getName()
     {
@@ -0,0 +1,237 @@
+package com.daedafusion.graph.routing;
+
+import com.daedafusion.graph.routing.util.TurnCostTable;
+import com.daedafusion.graph.routing.util.Weighting;
+import com.daedafusion.graph.storage.EdgeEntry;
+import com.daedafusion.graph.storage.Graph;
+import com.daedafusion.graph.util.Edge;
+import com.daedafusion.graph.util.EdgeExplorer;
+import com.daedafusion.graph.util.Traversal;
+import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+
+import java.util.Iterator;
+import java.util.PriorityQueue;
+
+/**
+ * Dijkstra adding the costs of a TurnCostTable between consecutive edges. Turn costs make the
+ * weight of the continuation depend on how a node was reached, so a node can have several states.
+ * A state only distinguishes as much as the costs at its node do: the incoming edge at nodes with
+ * (inEdge, node, outEdge) entries, the predicate of the incoming edge if there are predicate costs
+ * and nothing otherwise. Without any costs every node has one state like in Dijkstra.
+ * <p>
+ * U-turns are not rejected, forbid them with an infinite cost in the table.
+ */
+public class EdgeBasedDijkstra extends AbstractRoutingAlgorithm
+{
+    // key of the states at nodes whose costs do not depend on the incoming edge
+    private static final long NODE_STATE = 0;
+
+    private final TurnCostTable turnCosts;
+    // node to the chain of its states
+    private TLongObjectMap<TurnEntry> fromMap;
+    private PriorityQueue<TurnEntry> fromHeap;
+    private TurnEntry currEdge;
+    private int visitedNodes;
+    private int stateCount;
+    private long to = -1;
+
+    public EdgeBasedDijkstra( Graph g, Weighting weighting, TurnCostTable turnCosts )
+    {
+        super(g, weighting);
+        this.turnCosts = turnCosts;
+        fromHeap = new PriorityQueue<TurnEntry>(1000);
+        fromMap = new TLongObjectHashMap<TurnEntry>(1000);
+    }
+
+    /**
+     * A state of the search, the node reached via an edge plus the key distinguishing it from the
+     * other states of the node.
+     */
+    static class TurnEntry extends EdgeEntry
+    {
+        final long key;
+        long predicate;
+        TurnEntry nextState;
+
+        TurnEntry( long edgeId, long predicate, long adjNode, long key, double weight )
+        {
+            super(edgeId, adjNode, weight);
+            this.predicate = predicate;
+            this.key = key;
+        }
+    }
+
+    /**
+     * Turn costs at a node depend on the incoming edge, the searches run forward in time.
+     */
+    @Override
+    public AbstractRoutingAlgorithm setTraversal( Traversal traversal )
+    {
+        if (traversal == Traversal.REVERSE)
+            throw new IllegalArgumentException("Edge based searches only run forward");
+
+        return super.setTraversal(traversal);
+    }
+
+    /**
+     * The table is compared by identity, cached paths do not notice changes of its costs.
+     */
+    @Override
+    Object getCacheVariant()
+    {
+        return turnCosts;
+    }
+
+    private long getStateKey( long node, long edgeId, long predicate )
+    {
+        if (turnCosts.hasEdgeCosts(node))
+            return edgeId;
+        if (turnCosts.hasPredicateCosts())
+            return predicate;
+
+        return NODE_STATE;
+    }
+
+    private TurnEntry getState( long node, long key )
+    {
+        for (TurnEntry state = fromMap.get(node); state != null; state = state.nextState)
+        {
+            if (state.key == key)
+                return state;
+        }
+        return null;
+    }
+
+    private void addState( TurnEntry state )
+    {
+        state.nextState = fromMap.get(state.adjNode);
+        fromMap.put(state.adjNode, state);
+        stateCount++;
+    }
+
+    @Override
+    public Path calcPath( long from, long to )
+    {
+        checkAlreadyRun();
+        startQuery(from, to);
+        this.to = to;
+        // the start has no incoming edge, it only shares the state of the node without any costs
+        currEdge = new TurnEntry(Long.MIN_VALUE, Long.MIN_VALUE, from,
+                turnCosts.isEmpty() ? NODE_STATE : Long.MIN_VALUE, 0);
+        addState(currEdge);
+
+        runAlgo();
+        startExtractStats();
+        return finishQuery(extractPath());
+    }
+
+    private void runAlgo()
+    {
+        EdgeExplorer explorer = outEdgeExplorer;
+        while (true)
+        {
+            visitedNodes++;
+            if (isWeightLimitReached() || finished())
+                break;
+
+            long node = currEdge.adjNode;
+            boolean start = currEdge.edge == Long.MIN_VALUE;
+            Iterator<Edge> iter = explorer.setBaseNode(node);
+            while (iter.hasNext())
+            {
+                Edge e = iter.next();
+
+                if (!accept(e, Long.MIN_VALUE))
+                    continue;
+
+                long adjNode = explorer.getAdjNode();
+                double turnCost = start ? 0
+                        : turnCosts.getCost(currEdge.edge, currEdge.predicate, node, e.getEdgeId(), e.getPredicate());
+                double tmpWeight = currEdge.weight + turnCost + calcWeight(e, currEdge.weight);
+                if (Double.isInfinite(tmpWeight))
+                    continue;
+
+                long key = getStateKey(adjNode, e.getEdgeId(), e.getPredicate());
+                TurnEntry state = getState(adjNode, key);
+                if (state == null)
+                {
+                    state = new TurnEntry(e.getEdgeId(), e.getPredicate(), adjNode, key, tmpWeight);
+                    state.parent = currEdge;
+                    addState(state);
+                    fromHeap.add(state);
+                    if (stats != null)
+                        stats.heapInserted(fromHeap.size());
+                } else if (state.weight > tmpWeight)
+                {
+                    fromHeap.remove(state);
+                    state.edge = e.getEdgeId();
+                    state.predicate = e.getPredicate();
+                    state.weight = tmpWeight;
+                    state.parent = currEdge;
+                    fromHeap.add(state);
+                    if (stats != null)
+                        stats.heapDecreaseKeys++;
+                }
+            }
+
+            if (fromHeap.isEmpty())
+                break;
+
+            currEdge = fromHeap.poll();
+            if (stats != null)
+                stats.heapPolls++;
+        }
+    }
+
+    @Override
+    protected boolean finished()
+    {
+        return currEdge.adjNode == to;
+    }
+
+    @Override
+    protected Path extractPath()
+    {
+        if (currEdge == null || isWeightLimitReached() || !finished())
+            return createEmptyPath();
+
+        return new Path(graph).setWeight(currEdge.weight).setEdgeEntry(currEdge).extract();
+    }
+
+    @Override
+    protected int getMapSize()
+    {
+        return stateCount;
+    }
+
+    /**
+     * @return the number of states created by the search, at most the number of reached nodes
+     * without turn costs
+     */
+    public int getStateCount()
+    {
+        return stateCount;
+    }
+
+    /**
+     * @return the number of settled states
+     */
+    @Override
+    public int getVisitedNodes()
+    {
+        return visitedNodes;
+    }
+
+    @Override
+    protected boolean isWeightLimitReached()
+    {
+        return currEdge.weight >= weightLimit;
+    }
+
+    @Override
+    public String getName()
+    {
+        return "edge_based_dijkstra";
+    }
+}
@@ -0,0 +1,76 @@
+package com.daedafusion.graph.routing;
+
+import com.daedafusion.graph.impl.CompactGraph;
+
+/**
+ * RoutingAlgorithm answering queries from a HubLabels index. Creating an instance per query is
+ * cheap, the index itself is shared.
+ */
+public class HubLabelRouting implements RoutingAlgorithm
+{
+    private final HubLabels labels;
+    private double weightLimit = Double.MAX_VALUE;
+    private int visitedNodes;
+
+    public HubLabelRouting( HubLabels labels )
+    {
+        this.labels = labels;
+    }
+
+    /**
+     * @return the weight of the shortest path, infinity if there is none or it exceeds the limit
+     */
+    public double calcWeight( long from, long to )
+    {
+        countVisited(from, to);
+        double weight = labels.calcWeight(from, to);
+        return weight > weightLimit ? Double.POSITIVE_INFINITY : weight;
+    }
+
+    /**
+     * Requires labels built with paths.
+     */
+    @Override
+    public Path calcPath( long from, long to )
+    {
+        countVisited(from, to);
+        Path path = labels.calcPath(from, to);
+        return path.isFound() && path.getWeight() > weightLimit ? new Path(labels.getGraph()) : path;
+    }
+
+    private void countVisited( long from, long to )
+    {
+        CompactGraph graph = labels.getGraph();
+        int source = graph.getNodeIndex(from);
+        int target = graph.getNodeIndex(to);
+        visitedNodes = source == CompactGraph.NO_NODE || target == CompactGraph.NO_NODE
+                ? 0 : labels.getLabelEntries(source, target);
+    }
+
+    @Override
+    public void setWeightLimit( double weight )
+    {
+        this.weightLimit = weight;
+    }
+
+    @Override
+    public double getWeightLimit()
+    {
+        return weightLimit;
+    }
+
+    @Override
+    public String getName()
+    {
+        return "hub_labels";
+    }
+
+    /**
+     * @return the number of label entries compared by the last query
+     */
+    @Override
+    public int getVisitedNodes()
+    {
+        return visitedNodes;
+    }
+}
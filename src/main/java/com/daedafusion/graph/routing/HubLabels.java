@@ -0,0 +1,544 @@
+package com.daedafusion.graph.routing;
+
+import com.daedafusion.graph.impl.CompactEdge;
+import com.daedafusion.graph.impl.CompactGraph;
+import com.daedafusion.graph.routing.util.Weighting;
+import com.daedafusion.graph.util.IntDoubleBinHeap;
+import com.daedafusion.graph.util.VarIntHelper;
+import gnu.trove.list.array.TDoubleArrayList;
+import gnu.trove.list.array.TIntArrayList;
+import org.apache.log4j.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+/**
+ * 2-hop hub label index of a CompactGraph for one weighting. Every node has an out label of hubs
+ * it reaches and an in label of hubs reaching it, both sorted by hub rank, and the weight between
+ * two nodes is the minimum over the hubs common to the out label of the source and the in label of
+ * the target, so a query is a merge of two small primitive arrays.
+ * <p>
+ * The labels are built by pruned landmark labeling: nodes are processed by rank, a forward and a
+ * backward Dijkstra from every node stop at all nodes whose weight is already covered by the
+ * labels of the higher ranked hubs. Optionally every label entry keeps the first edge towards its
+ * hub so that paths can be unpacked.
+ * <p>
+ * Stored labels reference dense node indices and are only valid for the unchanged graph. The index
+ * is immutable and thread safe.
+ */
+public class HubLabels
+{
+    private static final Logger log = Logger.getLogger(HubLabels.class);
+
+    static final int MAGIC = 0x4446484C; // DFHL
+    static final int VERSION = 1;
+    static final int FLAG_PATHS = 1;
+
+    private final CompactGraph graph;
+    private final Weighting weighting;
+    // rank -> dense node index
+    private final int[] order;
+    private final Labels out;
+    private final Labels in;
+
+    /**
+     * The labels of all nodes in one direction, the entries of node n are at offsets[n] until
+     * offsets[n + 1].
+     */
+    private static final class Labels
+    {
+        final int[] offsets;
+        final int[] hubs;
+        final double[] weights;
+        // first edge from the node towards the hub for out labels, last edge into the node for in
+        // labels, null if paths are not stored
+        final int[] edges;
+
+        Labels( int[] offsets, int[] hubs, double[] weights, int[] edges )
+        {
+            this.offsets = offsets;
+            this.hubs = hubs;
+            this.weights = weights;
+            this.edges = edges;
+        }
+
+        int find( int node, int hub )
+        {
+            return Arrays.binarySearch(hubs, offsets[node], offsets[node + 1], hub);
+        }
+    }
+
+    private HubLabels( CompactGraph graph, Weighting weighting, int[] order, Labels out, Labels in )
+    {
+        this.graph = graph;
+        this.weighting = weighting;
+        this.order = order;
+        this.out = out;
+        this.in = in;
+    }
+
+    /**
+     * Builds the labels with the nodes ordered by descending degree.
+     */
+    public static HubLabels build( CompactGraph graph, Weighting weighting, boolean storePaths )
+    {
+        return build(graph, weighting, orderByDegree(graph), storePaths);
+    }
+
+    /**
+     * @param order the dense node indices from the most to the least important node, e.g. a
+     *              contraction order reversed
+     */
+    public static HubLabels build( CompactGraph graph, Weighting weighting, int[] order, boolean storePaths )
+    {
+        int nodes = graph.getNodeCount();
+        if (order.length != nodes)
+            throw new IllegalArgumentException("Order has " + order.length + " nodes but the graph " + nodes);
+
+        long start = System.nanoTime();
+        double[] edgeWeights = new double[graph.getEdgeCount()];
+        CompactEdge cursor = graph.createEdgeCursor();
+        for (int e = 0; e < edgeWeights.length; e++)
+        {
+            edgeWeights[e] = graph.isEdgeRemoved(e)
+                    ? Double.POSITIVE_INFINITY : weighting.calcWeight(cursor.setEdgeIndex(e));
+        }
+
+        Builder builder = new Builder(graph, edgeWeights, storePaths);
+        for (int rank = 0; rank < nodes; rank++)
+        {
+            builder.search(rank, order[rank], false);
+            builder.search(rank, order[rank], true);
+        }
+
+        HubLabels labels = new HubLabels(graph, weighting, order.clone(), builder.toLabels(true), builder.toLabels(false));
+        if (log.isDebugEnabled())
+            log.debug("Built hub labels for " + graph + " with " + labels.getAverageLabelSize()
+                    + " entries per node and direction in " + (System.nanoTime() - start) / 1000000 + "ms");
+        return labels;
+    }
+
+    private static int[] orderByDegree( CompactGraph graph )
+    {
+        int nodes = graph.getNodeCount();
+        long[] keys = new long[nodes];
+        for (int n = 0; n < nodes; n++)
+        {
+            int degree = 0;
+            for (int e = graph.getFirstOutEdge(n); e != CompactGraph.NO_EDGE; e = graph.getNextOutEdge(e))
+            {
+                degree++;
+            }
+            for (int e = graph.getFirstInEdge(n); e != CompactGraph.NO_EDGE; e = graph.getNextInEdge(e))
+            {
+                degree++;
+            }
+            // descending degree, ties by index
+            keys[n] = (long) (Integer.MAX_VALUE - degree) << 32 | n;
+        }
+        Arrays.sort(keys);
+        int[] order = new int[nodes];
+        for (int i = 0; i < nodes; i++)
+        {
+            order[i] = (int) keys[i];
+        }
+        return order;
+    }
+
+    /**
+     * Pruned Dijkstra searches collecting the labels, not thread safe.
+     */
+    private static final class Builder
+    {
+        private final CompactGraph graph;
+        private final double[] edgeWeights;
+        private final boolean storePaths;
+        private final TIntArrayList[] outHubs;
+        private final TDoubleArrayList[] outWeights;
+        private final TIntArrayList[] outEdges;
+        private final TIntArrayList[] inHubs;
+        private final TDoubleArrayList[] inWeights;
+        private final TIntArrayList[] inEdges;
+
+        private final double[] nodeWeights;
+        private final int[] parentEdges;
+        private final boolean[] settled;
+        // weights of the label of the search root indexed by hub rank
+        private final double[] rootLabel;
+        private final TIntArrayList touched = new TIntArrayList();
+        private final IntDoubleBinHeap heap = new IntDoubleBinHeap();
+
+        Builder( CompactGraph graph, double[] edgeWeights, boolean storePaths )
+        {
+            this.graph = graph;
+            this.edgeWeights = edgeWeights;
+            this.storePaths = storePaths;
+            int nodes = graph.getNodeCount();
+            outHubs = new TIntArrayList[nodes];
+            outWeights = new TDoubleArrayList[nodes];
+            outEdges = new TIntArrayList[nodes];
+            inHubs = new TIntArrayList[nodes];
+            inWeights = new TDoubleArrayList[nodes];
+            inEdges = new TIntArrayList[nodes];
+            for (int n = 0; n < nodes; n++)
+            {
+                outHubs[n] = new TIntArrayList(4);
+                outWeights[n] = new TDoubleArrayList(4);
+                inHubs[n] = new TIntArrayList(4);
+                inWeights[n] = new TDoubleArrayList(4);
+                if (storePaths)
+                {
+                    outEdges[n] = new TIntArrayList(4);
+                    inEdges[n] = new TIntArrayList(4);
+                }
+            }
+            nodeWeights = new double[nodes];
+            parentEdges = new int[nodes];
+            settled = new boolean[nodes];
+            rootLabel = new double[nodes];
+            Arrays.fill(nodeWeights, Double.POSITIVE_INFINITY);
+            Arrays.fill(rootLabel, Double.POSITIVE_INFINITY);
+        }
+
+        /**
+         * A forward search from the hub fills the in labels of the reached nodes, a reverse search
+         * their out labels.
+         */
+        void search( int rank, int root, boolean reverse )
+        {
+            // the label of the root in the opposite direction, combined with the label of a reached
+            // node it gives the weight already covered by higher ranked hubs
+            TIntArrayList rootHubs = reverse ? inHubs[root] : outHubs[root];
+            TDoubleArrayList rootWeights = reverse ? inWeights[root] : outWeights[root];
+            for (int i = 0; i < rootHubs.size(); i++)
+            {
+                rootLabel[rootHubs.get(i)] = rootWeights.get(i);
+            }
+
+            TIntArrayList[] labelHubs = reverse ? outHubs : inHubs;
+            TDoubleArrayList[] labelWeights = reverse ? outWeights : inWeights;
+            TIntArrayList[] labelEdges = reverse ? outEdges : inEdges;
+            heap.clear();
+            update(root, 0, CompactGraph.NO_EDGE);
+            while (!heap.isEmpty())
+            {
+                int node = heap.poll();
+                if (settled[node])
+                    continue;
+                settled[node] = true;
+
+                double weight = nodeWeights[node];
+                if (isCovered(labelHubs[node], labelWeights[node], weight))
+                    continue;
+
+                labelHubs[node].add(rank);
+                labelWeights[node].add(weight);
+                if (storePaths)
+                    labelEdges[node].add(parentEdges[node]);
+
+                int edge = reverse ? graph.getFirstInEdge(node) : graph.getFirstOutEdge(node);
+                while (edge != CompactGraph.NO_EDGE)
+                {
+                    double edgeWeight = edgeWeights[edge];
+                    if (edgeWeight < Double.POSITIVE_INFINITY)
+                        update(reverse ? graph.getEdgeSubject(edge) : graph.getEdgeObject(edge), weight + edgeWeight, edge);
+                    edge = reverse ? graph.getNextInEdge(edge) : graph.getNextOutEdge(edge);
+                }
+            }
+
+            for (int i = 0; i < touched.size(); i++)
+            {
+                int node = touched.get(i);
+                nodeWeights[node] = Double.POSITIVE_INFINITY;
+                settled[node] = false;
+            }
+            touched.resetQuick();
+            for (int i = 0; i < rootHubs.size(); i++)
+            {
+                rootLabel[rootHubs.get(i)] = Double.POSITIVE_INFINITY;
+            }
+        }
+
+        private boolean isCovered( TIntArrayList nodeHubs, TDoubleArrayList nodeLabel, double weight )
+        {
+            for (int i = 0; i < nodeHubs.size(); i++)
+            {
+                if (rootLabel[nodeHubs.get(i)] + nodeLabel.get(i) <= weight)
+                    return true;
+            }
+            return false;
+        }
+
+        private void update( int node, double weight, int edge )
+        {
+            if (settled[node] || weight >= nodeWeights[node])
+                return;
+
+            if (nodeWeights[node] == Double.POSITIVE_INFINITY)
+                touched.add(node);
+            nodeWeights[node] = weight;
+            parentEdges[node] = edge;
+            heap.insert(node, weight);
+        }
+
+        Labels toLabels( boolean outLabels )
+        {
+            TIntArrayList[] labelHubs = outLabels ? outHubs : inHubs;
+            TDoubleArrayList[] labelWeights = outLabels ? outWeights : inWeights;
+            TIntArrayList[] labelEdges = outLabels ? outEdges : inEdges;
+            int nodes = labelHubs.length;
+            int[] offsets = new int[nodes + 1];
+            for (int n = 0; n < nodes; n++)
+            {
+                offsets[n + 1] = offsets[n] + labelHubs[n].size();
+            }
+
+            int size = offsets[nodes];
+            int[] hubArray = new int[size];
+            double[] weightArray = new double[size];
+            int[] edgeArray = storePaths ? new int[size] : null;
+            for (int n = 0; n < nodes; n++)
+            {
+                labelHubs[n].toArray(hubArray, 0, offsets[n], labelHubs[n].size());
+                labelWeights[n].toArray(weightArray, 0, offsets[n], labelWeights[n].size());
+                if (storePaths)
+                    labelEdges[n].toArray(edgeArray, 0, offsets[n], labelEdges[n].size());
+                // release the lists early, the arrays of large graphs are big
+                labelHubs[n] = null;
+                labelWeights[n] = null;
+                if (storePaths)
+                    labelEdges[n] = null;
+            }
+            return new Labels(offsets, hubArray, weightArray, edgeArray);
+        }
+    }
+
+    public CompactGraph getGraph()
+    {
+        return graph;
+    }
+
+    public Weighting getWeighting()
+    {
+        return weighting;
+    }
+
+    public boolean isStoringPaths()
+    {
+        return out.edges != null;
+    }
+
+    /**
+     * @return the average number of entries of a label
+     */
+    public double getAverageLabelSize()
+    {
+        return graph.getNodeCount() == 0 ? 0 : (out.hubs.length + in.hubs.length) / 2.0 / graph.getNodeCount();
+    }
+
+    /**
+     * @return the weight of the shortest path, infinity if there is none or a node is unknown
+     */
+    public double calcWeight( long from, long to )
+    {
+        int source = graph.getNodeIndex(from);
+        int target = graph.getNodeIndex(to);
+        if (source == CompactGraph.NO_NODE || target == CompactGraph.NO_NODE)
+            return Double.POSITIVE_INFINITY;
+        return calcWeightByIndex(source, target);
+    }
+
+    /**
+     * @return the weight of the shortest path between the dense node indices
+     */
+    public double calcWeightByIndex( int source, int target )
+    {
+        int i = findHub(source, target);
+        return i < 0 ? Double.POSITIVE_INFINITY : out.weights[i] + in.weights[in.find(target, out.hubs[i])];
+    }
+
+    /**
+     * @return the position of the best common hub in the out label of the source, -1 if there is none
+     */
+    private int findHub( int source, int target )
+    {
+        int[] outHubs = out.hubs;
+        int[] inHubs = in.hubs;
+        int i = out.offsets[source], iEnd = out.offsets[source + 1];
+        int j = in.offsets[target], jEnd = in.offsets[target + 1];
+        double best = Double.POSITIVE_INFINITY;
+        int bestIndex = -1;
+        while (i < iEnd && j < jEnd)
+        {
+            int a = outHubs[i];
+            int b = inHubs[j];
+            if (a == b)
+            {
+                double weight = out.weights[i] + in.weights[j];
+                if (weight < best)
+                {
+                    best = weight;
+                    bestIndex = i;
+                }
+                i++;
+                j++;
+            }
+            else if (a < b)
+                i++;
+            else
+                j++;
+        }
+        return bestIndex;
+    }
+
+    /**
+     * @return the number of label entries a query between the nodes compares at most
+     */
+    int getLabelEntries( int source, int target )
+    {
+        return out.offsets[source + 1] - out.offsets[source] + in.offsets[target + 1] - in.offsets[target];
+    }
+
+    /**
+     * Unpacks the shortest path from the edges stored with the label entries.
+     */
+    public Path calcPath( long from, long to )
+    {
+        if (!isStoringPaths())
+            throw new IllegalStateException("Paths were not stored when building the labels");
+
+        DenseEdgePath path = new DenseEdgePath(graph);
+        int source = graph.getNodeIndex(from);
+        int target = graph.getNodeIndex(to);
+        if (source == CompactGraph.NO_NODE || target == CompactGraph.NO_NODE)
+            return path;
+        int i = findHub(source, target);
+        if (i < 0)
+            return path;
+
+        int hub = out.hubs[i];
+        int hubNode = order[hub];
+        TIntArrayList pathEdges = new TIntArrayList();
+        // from the source along the first edges towards the hub
+        for (int node = source; node != hubNode; )
+        {
+            int edge = out.edges[out.find(node, hub)];
+            pathEdges.add(edge);
+            node = graph.getEdgeObject(edge);
+        }
+        // from the target along the last edges back to the hub
+        int forwardEdges = pathEdges.size();
+        for (int node = target; node != hubNode; )
+        {
+            int edge = in.edges[in.find(node, hub)];
+            pathEdges.add(edge);
+            node = graph.getEdgeSubject(edge);
+        }
+        pathEdges.reverse(forwardEdges, pathEdges.size());
+        return path.init(from, pathEdges, out.weights[i] + in.weights[in.find(target, hub)]);
+    }
+
+    /**
+     * Writes the labels, hubs are stored as var int deltas within a label:
+     * <pre>
+     * header: magic, version, flags, nodes, edges
+     * order:  the dense node index of every rank
+     * labels: out then in, per node the entry count followed by the entries as
+     *         (hub delta, weight, edge if paths are stored)
+     * </pre>
+     */
+    public void write( File file ) throws IOException
+    {
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file))))
+        {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(isStoringPaths() ? FLAG_PATHS : 0);
+            output.writeInt(graph.getNodeCount());
+            output.writeInt(graph.getEdgeCount());
+            byte[] buffer = new byte[VarIntHelper.MAX_LONG_BYTES];
+            for (int node : order)
+            {
+                output.write(buffer, 0, VarIntHelper.write(node, buffer, 0));
+            }
+            writeLabels(output, out, buffer);
+            writeLabels(output, in, buffer);
+        }
+    }
+
+    private static void writeLabels( DataOutputStream output, Labels labels, byte[] buffer ) throws IOException
+    {
+        for (int n = 0; n + 1 < labels.offsets.length; n++)
+        {
+            int start = labels.offsets[n], end = labels.offsets[n + 1];
+            output.write(buffer, 0, VarIntHelper.write(end - start, buffer, 0));
+            int previous = 0;
+            for (int i = start; i < end; i++)
+            {
+                output.write(buffer, 0, VarIntHelper.write(labels.hubs[i] - previous, buffer, 0));
+                previous = labels.hubs[i];
+                output.writeDouble(labels.weights[i]);
+                if (labels.edges != null)
+                    output.write(buffer, 0, VarIntHelper.write(labels.edges[i] + 1, buffer, 0));
+            }
+        }
+    }
+
+    /**
+     * Reads labels written by write for the unchanged graph they were built from.
+     */
+    public static HubLabels read( File file, CompactGraph graph, Weighting weighting ) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+        if (buffer.remaining() < 5 * 4 || buffer.getInt() != MAGIC)
+            throw new IOException("Not a hub label file: " + file);
+        int version = buffer.getInt();
+        if (version != VERSION)
+            throw new IOException("Unsupported hub label version " + version + " of " + file);
+
+        boolean paths = (buffer.getInt() & FLAG_PATHS) != 0;
+        int nodes = buffer.getInt();
+        int edges = buffer.getInt();
+        if (nodes != graph.getNodeCount() || edges != graph.getEdgeCount())
+            throw new IllegalArgumentException("Labels of " + file + " were built for " + nodes + " nodes and "
+                    + edges + " edges but the graph is " + graph);
+
+        int[] order = new int[nodes];
+        for (int i = 0; i < nodes; i++)
+        {
+            order[i] = VarIntHelper.readInt(buffer);
+        }
+        Labels out = readLabels(buffer, nodes, paths);
+        Labels in = readLabels(buffer, nodes, paths);
+        return new HubLabels(graph, weighting, order, out, in);
+    }
+
+    private static Labels readLabels( ByteBuffer buffer, int nodes, boolean paths )
+    {
+        int[] offsets = new int[nodes + 1];
+        TIntArrayList hubs = new TIntArrayList();
+        TDoubleArrayList weights = new TDoubleArrayList();
+        TIntArrayList edges = paths ? new TIntArrayList() : null;
+        for (int n = 0; n < nodes; n++)
+        {
+            int count = VarIntHelper.readInt(buffer);
+            int hub = 0;
+            for (int i = 0; i < count; i++)
+            {
+                hub += VarIntHelper.readInt(buffer);
+                hubs.add(hub);
+                weights.add(buffer.getDouble());
+                if (paths)
+                    edges.add(VarIntHelper.readInt(buffer) - 1);
+            }
+            offsets[n + 1] = hubs.size();
+        }
+        return new Labels(offsets, hubs.toArray(), weights.toArray(), paths ? edges.toArray() : null);
+    }
+}
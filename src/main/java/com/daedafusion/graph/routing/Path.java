@@ -18,17 +18,25 @@
 package com.daedafusion.graph.routing;
 
 //import com.daedafusion.graph.util.DefaultEdgeFilter;
+import com.daedafusion.graph.routing.util.Weighting;
 import com.daedafusion.graph.storage.EdgeEntry;
 import com.daedafusion.graph.storage.Graph;
+import com.daedafusion.graph.storage.IndexedEdgeAccess;
 import com.daedafusion.graph.storage.NodeAccess;
 import com.daedafusion.graph.util.*;
 import gnu.trove.list.TLongList;
 import gnu.trove.list.array.TLongArrayList;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Stores the nodes for the found path of an algorithm. It additionally needs the edgeIds to make
  * edge determination faster and less complex as there could be several edges (u,v) especially for
  * graphs with shortcuts.
+ * <p>
+ * Nodes and edge ids are captured together into primitive arrays while extracting, Edge objects
+ * are only materialized on request via getEdge.
  *
  * @author Peter Karich
  * @author Ottavio Campana
@@ -36,14 +44,14 @@ import gnu.trove.list.array.TLongArrayList;
  */
 public class Path
 {
+    private static final long[] EMPTY = new long[0];
+
     protected Graph graph;
-    // we go upwards (via EdgeEntry.parent) from the goal node to the origin node
-    protected boolean reverseOrder = true;
     private boolean found;
     protected EdgeEntry edgeEntry;
-    private long fromNode = Long.MIN_VALUE;
-    protected long endNode = Long.MIN_VALUE;
-    private TLongList edgeIds;
+    // nodes[i] and nodes[i + 1] are connected via edgeIds[i], filled when extracting
+    private long[] nodes = EMPTY;
+    private long[] edgeIds = EMPTY;
     private double weight;
     private NodeAccess nodeAccess;
 
@@ -52,7 +60,6 @@ public class Path
         this.weight = Double.MAX_VALUE;
         this.graph = graph;
         this.nodeAccess = graph.getNodeAccess();
-        this.edgeIds = new TLongArrayList();
     }
 
     /**
@@ -62,7 +69,8 @@ public class Path
     {
         this(p.graph);
         weight = p.weight;
-        edgeIds = new TLongArrayList(p.edgeIds);
+        nodes = p.nodes.clone();
+        edgeIds = p.edgeIds.clone();
         edgeEntry = p.edgeEntry;
     }
 
@@ -72,35 +80,45 @@ public class Path
         return this;
     }
 
-    protected void addEdge( long edge )
+    /**
+     * @return the number of edges in the specified shortest-path-tree branch
+     */
+    static int countEdges( EdgeEntry entry )
     {
-        edgeIds.add(edge);
+        int count = 0;
+        while (entry.edge != Long.MIN_VALUE)
+        {
+            count++;
+            entry = entry.parent;
+        }
+        return count;
     }
 
-    protected Path setEndNode( long end )
+    /**
+     * Allocates the arrays for a path with the specified number of edges.
+     */
+    protected void initPath( int edgeCount )
     {
-        endNode = end;
-        return this;
+        nodes = new long[edgeCount + 1];
+        edgeIds = edgeCount == 0 ? EMPTY : new long[edgeCount];
     }
 
     /**
-     * We need to remember fromNode explicitely as its not saved in one edgeId of edgeIds.
+     * Sets the edge at the specified position and the node it leads to.
      */
-    protected Path setFromNode( long from )
+    protected void setEdge( int index, long edgeId, long adjNode )
     {
-        fromNode = from;
-        return this;
+        edgeIds[index] = edgeId;
+        nodes[index + 1] = adjNode;
     }
 
     /**
-     * @return the first node of this Path.
+     * We need to remember fromNode explicitely as its not saved in one edgeId of edgeIds.
      */
-    private long getFromNode()
+    protected Path setFromNode( long from )
     {
-        if (fromNode == Long.MIN_VALUE)
-            throw new IllegalStateException("Call extract() before retrieving fromNode");
-
-        return fromNode;
+        nodes[0] = from;
+        return this;
     }
 
     public boolean isFound()
@@ -114,15 +132,6 @@ public class Path
         return this;
     }
 
-    void reverseOrder()
-    {
-        if (!reverseOrder)
-            throw new IllegalStateException("Switching order multiple times is not supported");
-
-        reverseOrder = false;
-        edgeIds.reverse();
-    }
-
     /**
      * This weight will be updated during the algorithm. The initial value is maximum double.
      */
@@ -146,122 +155,189 @@ public class Path
             throw new IllegalStateException("Extract can only be called once");
 
         EdgeEntry goalEdge = edgeEntry;
-        setEndNode(goalEdge.adjNode);
-        while (goalEdge.edge != Long.MIN_VALUE)
+        // we go upwards (via EdgeEntry.parent) from the goal node to the origin node
+        initPath(countEdges(goalEdge));
+        for (int i = edgeIds.length - 1; i >= 0; i--)
         {
-            processEdge(goalEdge.edge, goalEdge.adjNode);
+            setEdge(i, goalEdge.edge, goalEdge.adjNode);
             goalEdge = goalEdge.parent;
         }
 
         setFromNode(goalEdge.adjNode);
-        reverseOrder();
         return setFound(true);
     }
 
-    protected void processEdge( long edgeId, long adjNode )
+    /**
+     * @return the number of edges of the extracted path
+     */
+    public int getEdgeCount()
+    {
+        return edgeIds.length;
+    }
+
+    /**
+     * @return the id of the edge at the specified position, starting at 0 for the edge leaving the
+     * first node
+     */
+    public long getEdgeId( int index )
+    {
+        return edgeIds[index];
+    }
+
+    /**
+     * @return the node at the specified position, between 0 and getEdgeCount() inclusive
+     */
+    public long getNode( int index )
+    {
+        if (!found)
+            throw new IllegalStateException("Call extract() before retrieving nodes");
+
+        return nodes[index];
+    }
+
+    /**
+     * Materializes the edge at the specified position from the graph.
+     */
+    public Edge getEdge( int index )
     {
-        addEdge(edgeId);
+        Edge edge = graph.getEdge(edgeIds[index]);
+        if (edge == null)
+            throw new IllegalStateException("Edge " + edgeIds[index] + " was empty when requested with node "
+                    + nodes[index] + ", array index:" + index + ", edges:" + edgeIds.length);
+
+        return edge;
     }
 
     /**
      * The callback used in forEveryEdge.
      */
-//    private static interface EdgeVisitor
-//    {
-//        void next(Edge edgeBase, int index, Edge prev);
-//    }
+    public static interface EdgeVisitor
+    {
+        void next( Edge edge, int index, Edge prev );
+    }
 
     /**
      * Iterates over all edges in this path sorted from start to end and calls the visitor callback
-     * for every edge.
+     * for every edge. Every edge is looked up once, the previous edge is handed over again.
      * <p>
      * @param visitor callback to handle every edge. The edge is decoupled from the iterator and can
      * be stored.
      */
-//    private void forEveryEdge( EdgeVisitor visitor )
-//    {
-//        long tmpNode = getFromNode();
-//        int len = edgeIds.size();
-//        for (int i = 0; i < len; i++)
-//        {
-//            Edge edgeBase = graph.getEdge(edgeIds.get(i));
-//            Edge prev = (i != 0) ? graph.getEdge(edgeIds.get(i-1)) : null;
-//
-//            if (edgeBase == null)
-//                throw new IllegalStateException("Edge " + edgeIds.get(i) + " was empty when requested with node " + tmpNode
-//                        + ", array index:" + i + ", edges:" + edgeIds.size());
-//
-//            visitor.next(edgeBase, i, prev);
-//        }
-//    }
+    public void forEveryEdge( EdgeVisitor visitor )
+    {
+        Edge prev = null;
+        for (int i = 0; i < edgeIds.length; i++)
+        {
+            Edge edge = getEdge(i);
+            visitor.next(edge, i, prev);
+            prev = edge;
+        }
+    }
+
+    /**
+     * @return a cursor over the edges of this path which avoids creating Edge objects where the
+     * graph allows it
+     * @param weighting used for the weights reported by the cursor, null to report distances
+     */
+    public PathEdgeCursor createEdgeCursor( Weighting weighting )
+    {
+        return new PathEdgeCursor(this, weighting);
+    }
 
     /**
      * Returns the list of all edges.
      */
-//    public List<Edge> calcEdges()
-//    {
-//        final List<Edge> edges = new ArrayList<Edge>(edgeIds.size());
-//        if (edgeIds.isEmpty())
-//            return edges;
-//
-//        forEveryEdge(new EdgeVisitor()
-//        {
-//            @Override
-//            public void next( Edge eb, int i, Edge prev )
-//            {
-//                edges.add(eb);
-//            }
-//        });
-//        return edges;
-//    }
+    public List<Edge> calcEdges()
+    {
+        final List<Edge> edges = new ArrayList<Edge>(edgeIds.length);
+        if (edgeIds.length == 0)
+            return edges;
+
+        forEveryEdge(new EdgeVisitor()
+        {
+            @Override
+            public void next( Edge eb, int i, Edge prev )
+            {
+                edges.add(eb);
+            }
+        });
+        return edges;
+    }
 
     /**
-     * @return the uncached node indices of the tower nodes in this path.
+     * @return the sum of the edge distances of this path
      */
-    public TLongList calcNodes()
+    public double calcDistance()
     {
-        final TLongArrayList nodes = new TLongArrayList(edgeIds.size() + 1);
-        if (edgeIds.isEmpty())
+        double distance = 0;
+        if (graph instanceof IndexedEdgeAccess)
         {
-            if (isFound())
+            IndexedEdgeAccess indexed = (IndexedEdgeAccess) graph;
+            for (long edgeId : edgeIds)
             {
-                nodes.add(endNode);
+                int edge = indexed.getEdgeIndex(edgeId);
+                if (edge < 0)
+                    throw new IllegalStateException("Edge " + edgeId + " not found in graph");
+
+                distance += indexed.getEdgeDistance(edge);
             }
-            return nodes;
+            return distance;
         }
 
-        long tmpNode = getFromNode();
-        nodes.add(tmpNode);
-
-        for(int i = 0; i < edgeIds.size(); i++)
+        for (int i = 0; i < edgeIds.length; i++)
         {
-            Edge edge = graph.getEdge(edgeIds.get(i));
-
-            long next = (edge.getSubject() == tmpNode) ? edge.getObject() : edge.getSubject();
+            distance += getEdge(i).getDistance();
+        }
+        return distance;
+    }
 
-            nodes.add( next );
+    /**
+     * @return the coordinates of the nodes of this path or an empty list if the path was not found
+     * or the graph has no coordinates
+     */
+    public PointList calcPoints()
+    {
+        if (!isFound() || !nodeAccess.hasCoordinates())
+            return PointList.EMPTY;
 
-            tmpNode = next;
+        boolean is3D = nodeAccess.is3D();
+        PointList points = new PointList(nodes.length, is3D);
+        for (long node : nodes)
+        {
+            if (is3D)
+                points.add(nodeAccess.getLatitude(node), nodeAccess.getLongitude(node), nodeAccess.getElevation(node));
+            else
+                points.add(nodeAccess.getLatitude(node), nodeAccess.getLongitude(node));
         }
+        return points;
+    }
+
+    /**
+     * @return the node ids of this path, empty if no path was found
+     */
+    public TLongList calcNodes()
+    {
+        if (!isFound())
+            return new TLongArrayList(0);
 
-        return nodes;
+        return new TLongArrayList(nodes);
     }
 
     @Override
     public String toString()
     {
-        return "edges:" + edgeIds.size();
+        return "edges:" + edgeIds.length;
     }
 
     public String toDetailsString()
     {
-        String str = "";
-        for (int i = 0; i < edgeIds.size(); i++)
+        StringBuilder str = new StringBuilder();
+        for (int i = 0; i < edgeIds.length; i++)
         {
             if (i > 0)
-                str += "->";
+                str.append("->");
 
-            str += edgeIds.get(i);
+            str.append(edgeIds[i]);
         }
         return toString() + ", found:" + isFound() + ", " + str;
     }
@@ -73,23 +73,25 @@ public class PathBidirRef extends Path
             edgeTo = ee;
         }
 
+        int fromCount = countEdges(edgeEntry);
+        int toCount = countEdges(edgeTo);
+        initPath(fromCount + toCount);
+
         EdgeEntry currEdge = edgeEntry;
-        while (currEdge.edge != Long.MIN_VALUE)
+        for (int i = fromCount - 1; i >= 0; i--)
         {
-            processEdge(currEdge.edge, currEdge.adjNode);
+            setEdge(i, currEdge.edge, currEdge.adjNode);
             currEdge = currEdge.parent;
         }
         setFromNode(currEdge.adjNode);
-        reverseOrder();
+
         currEdge = edgeTo;
-        long tmpEdge = currEdge.edge;
-        while (tmpEdge != Long.MIN_VALUE)
+        for (int i = fromCount; i < fromCount + toCount; i++)
         {
+            long tmpEdge = currEdge.edge;
             currEdge = currEdge.parent;
-            processEdge(tmpEdge, currEdge.adjNode);
-            tmpEdge = currEdge.edge;
+            setEdge(i, tmpEdge, currEdge.adjNode);
         }
-        setEndNode(currEdge.adjNode);
         return setFound(true);
     }
 }
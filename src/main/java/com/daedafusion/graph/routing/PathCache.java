@@ -0,0 +1,535 @@
+package com.daedafusion.graph.routing;
+
+import com.daedafusion.graph.routing.util.Weighting;
+import com.daedafusion.graph.storage.Graph;
+import com.daedafusion.graph.util.EdgeFilter;
+import com.daedafusion.graph.util.Traversal;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Size bounded concurrent cache of path results keyed by source, target, the algorithm class, the
+ * identity of the weighting and the edge filter, the traversal and the algorithm specific settings
+ * like a departure time, so differently configured queries never share an entry. Results of weight
+ * limited queries are not cached. Only the node and edge ids plus the weight of a path are kept.
+ * <p>
+ * Eviction follows W-TinyLFU: new entries enter a small LRU window, entries leaving the window
+ * compete with the least recently used entry of the segmented LRU main space and the one requested
+ * more often according to a count-min sketch stays. This keeps popular pairs cached even when a
+ * burst of one off queries passes through. Reads only reorder the queues if the policy lock is
+ * free, so hits never wait for each other.
+ * <p>
+ * Every entry remembers the version of the graph it was computed on, an entry of an older version
+ * counts as a miss and is dropped.
+ */
+public class PathCache
+{
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    private final Graph graph;
+    private final int maximumSize;
+    private final int windowCapacity;
+    private final int mainCapacity;
+    private final int protectedCapacity;
+    private final ConcurrentHashMap<Key, Node> entries;
+    // guards the queues and the sketch
+    private final ReentrantLock policyLock = new ReentrantLock();
+    private final AccessQueue[] queues = {new AccessQueue(), new AccessQueue(), new AccessQueue()};
+    private final FrequencySketch sketch;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder staleEntries = new LongAdder();
+
+    public PathCache( Graph graph, int maximumSize )
+    {
+        if (maximumSize <= 0)
+            throw new IllegalArgumentException("Maximum size must be positive but was " + maximumSize);
+
+        this.graph = graph;
+        this.maximumSize = maximumSize;
+        this.windowCapacity = Math.max(1, maximumSize / 100);
+        this.mainCapacity = maximumSize - windowCapacity;
+        this.protectedCapacity = mainCapacity * 4 / 5;
+        this.entries = new ConcurrentHashMap<>(Math.min(maximumSize, 1 << 16));
+        this.sketch = new FrequencySketch(maximumSize);
+    }
+
+    private static final class Key
+    {
+        final long from;
+        final long to;
+        final Class<?> algorithm;
+        final Weighting weighting;
+        final EdgeFilter filter;
+        final Traversal traversal;
+        final Object variant;
+        final int hash;
+
+        Key( long from, long to, RoutingAlgorithm algorithm, Weighting weighting, EdgeFilter filter )
+        {
+            this.from = from;
+            this.to = to;
+            this.algorithm = algorithm.getClass();
+            this.weighting = weighting;
+            this.filter = filter;
+            if (algorithm instanceof AbstractRoutingAlgorithm)
+            {
+                this.traversal = ((AbstractRoutingAlgorithm) algorithm).getTraversal();
+                this.variant = ((AbstractRoutingAlgorithm) algorithm).getCacheVariant();
+            } else
+            {
+                this.traversal = null;
+                this.variant = null;
+            }
+            int h = Long.hashCode(from);
+            h = 31 * h + Long.hashCode(to);
+            h = 31 * h + this.algorithm.hashCode();
+            h = 31 * h + System.identityHashCode(weighting);
+            h = 31 * h + System.identityHashCode(filter);
+            h = 31 * h + (traversal == null ? 0 : traversal.hashCode());
+            this.hash = 31 * h + (variant == null ? 0 : variant.hashCode());
+        }
+
+        @Override
+        public boolean equals( Object obj )
+        {
+            if (!(obj instanceof Key))
+                return false;
+            Key other = (Key) obj;
+            return from == other.from && to == other.to && algorithm == other.algorithm
+                    && weighting == other.weighting && filter == other.filter && traversal == other.traversal
+                    && (variant == null ? other.variant == null : variant.equals(other.variant));
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+    }
+
+    /**
+     * Compact result of one query linked into one of the access queues.
+     */
+    private static final class Node
+    {
+        final Key key;
+        final long version;
+        final long[] nodes;
+        final long[] edgeIds;
+        final double weight;
+        final boolean found;
+        int queue;
+        Node prev;
+        Node next;
+
+        Node( Key key, long version, Path path )
+        {
+            this.key = key;
+            this.version = version;
+            this.found = path.isFound();
+            this.weight = path.getWeight();
+            if (found)
+            {
+                int count = path.getEdgeCount();
+                nodes = new long[count + 1];
+                edgeIds = new long[count];
+                nodes[0] = path.getNode(0);
+                for (int i = 0; i < count; i++)
+                {
+                    edgeIds[i] = path.getEdgeId(i);
+                    nodes[i + 1] = path.getNode(i + 1);
+                }
+            } else
+            {
+                nodes = null;
+                edgeIds = null;
+            }
+        }
+    }
+
+    /**
+     * Doubly linked list from the most to the least recently used node.
+     */
+    private static final class AccessQueue
+    {
+        Node head;
+        Node tail;
+        int size;
+
+        void addFirst( Node node )
+        {
+            node.prev = null;
+            node.next = head;
+            if (head == null)
+                tail = node;
+            else
+                head.prev = node;
+            head = node;
+            size++;
+        }
+
+        void remove( Node node )
+        {
+            if (node.prev == null)
+                head = node.next;
+            else
+                node.prev.next = node.next;
+            if (node.next == null)
+                tail = node.prev;
+            else
+                node.next.prev = node.prev;
+            node.prev = null;
+            node.next = null;
+            size--;
+        }
+
+        void clear()
+        {
+            head = null;
+            tail = null;
+            size = 0;
+        }
+    }
+
+    /**
+     * Count-min sketch with four rows of small counters, all counters are halved after a sample
+     * of ten times the cache size so that old popularity fades.
+     */
+    private static final class FrequencySketch
+    {
+        private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+        private static final int MAX_COUNT = 15;
+
+        private final byte[][] rows = new byte[SEEDS.length][];
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch( int maximumSize )
+        {
+            // eight counters per row and entry keep collisions of one off keys with popular ones rare
+            int width = Integer.highestOneBit(Math.max(2, Math.min(maximumSize, 1 << 22)) - 1) << 4;
+            for (int i = 0; i < rows.length; i++)
+            {
+                rows[i] = new byte[width];
+            }
+            this.mask = width - 1;
+            this.sampleSize = maximumSize <= Integer.MAX_VALUE / 10 ? maximumSize * 10 : Integer.MAX_VALUE;
+        }
+
+        private int index( int hash, int row )
+        {
+            int h = hash * SEEDS[row];
+            return (h ^ h >>> 16) & mask;
+        }
+
+        void increment( int hash )
+        {
+            boolean added = false;
+            for (int row = 0; row < rows.length; row++)
+            {
+                int index = index(hash, row);
+                if (rows[row][index] < MAX_COUNT)
+                {
+                    rows[row][index]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize)
+                age();
+        }
+
+        int frequency( int hash )
+        {
+            int frequency = MAX_COUNT;
+            for (int row = 0; row < rows.length; row++)
+            {
+                frequency = Math.min(frequency, rows[row][index(hash, row)]);
+            }
+            return frequency;
+        }
+
+        private void age()
+        {
+            for (byte[] row : rows)
+            {
+                for (int i = 0; i < row.length; i++)
+                {
+                    row[i] >>= 1;
+                }
+            }
+            additions /= 2;
+        }
+    }
+
+    /**
+     * Runs the algorithm unless the result is cached, the key is taken from the configuration of
+     * the algorithm.
+     */
+    public Path calcPath( AbstractRoutingAlgorithm algorithm, long from, long to )
+    {
+        return calcPath(algorithm, algorithm.getWeighting(), algorithm.getEdgeFilter(), from, to);
+    }
+
+    /**
+     * Runs the algorithm unless the result is cached. Weight limited algorithms always run and
+     * their result is not stored.
+     *
+     * @param weighting the weighting the algorithm uses
+     * @param filter    the edge filter the algorithm uses or null
+     */
+    public Path calcPath( RoutingAlgorithm algorithm, Weighting weighting, EdgeFilter filter, long from, long to )
+    {
+        if (algorithm.getWeightLimit() < Double.MAX_VALUE)
+            return algorithm.calcPath(from, to);
+
+        Key key = new Key(from, to, algorithm, weighting, filter);
+        Path cached = get(key);
+        if (cached != null)
+            return cached;
+
+        // read before the query, a change during the query makes the entry stale right away
+        long version = graph.getVersion();
+        Path path = algorithm.calcPath(from, to);
+        put(new Node(key, version, path));
+        return path;
+    }
+
+    /**
+     * @return a copy of the path cached for a query of the specified algorithm or null
+     */
+    public Path get( AbstractRoutingAlgorithm algorithm, long from, long to )
+    {
+        return get(new Key(from, to, algorithm, algorithm.getWeighting(), algorithm.getEdgeFilter()));
+    }
+
+    private Path get( Key key )
+    {
+        Node node = entries.get(key);
+        if (node == null)
+        {
+            misses.increment();
+            return null;
+        }
+
+        if (node.version != graph.getVersion())
+        {
+            misses.increment();
+            staleEntries.increment();
+            removeStale(node);
+            return null;
+        }
+
+        hits.increment();
+        recordHit(node);
+        return new CachedPath(graph, node);
+    }
+
+    /**
+     * Stores the result of a query of the specified algorithm computed on the current version of
+     * the graph, ignored if the algorithm is weight limited.
+     */
+    public void put( AbstractRoutingAlgorithm algorithm, long from, long to, Path path )
+    {
+        if (algorithm.getWeightLimit() < Double.MAX_VALUE)
+            return;
+
+        Key key = new Key(from, to, algorithm, algorithm.getWeighting(), algorithm.getEdgeFilter());
+        put(new Node(key, graph.getVersion(), path));
+    }
+
+    private void put( Node node )
+    {
+        policyLock.lock();
+        try
+        {
+            Node previous = entries.put(node.key, node);
+            if (previous != null)
+                queues[previous.queue].remove(previous);
+            // the sketch counts insertions and hits
+            sketch.increment(node.key.hash);
+
+            node.queue = WINDOW;
+            queues[WINDOW].addFirst(node);
+            evict();
+        } finally
+        {
+            policyLock.unlock();
+        }
+    }
+
+    private void recordHit( Node node )
+    {
+        // a contended hit only loses its reordering
+        if (!policyLock.tryLock())
+            return;
+        try
+        {
+            sketch.increment(node.key.hash);
+            // evicted or replaced meanwhile
+            if (entries.get(node.key) != node)
+                return;
+
+            queues[node.queue].remove(node);
+            if (node.queue == PROBATION)
+            {
+                node.queue = PROTECTED;
+                queues[PROTECTED].addFirst(node);
+                while (queues[PROTECTED].size > protectedCapacity)
+                {
+                    Node demoted = queues[PROTECTED].tail;
+                    queues[PROTECTED].remove(demoted);
+                    demoted.queue = PROBATION;
+                    queues[PROBATION].addFirst(demoted);
+                }
+            } else
+                queues[node.queue].addFirst(node);
+        } finally
+        {
+            policyLock.unlock();
+        }
+    }
+
+    private void removeStale( Node node )
+    {
+        policyLock.lock();
+        try
+        {
+            if (entries.remove(node.key, node))
+                queues[node.queue].remove(node);
+        } finally
+        {
+            policyLock.unlock();
+        }
+    }
+
+    /**
+     * Moves entries leaving the window into the main space, the less frequent one of the
+     * candidate and the main space victim is evicted.
+     */
+    private void evict()
+    {
+        while (queues[WINDOW].size > windowCapacity)
+        {
+            Node candidate = queues[WINDOW].tail;
+            queues[WINDOW].remove(candidate);
+            if (queues[PROBATION].size + queues[PROTECTED].size < mainCapacity)
+            {
+                candidate.queue = PROBATION;
+                queues[PROBATION].addFirst(candidate);
+                continue;
+            }
+
+            Node victim = queues[PROBATION].tail != null ? queues[PROBATION].tail : queues[PROTECTED].tail;
+            if (victim != null && sketch.frequency(candidate.key.hash) > sketch.frequency(victim.key.hash))
+            {
+                queues[victim.queue].remove(victim);
+                entries.remove(victim.key, victim);
+                candidate.queue = PROBATION;
+                queues[PROBATION].addFirst(candidate);
+            } else
+                entries.remove(candidate.key, candidate);
+            evictions.increment();
+        }
+    }
+
+    /**
+     * Drops all entries, the statistics are kept.
+     */
+    public void invalidateAll()
+    {
+        policyLock.lock();
+        try
+        {
+            entries.clear();
+            for (AccessQueue queue : queues)
+            {
+                queue.clear();
+            }
+        } finally
+        {
+            policyLock.unlock();
+        }
+    }
+
+    public Graph getGraph()
+    {
+        return graph;
+    }
+
+    public int getMaximumSize()
+    {
+        return maximumSize;
+    }
+
+    public int getSize()
+    {
+        return entries.size();
+    }
+
+    public long getHitCount()
+    {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of lookups without a valid entry, including stale ones
+     */
+    public long getMissCount()
+    {
+        return misses.sum();
+    }
+
+    public double getHitRate()
+    {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    public long getEvictionCount()
+    {
+        return evictions.sum();
+    }
+
+    /**
+     * @return the number of entries dropped because the graph changed
+     */
+    public long getStaleCount()
+    {
+        return staleEntries.sum();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "size:" + getSize() + "/" + maximumSize + ", hits:" + getHitCount() + ", misses:" + getMissCount()
+                + ", evictions:" + getEvictionCount();
+    }
+
+    private static final class CachedPath extends Path
+    {
+        CachedPath( Graph graph, Node node )
+        {
+            super(graph);
+            if (!node.found)
+                return;
+
+            initPath(node.edgeIds.length);
+            setFromNode(node.nodes[0]);
+            for (int i = 0; i < node.edgeIds.length; i++)
+            {
+                setEdge(i, node.edgeIds[i], node.nodes[i + 1]);
+            }
+            setWeight(node.weight);
+            setFound(true);
+        }
+    }
+}
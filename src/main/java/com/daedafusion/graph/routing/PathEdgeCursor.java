@@ -0,0 +1,180 @@
+package com.daedafusion.graph.routing;
+
+import com.daedafusion.graph.routing.util.Weighting;
+import com.daedafusion.graph.storage.IndexedEdgeAccess;
+import com.daedafusion.graph.util.Edge;
+
+/**
+ * Cursor over the edges of an extracted Path from start to end. For graphs with IndexedEdgeAccess
+ * one edge view is moved along the path, so apart from the cursor itself nothing is allocated. The edge returned by
+ * getEdge is only valid until the next call of next().
+ *
+ * <pre>
+ * PathEdgeCursor cursor = path.createEdgeCursor(weighting);
+ * while (cursor.next())
+ * {
+ *     write(cursor.getSubject(), cursor.getPredicate(), cursor.getObject(), cursor.getCumulativeWeight());
+ * }
+ * </pre>
+ */
+public class PathEdgeCursor
+{
+    private final Path path;
+    private final Weighting weighting;
+    private final IndexedEdgeAccess indexed;
+    private final double[] weights;
+    private Edge view;
+    private Edge edge;
+    // dense index of the current edge or negative if it is not read via the view
+    private int edgeIndex = -1;
+    private int index = -1;
+    private double distance;
+    private double weight;
+    private double cumulativeDistance;
+    private double cumulativeWeight;
+
+    /**
+     * @param weighting used for getWeight and getCumulativeWeight, if null the distance is used
+     */
+    PathEdgeCursor( Path path, Weighting weighting )
+    {
+        this.path = path;
+        this.weighting = weighting;
+        this.indexed = path.graph instanceof IndexedEdgeAccess ? (IndexedEdgeAccess) path.graph : null;
+        this.weights = indexed != null && weighting != null ? indexed.getCachedWeights(weighting) : null;
+    }
+
+    /**
+     * Moves to the next edge of the path.
+     *
+     * @return false if the end of the path was reached
+     */
+    public boolean next()
+    {
+        if (index + 1 >= path.getEdgeCount())
+        {
+            index = path.getEdgeCount();
+            edge = null;
+            return false;
+        }
+
+        index++;
+        edge = loadEdge(path.getEdgeId(index));
+        distance = edge.getDistance();
+        weight = weighting == null ? distance : calcWeight(edge);
+        cumulativeDistance += distance;
+        cumulativeWeight += weight;
+        return true;
+    }
+
+    private double calcWeight( Edge edge )
+    {
+        if (weights != null && edgeIndex >= 0 && edgeIndex < weights.length)
+            return weights[edgeIndex];
+        return weighting.calcWeight(edge);
+    }
+
+    private Edge loadEdge( long edgeId )
+    {
+        edgeIndex = indexed == null ? -1 : indexed.getEdgeIndex(edgeId);
+        if (edgeIndex >= 0)
+        {
+            view = indexed.moveEdgeView(view, edgeIndex);
+            return view;
+        }
+
+        return path.getEdge(index);
+    }
+
+    private void checkPosition()
+    {
+        if (edge == null)
+            throw new IllegalStateException("Call next() before accessing the cursor");
+    }
+
+    /**
+     * @return the position of the current edge inside the path
+     */
+    public int getIndex()
+    {
+        return index;
+    }
+
+    /**
+     * @return the current edge, reused by the cursor for graphs with IndexedEdgeAccess
+     */
+    public Edge getEdge()
+    {
+        checkPosition();
+        return edge;
+    }
+
+    public long getEdgeId()
+    {
+        return path.getEdgeId(index);
+    }
+
+    /**
+     * @return the node from which the current edge is traversed
+     */
+    public long getBaseNode()
+    {
+        checkPosition();
+        return path.getNode(index);
+    }
+
+    /**
+     * @return the node to which the current edge leads, independent of the edge direction
+     */
+    public long getAdjNode()
+    {
+        checkPosition();
+        return path.getNode(index + 1);
+    }
+
+    public long getSubject()
+    {
+        checkPosition();
+        return edge.getSubject();
+    }
+
+    public long getPredicate()
+    {
+        checkPosition();
+        return edge.getPredicate();
+    }
+
+    public long getObject()
+    {
+        checkPosition();
+        return edge.getObject();
+    }
+
+    public double getDistance()
+    {
+        checkPosition();
+        return distance;
+    }
+
+    public double getWeight()
+    {
+        checkPosition();
+        return weight;
+    }
+
+    /**
+     * @return the distance from the start of the path including the current edge
+     */
+    public double getCumulativeDistance()
+    {
+        return cumulativeDistance;
+    }
+
+    /**
+     * @return the weight from the start of the path including the current edge
+     */
+    public double getCumulativeWeight()
+    {
+        return cumulativeWeight;
+    }
+}
@@ -0,0 +1,148 @@
+package com.daedafusion.graph.routing;
+
+/**
+ * Counters collected by a routing algorithm when enabled via
+ * AbstractRoutingAlgorithm.setQueryStats. Counts and times accumulate if the same instance is
+ * passed to several algorithms, peak values keep the maximum. Not thread safe, use one instance per
+ * thread.
+ */
+public class QueryStats
+{
+    int queries;
+    long edgesScanned;
+    long edgesRejected;
+    long heapInserts;
+    long heapPolls;
+    long heapDecreaseKeys;
+    int peakHeapSize;
+    int peakMapSize;
+    long searchNanos;
+    long extractNanos;
+    private long searchStart;
+    private long extractStart;
+    private boolean extracting;
+
+    void startSearch()
+    {
+        queries++;
+        searchStart = System.nanoTime();
+        extracting = false;
+    }
+
+    void startExtract()
+    {
+        extractStart = System.nanoTime();
+        searchNanos += extractStart - searchStart;
+        extracting = true;
+    }
+
+    void finish()
+    {
+        long end = System.nanoTime();
+        if (extracting)
+            extractNanos += end - extractStart;
+        else
+            searchNanos += end - searchStart;
+    }
+
+    void heapInserted( int heapSize )
+    {
+        heapInserts++;
+        if (heapSize > peakHeapSize)
+            peakHeapSize = heapSize;
+    }
+
+    void mapSize( int size )
+    {
+        if (size > peakMapSize)
+            peakMapSize = size;
+    }
+
+    /**
+     * @return the number of calcPath calls recorded
+     */
+    public int getQueries()
+    {
+        return queries;
+    }
+
+    /**
+     * @return the number of edges returned by the explorers including rejected ones. Edges the
+     * storage already skipped, e.g. for a PredicateEdgeFilter on a CompactGraph, are not included.
+     */
+    public long getEdgesScanned()
+    {
+        return edgesScanned;
+    }
+
+    /**
+     * @return the number of edges rejected by the edge filter
+     */
+    public long getEdgesRejected()
+    {
+        return edgesRejected;
+    }
+
+    public long getHeapInserts()
+    {
+        return heapInserts;
+    }
+
+    public long getHeapPolls()
+    {
+        return heapPolls;
+    }
+
+    /**
+     * @return the number of entries which got a smaller weight while already in the heap
+     */
+    public long getHeapDecreaseKeys()
+    {
+        return heapDecreaseKeys;
+    }
+
+    public int getPeakHeapSize()
+    {
+        return peakHeapSize;
+    }
+
+    /**
+     * @return the largest number of shortest path tree entries held by a query. For bidirectional
+     * algorithms this is the sum of both directions.
+     */
+    public int getPeakMapSize()
+    {
+        return peakMapSize;
+    }
+
+    /**
+     * @return nanoseconds spent exploring the graph
+     */
+    public long getSearchNanos()
+    {
+        return searchNanos;
+    }
+
+    /**
+     * @return nanoseconds spent in Path.extract
+     */
+    public long getExtractNanos()
+    {
+        return extractNanos;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "queries:" + queries
+                + ", scanned:" + edgesScanned
+                + ", rejected:" + edgesRejected
+                + ", heapInserts:" + heapInserts
+                + ", heapPolls:" + heapPolls
+                + ", decreaseKeys:" + heapDecreaseKeys
+                + ", peakHeap:" + peakHeapSize
+                + ", peakMap:" + peakMapSize
+                + ", searchMicros:" + searchNanos / 1000
+                + ", extractMicros:" + extractNanos / 1000;
+    }
+}
@@ -35,6 +35,11 @@ public interface RoutingAlgorithm
      */
     void setWeightLimit(double weight);
 
+    /**
+     * @return the limit set via setWeightLimit
+     */
+    double getWeightLimit();
+
     /**
      * @return name of this algorithm
      */
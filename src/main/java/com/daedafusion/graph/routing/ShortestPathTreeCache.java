@@ -0,0 +1,315 @@
+package com.daedafusion.graph.routing;
+
+import com.daedafusion.graph.impl.CompactEdge;
+import com.daedafusion.graph.impl.CompactGraph;
+import com.daedafusion.graph.routing.util.Weighting;
+import com.daedafusion.graph.util.IntDoubleBinHeap;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TIntIntHashMap;
+import org.apache.log4j.Logger;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the shortest path trees of recent sources on a CompactGraph for one weighting. A tree is a
+ * suspended Dijkstra: weights and parent edges of the reached nodes in primitive arrays plus the
+ * queue. A query towards a node the tree already settled is answered from the arrays, a farther
+ * target resumes the search where the previous query stopped.
+ * <p>
+ * Memory is bounded by the total number of nodes reached by all trees, the least recently used
+ * trees are evicted first. Trees are discarded when the version of the graph changes. Queries from
+ * different sources run in parallel, queries from the same source wait for each other.
+ */
+public class ShortestPathTreeCache
+{
+    private static final Logger log = Logger.getLogger(ShortestPathTreeCache.class);
+
+    private final CompactGraph graph;
+    private final Weighting weighting;
+    private final long maxReachedNodes;
+    private final LinkedHashMap<Integer, SourceTree> trees = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder resumed = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxReachedNodes the number of reached nodes summed over all trees above which trees
+     *                        are evicted
+     */
+    public ShortestPathTreeCache( CompactGraph graph, Weighting weighting, long maxReachedNodes )
+    {
+        if (maxReachedNodes <= 0)
+            throw new IllegalArgumentException("Maximum reached nodes must be positive but was " + maxReachedNodes);
+
+        this.graph = graph;
+        this.weighting = weighting;
+        this.maxReachedNodes = maxReachedNodes;
+    }
+
+    /**
+     * Suspended Dijkstra from one source. Nodes are mapped to slots of the arrays in the order they
+     * are reached.
+     */
+    private final class SourceTree
+    {
+        final int source;
+        final long version;
+        final double[] edgeWeights;
+        final CompactEdge cursor = graph.createEdgeCursor();
+        final TIntIntHashMap slots = new TIntIntHashMap(64, 0.5f, -1, -1);
+        final IntDoubleBinHeap heap = new IntDoubleBinHeap();
+        double[] weights = new double[64];
+        int[] parentEdges = new int[64];
+        boolean[] settled = new boolean[64];
+        // read by the eviction without holding the tree
+        volatile int size;
+        int settledCount;
+
+        SourceTree( int source, long version )
+        {
+            this.source = source;
+            this.version = version;
+            this.edgeWeights = graph.getWeightCache().getWeights(weighting);
+            reach(source, 0, CompactGraph.NO_EDGE);
+        }
+
+        /**
+         * @return the slot of the target once it is settled or -1 if it is unreachable
+         */
+        int settle( int target )
+        {
+            int slot = slots.get(target);
+            if (slot >= 0 && settled[slot])
+                return slot;
+
+            while (!heap.isEmpty())
+            {
+                double weight = heap.peekKey();
+                int node = heap.poll();
+                int s = slots.get(node);
+                if (settled[s] || weight > weights[s])
+                    continue;
+
+                settled[s] = true;
+                settledCount++;
+                for (int edge = graph.getFirstOutEdge(node); edge != CompactGraph.NO_EDGE; edge = graph.getNextOutEdge(edge))
+                {
+                    if (graph.isEdgeRemoved(edge))
+                        continue;
+
+                    int adj = graph.getEdgeObject(edge);
+                    int adjSlot = slots.get(adj);
+                    double w = weight + calcWeight(edge);
+                    if (adjSlot < 0)
+                        reach(adj, w, edge);
+                    else if (!settled[adjSlot] && w < weights[adjSlot])
+                    {
+                        weights[adjSlot] = w;
+                        parentEdges[adjSlot] = edge;
+                        heap.insert(adj, w);
+                    }
+                }
+                if (node == target)
+                    return s;
+            }
+            return -1;
+        }
+
+        private void reach( int node, double weight, int parentEdge )
+        {
+            if (size == weights.length)
+            {
+                weights = Arrays.copyOf(weights, size * 2);
+                parentEdges = Arrays.copyOf(parentEdges, size * 2);
+                settled = Arrays.copyOf(settled, size * 2);
+            }
+            slots.put(node, size);
+            weights[size] = weight;
+            parentEdges[size] = parentEdge;
+            size++;
+            heap.insert(node, weight);
+        }
+
+        private double calcWeight( int edge )
+        {
+            if (edgeWeights != null && edge < edgeWeights.length)
+                return edgeWeights[edge];
+
+            return weighting.calcWeight(cursor.setEdgeIndex(edge));
+        }
+
+        boolean isSettled( int node )
+        {
+            int slot = slots.get(node);
+            return slot >= 0 && settled[slot];
+        }
+    }
+
+    /**
+     * @return the weight of the shortest path, infinity if there is none or a node is unknown
+     */
+    public double calcWeight( long from, long to )
+    {
+        int source = graph.getNodeIndex(from);
+        int target = graph.getNodeIndex(to);
+        if (source == CompactGraph.NO_NODE || target == CompactGraph.NO_NODE)
+            return Double.POSITIVE_INFINITY;
+
+        SourceTree tree = getTree(source);
+        try
+        {
+            synchronized (tree)
+            {
+                int slot = settle(tree, target);
+                return slot < 0 ? Double.POSITIVE_INFINITY : tree.weights[slot];
+            }
+        } finally
+        {
+            evict(tree);
+        }
+    }
+
+    public Path calcPath( long from, long to )
+    {
+        DenseEdgePath path = new DenseEdgePath(graph);
+        int source = graph.getNodeIndex(from);
+        int target = graph.getNodeIndex(to);
+        if (source == CompactGraph.NO_NODE || target == CompactGraph.NO_NODE)
+            return path;
+
+        SourceTree tree = getTree(source);
+        try
+        {
+            synchronized (tree)
+            {
+                int slot = settle(tree, target);
+                if (slot < 0)
+                    return path;
+
+                TIntArrayList edges = new TIntArrayList();
+                for (int s = slot; tree.parentEdges[s] != CompactGraph.NO_EDGE; )
+                {
+                    int edge = tree.parentEdges[s];
+                    edges.add(edge);
+                    s = tree.slots.get(graph.getEdgeSubject(edge));
+                }
+                edges.reverse();
+                return path.init(from, edges, tree.weights[slot]);
+            }
+        } finally
+        {
+            evict(tree);
+        }
+    }
+
+    private int settle( SourceTree tree, int target )
+    {
+        if (tree.isSettled(target))
+            hits.increment();
+        else if (tree.settledCount > 0)
+            resumed.increment();
+        return tree.settle(target);
+    }
+
+    private synchronized SourceTree getTree( int source )
+    {
+        long version = graph.getVersion();
+        SourceTree tree = trees.get(source);
+        if (tree != null && tree.version == version)
+            return tree;
+
+        misses.increment();
+        tree = new SourceTree(source, version);
+        trees.put(source, tree);
+        return tree;
+    }
+
+    /**
+     * Evicts the least recently used trees other than the specified one while the reached nodes
+     * exceed the limit.
+     */
+    private synchronized void evict( SourceTree current )
+    {
+        long reached = 0;
+        for (SourceTree tree : trees.values())
+        {
+            reached += tree.size;
+        }
+
+        Iterator<Map.Entry<Integer, SourceTree>> iter = trees.entrySet().iterator();
+        while (reached > maxReachedNodes && iter.hasNext())
+        {
+            SourceTree tree = iter.next().getValue();
+            if (tree == current)
+                continue;
+
+            reached -= tree.size;
+            iter.remove();
+            evictions.increment();
+        }
+        if (reached > maxReachedNodes && log.isDebugEnabled())
+            log.debug("Tree of source " + graph.getNodeId(current.source) + " alone reaches " + reached
+                    + " nodes, more than the limit of " + maxReachedNodes);
+    }
+
+    /**
+     * Drops all trees.
+     */
+    public synchronized void clear()
+    {
+        trees.clear();
+    }
+
+    public synchronized int getTreeCount()
+    {
+        return trees.size();
+    }
+
+    /**
+     * @return the number of nodes reached by all cached trees
+     */
+    public synchronized long getReachedNodeCount()
+    {
+        long reached = 0;
+        for (SourceTree tree : trees.values())
+        {
+            reached += tree.size;
+        }
+        return reached;
+    }
+
+    /**
+     * @return the number of queries answered without any search
+     */
+    public long getHitCount()
+    {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of queries which continued a cached search
+     */
+    public long getResumedCount()
+    {
+        return resumed.sum();
+    }
+
+    /**
+     * @return the number of queries which had to start a new search
+     */
+    public long getMissCount()
+    {
+        return misses.sum();
+    }
+
+    public long getEvictionCount()
+    {
+        return evictions.sum();
+    }
+}
@@ -0,0 +1,76 @@
+package com.daedafusion.graph.routing;
+
+import com.daedafusion.graph.routing.util.TimeDependentWeighting;
+import com.daedafusion.graph.storage.Graph;
+import com.daedafusion.graph.util.Edge;
+import com.daedafusion.graph.util.Traversal;
+
+/**
+ * Dijkstra evaluating every edge at the time it is entered, i.e. the departure time plus the weight
+ * of the path up to the edge. The weight of the resulting path is the travel time, arrival is the
+ * departure time plus the path weight. Exact for FIFO weightings only, so calcPath rejects others.
+ * <p>
+ * Searches run forward in time, a REVERSE traversal would need the arrival time of the target.
+ */
+public class TimeDependentDijkstra extends Dijkstra
+{
+    private final TimeDependentWeighting timeWeighting;
+    private double departureTime;
+
+    public TimeDependentDijkstra( Graph g, TimeDependentWeighting weighting )
+    {
+        super(g, weighting);
+        this.timeWeighting = weighting;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the weighting violates the FIFO property at the time of the query
+     */
+    @Override
+    public Path calcPath( long from, long to )
+    {
+        // functions can change after the algorithm was created
+        if (!timeWeighting.isFifo())
+            throw new IllegalArgumentException("Weighting violates the FIFO property, a search without waiting is not exact");
+
+        return super.calcPath(from, to);
+    }
+
+    public TimeDependentDijkstra setDepartureTime( double departureTime )
+    {
+        this.departureTime = departureTime;
+        return this;
+    }
+
+    public double getDepartureTime()
+    {
+        return departureTime;
+    }
+
+    @Override
+    public AbstractRoutingAlgorithm setTraversal( Traversal traversal )
+    {
+        if (traversal == Traversal.REVERSE)
+            throw new IllegalArgumentException("Time dependent searches only run forward in time");
+
+        return super.setTraversal(traversal);
+    }
+
+    @Override
+    Object getCacheVariant()
+    {
+        return departureTime;
+    }
+
+    @Override
+    protected double calcWeight( Edge edge, double pathWeight )
+    {
+        return timeWeighting.calcWeight(edge, departureTime + pathWeight);
+    }
+
+    @Override
+    public String getName()
+    {
+        return "td_dijkstra";
+    }
+}
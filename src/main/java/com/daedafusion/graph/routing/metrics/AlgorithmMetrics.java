@@ -0,0 +1,70 @@
+package com.daedafusion.graph.routing.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Query counters and histograms of a single routing algorithm. Thread safe, shared by all
+ * algorithm instances of the same name.
+ */
+public class AlgorithmMetrics
+{
+    private final String algorithm;
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder found = new LongAdder();
+    private final LongAdder weightLimitReached = new LongAdder();
+    private final LogLinearHistogram latency = new LogLinearHistogram();
+    private final LogLinearHistogram visitedNodes = new LogLinearHistogram();
+
+    public AlgorithmMetrics(String algorithm)
+    {
+        this.algorithm = algorithm;
+    }
+
+    public String getAlgorithm()
+    {
+        return algorithm;
+    }
+
+    /**
+     * @param nanos duration of calcPath
+     * @param found true if a path was found
+     * @param weightLimitReached true if the search was terminated by the weight limit
+     * @param visitedNodes the visited node count of the query
+     */
+    public void record( long nanos, boolean found, boolean weightLimitReached, int visitedNodes )
+    {
+        queries.increment();
+        if (found)
+            this.found.increment();
+        if (weightLimitReached)
+            this.weightLimitReached.increment();
+
+        latency.record(Math.max(0, nanos));
+        this.visitedNodes.record(Math.max(0, visitedNodes));
+    }
+
+    public LogLinearHistogram getLatency()
+    {
+        return latency;
+    }
+
+    public LogLinearHistogram getVisitedNodes()
+    {
+        return visitedNodes;
+    }
+
+    public void reset()
+    {
+        queries.reset();
+        found.reset();
+        weightLimitReached.reset();
+        latency.reset();
+        visitedNodes.reset();
+    }
+
+    public AlgorithmMetricsSnapshot snapshot()
+    {
+        return new AlgorithmMetricsSnapshot(algorithm, queries.sum(), found.sum(), weightLimitReached.sum(),
+                latency.snapshot(), visitedNodes.snapshot());
+    }
+}
@@ -0,0 +1,130 @@
+package com.daedafusion.graph.routing.metrics;
+
+/**
+ * Immutable view of AlgorithmMetrics. Only exposes plain getters so that it maps to a
+ * CompositeData in RoutingMetricsMXBean, latencies are reported in microseconds.
+ */
+public class AlgorithmMetricsSnapshot
+{
+    private final String algorithm;
+    private final long queries;
+    private final long found;
+    private final long weightLimitReached;
+    private final LogLinearHistogram.Snapshot latency;
+    private final LogLinearHistogram.Snapshot visitedNodes;
+
+    AlgorithmMetricsSnapshot( String algorithm, long queries, long found, long weightLimitReached,
+                              LogLinearHistogram.Snapshot latency, LogLinearHistogram.Snapshot visitedNodes )
+    {
+        this.algorithm = algorithm;
+        this.queries = queries;
+        this.found = found;
+        this.weightLimitReached = weightLimitReached;
+        this.latency = latency;
+        this.visitedNodes = visitedNodes;
+    }
+
+    public String getAlgorithm()
+    {
+        return algorithm;
+    }
+
+    public long getQueries()
+    {
+        return queries;
+    }
+
+    public long getFound()
+    {
+        return found;
+    }
+
+    public long getNotFound()
+    {
+        return queries - found;
+    }
+
+    public double getFoundRatio()
+    {
+        return queries == 0 ? 0 : (double) found / queries;
+    }
+
+    public long getWeightLimitReached()
+    {
+        return weightLimitReached;
+    }
+
+    public double getLatencyMeanMicros()
+    {
+        return latency.getMean() / 1000;
+    }
+
+    public double getLatencyP50Micros()
+    {
+        return latency.getValueAtPercentile(50) / 1000d;
+    }
+
+    public double getLatencyP90Micros()
+    {
+        return latency.getValueAtPercentile(90) / 1000d;
+    }
+
+    public double getLatencyP99Micros()
+    {
+        return latency.getValueAtPercentile(99) / 1000d;
+    }
+
+    public double getLatencyP999Micros()
+    {
+        return latency.getValueAtPercentile(99.9) / 1000d;
+    }
+
+    public double getLatencyMaxMicros()
+    {
+        return latency.getMax() / 1000d;
+    }
+
+    public double getVisitedNodesMean()
+    {
+        return visitedNodes.getMean();
+    }
+
+    public long getVisitedNodesP50()
+    {
+        return visitedNodes.getValueAtPercentile(50);
+    }
+
+    public long getVisitedNodesP99()
+    {
+        return visitedNodes.getValueAtPercentile(99);
+    }
+
+    public long getVisitedNodesMax()
+    {
+        return visitedNodes.getMax();
+    }
+
+    /**
+     * @return the raw latency histogram in nanoseconds
+     */
+    public LogLinearHistogram.Snapshot latencyHistogram()
+    {
+        return latency;
+    }
+
+    public LogLinearHistogram.Snapshot visitedNodesHistogram()
+    {
+        return visitedNodes;
+    }
+
+    @Override
+    public String toString()
+    {
+        return algorithm + " queries:" + queries
+                + ", found:" + found
+                + ", weightLimit:" + weightLimitReached
+                + ", p50:" + getLatencyP50Micros() + "us"
+                + ", p99:" + getLatencyP99Micros() + "us"
+                + ", visitedP50:" + getVisitedNodesP50();
+    }
+}
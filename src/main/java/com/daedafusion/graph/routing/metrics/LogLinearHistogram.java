@@ -0,0 +1,185 @@
+package com.daedafusion.graph.routing.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock free histogram of non negative long values with log-linear buckets similar to
+ * HdrHistogram: values below 2^precision get their own bucket, above that every power of two is
+ * split into 2^(precision-1) linear sub buckets. The relative error of a reported value is
+ * therefore below 2^(1-precision), e.g. about 3% for the default precision of 6.
+ */
+public class LogLinearHistogram
+{
+    public static final int DEFAULT_PRECISION = 6;
+
+    private final int precision;
+    private final int subBucketCount;
+    private final int halfCount;
+    private final AtomicLongArray counts;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public LogLinearHistogram()
+    {
+        this(DEFAULT_PRECISION);
+    }
+
+    /**
+     * @param precision number of significant binary digits kept per value, between 2 and 16
+     */
+    public LogLinearHistogram(int precision)
+    {
+        if (precision < 2 || precision > 16)
+            throw new IllegalArgumentException("precision must be between 2 and 16 but was " + precision);
+
+        this.precision = precision;
+        this.subBucketCount = 1 << precision;
+        this.halfCount = subBucketCount >> 1;
+        this.counts = new AtomicLongArray(subBucketCount + (64 - precision) * halfCount);
+    }
+
+    public void record( long value )
+    {
+        if (value < 0)
+            throw new IllegalArgumentException("Negative values cannot be recorded " + value);
+
+        counts.incrementAndGet(getBucket(value));
+        count.increment();
+        sum.add(value);
+        min.accumulate(value);
+        max.accumulate(value);
+    }
+
+    int getBucket( long value )
+    {
+        if (value < subBucketCount)
+            return (int) value;
+
+        int shift = 64 - Long.numberOfLeadingZeros(value) - precision;
+        int top = (int) (value >>> shift);
+        return subBucketCount + (shift - 1) * halfCount + top - halfCount;
+    }
+
+    /**
+     * @return the smallest value which falls into the specified bucket
+     */
+    long getLowestValue( int bucket )
+    {
+        if (bucket < subBucketCount)
+            return bucket;
+
+        int shift = (bucket - subBucketCount) / halfCount + 1;
+        long top = (bucket - subBucketCount) % halfCount + halfCount;
+        return top << shift;
+    }
+
+    /**
+     * @return the largest value which falls into the specified bucket
+     */
+    long getHighestValue( int bucket )
+    {
+        if (bucket == counts.length() - 1)
+            return Long.MAX_VALUE;
+
+        return getLowestValue(bucket + 1) - 1;
+    }
+
+    public long getCount()
+    {
+        return count.sum();
+    }
+
+    /**
+     * Clears all values. Values recorded concurrently may be partially lost.
+     */
+    public void reset()
+    {
+        for (int i = 0; i < counts.length(); i++)
+        {
+            counts.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        min.reset();
+        max.reset();
+    }
+
+    /**
+     * Copies the current state. The copy is not atomic with respect to concurrent record calls, its
+     * total count is derived from the copied buckets so that percentiles stay consistent.
+     */
+    public Snapshot snapshot()
+    {
+        long[] copy = new long[counts.length()];
+        long total = 0;
+        for (int i = 0; i < copy.length; i++)
+        {
+            copy[i] = counts.get(i);
+            total += copy[i];
+        }
+        return new Snapshot(copy, total, sum.sum(), total == 0 ? 0 : min.get(), max.get());
+    }
+
+    public class Snapshot
+    {
+        private final long[] buckets;
+        private final long count;
+        private final long sum;
+        private final long min;
+        private final long max;
+
+        Snapshot( long[] buckets, long count, long sum, long min, long max )
+        {
+            this.buckets = buckets;
+            this.count = count;
+            this.sum = sum;
+            this.min = min;
+            this.max = max;
+        }
+
+        public long getCount()
+        {
+            return count;
+        }
+
+        public long getMin()
+        {
+            return min;
+        }
+
+        public long getMax()
+        {
+            return max;
+        }
+
+        public double getMean()
+        {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * @param percentile between 0 and 100
+         * @return the highest value of the bucket containing the specified percentile, capped to the
+         * maximum recorded value
+         */
+        public long getValueAtPercentile( double percentile )
+        {
+            if (count == 0)
+                return 0;
+
+            long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++)
+            {
+                seen += buckets[i];
+                if (seen >= rank)
+                    return Math.max(min, Math.min(max, getHighestValue(i)));
+            }
+            return max;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.daedafusion.graph.routing.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of AlgorithmMetrics keyed by RoutingAlgorithm.getName. Enable it per algorithm via
+ * AbstractRoutingAlgorithm.setMetrics, usually one registry is shared by all queries of a
+ * process.
+ */
+public class RoutingMetrics implements RoutingMetricsMXBean
+{
+    public static final String DOMAIN = "com.daedafusion.graph";
+
+    private final ConcurrentMap<String, AlgorithmMetrics> algorithms = new ConcurrentHashMap<>();
+
+    public AlgorithmMetrics getAlgorithm( String name )
+    {
+        AlgorithmMetrics metrics = algorithms.get(name);
+        if (metrics != null)
+            return metrics;
+
+        return algorithms.computeIfAbsent(name, AlgorithmMetrics::new);
+    }
+
+    @Override
+    public long getTotalQueries()
+    {
+        long total = 0;
+        for (AlgorithmMetrics metrics : algorithms.values())
+        {
+            total += metrics.getLatency().getCount();
+        }
+        return total;
+    }
+
+    /**
+     * @return a snapshot per algorithm sorted by name
+     */
+    @Override
+    public List<AlgorithmMetricsSnapshot> getAlgorithms()
+    {
+        List<AlgorithmMetricsSnapshot> result = new ArrayList<>(algorithms.size());
+        for (AlgorithmMetrics metrics : algorithms.values())
+        {
+            result.add(metrics.snapshot());
+        }
+        Collections.sort(result, Comparator.comparing(AlgorithmMetricsSnapshot::getAlgorithm));
+        return result;
+    }
+
+    /**
+     * Clears all values, e.g. after a graph reload to compare against the previous graph.
+     */
+    @Override
+    public void reset()
+    {
+        for (AlgorithmMetrics metrics : algorithms.values())
+        {
+            metrics.reset();
+        }
+    }
+
+    /**
+     * Registers this registry as com.daedafusion.graph:type=RoutingMetrics,name=&lt;name&gt;
+     */
+    public ObjectName register( MBeanServer server, String name ) throws JMException
+    {
+        ObjectName objectName = new ObjectName(DOMAIN + ":type=RoutingMetrics,name=" + ObjectName.quote(name));
+        server.registerMBean(this, objectName);
+        return objectName;
+    }
+
+    public ObjectName register( String name ) throws JMException
+    {
+        return register(ManagementFactory.getPlatformMBeanServer(), name);
+    }
+}
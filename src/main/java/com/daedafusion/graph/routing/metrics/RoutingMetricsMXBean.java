@@ -0,0 +1,15 @@
+package com.daedafusion.graph.routing.metrics;
+
+import java.util.List;
+
+/**
+ * JMX view of RoutingMetrics.
+ */
+public interface RoutingMetricsMXBean
+{
+    long getTotalQueries();
+
+    List<AlgorithmMetricsSnapshot> getAlgorithms();
+
+    void reset();
+}
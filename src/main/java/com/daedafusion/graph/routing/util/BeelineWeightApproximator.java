@@ -14,6 +14,8 @@ public class BeelineWeightApproximator implements WeightApproximator {
     private Weighting weighting;
     private DistanceCalc distanceCalc;
     double toLat, toLon;
+    // nodes without coordinates would sit at 0,0 so skip the distance calculation for them
+    private boolean hasCoordinates;
 
     public BeelineWeightApproximator(NodeAccess nodeAccess, Weighting weighting) {
         this.nodeAccess = nodeAccess;
@@ -22,6 +24,7 @@ public class BeelineWeightApproximator implements WeightApproximator {
     }
 
     public void setGoalNode(long toNode){
+        hasCoordinates = nodeAccess.hasCoordinates(toNode);
         toLat = nodeAccess.getLatitude(toNode);
         toLon = nodeAccess.getLongitude(toNode);
     }
@@ -35,6 +38,9 @@ public class BeelineWeightApproximator implements WeightApproximator {
     @Override
     public double approximate(long fromNode) {
 
+        if (!hasCoordinates || !nodeAccess.hasCoordinates(fromNode))
+            return 0;
+
         double fromLat, fromLon, dist2goal, weight2goal;
         fromLat  = nodeAccess.getLatitude(fromNode);
         fromLon = nodeAccess.getLongitude(fromNode);
@@ -0,0 +1,24 @@
+package com.daedafusion.graph.routing.util;
+
+import com.daedafusion.graph.util.Edge;
+
+/**
+ * Weighting whose edge weights depend on the time the edge is entered, e.g. the travel time of a
+ * scheduled transfer. Times and weights are in the same unit. calcWeight(edge) without a time has
+ * to return a lower bound of the weight over all times so that time independent precomputations
+ * stay admissible.
+ */
+public interface TimeDependentWeighting extends Weighting
+{
+    /**
+     * @param time the time at which the edge is entered
+     * @return the weight of traversing the edge when entering it at the specified time
+     */
+    double calcWeight(Edge edge, double time);
+
+    /**
+     * @return true if entering an edge later never leaves it earlier. Time dependent searches never
+     * wait at nodes and are only exact if this holds for all edges
+     */
+    boolean isFifo();
+}
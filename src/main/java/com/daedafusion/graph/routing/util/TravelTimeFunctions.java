@@ -0,0 +1,245 @@
+package com.daedafusion.graph.routing.util;
+
+import com.daedafusion.graph.util.Edge;
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.map.hash.TLongIntHashMap;
+import org.apache.log4j.Logger;
+
+import java.util.Arrays;
+
+/**
+ * TimeDependentWeighting from periodic piecewise linear travel time functions per edge. The
+ * breakpoints of all functions share two primitive arrays, function f occupies the positions
+ * offsets[f] until offsets[f + 1]. Between breakpoints the travel time is interpolated linearly,
+ * after the last breakpoint it runs towards the first one of the next period. Edges without a
+ * function use the fallback weighting at all times.
+ * <p>
+ * Replacing the function of an edge appends the new breakpoints, the old ones are not reclaimed.
+ * Not thread safe while functions are added.
+ * <p>
+ * Setting a function changes the lower bound returned by calcWeight(edge) without the graph
+ * noticing, so a WeightCache holding these functions keeps serving the old bounds until its
+ * invalidate() is called.
+ */
+public class TravelTimeFunctions implements TimeDependentWeighting
+{
+    private static final Logger log = Logger.getLogger(TravelTimeFunctions.class);
+
+    private final Weighting fallback;
+    private final double period;
+    private final TLongIntHashMap edgeFunctions = new TLongIntHashMap(16, 0.5f, -1, -1);
+    private double[] times = new double[64];
+    private double[] travelTimes = new double[64];
+    private int[] offsets = new int[17];
+    private double[] minimums = new double[16];
+    private boolean[] fifo = new boolean[16];
+    private int functionCount;
+    private int nonFifoEdges;
+
+    /**
+     * @param fallback the weighting of edges without a function
+     * @param period the length of the period, e.g. a day, the functions repeat after it
+     */
+    public TravelTimeFunctions( Weighting fallback, double period )
+    {
+        if (!(period > 0) || Double.isInfinite(period))
+            throw new IllegalArgumentException("Period must be positive but was " + period);
+
+        this.fallback = fallback;
+        this.period = period;
+    }
+
+    /**
+     * Sets the travel time function of an edge, replacing a previous one. Invalidate a WeightCache
+     * this weighting is registered with afterwards.
+     *
+     * @param times       the breakpoints, strictly increasing within [0, period)
+     * @param travelTimes the travel time when entering the edge at the breakpoint of the same position
+     */
+    public TravelTimeFunctions setFunction( long edgeId, double[] times, double[] travelTimes )
+    {
+        if (times.length == 0 || times.length != travelTimes.length)
+            throw new IllegalArgumentException("Requires the same positive number of times and travel times but got "
+                    + times.length + " and " + travelTimes.length);
+
+        double min = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < times.length; i++)
+        {
+            if (!(times[i] >= 0 && times[i] < period) || i > 0 && times[i] <= times[i - 1])
+                throw new IllegalArgumentException("Times must increase strictly within [0, " + period + ") but "
+                        + times[i] + " is at position " + i);
+            if (!(travelTimes[i] >= 0) || Double.isInfinite(travelTimes[i]))
+                throw new IllegalArgumentException("Invalid travel time " + travelTimes[i] + " at position " + i);
+
+            min = Math.min(min, travelTimes[i]);
+        }
+
+        int f = functionCount;
+        int start = offsets[f];
+        ensureCapacity(f + 1, start + times.length);
+        System.arraycopy(times, 0, this.times, start, times.length);
+        System.arraycopy(travelTimes, 0, this.travelTimes, start, times.length);
+        offsets[f + 1] = start + times.length;
+        minimums[f] = min;
+        fifo[f] = checkFifo(f);
+        functionCount++;
+
+        int previous = edgeFunctions.put(edgeId, f);
+        if (previous >= 0 && !fifo[previous])
+            nonFifoEdges--;
+        if (!fifo[f])
+        {
+            nonFifoEdges++;
+            if (log.isDebugEnabled())
+                log.debug("Function of edge " + edgeId + " violates the FIFO property");
+        }
+        return this;
+    }
+
+    private void ensureCapacity( int functions, int points )
+    {
+        if (functions + 1 > offsets.length)
+        {
+            int size = Math.max(functions + 1, offsets.length * 2);
+            offsets = Arrays.copyOf(offsets, size);
+            minimums = Arrays.copyOf(minimums, size);
+            fifo = Arrays.copyOf(fifo, size);
+        }
+        if (points > times.length)
+        {
+            int size = Math.max(points, times.length * 2);
+            times = Arrays.copyOf(times, size);
+            travelTimes = Arrays.copyOf(travelTimes, size);
+        }
+    }
+
+    /**
+     * A later entry must not arrive earlier, i.e. time plus travel time may not decrease between
+     * consecutive breakpoints including the one wrapping into the next period.
+     */
+    private boolean checkFifo( int f )
+    {
+        int from = offsets[f];
+        int to = offsets[f + 1];
+        for (int i = from; i < to; i++)
+        {
+            int next = i + 1 < to ? i + 1 : from;
+            double nextTime = i + 1 < to ? times[next] : times[next] + period;
+            if (nextTime + travelTimes[next] < times[i] + travelTimes[i])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the travel time of the function when entering at the specified time
+     */
+    private double evaluate( int f, double time )
+    {
+        int from = offsets[f];
+        int to = offsets[f + 1];
+        if (to - from == 1)
+            return travelTimes[from];
+
+        double t = time % period;
+        if (t < 0)
+            t += period;
+
+        int pos = Arrays.binarySearch(times, from, to, t);
+        if (pos >= 0)
+            return travelTimes[pos];
+
+        // the breakpoints around t, wrapping around the period before the first and after the last
+        int next = -pos - 1;
+        int prev = next - 1;
+        double prevTime, nextTime;
+        if (next == from)
+        {
+            prev = to - 1;
+            prevTime = times[prev] - period;
+            nextTime = times[next];
+        } else if (next == to)
+        {
+            next = from;
+            prevTime = times[prev];
+            nextTime = times[next] + period;
+        } else
+        {
+            prevTime = times[prev];
+            nextTime = times[next];
+        }
+
+        double ratio = (t - prevTime) / (nextTime - prevTime);
+        return travelTimes[prev] + ratio * (travelTimes[next] - travelTimes[prev]);
+    }
+
+    @Override
+    public double calcWeight( Edge edge, double time )
+    {
+        int f = edgeFunctions.get(edge.getEdgeId());
+        return f < 0 ? fallback.calcWeight(edge) : evaluate(f, time);
+    }
+
+    /**
+     * @return the minimum of the travel time function, a lower bound for all times
+     */
+    @Override
+    public double calcWeight( Edge edge )
+    {
+        int f = edgeFunctions.get(edge.getEdgeId());
+        return f < 0 ? fallback.calcWeight(edge) : minimums[f];
+    }
+
+    /**
+     * The functions must not undercut the minimum weight of the fallback for A* to stay exact.
+     */
+    @Override
+    public double getMinWeight( double distance )
+    {
+        return fallback.getMinWeight(distance);
+    }
+
+    @Override
+    public boolean isFifo()
+    {
+        return nonFifoEdges == 0;
+    }
+
+    /**
+     * @return true if the edge has no function or its function has the FIFO property
+     */
+    public boolean isFifo( long edgeId )
+    {
+        int f = edgeFunctions.get(edgeId);
+        return f < 0 || fifo[f];
+    }
+
+    /**
+     * @return the edges whose function violates the FIFO property
+     */
+    public TLongArrayList getNonFifoEdges()
+    {
+        TLongArrayList result = new TLongArrayList();
+        for (long edgeId : edgeFunctions.keys())
+        {
+            if (!fifo[edgeFunctions.get(edgeId)])
+                result.add(edgeId);
+        }
+        return result;
+    }
+
+    public boolean hasFunction( long edgeId )
+    {
+        return edgeFunctions.containsKey(edgeId);
+    }
+
+    public int getEdgeCount()
+    {
+        return edgeFunctions.size();
+    }
+
+    public double getPeriod()
+    {
+        return period;
+    }
+}
@@ -0,0 +1,147 @@
+package com.daedafusion.graph.routing.util;
+
+import gnu.trove.map.hash.TLongDoubleHashMap;
+import gnu.trove.map.hash.TLongIntHashMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+
+import java.util.Arrays;
+
+/**
+ * Costs of the transition from one edge to the next at the node between them, added to the edge
+ * weights by the EdgeBasedDijkstra. A cost is either specific to an (inEdge, node, outEdge) triple
+ * or applies to all transitions from an edge of one predicate to an edge of another. Triples win
+ * over predicate pairs, transitions without an entry are free. An infinite cost forbids the
+ * transition, e.g. a u-turn where inEdge and outEdge are the same edge.
+ * <p>
+ * The triples are kept in primitive arrays, chained per node like the delta entries of the
+ * ConcurrentGraph. Nodes have few of them so lookups walk the chain. Not thread safe while costs
+ * are added.
+ */
+public class TurnCostTable
+{
+    private static final int NO_ENTRY = -1;
+
+    private final TLongIntHashMap nodeHeads = new TLongIntHashMap(16, 0.5f, Long.MIN_VALUE, NO_ENTRY);
+    private long[] inEdges = new long[16];
+    private long[] outEdges = new long[16];
+    private double[] costs = new double[16];
+    private int[] next = new int[16];
+    private int entryCount;
+    // in predicate -> out predicate -> cost
+    private final TLongObjectHashMap<TLongDoubleHashMap> predicateCosts = new TLongObjectHashMap<>();
+
+    /**
+     * Sets the cost of continuing from inEdge to outEdge at the node, replacing a previous cost.
+     */
+    public TurnCostTable setEdgeCost( long inEdge, long node, long outEdge, double cost )
+    {
+        checkCost(cost);
+        int entry = findEntry(inEdge, node, outEdge);
+        if (entry != NO_ENTRY)
+        {
+            costs[entry] = cost;
+            return this;
+        }
+
+        if (entryCount == costs.length)
+        {
+            int size = entryCount * 2;
+            inEdges = Arrays.copyOf(inEdges, size);
+            outEdges = Arrays.copyOf(outEdges, size);
+            costs = Arrays.copyOf(costs, size);
+            next = Arrays.copyOf(next, size);
+        }
+        inEdges[entryCount] = inEdge;
+        outEdges[entryCount] = outEdge;
+        costs[entryCount] = cost;
+        next[entryCount] = nodeHeads.get(node);
+        nodeHeads.put(node, entryCount);
+        entryCount++;
+        return this;
+    }
+
+    /**
+     * Sets the cost of continuing from any edge with the in predicate to any edge with the out
+     * predicate, replacing a previous cost.
+     */
+    public TurnCostTable setPredicateCost( long inPredicate, long outPredicate, double cost )
+    {
+        checkCost(cost);
+        TLongDoubleHashMap outCosts = predicateCosts.get(inPredicate);
+        if (outCosts == null)
+        {
+            outCosts = new TLongDoubleHashMap(8, 0.5f, Long.MIN_VALUE, Double.NaN);
+            predicateCosts.put(inPredicate, outCosts);
+        }
+        outCosts.put(outPredicate, cost);
+        return this;
+    }
+
+    private static void checkCost( double cost )
+    {
+        if (!(cost >= 0))
+            throw new IllegalArgumentException("Turn costs must not be negative but was " + cost);
+    }
+
+    private int findEntry( long inEdge, long node, long outEdge )
+    {
+        for (int entry = nodeHeads.get(node); entry != NO_ENTRY; entry = next[entry])
+        {
+            if (inEdges[entry] == inEdge && outEdges[entry] == outEdge)
+                return entry;
+        }
+        return NO_ENTRY;
+    }
+
+    /**
+     * @return the cost of the transition, the triple entry if there is one, else the predicate pair
+     * entry, else 0
+     */
+    public double getCost( long inEdge, long inPredicate, long node, long outEdge, long outPredicate )
+    {
+        if (entryCount > 0)
+        {
+            int entry = findEntry(inEdge, node, outEdge);
+            if (entry != NO_ENTRY)
+                return costs[entry];
+        }
+        if (!predicateCosts.isEmpty())
+        {
+            TLongDoubleHashMap outCosts = predicateCosts.get(inPredicate);
+            if (outCosts != null)
+            {
+                double cost = outCosts.get(outPredicate);
+                if (!Double.isNaN(cost))
+                    return cost;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return true if the costs at the node depend on the incoming edge itself and not only on its
+     * predicate
+     */
+    public boolean hasEdgeCosts( long node )
+    {
+        return entryCount > 0 && nodeHeads.containsKey(node);
+    }
+
+    public boolean hasPredicateCosts()
+    {
+        return !predicateCosts.isEmpty();
+    }
+
+    public boolean isEmpty()
+    {
+        return entryCount == 0 && predicateCosts.isEmpty();
+    }
+
+    /**
+     * @return the number of (inEdge, node, outEdge) entries
+     */
+    public int getEdgeCostCount()
+    {
+        return entryCount;
+    }
+}
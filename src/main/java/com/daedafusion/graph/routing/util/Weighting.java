@@ -20,7 +20,8 @@ package com.daedafusion.graph.routing.util;
 import com.daedafusion.graph.util.Edge;
 
 /**
- * Specifies how the best route is calculated. E.g. the fastest or shortest route.
+ * Specifies how the best route is calculated. E.g. the fastest or shortest route. Costs of the
+ * transition between consecutive edges are kept in a TurnCostTable instead.
  *
  * @author Peter Karich
  */
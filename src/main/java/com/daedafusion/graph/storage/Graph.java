@@ -3,6 +3,9 @@ package com.daedafusion.graph.storage;
 import com.daedafusion.graph.util.Edge;
 import com.daedafusion.graph.util.EdgeExplorer;
 import com.daedafusion.graph.util.EdgeFilter;
+import com.daedafusion.graph.util.Traversal;
+
+import java.util.Iterator;
 
 /**
  * Created by mphilpot on 3/25/15.
@@ -15,7 +18,103 @@ public interface Graph
 
     Edge getEdge(long edgeId);
 
+    /**
+     * Removes the edge, the nodes are kept.
+     *
+     * @return true if the edge existed
+     * @throws UnsupportedOperationException if edges cannot be removed from this graph
+     */
+    default boolean removeEdge(long edgeId)
+    {
+        throw new UnsupportedOperationException("Edges cannot be removed from " + getClass().getName());
+    }
+
+    /**
+     * Changes the distance of an existing edge.
+     *
+     * @return false if the edge does not exist
+     * @throws UnsupportedOperationException if distances cannot be changed in this graph
+     */
+    default boolean updateDistance(long edgeId, double distance)
+    {
+        throw new UnsupportedOperationException("Distances cannot be changed in " + getClass().getName());
+    }
+
+    /**
+     * @return a counter which changes whenever an edge is added, removed or changes its distance,
+     * lets data derived from the edges like cached paths detect that it is stale
+     * @throws UnsupportedOperationException if this graph does not track its changes, the path caches
+     * cannot be used with it
+     */
+    default long getVersion()
+    {
+        throw new UnsupportedOperationException(getClass().getName() + " does not track its changes");
+    }
+
+    /**
+     * @return all edges of this graph in no particular order
+     * @throws UnsupportedOperationException if the edges of this graph cannot be listed
+     */
+    default Iterator<Edge> getAllEdges()
+    {
+        throw new UnsupportedOperationException("Edges of " + getClass().getName() + " cannot be listed");
+    }
+
+    /**
+     * Stores the coordinates of the specified node, creating the node if not yet known.
+     *
+     * @throws UnsupportedOperationException if this graph does not store coordinates
+     */
+    default void setNode(long node, double lat, double lon)
+    {
+        throw new UnsupportedOperationException(getClass().getName() + " does not store coordinates");
+    }
+
+    default void setNode(long node, double lat, double lon, double ele)
+    {
+        throw new UnsupportedOperationException(getClass().getName() + " does not store elevations");
+    }
+
+    /**
+     * Bulk variant of setNode for the nodes at the same positions of the arrays.
+     *
+     * @param eles the elevations or null
+     */
+    default void setNodes(long[] nodes, double[] lats, double[] lons, double[] eles)
+    {
+        for (int i = 0; i < nodes.length; i++)
+        {
+            if (eles == null)
+                setNode(nodes[i], lats[i], lons[i]);
+            else
+                setNode(nodes[i], lats[i], lons[i], eles[i]);
+        }
+    }
+
+    /**
+     * Ends the current batch of inserted edges for implementations which report ingest to the flight
+     * recorder. Bulk loads call it themselves, callers inserting edges one by one should call it when done.
+     */
+    default void flushIngest()
+    {
+    }
+
+    /**
+     * Same as createEdgeExplorer(filter, Traversal.UNDIRECTED).
+     */
     EdgeExplorer createEdgeExplorer(EdgeFilter filter);
 
+    /**
+     * @return an explorer which only visits the edges of the specified direction
+     * @throws UnsupportedOperationException for directed traversals if this graph only explores undirected
+     */
+    default EdgeExplorer createEdgeExplorer(EdgeFilter filter, Traversal traversal)
+    {
+        if (traversal == Traversal.UNDIRECTED)
+            return createEdgeExplorer(filter);
+
+        throw new UnsupportedOperationException(getClass().getName() + " does not support " + traversal + " traversal");
+    }
+
     NodeAccess getNodeAccess();
 }
@@ -0,0 +1,29 @@
+package com.daedafusion.graph.storage;
+
+import com.daedafusion.graph.routing.util.Weighting;
+import com.daedafusion.graph.util.Edge;
+
+/**
+ * Optional interface of graphs which number their edges densely. Code walking many known edges,
+ * like the cursor of a Path, reads them by index instead of creating an Edge per lookup.
+ */
+public interface IndexedEdgeAccess
+{
+    /**
+     * @return the dense index of the specified edge or a negative value if it does not exist
+     */
+    int getEdgeIndex(long edgeId);
+
+    double getEdgeDistance(int edge);
+
+    /**
+     * @param view an edge view returned by an earlier call on this graph or null
+     * @return the view moved to the edge at the dense index, a new view if it was null
+     */
+    Edge moveEdgeView(Edge view, int edge);
+
+    /**
+     * @return the weights of the weighting by dense edge index if the graph caches them, else null
+     */
+    double[] getCachedWeights(Weighting weighting);
+}
@@ -14,4 +14,38 @@ public interface NodeAccess
     double getLatitude(long toNode);
 
     double getLongitude(long toNode);
+
+    /**
+     * @return the elevation in meters, 0 if not stored
+     */
+    default double getElevation(long toNode)
+    {
+        return 0;
+    }
+
+    /**
+     * @return true if coordinates were stored for the nodes of this graph, false by default which
+     * turns off the beeline heuristic
+     */
+    default boolean hasCoordinates()
+    {
+        return false;
+    }
+
+    /**
+     * @return true if coordinates were stored for the specified node, nodes without report a latitude and
+     * longitude of 0. Defaults to hasCoordinates() for implementations that store all nodes or none.
+     */
+    default boolean hasCoordinates(long node)
+    {
+        return hasCoordinates();
+    }
+
+    /**
+     * @return true if elevations were stored for the nodes of this graph
+     */
+    default boolean is3D()
+    {
+        return false;
+    }
 }
@@ -0,0 +1,704 @@
+package com.daedafusion.graph.storage.index;
+
+import com.daedafusion.graph.storage.Graph;
+import com.daedafusion.graph.storage.NodeAccess;
+import com.daedafusion.graph.util.DistanceCalc;
+import com.daedafusion.graph.util.DistanceCalcEarth;
+import com.daedafusion.graph.util.Edge;
+import com.daedafusion.graph.util.Helper;
+import com.daedafusion.graph.util.shapes.BBox;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.map.TLongIntMap;
+import gnu.trove.map.hash.TLongIntHashMap;
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Tiled grid over the node coordinates and straight edge geometries of a graph to snap arbitrary
+ * coordinates onto the graph. The number of tiles follows Helper.calcIndexSize of the graph bounds
+ * but never exceeds the node count. Every tile lists its nodes and the edges whose bounding box
+ * overlaps it in CSR arrays.
+ * <p>
+ * Searches expand ring by ring around the tile of the query point and compare normalized
+ * distances: squared degrees with the longitude scaled by the cosine of the query latitude, which
+ * is computed once per query. Only reported results are converted to meters via the DistanceCalc.
+ * <p>
+ * The arrays are held in buffers so that a persisted index can be used straight from a memory
+ * mapped file, see write and load. Thread safe for queries.
+ */
+public class LocationIndexGrid
+{
+    private static final Logger log = Logger.getLogger(LocationIndexGrid.class);
+
+    static final int MAGIC = 0x44464c49; // DFLI
+    static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8 * 4 + 4 * 8;
+    private static final double METER_PER_DEGREE = DistanceCalcEarth.C / 360;
+    private static final double MIN_EXTENT = 1e-5;
+
+    private final int rows;
+    private final int cols;
+    private final double minLat;
+    private final double minLon;
+    private final double cellLat;
+    private final double cellLon;
+
+    private final LongBuffer nodeIds;
+    private final IntBuffer nodeLats;
+    private final IntBuffer nodeLons;
+    private final IntBuffer cellNodeStart;
+    private final IntBuffer cellNodes;
+
+    private final LongBuffer edgeIds;
+    private final IntBuffer edgeBase;
+    private final IntBuffer edgeAdj;
+    private final IntBuffer cellEdgeStart;
+    private final IntBuffer cellEdges;
+
+    private DistanceCalc distanceCalc = Helper.DIST_EARTH;
+
+    private LocationIndexGrid( int rows, int cols, double minLat, double minLon, double cellLat, double cellLon,
+                               LongBuffer nodeIds, IntBuffer nodeLats, IntBuffer nodeLons,
+                               IntBuffer cellNodeStart, IntBuffer cellNodes,
+                               LongBuffer edgeIds, IntBuffer edgeBase, IntBuffer edgeAdj,
+                               IntBuffer cellEdgeStart, IntBuffer cellEdges )
+    {
+        this.rows = rows;
+        this.cols = cols;
+        this.minLat = minLat;
+        this.minLon = minLon;
+        this.cellLat = cellLat;
+        this.cellLon = cellLon;
+        this.nodeIds = nodeIds;
+        this.nodeLats = nodeLats;
+        this.nodeLons = nodeLons;
+        this.cellNodeStart = cellNodeStart;
+        this.cellNodes = cellNodes;
+        this.edgeIds = edgeIds;
+        this.edgeBase = edgeBase;
+        this.edgeAdj = edgeAdj;
+        this.cellEdgeStart = cellEdgeStart;
+        this.cellEdges = cellEdges;
+    }
+
+    /**
+     * Indexes all nodes and edges of the specified graph. Nodes are only known through their edges.
+     */
+    public static LocationIndexGrid create( Graph graph )
+    {
+        NodeAccess nodeAccess = graph.getNodeAccess();
+        if (!nodeAccess.hasCoordinates())
+            throw new IllegalArgumentException("Graph has no node coordinates");
+
+        TLongIntMap nodeIndex = new TLongIntHashMap(1000, 0.5f, Long.MIN_VALUE, -1);
+        TLongArrayList ids = new TLongArrayList();
+        TIntArrayList lats = new TIntArrayList();
+        TIntArrayList lons = new TIntArrayList();
+        TLongArrayList edges = new TLongArrayList();
+        TIntArrayList bases = new TIntArrayList();
+        TIntArrayList adjs = new TIntArrayList();
+        BBox bounds = BBox.createInverse(false);
+
+        Iterator<Edge> iter = graph.getAllEdges();
+        while (iter.hasNext())
+        {
+            Edge edge = iter.next();
+            int base = addNode(edge.getSubject(), nodeAccess, nodeIndex, ids, lats, lons, bounds);
+            int adj = addNode(edge.getObject(), nodeAccess, nodeIndex, ids, lats, lons, bounds);
+            if (base == adj)
+                continue;
+
+            edges.add(edge.getEdgeId());
+            bases.add(base);
+            adjs.add(adj);
+        }
+
+        if (ids.isEmpty())
+            throw new IllegalArgumentException("Graph has no edges to index");
+
+        double extentLat = Math.max(bounds.maxLat - bounds.minLat, MIN_EXTENT);
+        double extentLon = Math.max(bounds.maxLon - bounds.minLon, MIN_EXTENT);
+        BBox padded = new BBox(bounds.minLon, bounds.minLon + extentLon, bounds.minLat, bounds.minLat + extentLat);
+        int cells = Math.max(1, Math.min(Helper.calcIndexSize(padded), ids.size()));
+
+        // square tiles in meters
+        double height = extentLat;
+        double width = extentLon * Math.cos(Math.toRadians((bounds.minLat + bounds.maxLat) / 2));
+        int rows = (int) Math.max(1, Math.round(Math.sqrt(cells * height / Math.max(width, MIN_EXTENT))));
+        rows = Math.min(rows, cells);
+        int cols = Math.max(1, cells / rows);
+        // tiles slightly larger than the bounds so that the maximum falls into the last tile
+        double cellLat = extentLat / rows * (1 + 1e-9);
+        double cellLon = extentLon / cols * (1 + 1e-9);
+
+        int nodeCount = ids.size();
+        int[] nodeCells = new int[nodeCount];
+        int[] nodeStart = new int[rows * cols + 1];
+        for (int n = 0; n < nodeCount; n++)
+        {
+            nodeCells[n] = cell(row(Helper.intToDegree(lats.get(n)), bounds.minLat, cellLat, rows),
+                    col(Helper.intToDegree(lons.get(n)), bounds.minLon, cellLon, cols), cols);
+            nodeStart[nodeCells[n] + 1]++;
+        }
+        prefixSum(nodeStart);
+        int[] nodes = new int[nodeCount];
+        int[] fill = nodeStart.clone();
+        for (int n = 0; n < nodeCount; n++)
+        {
+            nodes[fill[nodeCells[n]]++] = n;
+        }
+
+        // two passes over the tiles covered by the bounding box of each edge
+        int edgeCount = edges.size();
+        int[] edgeStart = new int[rows * cols + 1];
+        int[] cellEdges = null;
+        for (int pass = 0; pass < 2; pass++)
+        {
+            for (int e = 0; e < edgeCount; e++)
+            {
+                double aLat = Helper.intToDegree(lats.get(bases.get(e))), bLat = Helper.intToDegree(lats.get(adjs.get(e)));
+                double aLon = Helper.intToDegree(lons.get(bases.get(e))), bLon = Helper.intToDegree(lons.get(adjs.get(e)));
+                int r0 = row(Math.min(aLat, bLat), bounds.minLat, cellLat, rows);
+                int r1 = row(Math.max(aLat, bLat), bounds.minLat, cellLat, rows);
+                int c0 = col(Math.min(aLon, bLon), bounds.minLon, cellLon, cols);
+                int c1 = col(Math.max(aLon, bLon), bounds.minLon, cellLon, cols);
+                for (int r = r0; r <= r1; r++)
+                {
+                    for (int c = c0; c <= c1; c++)
+                    {
+                        if (pass == 0)
+                            edgeStart[cell(r, c, cols) + 1]++;
+                        else
+                            cellEdges[fill[cell(r, c, cols)]++] = e;
+                    }
+                }
+            }
+
+            if (pass == 0)
+            {
+                prefixSum(edgeStart);
+                cellEdges = new int[edgeStart[edgeStart.length - 1]];
+                fill = edgeStart.clone();
+            }
+        }
+
+        log.debug("Created location index with " + rows + "x" + cols + " tiles for " + nodeCount + " nodes and "
+                + edgeCount + " edges");
+        return new LocationIndexGrid(rows, cols, bounds.minLat, bounds.minLon, cellLat, cellLon,
+                LongBuffer.wrap(ids.toArray()), IntBuffer.wrap(lats.toArray()), IntBuffer.wrap(lons.toArray()),
+                IntBuffer.wrap(nodeStart), IntBuffer.wrap(nodes),
+                LongBuffer.wrap(edges.toArray()), IntBuffer.wrap(bases.toArray()), IntBuffer.wrap(adjs.toArray()),
+                IntBuffer.wrap(edgeStart), IntBuffer.wrap(cellEdges));
+    }
+
+    private static int addNode( long node, NodeAccess nodeAccess, TLongIntMap nodeIndex, TLongArrayList ids,
+                                TIntArrayList lats, TIntArrayList lons, BBox bounds )
+    {
+        int index = nodeIndex.get(node);
+        if (index != -1)
+            return index;
+
+        index = ids.size();
+        nodeIndex.put(node, index);
+        ids.add(node);
+        int lat = Helper.degreeToInt(nodeAccess.getLatitude(node));
+        int lon = Helper.degreeToInt(nodeAccess.getLongitude(node));
+        lats.add(lat);
+        lons.add(lon);
+        bounds.update(Helper.intToDegree(lat), Helper.intToDegree(lon));
+        return index;
+    }
+
+    private static void prefixSum( int[] start )
+    {
+        for (int i = 1; i < start.length; i++)
+        {
+            start[i] += start[i - 1];
+        }
+    }
+
+    private static int row( double lat, double minLat, double cellLat, int rows )
+    {
+        return Math.max(0, Math.min(rows - 1, (int) Math.floor((lat - minLat) / cellLat)));
+    }
+
+    private static int col( double lon, double minLon, double cellLon, int cols )
+    {
+        return Math.max(0, Math.min(cols - 1, (int) Math.floor((lon - minLon) / cellLon)));
+    }
+
+    private static int cell( int row, int col, int cols )
+    {
+        return row * cols + col;
+    }
+
+    /**
+     * Sets the calculation used for the reported distances in meter, defaults to
+     * Helper.DIST_EARTH.
+     */
+    public LocationIndexGrid setDistanceCalc( DistanceCalc distanceCalc )
+    {
+        this.distanceCalc = distanceCalc;
+        return this;
+    }
+
+    public int getNodeCount()
+    {
+        return nodeIds.limit();
+    }
+
+    public int getEdgeCount()
+    {
+        return edgeIds.limit();
+    }
+
+    public int getTileCount()
+    {
+        return rows * cols;
+    }
+
+    private static double lonFactor( double lat )
+    {
+        return Math.max(Math.cos(Math.toRadians(lat)), 1e-6);
+    }
+
+    private double lat( int node )
+    {
+        return Helper.intToDegree(nodeLats.get(node));
+    }
+
+    private double lon( int node )
+    {
+        return Helper.intToDegree(nodeLons.get(node));
+    }
+
+    /**
+     * Common ring expansion of the nearest searches.
+     */
+    private abstract class RingSearch
+    {
+        final double queryLat;
+        final double queryLon;
+        final double lonFactor;
+
+        RingSearch( double queryLat, double queryLon )
+        {
+            this.queryLat = queryLat;
+            this.queryLon = queryLon;
+            this.lonFactor = lonFactor(queryLat);
+        }
+
+        final double normalizedDist( double lat, double lon )
+        {
+            double dLat = lat - queryLat;
+            double dLon = (lon - queryLon) * lonFactor;
+            return dLat * dLat + dLon * dLon;
+        }
+
+        abstract void visitCell( int cell );
+
+        /**
+         * @return the normalized distance beyond which nothing can improve the result
+         */
+        abstract double getBound();
+
+        final void run()
+        {
+            int centerRow = row(queryLat, minLat, cellLat, rows);
+            int centerCol = col(queryLon, minLon, cellLon, cols);
+            double minCell = Math.min(cellLat, cellLon * lonFactor);
+            int maxRing = Math.max(rows, cols);
+            for (int ring = 0; ring <= maxRing; ring++)
+            {
+                for (int r = centerRow - ring; r <= centerRow + ring; r++)
+                {
+                    if (r < 0 || r >= rows)
+                        continue;
+
+                    boolean fullRow = r == centerRow - ring || r == centerRow + ring;
+                    int step = fullRow ? 1 : Math.max(1, 2 * ring);
+                    for (int c = centerCol - ring; c <= centerCol + ring; c += step)
+                    {
+                        if (c >= 0 && c < cols)
+                            visitCell(cell(r, c, cols));
+                    }
+                }
+
+                // tiles outside of this ring are at least ring tiles away
+                double reach = ring * minCell;
+                if (getBound() <= reach * reach)
+                    break;
+            }
+        }
+    }
+
+    private class ClosestSearch extends RingSearch
+    {
+        double best = Double.MAX_VALUE;
+        int bestNode = -1;
+        int bestEdge = -1;
+        double bestFactor;
+
+        ClosestSearch( double queryLat, double queryLon )
+        {
+            super(queryLat, queryLon);
+        }
+
+        @Override
+        void visitCell( int cell )
+        {
+            for (int i = cellNodeStart.get(cell), end = cellNodeStart.get(cell + 1); i < end; i++)
+            {
+                int node = cellNodes.get(i);
+                double dist = normalizedDist(lat(node), lon(node));
+                if (dist < best)
+                {
+                    best = dist;
+                    bestNode = node;
+                    bestEdge = -1;
+                }
+            }
+
+            for (int i = cellEdgeStart.get(cell), end = cellEdgeStart.get(cell + 1); i < end; i++)
+            {
+                int edge = cellEdges.get(i);
+                int a = edgeBase.get(edge), b = edgeAdj.get(edge);
+                // project onto the segment in the plane around the query point
+                double ax = (lon(a) - queryLon) * lonFactor, ay = lat(a) - queryLat;
+                double bx = (lon(b) - queryLon) * lonFactor, by = lat(b) - queryLat;
+                double dx = bx - ax, dy = by - ay;
+                double norm = dx * dx + dy * dy;
+                if (norm == 0)
+                    continue;
+
+                double factor = -(ax * dx + ay * dy) / norm;
+                // the ends of the segment are covered by the nodes
+                if (factor <= 0 || factor >= 1)
+                    continue;
+
+                double cx = ax + factor * dx, cy = ay + factor * dy;
+                double dist = cx * cx + cy * cy;
+                if (dist < best)
+                {
+                    best = dist;
+                    bestEdge = edge;
+                    bestFactor = factor;
+                    bestNode = factor < 0.5 ? a : b;
+                }
+            }
+        }
+
+        @Override
+        double getBound()
+        {
+            return best;
+        }
+    }
+
+    /**
+     * @return the closest node or point on an edge to the specified coordinates
+     */
+    public QueryResult findClosest( double lat, double lon )
+    {
+        ClosestSearch search = new ClosestSearch(lat, lon);
+        search.run();
+        if (search.bestEdge < 0)
+            return createResult(lat, lon, search.bestNode);
+
+        int a = edgeBase.get(search.bestEdge), b = edgeAdj.get(search.bestEdge);
+        double snappedLat = lat(a) + search.bestFactor * (lat(b) - lat(a));
+        double snappedLon = lon(a) + search.bestFactor * (lon(b) - lon(a));
+        return new QueryResult(nodeIds.get(search.bestNode), edgeIds.get(search.bestEdge), QueryResult.Position.EDGE,
+                snappedLat, snappedLon, distanceCalc.calcDist(lat, lon, snappedLat, snappedLon));
+    }
+
+    private QueryResult createResult( double lat, double lon, int node )
+    {
+        return new QueryResult(nodeIds.get(node), Long.MIN_VALUE, QueryResult.Position.NODE, lat(node), lon(node),
+                distanceCalc.calcDist(lat, lon, lat(node), lon(node)));
+    }
+
+    private class NearestNodesSearch extends RingSearch
+    {
+        // max heap of the k best candidates by normalized distance
+        final double[] dists;
+        final int[] nodes;
+        int size;
+
+        NearestNodesSearch( double queryLat, double queryLon, int k )
+        {
+            super(queryLat, queryLon);
+            dists = new double[k];
+            nodes = new int[k];
+        }
+
+        @Override
+        void visitCell( int cell )
+        {
+            for (int i = cellNodeStart.get(cell), end = cellNodeStart.get(cell + 1); i < end; i++)
+            {
+                int node = cellNodes.get(i);
+                double dist = normalizedDist(lat(node), lon(node));
+                if (size < dists.length)
+                {
+                    dists[size] = dist;
+                    nodes[size] = node;
+                    siftUp(size++);
+                } else if (dist < dists[0])
+                {
+                    dists[0] = dist;
+                    nodes[0] = node;
+                    siftDown(0);
+                }
+            }
+        }
+
+        private void siftUp( int i )
+        {
+            while (i > 0)
+            {
+                int parent = (i - 1) >> 1;
+                if (dists[parent] >= dists[i])
+                    break;
+
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown( int i )
+        {
+            while (true)
+            {
+                int left = 2 * i + 1, right = left + 1, largest = i;
+                if (left < size && dists[left] > dists[largest])
+                    largest = left;
+                if (right < size && dists[right] > dists[largest])
+                    largest = right;
+                if (largest == i)
+                    return;
+
+                swap(i, largest);
+                i = largest;
+            }
+        }
+
+        private void swap( int i, int j )
+        {
+            double d = dists[i];
+            dists[i] = dists[j];
+            dists[j] = d;
+            int n = nodes[i];
+            nodes[i] = nodes[j];
+            nodes[j] = n;
+        }
+
+        @Override
+        double getBound()
+        {
+            return size < dists.length ? Double.MAX_VALUE : dists[0];
+        }
+    }
+
+    /**
+     * @return up to k nodes closest to the specified coordinates, sorted by distance
+     */
+    public List<QueryResult> findNearestNodes( double lat, double lon, int k )
+    {
+        if (k <= 0)
+            throw new IllegalArgumentException("k must be positive but was " + k);
+
+        NearestNodesSearch search = new NearestNodesSearch(lat, lon, Math.min(k, getNodeCount()));
+        search.run();
+        // draining the max heap yields descending distances
+        QueryResult[] result = new QueryResult[search.size];
+        while (search.size > 0)
+        {
+            result[search.size - 1] = createResult(lat, lon, search.nodes[0]);
+            search.swap(0, --search.size);
+            search.siftDown(0);
+        }
+
+        List<QueryResult> list = new ArrayList<>(result.length);
+        for (QueryResult r : result)
+        {
+            list.add(r);
+        }
+        return list;
+    }
+
+    /**
+     * @return all nodes within the specified radius around the coordinates, sorted by distance
+     */
+    public List<QueryResult> findNodesWithin( double lat, double lon, double radiusInMeter )
+    {
+        double radius = radiusInMeter / METER_PER_DEGREE;
+        double factor = lonFactor(lat);
+        double lonRadius = radius / factor;
+        double maxDist = radius * radius;
+
+        int r0 = row(lat - radius, minLat, cellLat, rows), r1 = row(lat + radius, minLat, cellLat, rows);
+        int c0 = col(lon - lonRadius, minLon, cellLon, cols), c1 = col(lon + lonRadius, minLon, cellLon, cols);
+        List<QueryResult> result = new ArrayList<>();
+        for (int r = r0; r <= r1; r++)
+        {
+            for (int c = c0; c <= c1; c++)
+            {
+                int cell = cell(r, c, cols);
+                for (int i = cellNodeStart.get(cell), end = cellNodeStart.get(cell + 1); i < end; i++)
+                {
+                    int node = cellNodes.get(i);
+                    double dLat = lat(node) - lat;
+                    double dLon = (lon(node) - lon) * factor;
+                    if (dLat * dLat + dLon * dLon <= maxDist)
+                        result.add(createResult(lat, lon, node));
+                }
+            }
+        }
+
+        result.sort((a, b) -> Double.compare(a.getDistance(), b.getDistance()));
+        return result;
+    }
+
+    /**
+     * Persists this index in a format which load can memory map.
+     */
+    public void write( File file ) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(rows).putInt(cols)
+                    .putInt(getNodeCount()).putInt(getEdgeCount()).putInt(cellNodes.limit()).putInt(cellEdges.limit())
+                    .putDouble(minLat).putDouble(minLon).putDouble(cellLat).putDouble(cellLon);
+
+            buffer = writeLongs(channel, buffer, nodeIds);
+            buffer = writeLongs(channel, buffer, edgeIds);
+            for (IntBuffer ints : new IntBuffer[]{nodeLats, nodeLons, cellNodeStart, cellNodes,
+                    edgeBase, edgeAdj, cellEdgeStart, cellEdges})
+            {
+                buffer = writeInts(channel, buffer, ints);
+            }
+            flush(channel, buffer);
+        }
+    }
+
+    private static ByteBuffer writeLongs( FileChannel channel, ByteBuffer buffer, LongBuffer values ) throws IOException
+    {
+        for (int i = 0; i < values.limit(); i++)
+        {
+            if (buffer.remaining() < 8)
+                flush(channel, buffer);
+            buffer.putLong(values.get(i));
+        }
+        return buffer;
+    }
+
+    private static ByteBuffer writeInts( FileChannel channel, ByteBuffer buffer, IntBuffer values ) throws IOException
+    {
+        for (int i = 0; i < values.limit(); i++)
+        {
+            if (buffer.remaining() < 4)
+                flush(channel, buffer);
+            buffer.putInt(values.get(i));
+        }
+        return buffer;
+    }
+
+    private static void flush( FileChannel channel, ByteBuffer buffer ) throws IOException
+    {
+        buffer.flip();
+        while (buffer.hasRemaining())
+        {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Loads an index written via write.
+     *
+     * @param memoryMapped true to query straight from the mapped file instead of reading it onto
+     * the heap
+     */
+    public static LocationIndexGrid load( File file, boolean memoryMapped ) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            long size = channel.size();
+            if (size < HEADER_SIZE)
+                throw new IOException("Not a location index: " + file);
+
+            ByteBuffer data;
+            if (memoryMapped)
+            {
+                data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else
+            {
+                if (size > Integer.MAX_VALUE)
+                    throw new IOException("Location index too large for the heap, memory map it: " + file);
+
+                data = ByteBuffer.allocate((int) size);
+                while (data.hasRemaining())
+                {
+                    if (channel.read(data) < 0)
+                        throw new IOException("Unexpected end of " + file);
+                }
+                data.flip();
+            }
+
+            if (data.getInt() != MAGIC)
+                throw new IOException("Not a location index: " + file);
+
+            int version = data.getInt();
+            if (version != VERSION)
+                throw new IOException("Unsupported location index version " + version + " in " + file);
+
+            int rows = data.getInt(), cols = data.getInt();
+            int nodes = data.getInt(), edges = data.getInt();
+            int cellNodeCount = data.getInt(), cellEdgeCount = data.getInt();
+            double minLat = data.getDouble(), minLon = data.getDouble();
+            double cellLat = data.getDouble(), cellLon = data.getDouble();
+            int cells = rows * cols;
+
+            long expected = HEADER_SIZE + 8L * (nodes + edges)
+                    + 4L * (2 * nodes + cells + 1 + cellNodeCount + 2 * edges + cells + 1 + cellEdgeCount);
+            if (expected != size)
+                throw new IOException("Expected " + expected + " bytes but found " + size + " in " + file);
+
+            LongBuffer nodeIds = longs(data, nodes);
+            LongBuffer edgeIds = longs(data, edges);
+            return new LocationIndexGrid(rows, cols, minLat, minLon, cellLat, cellLon,
+                    nodeIds, ints(data, nodes), ints(data, nodes), ints(data, cells + 1), ints(data, cellNodeCount),
+                    edgeIds, ints(data, edges), ints(data, edges), ints(data, cells + 1), ints(data, cellEdgeCount));
+        }
+    }
+
+    private static LongBuffer longs( ByteBuffer data, int count )
+    {
+        ByteBuffer slice = data.slice();
+        slice.limit(count * 8);
+        data.position(data.position() + count * 8);
+        return slice.asLongBuffer();
+    }
+
+    private static IntBuffer ints( ByteBuffer data, int count )
+    {
+        ByteBuffer slice = data.slice();
+        slice.limit(count * 4);
+        data.position(data.position() + count * 4);
+        return slice.asIntBuffer();
+    }
+}
@@ -0,0 +1,77 @@
+package com.daedafusion.graph.storage.index;
+
+/**
+ * Result of a location index lookup: the closest node and, if the query point was snapped onto the
+ * inside of an edge, that edge.
+ */
+public class QueryResult
+{
+    public enum Position
+    {
+        NODE, EDGE
+    }
+
+    private final long closestNode;
+    private final long closestEdge;
+    private final Position position;
+    private final double snappedLat;
+    private final double snappedLon;
+    private final double distance;
+
+    QueryResult( long closestNode, long closestEdge, Position position, double snappedLat, double snappedLon,
+                 double distance )
+    {
+        this.closestNode = closestNode;
+        this.closestEdge = closestEdge;
+        this.position = position;
+        this.snappedLat = snappedLat;
+        this.snappedLon = snappedLon;
+        this.distance = distance;
+    }
+
+    /**
+     * @return the closest node, for a position on an edge the closer end node of that edge
+     */
+    public long getClosestNode()
+    {
+        return closestNode;
+    }
+
+    /**
+     * @return the edge the query point was snapped onto or Long.MIN_VALUE if snapped to a node
+     */
+    public long getClosestEdge()
+    {
+        return closestEdge;
+    }
+
+    public Position getPosition()
+    {
+        return position;
+    }
+
+    public double getSnappedLat()
+    {
+        return snappedLat;
+    }
+
+    public double getSnappedLon()
+    {
+        return snappedLon;
+    }
+
+    /**
+     * @return the distance in meter from the query point to the snapped point
+     */
+    public double getDistance()
+    {
+        return distance;
+    }
+
+    @Override
+    public String toString()
+    {
+        return closestNode + " " + position + (position == Position.EDGE ? " " + closestEdge : "")
+                + " " + snappedLat + "," + snappedLon + " distance:" + distance;
+    }
+}
@@ -0,0 +1,519 @@
+package com.daedafusion.graph.util;
+
+import com.daedafusion.graph.util.shapes.GHPoint3D;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Alternative to PointList for large geometries which are mostly appended to. Coordinates are stored as fixed point
+ * ints (Helper.degreeToInt, Helper.eleToInt) and every point is encoded as zig zag varint delta to
+ * its predecessor, which typically needs 2 bytes per value instead of 8. Every checkpointInterval
+ * points the absolute values are written and the byte offset is remembered so that random access
+ * decodes at most checkpointInterval - 1 deltas. Reads keep no state in the list, sequential access
+ * via the iterator, toPointList or calcDistance decodes every point only once with its own Cursor.
+ * Replacing a point via setNode encodes its block again, the following blocks only move.
+ * <p>
+ * Values are rounded to the int precision. Reads are thread safe as long as no points are added or
+ * replaced.
+ */
+public class CompactPointList implements Iterable<GHPoint3D>, PointAccess
+{
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 32;
+
+    private final boolean is3D;
+    private final int checkpointInterval;
+    private byte[] bytes;
+    private int byteCount;
+    private int[] checkpoints;
+    private int size;
+
+    // last appended point to encode the next delta
+    private int lastLat;
+    private int lastLon;
+    private int lastEle;
+
+    public CompactPointList( boolean is3D )
+    {
+        this(10, is3D, DEFAULT_CHECKPOINT_INTERVAL);
+    }
+
+    public CompactPointList( int cap, boolean is3D, int checkpointInterval )
+    {
+        if (checkpointInterval < 1)
+            throw new IllegalArgumentException("Checkpoint interval must be positive but was " + checkpointInterval);
+
+        this.is3D = is3D;
+        this.checkpointInterval = checkpointInterval;
+        cap = Math.max(cap, 1);
+        bytes = new byte[cap * (is3D ? 6 : 4)];
+        checkpoints = new int[cap / checkpointInterval + 1];
+    }
+
+    /**
+     * Creates a compact copy of the specified points.
+     */
+    public static CompactPointList from( PointList points )
+    {
+        CompactPointList list = new CompactPointList(points.getSize(), points.is3D(), DEFAULT_CHECKPOINT_INTERVAL);
+        list.add(points);
+        list.trimToCapacity();
+        return list;
+    }
+
+    @Override
+    public boolean is3D()
+    {
+        return is3D;
+    }
+
+    @Override
+    public int getDimension()
+    {
+        return is3D ? 3 : 2;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public int getSize()
+    {
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    /**
+     * @return the bytes allocated for the encoded points and checkpoints
+     */
+    public long getCapacityInBytes()
+    {
+        return bytes.length + 4L * checkpoints.length;
+    }
+
+    /**
+     * Releases the over allocated capacity, e.g. once all points are added.
+     */
+    public void trimToCapacity()
+    {
+        bytes = Arrays.copyOf(bytes, byteCount);
+        checkpoints = Arrays.copyOf(checkpoints, (size + checkpointInterval - 1) / checkpointInterval);
+    }
+
+    public void add( double lat, double lon )
+    {
+        if (is3D)
+            throw new IllegalStateException("Cannot add point without elevation data in 3D mode");
+
+        addInt(Helper.degreeToInt(lat), Helper.degreeToInt(lon), 0);
+    }
+
+    public void add( double lat, double lon, double ele )
+    {
+        if (!is3D)
+        {
+            if (!Double.isNaN(ele))
+                throw new IllegalStateException("This is a 2D list we cannot store elevation: " + ele);
+
+            add(lat, lon);
+            return;
+        }
+
+        addInt(Helper.degreeToInt(lat), Helper.degreeToInt(lon), Helper.eleToInt(ele));
+    }
+
+    public void add( PointAccess points, int index )
+    {
+        if (is3D)
+            add(points.getLatitude(index), points.getLongitude(index), points.getElevation(index));
+        else
+            add(points.getLatitude(index), points.getLongitude(index));
+    }
+
+    public void add( PointList points )
+    {
+        for (int i = 0; i < points.getSize(); i++)
+        {
+            add(points, i);
+        }
+    }
+
+    private void addInt( int lat, int lon, int ele )
+    {
+        ensureBytes(3 * 5);
+        if (size % checkpointInterval == 0)
+        {
+            int checkpoint = size / checkpointInterval;
+            if (checkpoint >= checkpoints.length)
+                checkpoints = Arrays.copyOf(checkpoints, Math.max(checkpoint + 1, checkpoints.length * 2));
+
+            checkpoints[checkpoint] = byteCount;
+            byteCount = VarIntHelper.write(VarIntHelper.zigZag(lat) & 0xFFFFFFFFL, bytes, byteCount);
+            byteCount = VarIntHelper.write(VarIntHelper.zigZag(lon) & 0xFFFFFFFFL, bytes, byteCount);
+            if (is3D)
+                byteCount = VarIntHelper.write(VarIntHelper.zigZag(ele) & 0xFFFFFFFFL, bytes, byteCount);
+        } else
+        {
+            byteCount = VarIntHelper.write(VarIntHelper.zigZag(lat - lastLat) & 0xFFFFFFFFL, bytes, byteCount);
+            byteCount = VarIntHelper.write(VarIntHelper.zigZag(lon - lastLon) & 0xFFFFFFFFL, bytes, byteCount);
+            if (is3D)
+                byteCount = VarIntHelper.write(VarIntHelper.zigZag(ele - lastEle) & 0xFFFFFFFFL, bytes, byteCount);
+        }
+        lastLat = lat;
+        lastLon = lon;
+        lastEle = ele;
+        size++;
+    }
+
+    private void ensureBytes( int additional )
+    {
+        if (byteCount + additional > bytes.length)
+            bytes = Arrays.copyOf(bytes, Math.max(byteCount + additional, bytes.length * 2));
+    }
+
+    private void checkIndex( int index )
+    {
+        if (index < 0 || index >= size)
+            throw new ArrayIndexOutOfBoundsException("Tried to access CompactPointList with index:" + index
+                    + ", size:" + size);
+    }
+
+    /**
+     * Decodes a single value of the point from the checkpoint of its block.
+     *
+     * @param component 0 for the latitude, 1 for the longitude and 2 for the elevation
+     */
+    private int decode( int index, int component )
+    {
+        checkIndex(index);
+        int dims = is3D ? 3 : 2;
+        int checkpoint = index / checkpointInterval;
+        int offset = checkpoints[checkpoint];
+        int value = 0;
+        for (int i = checkpoint * checkpointInterval; i <= index; i++)
+        {
+            for (int c = 0; c < dims; c++)
+            {
+                // the varint of the absolute value at the checkpoint or of the delta
+                int raw = 0;
+                int shift = 0;
+                byte b;
+                do
+                {
+                    b = bytes[offset++];
+                    raw |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+
+                if (c == component)
+                    value += VarIntHelper.unZigZag(raw);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Decoding position of one reader, moves forward from its current point or restarts at the
+     * checkpoint of the block.
+     */
+    private class Cursor
+    {
+        int index = -1;
+        int offset;
+        int lat;
+        int lon;
+        int ele;
+
+        void seek( int target )
+        {
+            checkIndex(target);
+            if (target == index)
+                return;
+
+            int checkpoint = target / checkpointInterval;
+            if (index < 0 || index > target || index / checkpointInterval != checkpoint)
+            {
+                offset = checkpoints[checkpoint];
+                lat = VarIntHelper.unZigZag(readInt());
+                lon = VarIntHelper.unZigZag(readInt());
+                ele = is3D ? VarIntHelper.unZigZag(readInt()) : 0;
+                index = checkpoint * checkpointInterval;
+            }
+
+            while (index < target)
+            {
+                lat += VarIntHelper.unZigZag(readInt());
+                lon += VarIntHelper.unZigZag(readInt());
+                if (is3D)
+                    ele += VarIntHelper.unZigZag(readInt());
+                index++;
+            }
+        }
+
+        private int readInt()
+        {
+            int value = 0;
+            int shift = 0;
+            while (true)
+            {
+                byte b = bytes[offset++];
+                value |= (b & 0x7F) << shift;
+                if (b >= 0)
+                    return value;
+
+                shift += 7;
+            }
+        }
+
+        GHPoint3D toGHPoint()
+        {
+            return new GHPoint3D(Helper.intToDegree(lat), Helper.intToDegree(lon),
+                    is3D ? Helper.intToEle(ele) : Double.NaN);
+        }
+    }
+
+    @Override
+    public double getLatitude( int index )
+    {
+        return Helper.intToDegree(decode(index, 0));
+    }
+
+    @Override
+    public double getLat( int index )
+    {
+        return getLatitude(index);
+    }
+
+    @Override
+    public double getLongitude( int index )
+    {
+        return Helper.intToDegree(decode(index, 1));
+    }
+
+    @Override
+    public double getLon( int index )
+    {
+        return getLongitude(index);
+    }
+
+    @Override
+    public double getElevation( int index )
+    {
+        if (!is3D)
+        {
+            checkIndex(index);
+            return Double.NaN;
+        }
+
+        return Helper.intToEle(decode(index, 2));
+    }
+
+    @Override
+    public double getEle( int index )
+    {
+        return getElevation(index);
+    }
+
+    /**
+     * Reserves bytes for the points up to nodeId assuming 2 bytes per value.
+     */
+    @Override
+    public void ensureNode( int nodeId )
+    {
+        if (nodeId >= size)
+            ensureBytes((nodeId + 1 - size) * (is3D ? 6 : 4));
+    }
+
+    /**
+     * Appends the point if nodeId is the current size, otherwise replaces the existing point.
+     */
+    @Override
+    public void setNode( int nodeId, double lat, double lon )
+    {
+        if (nodeId == size)
+        {
+            add(lat, lon);
+            return;
+        }
+
+        if (is3D)
+            throw new IllegalStateException("Cannot set point without elevation data in 3D mode");
+
+        replaceInt(nodeId, Helper.degreeToInt(lat), Helper.degreeToInt(lon), 0);
+    }
+
+    /**
+     * Appends the point if nodeId is the current size, otherwise replaces the existing point.
+     */
+    @Override
+    public void setNode( int nodeId, double lat, double lon, double ele )
+    {
+        if (nodeId == size || !is3D)
+        {
+            if (!is3D && !Double.isNaN(ele))
+                throw new IllegalStateException("This is a 2D list we cannot store elevation: " + ele);
+
+            if (nodeId == size)
+                add(lat, lon, ele);
+            else
+                setNode(nodeId, lat, lon);
+            return;
+        }
+
+        replaceInt(nodeId, Helper.degreeToInt(lat), Helper.degreeToInt(lon), Helper.eleToInt(ele));
+    }
+
+    /**
+     * Encodes the block of the point again from its checkpoint and moves the bytes of the following
+     * blocks, which start with absolute values and are not affected otherwise.
+     */
+    private void replaceInt( int index, int lat, int lon, int ele )
+    {
+        checkIndex(index);
+        int checkpoint = index / checkpointInterval;
+        int first = checkpoint * checkpointInterval;
+        int last = Math.min(size, first + checkpointInterval);
+        int[] values = new int[3 * (last - first)];
+        Cursor cursor = new Cursor();
+        for (int i = first; i < last; i++)
+        {
+            cursor.seek(i);
+            values[3 * (i - first)] = cursor.lat;
+            values[3 * (i - first) + 1] = cursor.lon;
+            values[3 * (i - first) + 2] = cursor.ele;
+        }
+        values[3 * (index - first)] = lat;
+        values[3 * (index - first) + 1] = lon;
+        values[3 * (index - first) + 2] = ele;
+
+        // the first point is the delta to 0, i.e. the absolute value of the checkpoint
+        byte[] block = new byte[values.length * 5];
+        int length = 0;
+        int dims = is3D ? 3 : 2;
+        for (int i = 0; i < values.length; i++)
+        {
+            if (i % 3 < dims)
+            {
+                int prev = i < 3 ? 0 : values[i - 3];
+                length = VarIntHelper.write(VarIntHelper.zigZag(values[i] - prev) & 0xFFFFFFFFL, block, length);
+            }
+        }
+
+        int start = checkpoints[checkpoint];
+        int end = last < size ? checkpoints[checkpoint + 1] : byteCount;
+        int shift = length - (end - start);
+        ensureBytes(Math.max(shift, 0));
+        System.arraycopy(bytes, end, bytes, end + shift, byteCount - end);
+        System.arraycopy(block, 0, bytes, start, length);
+        byteCount += shift;
+        for (int c = checkpoint + 1; c * checkpointInterval < size; c++)
+        {
+            checkpoints[c] += shift;
+        }
+
+        if (last == size)
+        {
+            lastLat = values[values.length - 3];
+            lastLon = values[values.length - 2];
+            lastEle = values[values.length - 1];
+        }
+    }
+
+    public GHPoint3D toGHPoint( int index )
+    {
+        Cursor cursor = new Cursor();
+        cursor.seek(index);
+        return cursor.toGHPoint();
+    }
+
+    /**
+     * @return the decoded points as PointList
+     */
+    public PointList toPointList()
+    {
+        PointList list = new PointList(size, is3D);
+        Cursor cursor = new Cursor();
+        for (int i = 0; i < size; i++)
+        {
+            cursor.seek(i);
+            if (is3D)
+                list.add(Helper.intToDegree(cursor.lat), Helper.intToDegree(cursor.lon), Helper.intToEle(cursor.ele));
+            else
+                list.add(Helper.intToDegree(cursor.lat), Helper.intToDegree(cursor.lon));
+        }
+        return list;
+    }
+
+    /**
+     * Same as PointList.calcDistance but decodes every point only once.
+     */
+    public double calcDistance( DistanceCalc calc )
+    {
+        double dist = 0;
+        if (size == 0)
+            return dist;
+
+        Cursor cursor = new Cursor();
+        cursor.seek(0);
+        double prevLat = Helper.intToDegree(cursor.lat), prevLon = Helper.intToDegree(cursor.lon);
+        double prevEle = Helper.intToEle(cursor.ele);
+        for (int i = 1; i < size; i++)
+        {
+            cursor.seek(i);
+            double lat = Helper.intToDegree(cursor.lat), lon = Helper.intToDegree(cursor.lon);
+            double ele = Helper.intToEle(cursor.ele);
+            if (is3D)
+                dist += Helper.DIST_3D.calcDist(prevLat, prevLon, prevEle, lat, lon, ele);
+            else
+                dist += calc.calcDist(prevLat, prevLon, lat, lon);
+            prevLat = lat;
+            prevLon = lon;
+            prevEle = ele;
+        }
+        return dist;
+    }
+
+    @Override
+    public Iterator<GHPoint3D> iterator()
+    {
+        return new Iterator<GHPoint3D>()
+        {
+            final Cursor cursor = new Cursor();
+            int counter = 0;
+
+            @Override
+            public boolean hasNext()
+            {
+                return counter < size;
+            }
+
+            @Override
+            public GHPoint3D next()
+            {
+                if (counter >= size)
+                    throw new NoSuchElementException();
+
+                cursor.seek(counter++);
+                return cursor.toGHPoint();
+            }
+
+            @Override
+            public void remove()
+            {
+                throw new UnsupportedOperationException("Not supported.");
+            }
+        };
+    }
+
+    @Override
+    public String toString()
+    {
+        return toPointList().toString();
+    }
+}
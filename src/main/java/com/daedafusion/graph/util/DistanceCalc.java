@@ -39,6 +39,38 @@ public interface DistanceCalc
      */
     double calcDist(double fromLat, double fromLon, double toLat, double toLon);
 
+    /**
+     * Calculates the distances in meter from one point to the first count points of the specified
+     * latitude and longitude arrays and stores them in dists. The default calls calcDist per point,
+     * implementations override it to hoist the terms which only depend on the from point.
+     */
+    default void calcDists(double fromLat, double fromLon, double[] toLats, double[] toLons, double[] dists, int count)
+    {
+        DistanceCalcEarth.checkBulk(toLats, toLons, count);
+        if (dists.length < count)
+            throw new IllegalArgumentException("Distance array too small: " + dists.length + " < " + count);
+
+        for (int i = 0; i < count; i++)
+        {
+            dists[i] = calcDist(fromLat, fromLon, toLats[i], toLons[i]);
+        }
+    }
+
+    /**
+     * Calculates the length in meter of the line through the first count points of the specified
+     * latitude and longitude arrays. The default sums calcDist over the segments.
+     */
+    default double calcPolylineDist(double[] lats, double[] lons, int count)
+    {
+        DistanceCalcEarth.checkBulk(lats, lons, count);
+        double dist = 0;
+        for (int i = 1; i < count; i++)
+        {
+            dist += calcDist(lats[i - 1], lons[i - 1], lats[i], lons[i]);
+        }
+        return dist;
+    }
+
     /**
      * Returns the specified length in normalized meter.
      */
@@ -57,6 +57,60 @@ public class DistanceCalcEarth implements DistanceCalc
         return R * 2 * asin(sqrt(normedDist));
     }
 
+    /**
+     * Same as calcDist for every point but the cosine of the from latitude is calculated only once.
+     * The results are identical to calcDist.
+     */
+    @Override
+    public void calcDists( double fromLat, double fromLon, double[] toLats, double[] toLons, double[] dists, int count )
+    {
+        checkBulk(toLats, toLons, count);
+        if (dists.length < count)
+            throw new IllegalArgumentException("Distance array too small: " + dists.length + " < " + count);
+
+        double cosFrom = cos(toRadians(fromLat));
+        for (int i = 0; i < count; i++)
+        {
+            double sinDeltaLat = sin(toRadians(toLats[i] - fromLat) / 2);
+            double sinDeltaLon = sin(toRadians(toLons[i] - fromLon) / 2);
+            double normedDist = sinDeltaLat * sinDeltaLat
+                    + sinDeltaLon * sinDeltaLon * cosFrom * cos(toRadians(toLats[i]));
+            dists[i] = R * 2 * asin(sqrt(normedDist));
+        }
+    }
+
+    /**
+     * Sums calcDist of the consecutive points while the cosine of every latitude is calculated only
+     * once. The result is identical to summing up calcDist.
+     */
+    @Override
+    public double calcPolylineDist( double[] lats, double[] lons, int count )
+    {
+        checkBulk(lats, lons, count);
+        if (count < 2)
+            return 0;
+
+        double dist = 0;
+        double cosPrev = cos(toRadians(lats[0]));
+        for (int i = 1; i < count; i++)
+        {
+            double cosCurr = cos(toRadians(lats[i]));
+            double sinDeltaLat = sin(toRadians(lats[i] - lats[i - 1]) / 2);
+            double sinDeltaLon = sin(toRadians(lons[i] - lons[i - 1]) / 2);
+            double normedDist = sinDeltaLat * sinDeltaLat + sinDeltaLon * sinDeltaLon * cosPrev * cosCurr;
+            dist += R * 2 * asin(sqrt(normedDist));
+            cosPrev = cosCurr;
+        }
+        return dist;
+    }
+
+    static void checkBulk( double[] lats, double[] lons, int count )
+    {
+        if (count < 0 || lats.length < count || lons.length < count)
+            throw new IllegalArgumentException("Cannot read " + count + " points from arrays of size "
+                    + lats.length + " and " + lons.length);
+    }
+
     public double calcDenormalizedDist( double normedDist )
     {
         return R * 2 * asin(sqrt(normedDist));
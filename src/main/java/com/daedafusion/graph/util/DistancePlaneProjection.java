@@ -34,6 +34,8 @@ import static java.lang.Math.*;
  */
 public class DistancePlaneProjection extends DistanceCalcEarth
 {
+    private static final double DEG_TO_RAD = PI / 180;
+
     @Override
     public double calcDist( double fromLat, double fromLon, double toLat, double toLon )
     {
@@ -45,6 +47,54 @@ public class DistancePlaneProjection extends DistanceCalcEarth
         return R * sqrt(normedDist);
     }
 
+    /**
+     * Trigonometry free version of calcDist for every point: the cosine of the mean latitude is
+     * derived from the cosine and sine of the from latitude via the addition theorem with a
+     * polynomial for the half latitude delta x. This adds an error of at most x³/6 to the cosine,
+     * i.e. below 1e-6 for latitude deltas up to 2 degree, compared to calcDist.
+     */
+    @Override
+    public void calcDists( double fromLat, double fromLon, double[] toLats, double[] toLons, double[] dists, int count )
+    {
+        checkBulk(toLats, toLons, count);
+        if (dists.length < count)
+            throw new IllegalArgumentException("Distance array too small: " + dists.length + " < " + count);
+
+        double fromRad = toRadians(fromLat);
+        double cosFrom = cos(fromRad);
+        double sinFrom = sin(fromRad);
+        double fromLonRad = toRadians(fromLon);
+        for (int i = 0; i < count; i++)
+        {
+            double dLat = toLats[i] * DEG_TO_RAD - fromRad;
+            double dLon = toLons[i] * DEG_TO_RAD - fromLonRad;
+            double x = dLat / 2;
+            double cosMean = cosFrom * (1 - x * x / 2) - sinFrom * x;
+            double tmp = cosMean * dLon;
+            dists[i] = R * sqrt(dLat * dLat + tmp * tmp);
+        }
+    }
+
+    /**
+     * Sums calcDist of the consecutive points without the virtual call per segment. The cosine of
+     * the mean latitude differs per segment, so unlike the haversine version no cosine is shared
+     * between segments, but the result is identical to summing up calcDist.
+     */
+    @Override
+    public double calcPolylineDist( double[] lats, double[] lons, int count )
+    {
+        checkBulk(lats, lons, count);
+        double dist = 0;
+        for (int i = 1; i < count; i++)
+        {
+            double dLat = toRadians(lats[i] - lats[i - 1]);
+            double dLon = toRadians(lons[i] - lons[i - 1]);
+            double tmp = cos(toRadians((lats[i - 1] + lats[i]) / 2)) * dLon;
+            dist += R * sqrt(dLat * dLat + tmp * tmp);
+        }
+        return dist;
+    }
+
     @Override
     public double calcDenormalizedDist( double normedDist )
     {
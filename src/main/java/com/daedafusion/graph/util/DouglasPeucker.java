@@ -0,0 +1,207 @@
+package com.daedafusion.graph.util;
+
+import java.util.Arrays;
+
+/**
+ * Simplifies a PointList in place with the Ramer-Douglas-Peucker algorithm. The recursion is
+ * replaced by an explicit stack of index ranges that is reused between calls, removed points are
+ * marked with a NaN latitude and the list is compacted at the end, so no memory is allocated per
+ * point.
+ * <p>
+ * Distances are compared in normalized form to avoid square roots, for the default plane
+ * projection they are evaluated inline with one cosine per range instead of two per point.
+ * Optionally the elevation is simplified too: a point is kept if its elevation deviates from the
+ * interpolated elevation of the segment by more than the elevation tolerance.
+ */
+public class DouglasPeucker
+{
+    private static final double DEG_TO_RAD_SQUARED = (Math.PI / 180) * (Math.PI / 180);
+
+    private DistanceCalcEarth calc = Helper.DIST_PLANE;
+    private double normedMaxDist;
+    private double maxElevationDist = Double.NaN;
+    private int[] stack = new int[64];
+
+    public DouglasPeucker()
+    {
+        setMaxDistance(1);
+    }
+
+    /**
+     * Sets the maximum distance in meter a removed point may have to the simplified line, defaults
+     * to 1m.
+     */
+    public DouglasPeucker setMaxDistance( double dist )
+    {
+        if (dist < 0)
+            throw new IllegalArgumentException("Maximum distance must not be negative but was " + dist);
+
+        this.normedMaxDist = calc.calcNormalizedDist(dist);
+        return this;
+    }
+
+    /**
+     * Sets the maximum elevation difference in meter a removed point may have to the simplified
+     * line. Only used for 3D lists, NaN (the default) ignores the elevation.
+     */
+    public DouglasPeucker setMaxElevationDistance( double dist )
+    {
+        this.maxElevationDist = dist;
+        return this;
+    }
+
+    /**
+     * Defaults to Helper.DIST_PLANE which is precise enough for the short segments of geometries.
+     */
+    public DouglasPeucker setDistanceCalc( DistanceCalcEarth calc )
+    {
+        double maxDist = this.calc.calcDenormalizedDist(normedMaxDist);
+        this.calc = calc;
+        this.normedMaxDist = calc.calcNormalizedDist(maxDist);
+        return this;
+    }
+
+    /**
+     * Removes the points of the specified list which are not necessary to keep it within the
+     * configured tolerance. The first and last point are always kept.
+     *
+     * @return the number of removed points
+     */
+    public int simplify( PointList points )
+    {
+        int size = points.getSize();
+        if (size < 3)
+            return 0;
+
+        boolean elevation = points.is3D() && !Double.isNaN(maxElevationDist);
+        int removed = 0;
+        int top = push(0, 0, size - 1);
+        while (top > 0)
+        {
+            int to = stack[--top];
+            int from = stack[--top];
+            if (to - from < 2)
+                continue;
+
+            double aLat = points.getLatitude(from), aLon = points.getLongitude(from);
+            double bLat = points.getLatitude(to), bLon = points.getLongitude(to);
+            double maxDist = -1;
+            int maxIndex = -1;
+            if (calc instanceof DistancePlaneProjection)
+            {
+                // same as the plane projection of calcNormalizedEdgeDistance but with one cosine per range
+                double shrink = Math.cos(Math.toRadians((aLat + bLat) / 2));
+                double dLat = bLat - aLat, dLon = (bLon - aLon) * shrink;
+                double norm = dLat * dLat + dLon * dLon;
+                for (int i = from + 1; i < to; i++)
+                {
+                    double rLat = points.getLatitude(i) - aLat, rLon = (points.getLongitude(i) - aLon) * shrink;
+                    double factor = norm > 0 ? Math.max(0, Math.min(1, (rLat * dLat + rLon * dLon) / norm)) : 0;
+                    double x = rLat - factor * dLat, y = rLon - factor * dLon;
+                    double dist = (x * x + y * y) * DEG_TO_RAD_SQUARED;
+                    if (dist > maxDist)
+                    {
+                        maxDist = dist;
+                        maxIndex = i;
+                    }
+                }
+            } else
+            {
+                boolean samePoint = aLat == bLat && aLon == bLon;
+                for (int i = from + 1; i < to; i++)
+                {
+                    double rLat = points.getLatitude(i), rLon = points.getLongitude(i);
+                    double dist = samePoint ? calc.calcNormalizedDist(aLat, aLon, rLat, rLon)
+                            : calc.calcNormalizedEdgeDistanceNew(rLat, rLon, aLat, aLon, bLat, bLon, true);
+                    if (dist > maxDist)
+                    {
+                        maxDist = dist;
+                        maxIndex = i;
+                    }
+                }
+            }
+
+            if (maxDist <= normedMaxDist)
+                maxIndex = elevation ? findElevationOutlier(points, from, to) : -1;
+
+            if (maxIndex >= 0)
+            {
+                top = push(top, from, maxIndex);
+                top = push(top, maxIndex, to);
+            } else
+            {
+                for (int i = from + 1; i < to; i++)
+                {
+                    points.set(i, Double.NaN, points.getLongitude(i), points.getElevation(i));
+                }
+                removed += to - from - 1;
+            }
+        }
+
+        if (removed > 0)
+            compress(points);
+        return removed;
+    }
+
+    /**
+     * @return the point with the largest elevation deviation from the interpolation between from
+     * and to if it exceeds the tolerance, -1 otherwise
+     */
+    private int findElevationOutlier( PointList points, int from, int to )
+    {
+        double aLat = points.getLatitude(from), aLon = points.getLongitude(from), aEle = points.getElevation(from);
+        double bLat = points.getLatitude(to), bLon = points.getLongitude(to), bEle = points.getElevation(to);
+        // interpolate via the projection onto the segment in the plane
+        double shrink = Math.cos(Math.toRadians((aLat + bLat) / 2));
+        double dLat = bLat - aLat, dLon = (bLon - aLon) * shrink;
+        double norm = dLat * dLat + dLon * dLon;
+        double maxDiff = maxElevationDist;
+        int maxIndex = -1;
+        for (int i = from + 1; i < to; i++)
+        {
+            double factor = 0.5;
+            if (norm > 0)
+            {
+                factor = ((points.getLatitude(i) - aLat) * dLat + (points.getLongitude(i) - aLon) * shrink * dLon) / norm;
+                factor = Math.max(0, Math.min(1, factor));
+            }
+            double diff = Math.abs(points.getElevation(i) - (aEle + factor * (bEle - aEle)));
+            if (diff > maxDiff)
+            {
+                maxDiff = diff;
+                maxIndex = i;
+            }
+        }
+        return maxIndex;
+    }
+
+    private int push( int top, int from, int to )
+    {
+        if (top + 2 > stack.length)
+            stack = Arrays.copyOf(stack, stack.length * 2);
+
+        stack[top++] = from;
+        stack[top++] = to;
+        return top;
+    }
+
+    /**
+     * Moves the remaining points to the front of the list.
+     */
+    static void compress( PointList points )
+    {
+        int size = points.getSize();
+        int free = 0;
+        for (int i = 0; i < size; i++)
+        {
+            double lat = points.getLatitude(i);
+            if (Double.isNaN(lat))
+                continue;
+
+            if (free != i)
+                points.set(free, lat, points.getLongitude(i), points.getElevation(i));
+            free++;
+        }
+        points.trimToSize(free);
+    }
+}
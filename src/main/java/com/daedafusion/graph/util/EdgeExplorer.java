@@ -33,4 +33,15 @@ public interface EdgeExplorer
      * multiple threads or in a nested loop
      */
     Iterator<Edge> setBaseNode(long baseNode);
+
+    /**
+     * @return the node at the other end of the edge last returned by the iterator, as seen from the
+     * base node in the traversal of this explorer. Saves searches from comparing subject and object
+     * per edge. Explorers which do not track the adjacent node leave it to the caller and throw.
+     * @throws IllegalStateException if this explorer does not track the adjacent node
+     */
+    default long getAdjNode()
+    {
+        throw new IllegalStateException(getClass().getName() + " does not track the adjacent node");
+    }
 }
@@ -0,0 +1,403 @@
+package com.daedafusion.graph.util;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Fills a PointList from GeoJSON coordinates (LON,LAT or LON,LAT,ELE) without creating strings
+ * or splitting the input. Every innermost array of numbers is read as one point. The input can be
+ * a coordinates array, just comma separated point arrays like "[11.5,49.1], [11.6,49.2]" or a
+ * GeoJSON object. For objects only the coordinates members of the geometries are read, so bbox,
+ * properties and other members do not add points. Elevations are ignored for 2D lists and stored
+ * as NaN if absent for 3D lists.
+ */
+public class GeoJsonParser
+{
+    // up to this many significant digits the mantissa and its power of ten are exact doubles
+    private static final int MAX_EXACT_DIGITS = 15;
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    private final CharSequence input;
+    private int pos;
+
+    private GeoJsonParser( CharSequence input )
+    {
+        this.input = input;
+    }
+
+    /**
+     * @return the number of points added to the specified list
+     */
+    public static int parse( CharSequence input, PointList points )
+    {
+        return new GeoJsonParser(input).parse(points);
+    }
+
+    /**
+     * Parses the remaining ASCII bytes of the buffer without copying them. The buffer position is
+     * not changed.
+     *
+     * @return the number of points added to the specified list
+     */
+    public static int parse( ByteBuffer input, PointList points )
+    {
+        return new GeoJsonParser(new AsciiSequence(input, input.position(), input.limit())).parse(points);
+    }
+
+    private int parse( PointList points )
+    {
+        skipWhitespace();
+        if (pos < input.length() && input.charAt(pos) == '{')
+        {
+            pos++;
+            return readObject(points);
+        }
+        return readPoints(points, false);
+    }
+
+    /**
+     * Reads the points of a GeoJSON object whose opening brace was consumed. Only the coordinates of
+     * geometries are read, descending into geometry, geometries and features. Other members like bbox
+     * or properties are skipped.
+     */
+    private int readObject( PointList points )
+    {
+        int added = 0;
+        while (true)
+        {
+            skipWhitespace();
+            char c = next();
+            if (c == '}')
+                return added;
+            if (c == ',')
+                continue;
+            if (c != '"')
+                throw unexpected(c);
+
+            int keyStart = pos;
+            skipString();
+            int keyEnd = pos - 1;
+            skipWhitespace();
+            c = next();
+            if (c != ':')
+                throw unexpected(c);
+
+            skipWhitespace();
+            char value = peek();
+            if (value == '[' && isKey(keyStart, keyEnd, "coordinates"))
+            {
+                added += readPoints(points, true);
+            } else if (value == '{' && isKey(keyStart, keyEnd, "geometry"))
+            {
+                pos++;
+                added += readObject(points);
+            } else if (value == '[' && (isKey(keyStart, keyEnd, "geometries") || isKey(keyStart, keyEnd, "features")))
+            {
+                added += readObjects(points);
+            } else
+            {
+                skipValue();
+            }
+        }
+    }
+
+    /**
+     * Reads the points of the objects in the array starting at the current position.
+     */
+    private int readObjects( PointList points )
+    {
+        int added = 0;
+        pos++;
+        while (true)
+        {
+            skipWhitespace();
+            char c = peek();
+            if (c == ']')
+            {
+                pos++;
+                return added;
+            }
+            if (c == ',')
+            {
+                pos++;
+            } else if (c == '{')
+            {
+                pos++;
+                added += readObject(points);
+            } else
+            {
+                skipValue();
+            }
+        }
+    }
+
+    /**
+     * Reads every innermost array of numbers as one point.
+     *
+     * @param nested true to stop after the array starting at the current position, false to read
+     *               until the end of the input
+     */
+    private int readPoints( PointList points, boolean nested )
+    {
+        double[] values = new double[3];
+        int added = 0;
+        int depth = 0;
+        int length = input.length();
+        while (pos < length)
+        {
+            char c = input.charAt(pos++);
+            if (c == ']')
+            {
+                if (nested && --depth == 0)
+                    return added;
+                continue;
+            }
+            if (c != '[')
+                continue;
+
+            skipWhitespace();
+            if (pos >= length || !isNumberStart(input.charAt(pos)))
+            {
+                depth++;
+                continue;
+            }
+
+            int count = 0;
+            while (true)
+            {
+                skipWhitespace();
+                double value = parseValue();
+                if (count < 3)
+                    values[count] = value;
+                count++;
+
+                skipWhitespace();
+                if (pos >= length)
+                    throw new IllegalArgumentException("Unexpected end of coordinates");
+
+                c = input.charAt(pos++);
+                if (c == ']')
+                    break;
+                if (c != ',')
+                    throw unexpected(c);
+            }
+
+            if (count < 2)
+                throw new IllegalArgumentException("Coordinate needs at least longitude and latitude before " + pos);
+
+            if (points.is3D())
+                points.add(values[1], values[0], count > 2 ? values[2] : Double.NaN);
+            else
+                points.add(values[1], values[0]);
+            added++;
+            // the coordinates of a Point
+            if (nested && depth == 0)
+                return added;
+        }
+
+        if (nested)
+            throw new IllegalArgumentException("Unexpected end of coordinates");
+        return added;
+    }
+
+    private boolean isKey( int start, int end, String key )
+    {
+        if (end - start != key.length())
+            return false;
+
+        for (int i = 0; i < key.length(); i++)
+        {
+            if (input.charAt(start + i) != key.charAt(i))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Skips the string whose opening quote was consumed including the closing quote.
+     */
+    private void skipString()
+    {
+        while (true)
+        {
+            char c = next();
+            if (c == '"')
+                return;
+            if (c == '\\')
+                next();
+        }
+    }
+
+    /**
+     * Skips the JSON value starting at the current position.
+     */
+    private void skipValue()
+    {
+        char c = next();
+        if (c == '"')
+        {
+            skipString();
+        } else if (c == '{' || c == '[')
+        {
+            int depth = 1;
+            while (depth > 0)
+            {
+                c = next();
+                if (c == '"')
+                    skipString();
+                else if (c == '{' || c == '[')
+                    depth++;
+                else if (c == '}' || c == ']')
+                    depth--;
+            }
+        } else
+        {
+            // number, true, false or null
+            while (pos < input.length() && ",}] \t\r\n".indexOf(input.charAt(pos)) < 0)
+            {
+                pos++;
+            }
+        }
+    }
+
+    private char peek()
+    {
+        if (pos >= input.length())
+            throw new IllegalArgumentException("Unexpected end of GeoJSON");
+
+        return input.charAt(pos);
+    }
+
+    private char next()
+    {
+        char c = peek();
+        pos++;
+        return c;
+    }
+
+    private IllegalArgumentException unexpected( char c )
+    {
+        return new IllegalArgumentException("Unexpected character '" + c + "' at " + (pos - 1));
+    }
+
+    private static boolean isNumberStart( char c )
+    {
+        return c == '-' || (c >= '0' && c <= '9') || c == 'n';
+    }
+
+    private void skipWhitespace()
+    {
+        while (pos < input.length() && Character.isWhitespace(input.charAt(pos)))
+        {
+            pos++;
+        }
+    }
+
+    private double parseValue()
+    {
+        int start = pos;
+        int length = input.length();
+        if (pos + 4 <= length && input.charAt(pos) == 'n' && input.charAt(pos + 1) == 'u'
+                && input.charAt(pos + 2) == 'l' && input.charAt(pos + 3) == 'l')
+        {
+            pos += 4;
+            return Double.NaN;
+        }
+
+        boolean negative = false;
+        if (pos < length && input.charAt(pos) == '-')
+        {
+            negative = true;
+            pos++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int decimals = 0;
+        boolean fraction = false;
+        boolean exact = true;
+        while (pos < length)
+        {
+            char c = input.charAt(pos);
+            if (c >= '0' && c <= '9')
+            {
+                if (digits < MAX_EXACT_DIGITS)
+                {
+                    mantissa = mantissa * 10 + (c - '0');
+                    if (mantissa != 0)
+                        digits++;
+                    if (fraction)
+                        decimals++;
+                } else
+                {
+                    exact = false;
+                }
+            } else if (c == '.' && !fraction)
+            {
+                fraction = true;
+            } else if (c == 'e' || c == 'E' || c == '+' || (c == '-' && pos > start))
+            {
+                exact = false;
+            } else
+            {
+                break;
+            }
+            pos++;
+        }
+
+        if (pos == start || (negative && pos == start + 1))
+            throw new IllegalArgumentException("Expected number at " + start);
+
+        if (!exact || decimals >= POWERS_OF_TEN.length)
+            return Double.parseDouble(input.subSequence(start, pos).toString());
+
+        double value = mantissa / POWERS_OF_TEN[decimals];
+        return negative ? -value : value;
+    }
+
+    /**
+     * Read only view of ASCII bytes as CharSequence.
+     */
+    private static class AsciiSequence implements CharSequence
+    {
+        private final ByteBuffer buffer;
+        private final int start;
+        private final int end;
+
+        AsciiSequence( ByteBuffer buffer, int start, int end )
+        {
+            this.buffer = buffer;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public int length()
+        {
+            return end - start;
+        }
+
+        @Override
+        public char charAt( int index )
+        {
+            return (char) (buffer.get(start + index) & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence( int from, int to )
+        {
+            return new AsciiSequence(buffer, start + from, start + to);
+        }
+
+        @Override
+        public String toString()
+        {
+            StringBuilder sb = new StringBuilder(length());
+            for (int i = start; i < end; i++)
+            {
+                sb.append((char) (buffer.get(i) & 0xFF));
+            }
+            return sb.toString();
+        }
+    }
+}
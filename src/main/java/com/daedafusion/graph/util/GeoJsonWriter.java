@@ -0,0 +1,174 @@
+package com.daedafusion.graph.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Streams the points of a PointList as GeoJSON coordinates (LON,LAT or LON,LAT,ELE) without
+ * building intermediate objects. Coordinates are written with the rounding of Helper.round6 and
+ * elevations with the rounding of Helper.round2, trailing zeros are omitted. RFC 7946 positions only
+ * hold numbers, so a missing (NaN) elevation is left out of its position and latitudes outside
+ * [-90, 90], longitudes outside [-180, 180] or other values which cannot be written as a number are
+ * rejected with an IllegalArgumentException.
+ */
+public class GeoJsonWriter
+{
+    private static final long[] POWERS_OF_TEN = {1, 10, 100, 1000, 10000, 100000, 1000000};
+
+    private GeoJsonWriter()
+    {
+    }
+
+    /**
+     * Writes a GeoJSON LineString geometry object of the specified points.
+     */
+    public static void writeLineString( PointList points, boolean includeElevation, Appendable out ) throws IOException
+    {
+        out.append("{\"type\":\"LineString\",\"coordinates\":");
+        writeCoordinates(points, includeElevation, out);
+        out.append('}');
+    }
+
+    /**
+     * Writes the coordinates array, e.g. [[11.5,49.1],[11.6,49.2]].
+     */
+    public static void writeCoordinates( PointList points, boolean includeElevation, Appendable out ) throws IOException
+    {
+        writeCoordinates(points, 0, points.getSize(), includeElevation && points.is3D(), out);
+    }
+
+    /**
+     * Writes the coordinates array of the points from (inclusive) to (exclusive) of any
+     * PointAccess, e.g. of a CompactPointList.
+     */
+    public static void writeCoordinates( PointAccess points, int from, int to, boolean includeElevation,
+                                         Appendable out ) throws IOException
+    {
+        char[] buffer = new char[24];
+        out.append('[');
+        for (int i = from; i < to; i++)
+        {
+            if (i > from)
+                out.append(',');
+
+            double lat = points.getLatitude(i), lon = points.getLongitude(i);
+            checkPosition(lat, lon, i);
+            out.append('[');
+            append(out, buffer, format(buffer, lon, 6));
+            out.append(',');
+            append(out, buffer, format(buffer, lat, 6));
+            double ele = points.getElevation(i);
+            if (includeElevation && !Double.isNaN(ele))
+            {
+                out.append(',');
+                append(out, buffer, format(buffer, ele, 2));
+            }
+            out.append(']');
+        }
+        out.append(']');
+    }
+
+    /**
+     * Writes the coordinates array as ASCII into the specified buffer.
+     *
+     * @throws java.nio.BufferOverflowException if the buffer is too small
+     */
+    public static void writeCoordinates( PointList points, boolean includeElevation, ByteBuffer out )
+    {
+        includeElevation &= points.is3D();
+        char[] buffer = new char[24];
+        out.put((byte) '[');
+        for (int i = 0; i < points.getSize(); i++)
+        {
+            if (i > 0)
+                out.put((byte) ',');
+
+            double lat = points.getLatitude(i), lon = points.getLongitude(i);
+            checkPosition(lat, lon, i);
+            out.put((byte) '[');
+            put(out, buffer, format(buffer, lon, 6));
+            out.put((byte) ',');
+            put(out, buffer, format(buffer, lat, 6));
+            double ele = points.getElevation(i);
+            if (includeElevation && !Double.isNaN(ele))
+            {
+                out.put((byte) ',');
+                put(out, buffer, format(buffer, ele, 2));
+            }
+            out.put((byte) ']');
+        }
+        out.put((byte) ']');
+    }
+
+    private static void checkPosition( double lat, double lon, int index )
+    {
+        // also false for NaN
+        if (!(lat >= -90 && lat <= 90 && lon >= -180 && lon <= 180))
+            throw new IllegalArgumentException("Invalid position " + lat + "," + lon + " of point " + index);
+    }
+
+    private static void append( Appendable out, char[] buffer, int start ) throws IOException
+    {
+        for (int i = start; i < buffer.length; i++)
+        {
+            out.append(buffer[i]);
+        }
+    }
+
+    private static void put( ByteBuffer out, char[] buffer, int start )
+    {
+        for (int i = start; i < buffer.length; i++)
+        {
+            out.put((byte) buffer[i]);
+        }
+    }
+
+    /**
+     * Formats the value rounded to the specified decimals right aligned into the buffer.
+     *
+     * @return the start index of the formatted value
+     * @throws IllegalArgumentException if the value is not finite or its rounded value does not fit
+     *                                  into a long
+     */
+    static int format( char[] buffer, double value, int decimals )
+    {
+        int pos = buffer.length;
+        long factor = POWERS_OF_TEN[decimals];
+        // also false for NaN
+        if (!(Math.abs(value * factor) < Long.MAX_VALUE))
+            throw new IllegalArgumentException("Cannot write " + value + " as GeoJSON number");
+
+        long scaled = Math.round(value * factor);
+        boolean negative = scaled < 0;
+        if (negative)
+            scaled = -scaled;
+
+        long integer = scaled / factor;
+        long fraction = scaled % factor;
+        if (fraction != 0)
+        {
+            int digits = decimals;
+            while (fraction % 10 == 0)
+            {
+                fraction /= 10;
+                digits--;
+            }
+            for (int i = 0; i < digits; i++)
+            {
+                buffer[--pos] = (char) ('0' + fraction % 10);
+                fraction /= 10;
+            }
+            buffer[--pos] = '.';
+        }
+
+        do
+        {
+            buffer[--pos] = (char) ('0' + integer % 10);
+            integer /= 10;
+        } while (integer != 0);
+
+        if (negative)
+            buffer[--pos] = '-';
+        return pos;
+    }
+}
@@ -0,0 +1,118 @@
+package com.daedafusion.graph.util;
+
+import java.util.Arrays;
+
+/**
+ * Binary min heap of int elements ordered by a double key, stored in two primitive arrays. There
+ * is no decrease key, searches insert an element again with the smaller key and skip outdated
+ * entries when they are polled.
+ */
+public class IntDoubleBinHeap
+{
+    private int[] elements;
+    private double[] keys;
+    private int size;
+
+    public IntDoubleBinHeap()
+    {
+        this(16);
+    }
+
+    public IntDoubleBinHeap( int capacity )
+    {
+        capacity = Math.max(capacity, 4);
+        elements = new int[capacity];
+        keys = new double[capacity];
+    }
+
+    public int getSize()
+    {
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    public void clear()
+    {
+        size = 0;
+    }
+
+    public void insert( int element, double key )
+    {
+        if (size == elements.length)
+        {
+            elements = Arrays.copyOf(elements, size * 2);
+            keys = Arrays.copyOf(keys, size * 2);
+        }
+
+        int pos = size++;
+        while (pos > 0)
+        {
+            int parent = (pos - 1) >>> 1;
+            if (keys[parent] <= key)
+                break;
+
+            elements[pos] = elements[parent];
+            keys[pos] = keys[parent];
+            pos = parent;
+        }
+        elements[pos] = element;
+        keys[pos] = key;
+    }
+
+    /**
+     * @return the key of the smallest element, the heap must not be empty
+     */
+    public double peekKey()
+    {
+        return keys[0];
+    }
+
+    /**
+     * @return the smallest element, the heap must not be empty
+     */
+    public int peekElement()
+    {
+        return elements[0];
+    }
+
+    /**
+     * Removes the smallest element.
+     *
+     * @return the removed element
+     */
+    public int poll()
+    {
+        if (size == 0)
+            throw new IllegalStateException("Heap is empty");
+
+        int result = elements[0];
+        size--;
+        if (size == 0)
+            return result;
+
+        int element = elements[size];
+        double key = keys[size];
+        int pos = 0;
+        while (true)
+        {
+            int child = 2 * pos + 1;
+            if (child >= size)
+                break;
+            if (child + 1 < size && keys[child + 1] < keys[child])
+                child++;
+            if (keys[child] >= key)
+                break;
+
+            elements[pos] = elements[child];
+            keys[pos] = keys[child];
+            pos = child;
+        }
+        elements[pos] = element;
+        keys[pos] = key;
+        return result;
+    }
+}
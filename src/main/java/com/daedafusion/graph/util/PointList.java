@@ -401,6 +401,9 @@ public class PointList implements Iterable<GHPoint3D>, PointAccess
 
     public double calcDistance( DistanceCalc calc )
     {
+        if (!is3D)
+            return calc.calcPolylineDist(latitudes, longitudes, size);
+
         double prevLat = Double.NaN;
         double prevLon = Double.NaN;
         double prevEle = Double.NaN;
@@ -409,16 +412,12 @@ public class PointList implements Iterable<GHPoint3D>, PointAccess
         {
             if (i > 0)
             {
-                if (is3D)
-                    dist += distCalc3D.calcDist(prevLat, prevLon, prevEle, latitudes[i], longitudes[i], elevations[i]);
-                else
-                    dist += calc.calcDist(prevLat, prevLon, latitudes[i], longitudes[i]);
+                dist += distCalc3D.calcDist(prevLat, prevLon, prevEle, latitudes[i], longitudes[i], elevations[i]);
             }
 
             prevLat = latitudes[i];
             prevLon = longitudes[i];
-            if (is3D)
-                prevEle = elevations[i];
+            prevEle = elevations[i];
         }
         return dist;
     }
@@ -429,15 +428,7 @@ public class PointList implements Iterable<GHPoint3D>, PointAccess
      */
     public void parse2DJSON( String str )
     {
-        for (String latlon : str.split("\\["))
-        {
-            if (latlon.trim().length() == 0)
-                continue;
-
-            String ll[] = latlon.split(",");
-            String lat = ll[1].replace("]", "").trim();
-            add(Double.parseDouble(lat), Double.parseDouble(ll[0].trim()), Double.NaN);
-        }
+        GeoJsonParser.parse(str, this);
     }
 
     public GHPoint3D toGHPoint( int index )
@@ -0,0 +1,80 @@
+package com.daedafusion.graph.util;
+
+/**
+ * Direction in which an EdgeExplorer follows the edges of its base node.
+ */
+public enum Traversal
+{
+    /**
+     * Outgoing edges only, the adjacent node is the object.
+     */
+    FORWARD,
+    /**
+     * Incoming edges only, the adjacent node is the subject. Used by backward searches.
+     */
+    REVERSE,
+    /**
+     * Outgoing followed by incoming edges, every incident edge including self loops is returned
+     * once.
+     */
+    UNDIRECTED;
+
+    public boolean followsOutgoing()
+    {
+        return this != REVERSE;
+    }
+
+    public boolean followsIncoming()
+    {
+        return this != FORWARD;
+    }
+
+    /**
+     * @return the traversal of a search running in the opposite direction
+     */
+    public Traversal reverse()
+    {
+        switch (this)
+        {
+            case FORWARD:
+                return REVERSE;
+            case REVERSE:
+                return FORWARD;
+            default:
+                return UNDIRECTED;
+        }
+    }
+
+    /**
+     * @return true if the edge is returned by an explorer of this traversal at the base node
+     */
+    public boolean accept( Edge edge, long baseNode )
+    {
+        switch (this)
+        {
+            case FORWARD:
+                return edge.getSubject() == baseNode;
+            case REVERSE:
+                return edge.getObject() == baseNode;
+            default:
+                return edge.getSubject() == baseNode || edge.getObject() == baseNode;
+        }
+    }
+
+    /**
+     * @return the node at the other end of an edge incident to the base node, for explorers which
+     * do not know from which adjacency list the edge came
+     */
+    public long getAdjNode( Edge edge, long baseNode )
+    {
+        switch (this)
+        {
+            case FORWARD:
+                return edge.getObject();
+            case REVERSE:
+                return edge.getSubject();
+            default:
+                return edge.getSubject() == baseNode ? edge.getObject() : edge.getSubject();
+        }
+    }
+}
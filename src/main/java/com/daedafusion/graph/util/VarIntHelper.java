@@ -0,0 +1,101 @@
+package com.daedafusion.graph.util;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Variable length (LEB128 style) encoding of int and long values. Signed values should be passed
+ * through the zig zag mapping first so that small negative deltas stay small.
+ */
+public class VarIntHelper
+{
+    /**
+     * Maximum number of bytes a long can occupy when encoded.
+     */
+    public static final int MAX_LONG_BYTES = 10;
+
+    private VarIntHelper()
+    {
+    }
+
+    public static long zigZag( long value )
+    {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    public static long unZigZag( long value )
+    {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public static int zigZag( int value )
+    {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    public static int unZigZag( int value )
+    {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * @return the number of bytes the specified unsigned value needs when encoded
+     */
+    public static int sizeOf( long value )
+    {
+        int bytes = 1;
+        while ((value & ~0x7FL) != 0)
+        {
+            value >>>= 7;
+            bytes++;
+        }
+        return bytes;
+    }
+
+    /**
+     * Writes the specified value as unsigned varint into bytes starting at offset.
+     *
+     * @return the offset after the last written byte
+     */
+    public static int write( long value, byte[] bytes, int offset )
+    {
+        while ((value & ~0x7FL) != 0)
+        {
+            bytes[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[offset++] = (byte) value;
+        return offset;
+    }
+
+    public static void write( long value, ByteBuffer buffer )
+    {
+        while ((value & ~0x7FL) != 0)
+        {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    public static long readLong( ByteBuffer buffer )
+    {
+        long value = 0;
+        int shift = 0;
+        while (true)
+        {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0)
+                return value;
+
+            shift += 7;
+            if (shift > 63)
+                throw new IllegalStateException("Malformed varint at position " + buffer.position());
+        }
+    }
+
+    public static int readInt( ByteBuffer buffer )
+    {
+        return (int) readLong(buffer);
+    }
+}
@@ -0,0 +1,24 @@
+package com.daedafusion.graph.util.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * Flight recorder event covering a batch of edges inserted via Graph.edge. The duration spans from
+ * the first to the last edge of the batch and so includes the time the caller spent in between.
+ */
+@Name("com.daedafusion.graph.GraphIngest")
+@Label("Graph Ingest Batch")
+@Category({"DaedaFusion", "Graph"})
+@Description("A batch of edges inserted into a graph")
+@StackTrace(false)
+class GraphIngestEvent extends Event
+{
+    @Label("Graph")
+    String graph;
+
+    @Label("Edges")
+    int edges;
+
+    @Label("Total Edges")
+    long totalEdges;
+}
@@ -0,0 +1,23 @@
+package com.daedafusion.graph.util.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * Flight recorder event for loading a complete graph, e.g. from a snapshot file.
+ */
+@Name("com.daedafusion.graph.GraphLoad")
+@Label("Graph Load")
+@Category({"DaedaFusion", "Graph"})
+@Description("A graph loaded from persistent storage")
+@StackTrace(false)
+class GraphLoadEvent extends Event
+{
+    @Label("Source")
+    String source;
+
+    @Label("Nodes")
+    int nodes;
+
+    @Label("Edges")
+    int edges;
+}
@@ -0,0 +1,54 @@
+package com.daedafusion.graph.util.jfr;
+
+/**
+ * Groups edge insertions of a graph into GraphIngest flight recorder events of batchSize edges so
+ * that the per edge cost is a counter increment. Not thread safe, like the graphs using it.
+ */
+public class IngestRecorder
+{
+    public static final int DEFAULT_BATCH_SIZE = 10000;
+
+    private final String graph;
+    private final int batchSize;
+    private Object event;
+    private int count;
+    private long total;
+
+    public IngestRecorder(String graph)
+    {
+        this(graph, DEFAULT_BATCH_SIZE);
+    }
+
+    public IngestRecorder(String graph, int batchSize)
+    {
+        this.graph = graph;
+        this.batchSize = batchSize;
+    }
+
+    public void edgeAdded()
+    {
+        if (!JfrEvents.AVAILABLE)
+            return;
+
+        if (count == 0)
+            event = JfrEvents.beginIngest();
+
+        count++;
+        total++;
+        if (count >= batchSize)
+            flush();
+    }
+
+    /**
+     * Commits the current partial batch, called via Graph.flushIngest at the end of an ingest.
+     */
+    public void flush()
+    {
+        if (count == 0)
+            return;
+
+        JfrEvents.commitIngest(event, graph, count, total);
+        event = null;
+        count = 0;
+    }
+}
@@ -0,0 +1,140 @@
+package com.daedafusion.graph.util.jfr;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Emits the Java Flight Recorder events of this library. The jdk.jfr API is missing on older Java 8
+ * runtimes, so callers only hold opaque handles and the event classes are never touched when the
+ * API is not available. While no recording is running the handles are cheap objects which are
+ * dropped without being committed.
+ * <p>
+ * The event classes extend jdk.jfr.Event and so need a JDK 11 or newer to compile, although the
+ * compiled classes still run on Java 8.
+ */
+public class JfrEvents
+{
+    private static final Logger log = Logger.getLogger(JfrEvents.class);
+
+    /**
+     * true if the jdk.jfr API is present in this runtime
+     */
+    public static final boolean AVAILABLE = isAvailable();
+
+    private JfrEvents()
+    {
+    }
+
+    private static boolean isAvailable()
+    {
+        try
+        {
+            Class.forName("jdk.jfr.Event", false, JfrEvents.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError ex)
+        {
+            log.debug("Flight recorder events disabled, jdk.jfr not available");
+            return false;
+        }
+    }
+
+    /**
+     * Starts timing a routing query.
+     *
+     * @return the handle to pass to commitQuery or null
+     */
+    public static Object beginQuery()
+    {
+        if (!AVAILABLE)
+            return null;
+
+        RoutingQueryEvent event = new RoutingQueryEvent();
+        if (!event.isEnabled())
+            return null;
+
+        event.begin();
+        return event;
+    }
+
+    public static void commitQuery( Object handle, String algorithm, long from, long to, int visitedNodes,
+                                    boolean found, double weight )
+    {
+        if (handle == null)
+            return;
+
+        RoutingQueryEvent event = (RoutingQueryEvent) handle;
+        event.end();
+        if (event.shouldCommit())
+        {
+            event.algorithm = algorithm;
+            event.from = from;
+            event.to = to;
+            event.visitedNodes = visitedNodes;
+            event.found = found;
+            event.weight = weight;
+            event.commit();
+        }
+    }
+
+    /**
+     * Starts timing a graph load.
+     *
+     * @return the handle to pass to commitGraphLoad or null
+     */
+    public static Object beginGraphLoad()
+    {
+        if (!AVAILABLE)
+            return null;
+
+        GraphLoadEvent event = new GraphLoadEvent();
+        if (!event.isEnabled())
+            return null;
+
+        event.begin();
+        return event;
+    }
+
+    public static void commitGraphLoad( Object handle, String source, int nodes, int edges )
+    {
+        if (handle == null)
+            return;
+
+        GraphLoadEvent event = (GraphLoadEvent) handle;
+        event.end();
+        if (event.shouldCommit())
+        {
+            event.source = source;
+            event.nodes = nodes;
+            event.edges = edges;
+            event.commit();
+        }
+    }
+
+    static Object beginIngest()
+    {
+        if (!AVAILABLE)
+            return null;
+
+        GraphIngestEvent event = new GraphIngestEvent();
+        if (!event.isEnabled())
+            return null;
+
+        event.begin();
+        return event;
+    }
+
+    static void commitIngest( Object handle, String graph, int edges, long totalEdges )
+    {
+        if (handle == null)
+            return;
+
+        GraphIngestEvent event = (GraphIngestEvent) handle;
+        event.end();
+        if (event.shouldCommit())
+        {
+            event.graph = graph;
+            event.edges = edges;
+            event.totalEdges = totalEdges;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.daedafusion.graph.util.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * Flight recorder event committed at the end of RoutingAlgorithm.calcPath.
+ */
+@Name("com.daedafusion.graph.RoutingQuery")
+@Label("Routing Query")
+@Category({"DaedaFusion", "Graph"})
+@Description("A single calcPath call of a routing algorithm")
+@StackTrace(false)
+class RoutingQueryEvent extends Event
+{
+    @Label("Algorithm")
+    String algorithm;
+
+    @Label("From Node")
+    long from;
+
+    @Label("To Node")
+    long to;
+
+    @Label("Visited Nodes")
+    int visitedNodes;
+
+    @Label("Path Found")
+    boolean found;
+
+    @Label("Path Weight")
+    double weight;
+}
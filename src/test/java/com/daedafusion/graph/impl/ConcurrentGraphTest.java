@@ -0,0 +1,248 @@
+package com.daedafusion.graph.impl;
+
+import com.daedafusion.graph.routing.Dijkstra;
+import com.daedafusion.graph.routing.util.Weighting;
+import com.daedafusion.graph.storage.Graph;
+import com.daedafusion.graph.util.Edge;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class ConcurrentGraphTest
+{
+    private static final Weighting DISTANCE = new Weighting()
+    {
+        @Override
+        public double getMinWeight( double distance )
+        {
+            return distance;
+        }
+
+        @Override
+        public double calcWeight( Edge edge )
+        {
+            return edge.getDistance();
+        }
+    };
+
+    private static ConcurrentGraph createGraph()
+    {
+        CompactGraph base = new CompactGraph();
+        base.edge(1, 0, 2, 1);
+        base.edge(2, 0, 3, 1);
+        base.edge(1, 0, 4, 3);
+        base.edge(4, 0, 3, 3);
+        return new ConcurrentGraph(base);
+    }
+
+    private static Set<Long> neighbors( Graph graph, long node )
+    {
+        Set<Long> result = new HashSet<>();
+        Iterator<Edge> iter = graph.createEdgeExplorer(null).setBaseNode(node);
+        while (iter.hasNext())
+        {
+            Edge e = iter.next();
+            result.add(e.getSubject() == node ? e.getObject() : e.getSubject());
+        }
+        return result;
+    }
+
+    private static int count( Iterator<Edge> iter )
+    {
+        int count = 0;
+        while (iter.hasNext())
+        {
+            iter.next();
+            count++;
+        }
+        return count;
+    }
+
+    @Test
+    public void testSnapshotIsolation()
+    {
+        ConcurrentGraph graph = createGraph();
+        Graph before = graph.snapshot();
+
+        graph.edge(1, 0, 5, 1);
+        graph.edge(5, 0, 3, 0.5);
+        graph.edge(2, 0, 3, 4);
+        graph.edge(5, 0, 3, 0.25);
+        graph.edge(5, 0, 3, 0.25);
+        assertEquals(4, graph.getDeltaEdgeCount());
+        Graph after = graph.snapshot();
+
+        assertEquals(new HashSet<>(Arrays.asList(2L, 4L)), neighbors(before, 1));
+        assertEquals(new HashSet<>(Arrays.asList(2L, 4L, 5L)), neighbors(after, 1));
+        assertEquals(4, count(before.getAllEdges()));
+        assertEquals(6, count(after.getAllEdges()));
+        assertEquals(3, neighbors(after, 3).size());
+
+        long updated = DefaultEdge.createEdgeId(2, 0, 3);
+        assertEquals(1, before.getEdge(updated).getDistance(), 0);
+        assertEquals(4, after.getEdge(updated).getDistance(), 0);
+        assertEquals(0.25, after.getEdge(DefaultEdge.createEdgeId(5, 0, 3)).getDistance(), 0);
+        assertNull(before.getEdge(DefaultEdge.createEdgeId(5, 0, 3)));
+
+        assertEquals(2, new Dijkstra(before, DISTANCE).calcPath(1, 3).getWeight(), 1e-9);
+        assertEquals(1.25, new Dijkstra(after, DISTANCE).calcPath(1, 3).getWeight(), 1e-9);
+
+        try
+        {
+            after.edge(1, 0, 6);
+            fail();
+        } catch (UnsupportedOperationException ex)
+        {
+        }
+    }
+
+    @Test
+    public void testCompaction()
+    {
+        ConcurrentGraph graph = createGraph();
+        graph.setNode(1, 49, 11);
+        graph.edge(1, 0, 5, 1);
+        graph.edge(5, 0, 3, 0.5);
+        graph.edge(2, 0, 3, 4);
+        graph.edge(5, 5, 5, 1);
+        Graph before = graph.snapshot();
+        long version = graph.getVersion();
+
+        assertTrue(graph.compact());
+        assertEquals(0, graph.getDeltaEdgeCount());
+        assertFalse(graph.compact());
+        assertEquals(version, graph.getVersion());
+        assertEquals(version, before.getVersion());
+
+        Graph after = graph.snapshot();
+        assertEquals(7, count(after.getAllEdges()));
+        assertEquals(count(before.getAllEdges()), count(after.getAllEdges()));
+        assertEquals(4, after.getEdge(DefaultEdge.createEdgeId(2, 0, 3)).getDistance(), 0);
+        assertEquals(neighbors(before, 5), neighbors(after, 5));
+        assertEquals(49, after.getNodeAccess().getLatitude(1), 1e-6);
+        assertEquals(1.5, new Dijkstra(after, DISTANCE).calcPath(1, 3).getWeight(), 1e-9);
+
+        // updates after compaction supersede the new base
+        graph.edge(1, 0, 5, 5);
+        assertEquals(version + 1, graph.getVersion());
+        assertEquals(version, after.getVersion());
+        assertEquals(6, graph.getNodeAccess().getEdges(1).size() + graph.getNodeAccess().getEdges(5).size());
+        assertEquals(5, new Dijkstra(graph.snapshot(), DISTANCE).calcPath(1, 3).getWeight(), 1e-9);
+        assertEquals(1.5, new Dijkstra(after, DISTANCE).calcPath(1, 3).getWeight(), 1e-9);
+    }
+
+    @Test
+    public void testCoordinateIsolation()
+    {
+        ConcurrentGraph graph = createGraph();
+        Graph empty = graph.snapshot();
+        graph.setNode(1, 49, 11);
+        Graph before = graph.snapshot();
+        graph.setNode(1, 50, 12, 300);
+        graph.setNode(2, 51, 13);
+
+        assertFalse(empty.getNodeAccess().hasCoordinates());
+        assertFalse(before.getNodeAccess().is3D());
+        assertFalse(before.getNodeAccess().hasCoordinates(2));
+        assertEquals(49, before.getNodeAccess().getLatitude(1), 1e-6);
+        assertEquals(50, graph.getNodeAccess().getLatitude(1), 1e-6);
+        assertEquals(300, graph.getNodeAccess().getElevation(1), 1e-3);
+        assertTrue(graph.getNodeAccess().hasCoordinates(2));
+
+        assertTrue(graph.compact());
+        assertEquals(49, before.getNodeAccess().getLatitude(1), 1e-6);
+        assertEquals(12, graph.getNodeAccess().getLongitude(1), 1e-6);
+        assertEquals(51, graph.getNodeAccess().getLatitude(2), 1e-6);
+        assertFalse(graph.getNodeAccess().hasCoordinates(3));
+    }
+
+    @Test
+    public void testManyVersions()
+    {
+        // enough entries to merge several index levels
+        ConcurrentGraph graph = createGraph();
+        int rounds = 40;
+        Graph[] snapshots = new Graph[rounds];
+        for (int round = 0; round < rounds; round++)
+        {
+            snapshots[round] = graph.snapshot();
+            for (int n = 0; n < 20; n++)
+            {
+                graph.edge(n, 0, n + 1, round + 1);
+            }
+            graph.setNode(7, round, round);
+        }
+
+        for (int round = 1; round < rounds; round++)
+        {
+            Graph snapshot = snapshots[round];
+            assertEquals(round, snapshot.getEdge(DefaultEdge.createEdgeId(10, 0, 11)).getDistance(), 0);
+            assertEquals(round - 1, snapshot.getNodeAccess().getLatitude(7), 1e-6);
+            assertEquals(new HashSet<>(Arrays.asList(9L, 11L)), neighbors(snapshot, 10));
+            assertEquals(22, count(snapshot.getAllEdges()));
+            assertEquals(8 * round, new Dijkstra(snapshot, DISTANCE).calcPath(4, 12).getWeight(), 1e-9);
+        }
+        assertEquals(1, snapshots[1].getEdge(DefaultEdge.createEdgeId(1, 0, 2)).getDistance(), 0);
+        assertEquals(4, count(snapshots[0].getAllEdges()));
+    }
+
+    @Test
+    public void testReadWhileWriting() throws Exception
+    {
+        final ConcurrentGraph graph = new ConcurrentGraph();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        graph.setAutoCompaction(executor, 500);
+        final int nodes = 5000;
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Thread writer = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    for (int n = 0; n < nodes; n++)
+                    {
+                        graph.edge(n, 0, n + 1, 1);
+                        // an expensive detour which is never the shortest path
+                        graph.edge(n, 1, n + 1, 3);
+                    }
+                } catch (Throwable t)
+                {
+                    failure.set(t);
+                }
+            }
+        });
+        writer.start();
+
+        int checks = 0;
+        while (writer.isAlive() || checks == 0)
+        {
+            Graph snapshot = graph.snapshot();
+            int edges = count(snapshot.getAllEdges());
+            int reachable = edges / 2;
+            if (reachable > 0)
+                assertEquals(reachable, new Dijkstra(snapshot, DISTANCE).calcPath(0, reachable).getWeight(), 1e-9);
+            assertEquals(edges, count(snapshot.getAllEdges()));
+            checks++;
+        }
+        writer.join();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertNull(failure.get());
+
+        assertTrue(graph.getDeltaEdgeCount() < 2 * nodes);
+        assertEquals(2 * nodes, count(graph.getAllEdges()));
+        assertEquals(nodes, new Dijkstra(graph.snapshot(), DISTANCE).calcPath(0, nodes).getWeight(), 1e-9);
+    }
+}
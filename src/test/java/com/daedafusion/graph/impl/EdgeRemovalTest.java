@@ -0,0 +1,151 @@
+package com.daedafusion.graph.impl;
+
+import com.daedafusion.graph.routing.Dijkstra;
+import com.daedafusion.graph.routing.util.Weighting;
+import com.daedafusion.graph.storage.Graph;
+import com.daedafusion.graph.util.Edge;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Iterator;
+
+import static org.junit.Assert.*;
+
+public class EdgeRemovalTest
+{
+    private static final Weighting DISTANCE = new Weighting()
+    {
+        @Override
+        public double getMinWeight( double distance )
+        {
+            return distance;
+        }
+
+        @Override
+        public double calcWeight( Edge edge )
+        {
+            return edge.getDistance();
+        }
+    };
+
+    private static <T extends Graph> T fill( T graph )
+    {
+        graph.edge(1, 0, 2, 1);
+        graph.edge(2, 0, 3, 1);
+        graph.edge(1, 1, 4, 3);
+        graph.edge(4, 1, 3, 3);
+        graph.edge(3, 0, 3, 1);
+        return graph;
+    }
+
+    private static int count( Iterator<Edge> iter )
+    {
+        int count = 0;
+        while (iter.hasNext())
+        {
+            iter.next();
+            count++;
+        }
+        return count;
+    }
+
+    private static void assertRemoval( Graph graph )
+    {
+        long removed = DefaultEdge.createEdgeId(2, 0, 3);
+        assertTrue(graph.removeEdge(removed));
+        assertFalse(graph.removeEdge(removed));
+        assertNull(graph.getEdge(removed));
+        assertEquals(4, count(graph.getAllEdges()));
+        assertEquals(1, count(graph.createEdgeExplorer(null).setBaseNode(2)));
+        assertEquals(2, graph.getNodeAccess().getEdges(3).size());
+        assertEquals(6, new Dijkstra(graph, DISTANCE).calcPath(1, 3).getWeight(), 1e-9);
+
+        long updated = DefaultEdge.createEdgeId(4, 1, 3);
+        assertTrue(graph.updateDistance(updated, 0.5));
+        assertFalse(graph.updateDistance(removed, 0.5));
+        assertEquals(0.5, graph.getEdge(updated).getDistance(), 0);
+        assertEquals(2, graph.getNodeAccess().getEdges(4).size());
+        assertEquals(3.5, new Dijkstra(graph, DISTANCE).calcPath(1, 3).getWeight(), 1e-9);
+
+        // adding it again
+        graph.edge(2, 0, 3, 1);
+        assertEquals(2, new Dijkstra(graph, DISTANCE).calcPath(1, 3).getWeight(), 1e-9);
+        assertEquals(5, count(graph.getAllEdges()));
+    }
+
+    @Test
+    public void testDefaultMemoryGraph()
+    {
+        DefaultMemoryGraph graph = fill(new DefaultMemoryGraph());
+        assertRemoval(graph);
+
+        Iterator<Edge> iter = graph.createEdgeExplorer(null).setBaseNode(1);
+        while (iter.hasNext())
+        {
+            iter.next();
+            iter.remove();
+        }
+        assertEquals(0, graph.getNodeAccess().getEdges(1).size());
+        assertEquals(3, count(graph.getAllEdges()));
+    }
+
+    @Test
+    public void testCompactGraph() throws Exception
+    {
+        CompactGraph graph = fill(new CompactGraph());
+        graph.setNode(3, 49, 11);
+        assertRemoval(graph);
+        assertEquals(1, graph.getRemovedEdgeCount());
+        assertEquals(6, graph.getEdgeCount());
+        assertTrue(graph.isEdgeRemoved(1));
+
+        // the predicate layout skips tombstones
+        assertTrue(graph.removeEdge(DefaultEdge.createEdgeId(1, 1, 4)));
+        Iterator<Edge> iter = graph.createEdgeExplorer(new PredicateEdgeFilter(graph, 1)).setBaseNode(1);
+        assertFalse(iter.hasNext());
+        iter = graph.createEdgeExplorer(new PredicateEdgeFilter(graph, 1)).setBaseNode(3);
+        assertEquals(4, iter.next().getSubject());
+        assertFalse(iter.hasNext());
+        assertEquals(2, count(graph.createEdgeExplorer(new PredicateEdgeFilter(graph, 0)).setBaseNode(3)));
+
+        CompactGraph compacted = graph.compact();
+        assertEquals(4, compacted.getEdgeCount());
+        assertEquals(0, compacted.getRemovedEdgeCount());
+        assertEquals(graph.getNodeCount(), compacted.getNodeCount());
+        assertEquals(49, compacted.getNodeAccess().getLatitude(3), 1e-6);
+        assertEquals(2, new Dijkstra(compacted, DISTANCE).calcPath(1, 3).getWeight(), 1e-9);
+        // the original is untouched
+        assertEquals(6, graph.getEdgeCount());
+
+        File file = File.createTempFile("removal", ".snapshot");
+        try
+        {
+            new GraphSnapshot().write(graph, file);
+            CompactGraph read = new GraphSnapshot().read(file);
+            assertEquals(4, read.getEdgeCount());
+            assertNull(read.getEdge(DefaultEdge.createEdgeId(1, 1, 4)));
+        } finally
+        {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testConcurrentGraph()
+    {
+        ConcurrentGraph graph = new ConcurrentGraph(fill(new CompactGraph()));
+        Graph before = graph.snapshot();
+        assertRemoval(graph);
+        assertEquals(5, count(before.getAllEdges()));
+        assertNotNull(before.getEdge(DefaultEdge.createEdgeId(2, 0, 3)));
+
+        graph.removeEdge(DefaultEdge.createEdgeId(1, 1, 4));
+        Graph removed = graph.snapshot();
+        assertTrue(graph.compact());
+        Graph after = graph.snapshot();
+        assertEquals(4, count(after.getAllEdges()));
+        assertEquals(count(removed.getAllEdges()), count(after.getAllEdges()));
+        assertNull(after.getEdge(DefaultEdge.createEdgeId(1, 1, 4)));
+        assertEquals(5, count(before.getAllEdges()));
+    }
+}
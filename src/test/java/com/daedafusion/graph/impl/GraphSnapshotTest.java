@@ -0,0 +1,167 @@
+package com.daedafusion.graph.impl;
+
+import com.daedafusion.graph.storage.Graph;
+import com.daedafusion.graph.util.Edge;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Iterator;
+
+import static org.junit.Assert.*;
+
+public class GraphSnapshotTest
+{
+    private File file;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        file = File.createTempFile("graph", ".snapshot");
+    }
+
+    @After
+    public void tearDown()
+    {
+        file.delete();
+    }
+
+    private Graph createGraph()
+    {
+        Graph graph = new DefaultMemoryGraph();
+        for (int i = 0; i < 500; i++)
+        {
+            graph.edge(i, i % 7, (i * 31) % 500, i * 0.5);
+            graph.edge(i, 100000L + i % 3, i + 1, 1);
+        }
+        graph.edge(-5, Long.MAX_VALUE, Long.MIN_VALUE + 1, 2.5);
+        return graph;
+    }
+
+    private void assertSameEdges( Graph expected, Graph actual )
+    {
+        int count = 0;
+        Iterator<Edge> iter = expected.getAllEdges();
+        while (iter.hasNext())
+        {
+            Edge e = iter.next();
+            Edge other = actual.getEdge(e.getEdgeId());
+            assertNotNull(e.toString(), other);
+            assertEquals(e.getSubject(), other.getSubject());
+            assertEquals(e.getPredicate(), other.getPredicate());
+            assertEquals(e.getObject(), other.getObject());
+            assertEquals(e.getDistance(), other.getDistance(), 0);
+            count++;
+        }
+
+        iter = actual.getAllEdges();
+        while (iter.hasNext())
+        {
+            iter.next();
+            count--;
+        }
+        assertEquals(0, count);
+    }
+
+    @Test
+    public void testTriplesWithSameDigits() throws IOException
+    {
+        // the decimal digits of both triples concatenate to 1234
+        assertNotEquals(DefaultEdge.createEdgeId(1, 2, 34), DefaultEdge.createEdgeId(12, 3, 4));
+        for (Graph graph : new Graph[]{new CompactGraph(), new DefaultMemoryGraph(), new ConcurrentGraph()})
+        {
+            graph.edge(1, 2, 34, 5);
+            graph.edge(12, 3, 4, 7);
+            assertEquals(5, graph.getEdge(DefaultEdge.createEdgeId(1, 2, 34)).getDistance(), 0);
+            assertEquals(7, graph.getEdge(DefaultEdge.createEdgeId(12, 3, 4)).getDistance(), 0);
+
+            new GraphSnapshot().write(graph, file);
+            assertSameEdges(graph, new GraphSnapshot().read(file));
+        }
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException
+    {
+        Graph graph = createGraph();
+        new GraphSnapshot().setCompress(false).write(graph, file);
+        CompactGraph loaded = new GraphSnapshot().read(file);
+        assertSameEdges(graph, loaded);
+        assertFalse(loaded.hasCoordinates());
+    }
+
+    @Test
+    public void testCompressedSmallBlocks() throws IOException
+    {
+        Graph graph = createGraph();
+        new GraphSnapshot().setCompress(false).write(graph, file);
+        long uncompressed = file.length();
+
+        new GraphSnapshot().setCompress(true).setBlockSize(128).write(graph, file);
+        assertSameEdges(graph, new GraphSnapshot().read(file));
+
+        new GraphSnapshot().setCompress(true).write(graph, file);
+        assertTrue(file.length() < uncompressed);
+        assertSameEdges(graph, new GraphSnapshot().read(file));
+    }
+
+    @Test
+    public void testCoordinates() throws IOException
+    {
+        CompactGraph graph = new CompactGraph();
+        graph.edge(1, 0, 2, 3);
+        graph.setNode(1, 50.1, 9.2);
+        graph.setNode(2, -33.9, 151.2);
+        graph.setNode(3, 10, -20);
+
+        new GraphSnapshot().write(graph, file);
+        CompactGraph loaded = new GraphSnapshot().read(file);
+        assertTrue(loaded.hasCoordinates());
+        assertEquals(3, loaded.getNodeCount());
+        assertEquals(50.1, loaded.getNodeAccess().getLatitude(1), 1e-6);
+        assertEquals(151.2, loaded.getNodeAccess().getLongitude(2), 1e-6);
+        assertEquals(-20, loaded.getNodeAccess().getLongitude(3), 1e-6);
+        assertFalse(loaded.hasElevation());
+
+        graph.setNode(2, -33.9, 151.2, 58.5);
+        new GraphSnapshot().write(graph, file);
+        loaded = new GraphSnapshot().read(file);
+        assertTrue(loaded.getNodeAccess().is3D());
+        assertEquals(58.5, loaded.getNodeAccess().getElevation(2), 1e-3);
+        assertEquals(0, loaded.getNodeAccess().getElevation(1), 1e-3);
+
+        graph.edge(2, 0, 4, 1);
+        new GraphSnapshot().write(graph, file);
+        loaded = new GraphSnapshot().read(file);
+        assertFalse(loaded.getNodeAccess().hasCoordinates(4));
+        assertTrue(loaded.getNodeAccess().hasCoordinates(3));
+        assertEquals(-20, loaded.getNodeAccess().getLongitude(3), 1e-6);
+        assertEquals(58.5, loaded.getNodeAccess().getElevation(2), 1e-3);
+        assertFalse(loaded.compact().getNodeAccess().hasCoordinates(4));
+    }
+
+    @Test
+    public void testCorruptionDetected() throws IOException
+    {
+        new GraphSnapshot().setCompress(false).write(createGraph(), file);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw"))
+        {
+            raf.seek(file.length() / 2);
+            int b = raf.read();
+            raf.seek(file.length() / 2);
+            raf.write(b ^ 0xFF);
+        }
+
+        try
+        {
+            new GraphSnapshot().read(file);
+            fail("corrupt snapshot was loaded");
+        } catch (IOException ex)
+        {
+            assertTrue(ex.getMessage(), ex.getMessage().contains("Checksum"));
+        }
+    }
+}
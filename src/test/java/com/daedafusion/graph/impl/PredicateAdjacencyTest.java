@@ -0,0 +1,98 @@
+package com.daedafusion.graph.impl;
+
+import com.daedafusion.graph.util.Edge;
+import com.daedafusion.graph.util.Traversal;
+import gnu.trove.set.TIntSet;
+import gnu.trove.set.hash.TIntHashSet;
+import org.junit.Test;
+
+import java.util.Iterator;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PredicateAdjacencyTest
+{
+    private static TIntSet collect( Iterator<Edge> iter )
+    {
+        TIntSet result = new TIntHashSet();
+        while (iter.hasNext())
+        {
+            assertTrue("edge returned twice", result.add(((CompactEdge) iter.next()).getEdgeIndex()));
+        }
+        return result;
+    }
+
+    @Test
+    public void testSameEdgesAsFilteredScan()
+    {
+        Random rand = new Random(42);
+        CompactGraph graph = new CompactGraph();
+        for (int i = 0; i < 2000; i++)
+        {
+            // node 0 is a hub with many predicates
+            long subject = rand.nextInt(4) == 0 ? 0 : rand.nextInt(100);
+            graph.edge(subject, rand.nextInt(30), rand.nextInt(100), 1);
+        }
+        graph.edge(7, 3, 7, 1);
+
+        long[][] predicateSets = {{3}, {3, 4}, {1, 5, 9, 11, 13, 17, 19, 23, 29}, {}, {1000}};
+        for (long[] predicates : predicateSets)
+        {
+            PredicateEdgeFilter filter = new PredicateEdgeFilter(graph, predicates);
+            CompactEdgeIterator scan = new CompactEdgeIterator(graph, filter);
+            PredicateEdgeIterator partitioned = (PredicateEdgeIterator) graph.createEdgeExplorer(filter);
+            for (long node = -1; node < 100; node++)
+            {
+                assertEquals("node " + node, collect(scan.setBaseNode(node)), collect(partitioned.setBaseNode(node)));
+            }
+        }
+    }
+
+    @Test
+    public void testRebuiltAfterInsert()
+    {
+        CompactGraph graph = new CompactGraph();
+        graph.edge(0, 1, 1);
+        PredicateEdgeFilter filter = new PredicateEdgeFilter(graph, 1, 2);
+        Iterator<Edge> iter = graph.createEdgeExplorer(filter).setBaseNode(0);
+        assertEquals(1, collect(iter).size());
+
+        graph.edge(0, 2, 2);
+        graph.edge(0, 3, 3);
+        assertEquals(2, collect(graph.createEdgeExplorer(filter).setBaseNode(0)).size());
+    }
+
+    @Test
+    public void testRebuiltAfterNodeWithoutEdges()
+    {
+        CompactGraph graph = new CompactGraph();
+        graph.edge(0, 7, 1);
+        graph.edge(1, 7, 2);
+        PredicateEdgeFilter filter = new PredicateEdgeFilter(graph, 7);
+        assertEquals(1, collect(graph.createEdgeExplorer(filter, Traversal.FORWARD).setBaseNode(0)).size());
+
+        graph.setNode(100, 1, 2);
+        graph.addNode(101);
+        assertTrue(collect(graph.createEdgeExplorer(filter, Traversal.FORWARD).setBaseNode(100)).isEmpty());
+        assertTrue(collect(graph.createEdgeExplorer(filter, Traversal.REVERSE).setBaseNode(101)).isEmpty());
+        assertEquals(2, collect(graph.createEdgeExplorer(filter).setBaseNode(1)).size());
+    }
+
+    @Test
+    public void testLayout()
+    {
+        CompactGraph graph = new CompactGraph();
+        graph.edge(5, 2, 6);
+        graph.edge(5, 1, 7);
+        graph.edge(5, 2, 8);
+        graph.edge(9, 1, 5);
+
+        PredicateAdjacency.Layout out = graph.getPredicateAdjacency().getOut();
+        int node = graph.getNodeIndex(5);
+        assertEquals(2, out.nodeGroups[node + 1] - out.nodeGroups[node]);
+        int group = out.findGroup(out.nodeGroups[node], out.nodeGroups[node + 1], graph.getPredicateIndex(2));
+        assertEquals(2, out.groupEdges[group + 1] - out.groupEdges[group]);
+        assertTrue(out.findGroup(out.nodeGroups[node], out.nodeGroups[node + 1], 99) < 0);
+    }
+}
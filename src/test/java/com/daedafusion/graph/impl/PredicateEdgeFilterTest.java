@@ -0,0 +1,110 @@
+package com.daedafusion.graph.impl;
+
+import com.daedafusion.graph.routing.Dijkstra;
+import com.daedafusion.graph.routing.Path;
+import com.daedafusion.graph.routing.QueryStats;
+import com.daedafusion.graph.routing.util.Weighting;
+import com.daedafusion.graph.util.Edge;
+import com.daedafusion.graph.util.EdgeFilter;
+import org.junit.Test;
+
+import java.util.Iterator;
+
+import static com.daedafusion.graph.routing.AbstractRoutingTester.createTList;
+import static org.junit.Assert.*;
+
+public class PredicateEdgeFilterTest
+{
+    private static final long KNOWS = 10;
+    private static final long WORKS_FOR = 11;
+    private static final long TYPE = 12;
+
+    private final Weighting distanceWeighting = new Weighting()
+    {
+        @Override
+        public double getMinWeight(double distance)
+        {
+            return 0;
+        }
+
+        @Override
+        public double calcWeight(Edge edge)
+        {
+            return edge.getDistance();
+        }
+    };
+
+    private CompactGraph createGraph()
+    {
+        CompactGraph graph = new CompactGraph();
+        graph.edge(0, TYPE, 3, 1);
+        graph.edge(3, TYPE, 2, 1);
+        graph.edge(0, KNOWS, 1, 2);
+        graph.edge(1, WORKS_FOR, 2, 2);
+        return graph;
+    }
+
+    @Test
+    public void testAccept()
+    {
+        CompactGraph graph = createGraph();
+        PredicateEdgeFilter filter = new PredicateEdgeFilter(graph, KNOWS, WORKS_FOR, 99);
+
+        assertTrue(filter.accept(graph.getEdge(DefaultEdge.createEdgeId(0, KNOWS, 1))));
+        assertFalse(filter.accept(graph.getEdge(DefaultEdge.createEdgeId(0, TYPE, 3))));
+        // edges of other graphs are resolved through the predicate dictionary
+        assertTrue(filter.accept(new DefaultEdge(5, WORKS_FOR, 6)));
+        assertFalse(filter.accept(new DefaultEdge(5, TYPE, 6)));
+
+        // predicate unknown while compiling
+        assertFalse(filter.accept(new DefaultEdge(5, 99, 6)));
+        graph.edge(5, 99, 6);
+        assertTrue(filter.accept(graph.getEdge(DefaultEdge.createEdgeId(5, 99, 6))));
+    }
+
+    @Test
+    public void testExplorerSkipsRejected()
+    {
+        CompactGraph graph = createGraph();
+        Iterator<Edge> iter = graph.createEdgeExplorer(new PredicateEdgeFilter(graph, TYPE)).setBaseNode(0);
+        assertTrue(iter.hasNext());
+        assertEquals(TYPE, iter.next().getPredicate());
+        assertFalse(iter.hasNext());
+    }
+
+    @Test
+    public void testRouting()
+    {
+        CompactGraph graph = createGraph();
+        Path p = new Dijkstra(graph, distanceWeighting).calcPath(0, 2);
+        assertEquals(createTList(0, 3, 2), p.calcNodes());
+
+        Dijkstra dijkstra = new Dijkstra(graph, distanceWeighting);
+        dijkstra.setEdgeFilter(new PredicateEdgeFilter(graph, KNOWS, WORKS_FOR));
+        p = dijkstra.calcPath(0, 2);
+        assertEquals(createTList(0, 1, 2), p.calcNodes());
+        assertEquals(4, p.getWeight(), 1e-6);
+    }
+
+    @Test
+    public void testGenericFilterEvaluatedOnce()
+    {
+        CompactGraph graph = createGraph();
+        final int[] calls = new int[1];
+        QueryStats stats = new QueryStats();
+        Dijkstra dijkstra = new Dijkstra(graph, distanceWeighting);
+        dijkstra.setQueryStats(stats);
+        dijkstra.setEdgeFilter(new EdgeFilter()
+        {
+            @Override
+            public boolean accept(Edge edge)
+            {
+                calls[0]++;
+                return edge.getPredicate() != TYPE;
+            }
+        });
+        Path p = dijkstra.calcPath(0, 2);
+        assertEquals(createTList(0, 1, 2), p.calcNodes());
+        assertEquals(stats.getEdgesScanned(), calls[0]);
+    }
+}
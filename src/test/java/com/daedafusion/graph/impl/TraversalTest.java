@@ -0,0 +1,139 @@
+package com.daedafusion.graph.impl;
+
+import com.daedafusion.graph.routing.Dijkstra;
+import com.daedafusion.graph.routing.DijkstraBidirectionRef;
+import com.daedafusion.graph.routing.util.Weighting;
+import com.daedafusion.graph.storage.Graph;
+import com.daedafusion.graph.util.Edge;
+import com.daedafusion.graph.util.EdgeExplorer;
+import com.daedafusion.graph.util.EdgeFilter;
+import com.daedafusion.graph.util.Traversal;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TraversalTest
+{
+    private static final Weighting DISTANCE = new Weighting()
+    {
+        @Override
+        public double getMinWeight( double distance )
+        {
+            return distance;
+        }
+
+        @Override
+        public double calcWeight( Edge edge )
+        {
+            return edge.getDistance();
+        }
+    };
+
+    /**
+     * Node 1 has one incoming edge, a self loop and two outgoing edges.
+     */
+    private static void addEdges( Graph graph )
+    {
+        graph.edge(1, 0, 2, 1);
+        graph.edge(3, 0, 1, 1);
+        graph.edge(1, 1, 1, 1);
+        graph.edge(1, 1, 4, 1);
+    }
+
+    private static List<Long> adjNodes( Graph graph, EdgeFilter filter, Traversal traversal, long base )
+    {
+        List<Long> result = new ArrayList<>();
+        EdgeExplorer explorer = graph.createEdgeExplorer(filter, traversal);
+        Iterator<Edge> iter = explorer.setBaseNode(base);
+        while (iter.hasNext())
+        {
+            Edge e = iter.next();
+            assertTrue(traversal.accept(e, base));
+            assertEquals(traversal.getAdjNode(e, base), explorer.getAdjNode());
+            result.add(explorer.getAdjNode());
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    private static void assertTraversals( Graph graph, EdgeFilter filter )
+    {
+        assertEquals(Arrays.asList(1L, 2L, 4L), adjNodes(graph, filter, Traversal.FORWARD, 1));
+        assertEquals(Arrays.asList(1L, 3L), adjNodes(graph, filter, Traversal.REVERSE, 1));
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L), adjNodes(graph, filter, Traversal.UNDIRECTED, 1));
+        assertEquals(Arrays.asList(1L), adjNodes(graph, filter, Traversal.REVERSE, 2));
+        assertTrue(adjNodes(graph, filter, Traversal.FORWARD, 2).isEmpty());
+        assertTrue(adjNodes(graph, filter, Traversal.FORWARD, 99).isEmpty());
+    }
+
+    @Test
+    public void testExplorers()
+    {
+        CompactGraph compact = new CompactGraph();
+        addEdges(compact);
+        assertTraversals(compact, null);
+        assertTraversals(compact, new PredicateEdgeFilter(compact, 0, 1));
+        assertEquals(Arrays.asList(1L, 4L), adjNodes(compact, new PredicateEdgeFilter(compact, 1), Traversal.FORWARD, 1));
+        assertEquals(Arrays.asList(1L), adjNodes(compact, new PredicateEdgeFilter(compact, 1), Traversal.REVERSE, 1));
+
+        DefaultMemoryGraph memory = new DefaultMemoryGraph();
+        addEdges(memory);
+        assertTraversals(memory, null);
+        // the forward explorer iterates the stored set of outgoing edges while removing from it
+        Iterator<Edge> iter = memory.createEdgeExplorer(null, Traversal.FORWARD).setBaseNode(1);
+        int removed = 0;
+        while (iter.hasNext())
+        {
+            iter.next();
+            iter.remove();
+            removed++;
+        }
+        assertEquals(3, removed);
+        assertEquals(Arrays.asList(3L), adjNodes(memory, null, Traversal.REVERSE, 1));
+        assertTrue(adjNodes(memory, null, Traversal.FORWARD, 1).isEmpty());
+
+        // edges split between the base and the delta
+        CompactGraph base = new CompactGraph();
+        base.edge(1, 0, 2, 1);
+        base.edge(1, 1, 1, 1);
+        ConcurrentGraph concurrent = new ConcurrentGraph(base);
+        concurrent.edge(3, 0, 1, 1);
+        concurrent.edge(1, 1, 4, 1);
+        assertTraversals(concurrent, null);
+    }
+
+    @Test
+    public void testSearchDirections()
+    {
+        CompactGraph graph = new CompactGraph();
+        graph.edge(1, 0, 2, 1);
+        graph.edge(2, 0, 3, 1);
+        graph.edge(3, 0, 4, 1);
+        graph.edge(1, 0, 4, 5);
+        graph.edge(5, 0, 4, 1);
+
+        assertEquals(3, new Dijkstra(graph, DISTANCE).calcPath(1, 4).getWeight(), 1e-9);
+        assertEquals(3, new DijkstraBidirectionRef(graph, DISTANCE).calcPath(1, 4).getWeight(), 1e-9);
+        assertFalse(new Dijkstra(graph, DISTANCE).calcPath(4, 1).isFound());
+
+        // a reverse search from the target finds the same weight
+        Dijkstra reverse = new Dijkstra(graph, DISTANCE);
+        reverse.setTraversal(Traversal.REVERSE);
+        assertEquals(3, reverse.calcPath(4, 1).getWeight(), 1e-9);
+
+        Dijkstra undirected = new Dijkstra(graph, DISTANCE);
+        undirected.setTraversal(Traversal.UNDIRECTED);
+        assertTrue(undirected.isFollowIncoming());
+        assertEquals(4, undirected.calcPath(1, 5).getWeight(), 1e-9);
+
+        DijkstraBidirectionRef bidir = new DijkstraBidirectionRef(graph, DISTANCE);
+        bidir.setTraversal(Traversal.UNDIRECTED);
+        assertEquals(4, bidir.calcPath(5, 1).getWeight(), 1e-9);
+    }
+}
@@ -0,0 +1,127 @@
+package com.daedafusion.graph.impl;
+
+import com.daedafusion.graph.routing.AStar;
+import com.daedafusion.graph.routing.Dijkstra;
+import com.daedafusion.graph.routing.DijkstraBidirectionRef;
+import com.daedafusion.graph.routing.Path;
+import com.daedafusion.graph.routing.util.Weighting;
+import com.daedafusion.graph.util.Edge;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class WeightCacheTest
+{
+    /**
+     * Doubles the distance of predicate 1 and counts its calls.
+     */
+    private static class CountingWeighting implements Weighting
+    {
+        int calls;
+
+        @Override
+        public double getMinWeight( double distance )
+        {
+            return distance;
+        }
+
+        @Override
+        public double calcWeight( Edge edge )
+        {
+            calls++;
+            return edge.getPredicate() == 1 ? edge.getDistance() * 2 : edge.getDistance();
+        }
+    }
+
+    private static CompactGraph createGraph()
+    {
+        CompactGraph graph = new CompactGraph();
+        graph.edge(1, 0, 2, 1);
+        graph.edge(2, 1, 3, 1);
+        graph.edge(1, 0, 4, 1.5);
+        graph.edge(4, 0, 3, 1);
+        return graph;
+    }
+
+    @Test
+    public void testAlgorithmsUseCachedWeights()
+    {
+        CompactGraph graph = createGraph();
+        CountingWeighting weighting = new CountingWeighting();
+        graph.getWeightCache().register("custom", weighting);
+        assertEquals(4, weighting.calls);
+        assertSame(weighting, graph.getWeightCache().getWeighting("custom"));
+
+        Path p = new Dijkstra(graph, weighting).calcPath(1, 3);
+        assertEquals(2.5, p.getWeight(), 1e-9);
+        p = new DijkstraBidirectionRef(graph, weighting).calcPath(1, 3);
+        assertEquals(2.5, p.getWeight(), 1e-9);
+        p = new AStar(graph, weighting).calcPath(1, 3);
+        assertEquals(2.5, p.getWeight(), 1e-9);
+        assertEquals(4, weighting.calls);
+
+        // not registered
+        CountingWeighting other = new CountingWeighting();
+        new Dijkstra(graph, other).calcPath(1, 3);
+        assertTrue(other.calls > 0);
+    }
+
+    @Test
+    public void testMultipleWeightings()
+    {
+        CompactGraph graph = createGraph();
+        CountingWeighting custom = new CountingWeighting();
+        Weighting uniform = new Weighting()
+        {
+            @Override
+            public double getMinWeight( double distance )
+            {
+                return 0;
+            }
+
+            @Override
+            public double calcWeight( Edge edge )
+            {
+                return 1;
+            }
+        };
+        WeightCache cache = graph.getWeightCache();
+        cache.register("custom", custom);
+        cache.register("uniform", uniform);
+        assertEquals(2, cache.getNames().size());
+        assertArrayEquals(new double[]{1, 2, 1.5, 1}, cache.getWeights("custom"), 1e-9);
+        assertArrayEquals(new double[]{1, 1, 1, 1}, cache.getWeights(uniform), 1e-9);
+
+        cache.remove("uniform");
+        assertNull(cache.getWeights(uniform));
+    }
+
+    @Test
+    public void testInvalidation()
+    {
+        CompactGraph graph = createGraph();
+        CountingWeighting weighting = new CountingWeighting();
+        WeightCache cache = graph.getWeightCache();
+        cache.register("custom", weighting);
+
+        // appended edges are computed additionally
+        graph.edge(3, 1, 5, 2);
+        assertEquals(4, cache.getWeights(weighting)[4], 1e-9);
+        assertEquals(5, weighting.calls);
+
+        // a changed distance recomputes everything
+        graph.edge(1, 0, 4, 5);
+        assertEquals(5, cache.getWeights("custom")[2], 1e-9);
+        assertEquals(10, weighting.calls);
+        assertEquals(3, new Dijkstra(graph, weighting).calcPath(1, 3).getWeight(), 1e-9);
+
+        // unchanged distances keep the cache
+        graph.edge(1, 0, 4, 5);
+        cache.getWeights(weighting);
+        assertEquals(10, weighting.calls);
+
+        cache.invalidate();
+        cache.getWeights(weighting);
+        assertEquals(15, weighting.calls);
+    }
+}
@@ -0,0 +1,138 @@
+package com.daedafusion.graph.partition;
+
+import com.daedafusion.graph.impl.CompactGraph;
+import com.daedafusion.graph.routing.Dijkstra;
+import com.daedafusion.graph.routing.Path;
+import com.daedafusion.graph.routing.util.Weighting;
+import com.daedafusion.graph.util.Edge;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class MultiLevelDijkstraTest
+{
+    private static final Weighting DISTANCE = new Weighting()
+    {
+        @Override
+        public double getMinWeight( double distance )
+        {
+            return distance;
+        }
+
+        @Override
+        public double calcWeight( Edge edge )
+        {
+            return edge.getDistance();
+        }
+    };
+
+    // penalizes the edges of every third node
+    private static final Weighting PENALTY = new Weighting()
+    {
+        @Override
+        public double getMinWeight( double distance )
+        {
+            return distance;
+        }
+
+        @Override
+        public double calcWeight( Edge edge )
+        {
+            return edge.getSubject() % 3 == 0 ? edge.getDistance() * 5 : edge.getDistance();
+        }
+    };
+
+    private static void assertPath( CompactGraph graph, Weighting weighting, MultiLevelDijkstra search, long from, long to )
+    {
+        Path expected = new Dijkstra(graph, weighting).calcPath(from, to);
+        Path actual = search.calcPath(from, to);
+        assertEquals(from + "->" + to, expected.isFound(), actual.isFound());
+        if (!expected.isFound())
+        {
+            assertEquals(Double.POSITIVE_INFINITY, search.calcWeight(from, to), 0);
+            return;
+        }
+
+        assertEquals(from + "->" + to, expected.getWeight(), actual.getWeight(), 1e-9);
+        assertEquals(expected.getWeight(), search.calcWeight(from, to), 1e-9);
+        assertEquals(from, actual.getNode(0));
+        assertEquals(to, actual.getNode(actual.getEdgeCount()));
+        double weight = 0;
+        for (int i = 0; i < actual.getEdgeCount(); i++)
+        {
+            Edge e = actual.getEdge(i);
+            assertEquals(actual.getNode(i), e.getSubject());
+            assertEquals(actual.getNode(i + 1), e.getObject());
+            weight += weighting.calcWeight(e);
+        }
+        assertEquals(expected.getWeight(), weight, 1e-9);
+    }
+
+    @Test
+    public void testSameAsDijkstra()
+    {
+        CompactGraph graph = PartitionedGraphTest.createGrid(24, 7);
+        MultiLevelPartition partition = MultiLevelPartition.create(graph, 32, 8, 2);
+        assertEquals(3, partition.getLevelCount());
+        for (int level = 1; level < 3; level++)
+        {
+            // boundary nodes of a level are boundary nodes of the levels below
+            assertTrue(partition.getBoundaryNodeCount(level) <= partition.getBoundaryNodeCount(level - 1));
+        }
+
+        MultiLevelDijkstra search = new MultiLevelDijkstra(MultiLevelOverlay.customize(partition, DISTANCE, 1));
+        Random rand = new Random(8);
+        for (int i = 0; i < 300; i++)
+        {
+            assertPath(graph, DISTANCE, search, rand.nextInt(576), rand.nextInt(576));
+        }
+        assertPath(graph, DISTANCE, search, 5, 5);
+        assertFalse(search.calcPath(0, 1000).isFound());
+    }
+
+    @Test
+    public void testCustomizeAnotherWeighting()
+    {
+        CompactGraph graph = PartitionedGraphTest.createGrid(20, 9);
+        MultiLevelPartition partition = MultiLevelPartition.create(graph, 16, 4);
+        MultiLevelOverlay sequential = MultiLevelOverlay.customize(partition, PENALTY, 1);
+        MultiLevelOverlay parallel = MultiLevelOverlay.customize(partition, PENALTY, 4);
+        for (int level = 0; level < partition.getLevelCount(); level++)
+        {
+            for (int cell = 0; cell < partition.getCellCount(level); cell++)
+            {
+                int size = partition.getBoundary(level, cell).length;
+                for (int i = 0; i < size * size; i++)
+                {
+                    assertEquals(sequential.getBoundaryWeight(level, cell, i / size, i % size),
+                            parallel.getBoundaryWeight(level, cell, i / size, i % size), 0);
+                }
+            }
+        }
+
+        MultiLevelDijkstra search = new MultiLevelDijkstra(parallel);
+        Random rand = new Random(10);
+        for (int i = 0; i < 200; i++)
+        {
+            assertPath(graph, PENALTY, search, rand.nextInt(400), rand.nextInt(400));
+        }
+    }
+
+    @Test
+    public void testSettlesFewerNodes()
+    {
+        CompactGraph graph = PartitionedGraphTest.createGrid(40, 11);
+        MultiLevelDijkstra search = new MultiLevelDijkstra(
+                MultiLevelOverlay.customize(MultiLevelPartition.create(graph, 64, 8), DISTANCE, 2));
+        search.calcWeight(0, 1599);
+        assertTrue("settled " + search.getSettledCount(), search.getSettledCount() < 800);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCellCountsMustDecrease()
+    {
+        MultiLevelPartition.create(PartitionedGraphTest.createGrid(5, 1), 4, 4);
+    }
+}
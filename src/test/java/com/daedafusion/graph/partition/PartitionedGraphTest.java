@@ -0,0 +1,236 @@
+package com.daedafusion.graph.partition;
+
+import com.daedafusion.graph.impl.CompactGraph;
+import com.daedafusion.graph.routing.Dijkstra;
+import com.daedafusion.graph.routing.Path;
+import com.daedafusion.graph.routing.util.Weighting;
+import com.daedafusion.graph.storage.Graph;
+import com.daedafusion.graph.util.Edge;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PartitionedGraphTest
+{
+    private static final Weighting DISTANCE = new Weighting()
+    {
+        @Override
+        public double getMinWeight( double distance )
+        {
+            return distance;
+        }
+
+        @Override
+        public double calcWeight( Edge edge )
+        {
+            return edge.getDistance();
+        }
+    };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Grid with random distances, a few streets are one way. Shared by the routing tests.
+     */
+    public static CompactGraph createGrid( int size, long seed )
+    {
+        Random rand = new Random(seed);
+        CompactGraph graph = new CompactGraph();
+        for (int y = 0; y < size; y++)
+        {
+            for (int x = 0; x < size; x++)
+            {
+                long node = y * size + x;
+                graph.setNode(node, y * 0.01, x * 0.01);
+                if (x + 1 < size)
+                    connect(graph, rand, node, node + 1);
+                if (y + 1 < size)
+                    connect(graph, rand, node, node + size);
+            }
+        }
+        return graph;
+    }
+
+    private static void connect( CompactGraph graph, Random rand, long a, long b )
+    {
+        double distance = 1 + rand.nextInt(10);
+        int direction = rand.nextInt(10);
+        if (direction != 0)
+            graph.edge(a, 0, b, distance);
+        if (direction != 1)
+            graph.edge(b, 0, a, distance);
+    }
+
+    private static void assertPath( Graph full, PartitionedGraph partitioned, long from, long to )
+    {
+        Path expected = new Dijkstra(full, DISTANCE).calcPath(from, to);
+        Path actual = partitioned.calcPath(from, to);
+        assertEquals(from + "->" + to, expected.isFound(), actual.isFound());
+        if (!expected.isFound())
+            return;
+
+        assertEquals(from + "->" + to, expected.getWeight(), actual.getWeight(), 1e-9);
+        assertEquals(from, actual.getNode(0));
+        assertEquals(to, actual.getNode(actual.getEdgeCount()));
+        double weight = 0;
+        for (int i = 0; i < actual.getEdgeCount(); i++)
+        {
+            Edge e = actual.getEdge(i);
+            assertEquals(actual.getNode(i), e.getSubject());
+            assertEquals(actual.getNode(i + 1), e.getObject());
+            weight += e.getDistance();
+        }
+        assertEquals(expected.getWeight(), weight, 1e-9);
+    }
+
+    @Test
+    public void testSameAsDijkstra()
+    {
+        CompactGraph graph = createGrid(20, 1);
+        Random rand = new Random(2);
+        for (Partitioner partitioner : new Partitioner[]{new HashPartitioner(), new BalancedPartitioner()})
+        {
+            PartitionedGraph partitioned = PartitionedGraph.create(graph, partitioner, 4, DISTANCE);
+            assertEquals(4, partitioned.getShardCount());
+            for (int i = 0; i < 200; i++)
+            {
+                assertPath(graph, partitioned, rand.nextInt(400), rand.nextInt(400));
+            }
+            assertPath(graph, partitioned, 0, 0);
+            assertFalse(partitioned.calcPath(0, 1000).isFound());
+        }
+    }
+
+    @Test
+    public void testBalancedPartitioner()
+    {
+        CompactGraph graph = createGrid(30, 3);
+        int[] balanced = new BalancedPartitioner().partition(graph, 4);
+        int[] hashed = new HashPartitioner().partition(graph, 4);
+        int[] sizes = new int[4];
+        for (int shard : balanced)
+        {
+            sizes[shard]++;
+        }
+        for (int size : sizes)
+        {
+            assertTrue("size " + size, size >= 200 && size <= 232);
+        }
+        assertTrue(BalancedPartitioner.countCut(graph, balanced) * 5 < BalancedPartitioner.countCut(graph, hashed));
+    }
+
+    @Test
+    public void testGraphView()
+    {
+        CompactGraph graph = createGrid(10, 4);
+        PartitionedGraph partitioned = PartitionedGraph.create(graph, new BalancedPartitioner(), 3, DISTANCE);
+
+        int count = 0;
+        Iterator<Edge> iter = partitioned.getAllEdges();
+        while (iter.hasNext())
+        {
+            Edge e = iter.next();
+            assertNotEquals(PartitionedGraph.SHORTCUT, e.getPredicate());
+            assertNotNull(partitioned.getEdge(e.getEdgeId()));
+            count++;
+        }
+        assertEquals(graph.getEdgeCount(), count);
+
+        for (long node = 0; node < 100; node++)
+        {
+            assertEquals(graph.getNodeAccess().getEdges(node).size(), partitioned.getNodeAccess().getEdges(node).size());
+            assertEquals(graph.getNodeAccess().getLatitude(node), partitioned.getNodeAccess().getLatitude(node), 1e-6);
+        }
+
+        // the generic algorithms run on the view as well
+        assertEquals(new Dijkstra(graph, DISTANCE).calcPath(0, 99).getWeight(),
+                new Dijkstra(partitioned, DISTANCE).calcPath(0, 99).getWeight(), 1e-9);
+
+        try
+        {
+            partitioned.edge(1, 0, 2);
+            fail();
+        } catch (UnsupportedOperationException ex)
+        {
+        }
+    }
+
+    private static class ScaledWeighting implements Weighting
+    {
+        private final double factor;
+
+        ScaledWeighting( double factor )
+        {
+            this.factor = factor;
+        }
+
+        @Override
+        public double getMinWeight( double distance )
+        {
+            return distance * factor;
+        }
+
+        @Override
+        public double calcWeight( Edge edge )
+        {
+            return edge.getDistance() * factor;
+        }
+    }
+
+    @Test
+    public void testLoadChecksWeighting() throws Exception
+    {
+        PartitionedGraph partitioned = PartitionedGraph.create(createGrid(10, 3), new BalancedPartitioner(), 4,
+                new ScaledWeighting(2));
+        File dir = folder.newFolder();
+        partitioned.write(dir);
+
+        assertEquals(partitioned.calcPath(0, 99).getWeight(),
+                PartitionedGraph.load(dir, new ScaledWeighting(2)).calcPath(0, 99).getWeight(), 1e-9);
+        for (Weighting other : new Weighting[]{DISTANCE, new ScaledWeighting(3)})
+        {
+            try
+            {
+                PartitionedGraph.load(dir, other);
+                fail();
+            } catch (IllegalArgumentException ex)
+            {
+            }
+        }
+    }
+
+    @Test
+    public void testWriteAndLoadShardsLazily() throws Exception
+    {
+        CompactGraph graph = createGrid(20, 5);
+        PartitionedGraph partitioned = PartitionedGraph.create(graph, new BalancedPartitioner(), 4, DISTANCE);
+        File dir = folder.newFolder();
+        partitioned.write(dir);
+
+        PartitionedGraph loaded = PartitionedGraph.load(dir, DISTANCE);
+        LocalShardTransport transport = (LocalShardTransport) loaded.getTransport();
+        assertEquals(partitioned.getBoundaryNodeCount(), loaded.getBoundaryNodeCount());
+        for (int i = 0; i < 4; i++)
+        {
+            assertFalse(transport.isLoaded(i));
+        }
+
+        Path p = loaded.calcPath(0, 1);
+        assertTrue(p.isFound());
+        assertTrue(transport.isLoaded(loaded.getShard(0)));
+
+        Random rand = new Random(6);
+        for (int i = 0; i < 50; i++)
+        {
+            long from = rand.nextInt(400), to = rand.nextInt(400);
+            assertEquals(partitioned.calcPath(from, to).getWeight(), loaded.calcPath(from, to).getWeight(), 1e-9);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.daedafusion.graph.routing;
+
+import com.daedafusion.graph.impl.CompactGraph;
+import com.daedafusion.graph.impl.ConcurrentGraph;
+import com.daedafusion.graph.impl.DefaultMemoryGraph;
+import com.daedafusion.graph.routing.util.Weighting;
+import com.daedafusion.graph.storage.Graph;
+import com.daedafusion.graph.util.DistanceCalc;
+import com.daedafusion.graph.util.DistanceCalcEarth;
+import com.daedafusion.graph.util.Edge;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares the visited nodes of Dijkstra and AStar on a geo tagged grid to make sure the beeline
+ * heuristic is effective.
+ */
+public class AStarBeelineTest
+{
+    private static final int SIZE = 120;
+    private static final double STEP = 0.001;
+
+    private final Weighting weighting = new Weighting()
+    {
+        @Override
+        public double getMinWeight(double distance)
+        {
+            return distance;
+        }
+
+        @Override
+        public double calcWeight(Edge edge)
+        {
+            return edge.getDistance();
+        }
+    };
+
+    private static long node( int row, int col )
+    {
+        return row * SIZE + col;
+    }
+
+    /**
+     * Grid with horizontal, vertical and diagonal connections in both directions, edge distances are
+     * the great circle distances of the node coordinates.
+     */
+    static void fillGrid( Graph graph )
+    {
+        long[] nodes = new long[SIZE * SIZE];
+        double[] lats = new double[nodes.length];
+        double[] lons = new double[nodes.length];
+        for (int row = 0; row < SIZE; row++)
+        {
+            for (int col = 0; col < SIZE; col++)
+            {
+                int i = (int) node(row, col);
+                nodes[i] = i;
+                lats[i] = 48 + row * STEP;
+                lons[i] = 11 + col * STEP;
+            }
+        }
+        graph.setNodes(nodes, lats, lons, null);
+
+        DistanceCalc calc = new DistanceCalcEarth();
+        int[][] directions = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+        for (int row = 0; row < SIZE; row++)
+        {
+            for (int col = 0; col < SIZE; col++)
+            {
+                for (int[] d : directions)
+                {
+                    int r = row + d[0], c = col + d[1];
+                    if (r >= SIZE || c < 0 || c >= SIZE)
+                        continue;
+
+                    int a = (int) node(row, col), b = (int) node(r, c);
+                    double dist = calc.calcDist(lats[a], lons[a], lats[b], lons[b]);
+                    graph.edge(a, 0, b, dist);
+                    graph.edge(b, 0, a, dist);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCoordinates()
+    {
+        for (Graph graph : new Graph[]{new DefaultMemoryGraph(), new CompactGraph()})
+        {
+            assertFalse(graph.getNodeAccess().hasCoordinates());
+            graph.setNode(5, 48.1, 11.5);
+            graph.setNode(6, 48.2, 11.6, 520);
+            assertEquals(48.1, graph.getNodeAccess().getLatitude(5), 1e-6);
+            assertEquals(11.6, graph.getNodeAccess().getLongitude(6), 1e-6);
+            assertEquals(520, graph.getNodeAccess().getElevation(6), 1e-3);
+            assertEquals(0, graph.getNodeAccess().getElevation(5), 1e-3);
+            assertTrue(graph.getNodeAccess().is3D());
+            assertEquals(0, graph.getNodeAccess().getLatitude(99), 1e-6);
+        }
+    }
+
+    @Test
+    public void testPartialCoordinates()
+    {
+        for (Graph graph : new Graph[]{new DefaultMemoryGraph(), new CompactGraph(), new ConcurrentGraph()})
+        {
+            // node 2 has no coordinates and must not be taken for a node at 0,0
+            graph.setNode(1, 48.1, 11.5);
+            graph.setNode(3, 48.1, 11.6);
+            graph.edge(1, 0, 2, 1);
+            graph.edge(2, 0, 3, 1);
+            graph.edge(1, 0, 3, 1000);
+            assertTrue(graph.getNodeAccess().hasCoordinates(1));
+            assertFalse(graph.getNodeAccess().hasCoordinates(2));
+
+            Path expected = new Dijkstra(graph, weighting).calcPath(1, 3);
+            Path actual = new AStar(graph, weighting).calcPath(1, 3);
+            assertEquals(2, expected.getWeight(), 1e-9);
+            assertEquals(expected.getWeight(), actual.getWeight(), 1e-9);
+        }
+    }
+
+    @Test
+    public void testFewerVisitedNodes()
+    {
+        for (Graph graph : new Graph[]{new DefaultMemoryGraph(), new CompactGraph()})
+        {
+            fillGrid(graph);
+
+            int[][] queries = {{60, 30, 60, 90}, {20, 20, 100, 100}, {90, 10, 40, 70}, {5, 110, 110, 5}};
+            int dijkstraVisited = 0, astarVisited = 0;
+            for (int[] q : queries)
+            {
+                long from = node(q[0], q[1]), to = node(q[2], q[3]);
+                Dijkstra dijkstra = new Dijkstra(graph, weighting);
+                Path expected = dijkstra.calcPath(from, to);
+                AStar astar = new AStar(graph, weighting);
+                Path actual = astar.calcPath(from, to);
+
+                assertTrue(actual.isFound());
+                assertEquals(expected.getWeight(), actual.getWeight(), expected.getWeight() * 1e-4);
+                dijkstraVisited += dijkstra.getVisitedNodes();
+                astarVisited += astar.getVisitedNodes();
+            }
+
+            assertTrue("dijkstra:" + dijkstraVisited + ", astar:" + astarVisited, astarVisited * 10 <= dijkstraVisited);
+        }
+    }
+}
@@ -20,6 +20,11 @@ public abstract class AbstractRoutingTester
 
     public abstract RoutingAlgorithm createAlgo(Graph graph);
 
+    protected Graph createGraph()
+    {
+        return new DefaultMemoryGraph();
+    }
+
     @Test
     public void testCalcShortestPath()
     {
@@ -53,7 +58,7 @@ public abstract class AbstractRoutingTester
     @Test
     public void testNoPathFound()
     {
-        Graph graph = new DefaultMemoryGraph();
+        Graph graph = createGraph();
         RoutingAlgorithm algo = createAlgo(graph);
         assertFalse(algo.calcPath(0, 1).isFound());
 
@@ -69,7 +74,7 @@ public abstract class AbstractRoutingTester
         // assertEquals(3, algo.getVisitedNodes());
 
         // disconnected as directed graph
-        graph = new DefaultMemoryGraph();
+        graph = createGraph();
         graph.edge(0, 0, 1, 1);
         graph.edge(0, 0, 2, 1);
         algo = createAlgo(graph);
@@ -108,7 +113,7 @@ public abstract class AbstractRoutingTester
 
     protected Graph createTestGraph()
     {
-        Graph graph = new DefaultMemoryGraph();
+        Graph graph = createGraph();
 
         graph.edge(0, 0, 1, 7);
         graph.edge(0, 0, 4, 6);
@@ -146,7 +151,7 @@ public abstract class AbstractRoutingTester
 
     protected Graph createWikipediaTestGraph()
     {
-        Graph graph = new DefaultMemoryGraph();
+        Graph graph = createGraph();
         graph.edge(0, 0, 1, 7);
         graph.edge(0, 0, 2, 9);
         graph.edge(0, 0, 5, 14);
@@ -0,0 +1,16 @@
+package com.daedafusion.graph.routing;
+
+import com.daedafusion.graph.impl.CompactGraph;
+import com.daedafusion.graph.storage.Graph;
+
+/**
+ * Runs the routing tests against the CompactGraph storage.
+ */
+public class DijkstraCompactGraphTest extends DijkstraTest
+{
+    @Override
+    protected Graph createGraph()
+    {
+        return new CompactGraph();
+    }
+}
@@ -0,0 +1,141 @@
+package com.daedafusion.graph.routing;
+
+import com.daedafusion.graph.impl.CompactGraph;
+import com.daedafusion.graph.impl.DefaultEdge;
+import com.daedafusion.graph.routing.util.TurnCostTable;
+import com.daedafusion.graph.routing.util.Weighting;
+import com.daedafusion.graph.util.Edge;
+import com.daedafusion.graph.util.Traversal;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static com.daedafusion.graph.routing.AbstractRoutingTester.createTList;
+import static org.junit.Assert.*;
+
+public class EdgeBasedDijkstraTest
+{
+    private static final Weighting DISTANCE = new Weighting()
+    {
+        @Override
+        public double getMinWeight( double distance )
+        {
+            return distance;
+        }
+
+        @Override
+        public double calcWeight( Edge edge )
+        {
+            return edge.getDistance();
+        }
+    };
+
+    /**
+     * Two routes from 1 to 4, the short one switches from predicate 0 to 1 at node 2.
+     */
+    private static CompactGraph createGraph()
+    {
+        CompactGraph graph = new CompactGraph();
+        graph.edge(1, 0, 2, 1);
+        graph.edge(2, 1, 4, 1);
+        graph.edge(1, 0, 3, 2);
+        graph.edge(3, 0, 4, 2);
+        return graph;
+    }
+
+    @Test
+    public void testWithoutCosts()
+    {
+        Random rand = new Random(5);
+        CompactGraph graph = new CompactGraph();
+        for (long node = 0; node < 100; node++)
+        {
+            graph.edge(node, rand.nextInt(3), (node + 1) % 100, 1 + rand.nextInt(9));
+            graph.edge(node, rand.nextInt(3), (node + 13) % 100, 1 + rand.nextInt(30));
+        }
+
+        TurnCostTable table = new TurnCostTable();
+        assertTrue(table.isEmpty());
+        for (int i = 0; i < 30; i++)
+        {
+            long from = rand.nextInt(100), to = rand.nextInt(100);
+            EdgeBasedDijkstra edgeBased = new EdgeBasedDijkstra(graph, DISTANCE, table);
+            Path path = edgeBased.calcPath(from, to);
+            Path expected = new Dijkstra(graph, DISTANCE).calcPath(from, to);
+            assertEquals(expected.getWeight(), path.getWeight(), 1e-9);
+            // one state per node
+            assertTrue(edgeBased.getStateCount() <= 100);
+        }
+    }
+
+    @Test
+    public void testPredicateCosts()
+    {
+        CompactGraph graph = createGraph();
+        TurnCostTable table = new TurnCostTable();
+        assertEquals(2, new EdgeBasedDijkstra(graph, DISTANCE, table).calcPath(1, 4).getWeight(), 1e-9);
+
+        table.setPredicateCost(0, 1, 5);
+        assertTrue(table.hasPredicateCosts());
+        Path path = new EdgeBasedDijkstra(graph, DISTANCE, table).calcPath(1, 4);
+        assertEquals(4, path.getWeight(), 1e-9);
+        assertEquals(createTList(1, 3, 4), path.calcNodes());
+
+        table.setPredicateCost(0, 1, 1);
+        path = new EdgeBasedDijkstra(graph, DISTANCE, table).calcPath(1, 4);
+        assertEquals(3, path.getWeight(), 1e-9);
+        assertEquals(createTList(1, 2, 4), path.calcNodes());
+
+        try
+        {
+            table.setPredicateCost(0, 1, -1);
+            fail();
+        } catch (IllegalArgumentException ex)
+        {
+        }
+    }
+
+    @Test
+    public void testEdgeCosts()
+    {
+        CompactGraph graph = createGraph();
+        long in = DefaultEdge.createEdgeId(1, 0, 2);
+        long out = DefaultEdge.createEdgeId(2, 1, 4);
+        TurnCostTable table = new TurnCostTable().setEdgeCost(in, 2, out, Double.POSITIVE_INFINITY);
+        assertTrue(table.hasEdgeCosts(2));
+        assertFalse(table.hasEdgeCosts(3));
+        // the triple wins over the predicate pair
+        table.setPredicateCost(0, 1, 0.5);
+        assertEquals(Double.POSITIVE_INFINITY, table.getCost(in, 0, 2, out, 1), 0);
+        assertEquals(4, new EdgeBasedDijkstra(graph, DISTANCE, table).calcPath(1, 4).getWeight(), 1e-9);
+
+        table.setEdgeCost(in, 2, out, 0.25);
+        assertEquals(1, table.getEdgeCostCount());
+        assertEquals(2.25, new EdgeBasedDijkstra(graph, DISTANCE, table).calcPath(1, 4).getWeight(), 1e-9);
+    }
+
+    @Test
+    public void testUTurn()
+    {
+        // undirected line 1 - 2 - 4 with a dead end at 3 branching off node 2
+        CompactGraph graph = new CompactGraph();
+        graph.edge(1, 0, 2, 1);
+        graph.edge(2, 0, 3, 1);
+        graph.edge(4, 0, 2, 1);
+        TurnCostTable table = new TurnCostTable();
+        EdgeBasedDijkstra algo = new EdgeBasedDijkstra(graph, DISTANCE, table);
+        algo.setTraversal(Traversal.UNDIRECTED);
+        assertEquals(2, algo.calcPath(1, 4).getWeight(), 1e-9);
+
+        // going straight from 1 over 2 to 4 is forbidden, the u-turn at 3 costs 3
+        long edge12 = DefaultEdge.createEdgeId(1, 0, 2);
+        long edge23 = DefaultEdge.createEdgeId(2, 0, 3);
+        table.setEdgeCost(edge12, 2, DefaultEdge.createEdgeId(4, 0, 2), Double.POSITIVE_INFINITY);
+        table.setEdgeCost(edge23, 3, edge23, 3);
+        algo = new EdgeBasedDijkstra(graph, DISTANCE, table);
+        algo.setTraversal(Traversal.UNDIRECTED);
+        Path path = algo.calcPath(1, 4);
+        assertEquals(1 + 1 + 3 + 1 + 1, path.getWeight(), 1e-9);
+        assertEquals(createTList(1, 2, 3, 2, 4), path.calcNodes());
+    }
+}
@@ -0,0 +1,126 @@
+package com.daedafusion.graph.routing;
+
+import com.daedafusion.graph.impl.CompactGraph;
+import com.daedafusion.graph.partition.PartitionedGraphTest;
+import com.daedafusion.graph.routing.util.Weighting;
+import com.daedafusion.graph.util.Edge;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class HubLabelsTest
+{
+    private static final Weighting DISTANCE = new Weighting()
+    {
+        @Override
+        public double getMinWeight( double distance )
+        {
+            return distance;
+        }
+
+        @Override
+        public double calcWeight( Edge edge )
+        {
+            return edge.getDistance();
+        }
+    };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Grid of PartitionedGraphTest plus an isolated last node.
+     */
+    private static CompactGraph createGraph( int size, long seed )
+    {
+        CompactGraph graph = PartitionedGraphTest.createGrid(size, seed);
+        graph.addNode(size * size);
+        return graph;
+    }
+
+    @Test
+    public void testSameAsDijkstra()
+    {
+        CompactGraph graph = createGraph(15, 1);
+        HubLabels labels = HubLabels.build(graph, DISTANCE, true);
+        assertTrue(labels.isStoringPaths());
+        assertTrue("label size " + labels.getAverageLabelSize(), labels.getAverageLabelSize() < 60);
+
+        Random rand = new Random(2);
+        for (int i = 0; i < 300; i++)
+        {
+            long from = rand.nextInt(226), to = rand.nextInt(226);
+            Path expected = new Dijkstra(graph, DISTANCE).calcPath(from, to);
+            Path actual = new HubLabelRouting(labels).calcPath(from, to);
+            assertEquals(from + "->" + to, expected.isFound(), actual.isFound());
+            if (!expected.isFound())
+            {
+                assertEquals(Double.POSITIVE_INFINITY, labels.calcWeight(from, to), 0);
+                continue;
+            }
+
+            assertEquals(expected.getWeight(), labels.calcWeight(from, to), 1e-9);
+            assertEquals(expected.getWeight(), actual.getWeight(), 1e-9);
+            assertEquals(from, actual.getNode(0));
+            assertEquals(to, actual.getNode(actual.getEdgeCount()));
+            double weight = 0;
+            for (int e = 0; e < actual.getEdgeCount(); e++)
+            {
+                Edge edge = actual.getEdge(e);
+                assertEquals(actual.getNode(e), edge.getSubject());
+                assertEquals(actual.getNode(e + 1), edge.getObject());
+                weight += edge.getDistance();
+            }
+            assertEquals(expected.getWeight(), weight, 1e-9);
+        }
+        assertEquals(0, labels.calcWeight(7, 7), 0);
+        assertEquals(Double.POSITIVE_INFINITY, labels.calcWeight(7, 5000), 0);
+    }
+
+    @Test
+    public void testWriteAndRead() throws Exception
+    {
+        CompactGraph graph = createGraph(12, 3);
+        File file = folder.newFile();
+        for (boolean paths : new boolean[]{true, false})
+        {
+            HubLabels labels = HubLabels.build(graph, DISTANCE, paths);
+            labels.write(file);
+            HubLabels loaded = HubLabels.read(file, graph, DISTANCE);
+            assertEquals(paths, loaded.isStoringPaths());
+            assertEquals(labels.getAverageLabelSize(), loaded.getAverageLabelSize(), 0);
+            for (long from = 0; from < 145; from += 7)
+            {
+                for (long to = 0; to < 145; to += 5)
+                {
+                    assertEquals(labels.calcWeight(from, to), loaded.calcWeight(from, to), 0);
+                }
+            }
+        }
+
+        try
+        {
+            HubLabels.read(file, createGraph(5, 3), DISTANCE);
+            fail();
+        } catch (IllegalArgumentException ex)
+        {
+        }
+    }
+
+    @Test
+    public void testWeightLimit()
+    {
+        CompactGraph graph = createGraph(8, 4);
+        HubLabelRouting routing = new HubLabelRouting(HubLabels.build(graph, DISTANCE, true));
+        double weight = routing.calcWeight(0, 63);
+        assertTrue(routing.getVisitedNodes() > 0);
+        routing.setWeightLimit(weight - 1);
+        assertFalse(routing.calcPath(0, 63).isFound());
+        assertEquals(Double.POSITIVE_INFINITY, routing.calcWeight(0, 63), 0);
+    }
+}
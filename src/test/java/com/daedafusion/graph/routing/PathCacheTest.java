@@ -0,0 +1,209 @@
+package com.daedafusion.graph.routing;
+
+import com.daedafusion.graph.impl.CompactGraph;
+import com.daedafusion.graph.impl.DefaultEdge;
+import com.daedafusion.graph.routing.util.TravelTimeFunctions;
+import com.daedafusion.graph.routing.util.TurnCostTable;
+import com.daedafusion.graph.routing.util.UniformWeighting;
+import com.daedafusion.graph.routing.util.Weighting;
+import com.daedafusion.graph.util.Edge;
+import com.daedafusion.graph.util.EdgeFilter;
+import com.daedafusion.graph.util.Traversal;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PathCacheTest
+{
+    private static final Weighting DISTANCE = new Weighting()
+    {
+        @Override
+        public double getMinWeight( double distance )
+        {
+            return distance;
+        }
+
+        @Override
+        public double calcWeight( Edge edge )
+        {
+            return edge.getDistance();
+        }
+    };
+
+    private static CompactGraph createGraph()
+    {
+        CompactGraph graph = new CompactGraph();
+        graph.edge(1, 0, 2, 1);
+        graph.edge(2, 0, 3, 1);
+        graph.edge(1, 0, 3, 5);
+        graph.edge(3, 0, 4, 1);
+        return graph;
+    }
+
+    @Test
+    public void testHitsAndKeys()
+    {
+        CompactGraph graph = createGraph();
+        PathCache cache = new PathCache(graph, 100);
+
+        Path first = cache.calcPath(new Dijkstra(graph, DISTANCE), 1, 4);
+        assertEquals(3, first.getWeight(), 1e-9);
+        assertEquals(1, cache.getMissCount());
+
+        Path cached = cache.calcPath(new Dijkstra(graph, DISTANCE), 1, 4);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(first.getWeight(), cached.getWeight(), 0);
+        assertEquals(first.calcNodes(), cached.calcNodes());
+        assertEquals(first.getEdgeId(2), cached.getEdgeId(2));
+
+        // another weighting or filter never sees the entry
+        Path uniform = cache.calcPath(new Dijkstra(graph, new UniformWeighting()), 1, 4);
+        assertEquals(2, uniform.getWeight(), 1e-9);
+        EdgeFilter filter = new EdgeFilter()
+        {
+            @Override
+            public boolean accept( Edge edge )
+            {
+                return edge.getSubject() != 2;
+            }
+        };
+        Dijkstra filtered = new Dijkstra(graph, DISTANCE);
+        filtered.setEdgeFilter(filter);
+        assertEquals(6, cache.calcPath(filtered, 1, 4).getWeight(), 1e-9);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(3, cache.getSize());
+
+        // unreachable results are cached as well
+        assertFalse(cache.calcPath(new Dijkstra(graph, DISTANCE), 4, 1).isFound());
+        assertFalse(cache.calcPath(new Dijkstra(graph, DISTANCE), 4, 1).isFound());
+        assertEquals(2, cache.getHitCount());
+    }
+
+    @Test
+    public void testInvalidatedByGraphChange()
+    {
+        CompactGraph graph = createGraph();
+        PathCache cache = new PathCache(graph, 100);
+        cache.calcPath(new Dijkstra(graph, DISTANCE), 1, 4);
+        assertNotNull(cache.get(new Dijkstra(graph, DISTANCE), 1, 4));
+
+        long version = graph.getVersion();
+        assertTrue(graph.updateDistance(DefaultEdge.createEdgeId(1, 0, 3), 0.5));
+        assertNotEquals(version, graph.getVersion());
+        assertNull(cache.get(new Dijkstra(graph, DISTANCE), 1, 4));
+        assertEquals(1, cache.getStaleCount());
+        assertEquals(1.5, cache.calcPath(new Dijkstra(graph, DISTANCE), 1, 4).getWeight(), 1e-9);
+
+        cache.invalidateAll();
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void testTraversalInKey()
+    {
+        CompactGraph graph = new CompactGraph();
+        graph.edge(1, 0, 2, 1);
+        PathCache cache = new PathCache(graph, 100);
+        assertFalse(cache.calcPath(new Dijkstra(graph, DISTANCE), 2, 1).isFound());
+
+        Dijkstra undirected = new Dijkstra(graph, DISTANCE);
+        undirected.setTraversal(Traversal.UNDIRECTED);
+        assertTrue(cache.calcPath(undirected, 2, 1).isFound());
+        assertEquals(0, cache.getHitCount());
+    }
+
+    @Test
+    public void testAlgorithmInKey()
+    {
+        CompactGraph graph = createGraph();
+        PathCache cache = new PathCache(graph, 100);
+        cache.calcPath(new Dijkstra(graph, DISTANCE), 1, 4);
+        cache.calcPath(new AStar(graph, DISTANCE), 1, 4);
+        assertEquals(0, cache.getHitCount());
+        assertEquals(2, cache.getSize());
+        assertNotNull(cache.get(new AStar(graph, DISTANCE), 1, 4));
+    }
+
+    @Test
+    public void testWeightLimitedNotCached()
+    {
+        CompactGraph graph = createGraph();
+        PathCache cache = new PathCache(graph, 100);
+        Dijkstra limited = new Dijkstra(graph, DISTANCE);
+        limited.setWeightLimit(2);
+        assertFalse(cache.calcPath(limited, 1, 4).isFound());
+        assertEquals(0, cache.getSize());
+
+        assertEquals(3, cache.calcPath(new Dijkstra(graph, DISTANCE), 1, 4).getWeight(), 1e-9);
+        assertEquals(0, cache.getHitCount());
+        limited = new Dijkstra(graph, DISTANCE);
+        limited.setWeightLimit(2);
+        assertFalse(cache.calcPath(limited, 1, 4).isFound());
+        assertEquals(0, cache.getHitCount());
+    }
+
+    @Test
+    public void testDepartureTimeInKey()
+    {
+        CompactGraph graph = createGraph();
+        TravelTimeFunctions functions = new TravelTimeFunctions(DISTANCE, 100);
+        functions.setFunction(DefaultEdge.createEdgeId(1, 0, 2), new double[]{0, 50}, new double[]{1, 40});
+        PathCache cache = new PathCache(graph, 100);
+        assertEquals(3, cache.calcPath(new TimeDependentDijkstra(graph, functions).setDepartureTime(0), 1, 4)
+                .getWeight(), 1e-9);
+        assertEquals(6, cache.calcPath(new TimeDependentDijkstra(graph, functions).setDepartureTime(50), 1, 4)
+                .getWeight(), 1e-9);
+        assertEquals(0, cache.getHitCount());
+        assertEquals(3, cache.calcPath(new TimeDependentDijkstra(graph, functions).setDepartureTime(0), 1, 4)
+                .getWeight(), 1e-9);
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void testTurnCostsInKey()
+    {
+        CompactGraph graph = createGraph();
+        PathCache cache = new PathCache(graph, 100);
+        TurnCostTable free = new TurnCostTable();
+        TurnCostTable costly = new TurnCostTable()
+                .setEdgeCost(DefaultEdge.createEdgeId(1, 0, 2), 2, DefaultEdge.createEdgeId(2, 0, 3), 10);
+        assertEquals(3, cache.calcPath(new EdgeBasedDijkstra(graph, DISTANCE, free), 1, 4).getWeight(), 1e-9);
+        assertEquals(6, cache.calcPath(new EdgeBasedDijkstra(graph, DISTANCE, costly), 1, 4).getWeight(), 1e-9);
+        assertEquals(0, cache.getHitCount());
+        cache.calcPath(new EdgeBasedDijkstra(graph, DISTANCE, costly), 1, 4);
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void testFrequentEntriesSurviveScan()
+    {
+        CompactGraph graph = new CompactGraph();
+        for (int i = 0; i < 1000; i++)
+        {
+            graph.edge(i, 0, i + 1, 1);
+        }
+        PathCache cache = new PathCache(graph, 50);
+        // popular pairs requested repeatedly
+        for (int round = 0; round < 5; round++)
+        {
+            for (int i = 0; i < 20; i++)
+            {
+                cache.calcPath(new Dijkstra(graph, DISTANCE), i, i + 2);
+            }
+        }
+        // a scan of one off queries
+        for (int i = 100; i < 600; i++)
+        {
+            cache.calcPath(new Dijkstra(graph, DISTANCE), i, i + 1);
+        }
+        assertTrue(cache.getSize() <= 50);
+        assertTrue(cache.getEvictionCount() > 0);
+
+        long hits = cache.getHitCount();
+        for (int i = 0; i < 20; i++)
+        {
+            cache.calcPath(new Dijkstra(graph, DISTANCE), i, i + 2);
+        }
+        assertEquals(hits + 20, cache.getHitCount());
+    }
+}
@@ -0,0 +1,173 @@
+package com.daedafusion.graph.routing;
+
+import com.daedafusion.graph.impl.CompactGraph;
+import com.daedafusion.graph.impl.DefaultMemoryGraph;
+import com.daedafusion.graph.routing.util.UniformWeighting;
+import com.daedafusion.graph.storage.EdgeEntry;
+import com.daedafusion.graph.storage.Graph;
+import com.daedafusion.graph.util.Edge;
+import com.daedafusion.graph.util.PointList;
+import org.junit.Test;
+
+import java.util.List;
+
+import static com.daedafusion.graph.routing.AbstractRoutingTester.createTList;
+import static org.junit.Assert.*;
+
+public class PathTest
+{
+    private static EdgeEntry entry( Edge edge, long adjNode, EdgeEntry parent )
+    {
+        EdgeEntry entry = new EdgeEntry(edge.getEdgeId(), adjNode, parent.weight + edge.getDistance());
+        entry.parent = parent;
+        return entry;
+    }
+
+    @Test
+    public void testExtract()
+    {
+        Graph graph = new DefaultMemoryGraph();
+        Edge e1 = graph.edge(1, 0, 2, 1);
+        Edge e2 = graph.edge(3, 0, 2, 2);
+
+        EdgeEntry start = new EdgeEntry(Long.MIN_VALUE, 1, 0);
+        EdgeEntry goal = entry(e2, 3, entry(e1, 2, start));
+        Path p = new Path(graph).setWeight(goal.weight).setEdgeEntry(goal).extract();
+
+        assertTrue(p.isFound());
+        assertEquals(3, p.getWeight(), 1e-9);
+        assertEquals(2, p.getEdgeCount());
+        assertEquals(1, p.getNode(0));
+        assertEquals(3, p.getNode(2));
+        assertEquals(e2.getEdgeId(), p.getEdgeId(1));
+        assertEquals(e1, p.getEdge(0));
+        assertEquals(createTList(1, 2, 3), p.calcNodes());
+    }
+
+    @Test
+    public void testSingleNode()
+    {
+        Path p = new Path(new DefaultMemoryGraph()).setEdgeEntry(new EdgeEntry(Long.MIN_VALUE, 5, 0)).extract();
+        assertEquals(0, p.getEdgeCount());
+        assertEquals(createTList(5), p.calcNodes());
+    }
+
+    @Test
+    public void testNotFound()
+    {
+        Path p = new Path(new DefaultMemoryGraph());
+        assertFalse(p.isFound());
+        assertEquals(0, p.getEdgeCount());
+        assertEquals(createTList(), p.calcNodes());
+        try
+        {
+            p.getNode(0);
+            fail();
+        } catch (IllegalStateException ex)
+        {
+        }
+    }
+
+    @Test
+    public void testBidirExtract()
+    {
+        Graph graph = new DefaultMemoryGraph();
+        Edge e1 = graph.edge(1, 0, 2, 1);
+        Edge e2 = graph.edge(2, 0, 3, 1);
+        Edge e3 = graph.edge(3, 0, 4, 1);
+
+        EdgeEntry from = entry(e2, 3, entry(e1, 2, new EdgeEntry(Long.MIN_VALUE, 1, 0)));
+        EdgeEntry to = entry(e3, 3, new EdgeEntry(Long.MIN_VALUE, 4, 0));
+
+        Path p = new PathBidirRef(graph).setEdgeEntryTo(to).setEdgeEntry(from).extract();
+        assertEquals(createTList(1, 2, 3, 4), p.calcNodes());
+        assertEquals(e3.getEdgeId(), p.getEdgeId(2));
+
+        p = new PathBidirRef(graph).setSwitchToFrom(true).setEdgeEntryTo(from).setEdgeEntry(to).extract();
+        assertEquals(createTList(1, 2, 3, 4), p.calcNodes());
+    }
+
+    private Path createPath( Graph graph )
+    {
+        Edge e1 = graph.edge(1, 7, 2, 1.5);
+        Edge e2 = graph.edge(3, 8, 2, 2);
+        Edge e3 = graph.edge(3, 9, 4, 0.5);
+        EdgeEntry goal = entry(e3, 4, entry(e2, 3, entry(e1, 2, new EdgeEntry(Long.MIN_VALUE, 1, 0))));
+        return new Path(graph).setWeight(goal.weight).setEdgeEntry(goal).extract();
+    }
+
+    @Test
+    public void testEdges()
+    {
+        for (Graph graph : new Graph[]{new DefaultMemoryGraph(), new CompactGraph()})
+        {
+            Path p = createPath(graph);
+            List<Edge> edges = p.calcEdges();
+            assertEquals(3, edges.size());
+            assertEquals(8, edges.get(1).getPredicate());
+            assertEquals(4, p.calcDistance(), 1e-9);
+
+            final int[] visited = {0};
+            p.forEveryEdge(new Path.EdgeVisitor()
+            {
+                @Override
+                public void next( Edge edge, int index, Edge prev )
+                {
+                    assertEquals(visited[0]++, index);
+                    assertEquals(index == 0 ? null : p.getEdge(index - 1), prev);
+                }
+            });
+            assertEquals(3, visited[0]);
+        }
+    }
+
+    @Test
+    public void testCursor()
+    {
+        for (Graph graph : new Graph[]{new DefaultMemoryGraph(), new CompactGraph()})
+        {
+            Path p = createPath(graph);
+            PathEdgeCursor cursor = p.createEdgeCursor(null);
+            assertTrue(cursor.next());
+            assertEquals(1, cursor.getSubject());
+            assertEquals(2, cursor.getAdjNode());
+            assertEquals(1.5, cursor.getCumulativeWeight(), 1e-9);
+
+            assertTrue(cursor.next());
+            // traversed against its direction
+            assertEquals(2, cursor.getBaseNode());
+            assertEquals(3, cursor.getSubject());
+            assertEquals(2, cursor.getObject());
+            assertEquals(8, cursor.getPredicate());
+
+            assertTrue(cursor.next());
+            assertEquals(4, cursor.getObject());
+            assertEquals(4, cursor.getCumulativeDistance(), 1e-9);
+            assertFalse(cursor.next());
+
+            cursor = p.createEdgeCursor(new UniformWeighting());
+            while (cursor.next())
+            {
+                assertEquals(cursor.getIndex() + 1, cursor.getCumulativeWeight(), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void testPoints()
+    {
+        assertTrue(createPath(new DefaultMemoryGraph()).calcPoints().isEmpty());
+
+        CompactGraph graph = new CompactGraph();
+        Path p = createPath(graph);
+        assertTrue(p.calcPoints().isEmpty());
+        for (int node = 1; node <= 4; node++)
+        {
+            graph.setNode(node, 40 + node * 0.1, -105);
+        }
+        PointList points = p.calcPoints();
+        assertEquals(4, points.size());
+        assertEquals(40.2, points.getLatitude(1), 1e-6);
+        assertEquals(-105, points.getLongitude(3), 1e-6);
+    }
+}
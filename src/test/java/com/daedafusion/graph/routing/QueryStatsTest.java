@@ -0,0 +1,89 @@
+package com.daedafusion.graph.routing;
+
+import com.daedafusion.graph.impl.DefaultMemoryGraph;
+import com.daedafusion.graph.routing.util.Weighting;
+import com.daedafusion.graph.storage.Graph;
+import com.daedafusion.graph.util.Edge;
+import com.daedafusion.graph.util.EdgeFilter;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class QueryStatsTest
+{
+    private final Weighting weighting = new Weighting()
+    {
+        @Override
+        public double getMinWeight(double distance)
+        {
+            return 0;
+        }
+
+        @Override
+        public double calcWeight(Edge edge)
+        {
+            return edge.getDistance();
+        }
+    };
+
+    private Graph createGraph()
+    {
+        Graph graph = new DefaultMemoryGraph();
+        graph.edge(0, 0, 1, 1);
+        graph.edge(0, 0, 2, 5);
+        graph.edge(1, 0, 2, 1);
+        graph.edge(2, 0, 3, 1);
+        graph.edge(1, 1, 3, 1);
+        return graph;
+    }
+
+    @Test
+    public void testDisabledByDefault()
+    {
+        Dijkstra dijkstra = new Dijkstra(createGraph(), weighting);
+        assertTrue(dijkstra.calcPath(0, 3).isFound());
+        assertNull(dijkstra.getQueryStats());
+    }
+
+    @Test
+    public void testDijkstra()
+    {
+        QueryStats stats = new QueryStats();
+        Dijkstra dijkstra = new Dijkstra(createGraph(), weighting);
+        dijkstra.setQueryStats(stats);
+        dijkstra.setEdgeFilter(new EdgeFilter()
+        {
+            @Override
+            public boolean accept(Edge edge)
+            {
+                return edge.getPredicate() == 0;
+            }
+        });
+        Path p = dijkstra.calcPath(0, 3);
+        assertEquals(AbstractRoutingTester.createTList(0, 1, 2, 3), p.calcNodes());
+
+        assertEquals(1, stats.getQueries());
+        assertTrue(stats.getEdgesScanned() > 0);
+        assertEquals(1, stats.getEdgesRejected());
+        // 1, 2 and 3 are inserted, 2 gets a better weight via 1
+        assertEquals(3, stats.getHeapInserts());
+        assertEquals(1, stats.getHeapDecreaseKeys());
+        assertEquals(3, stats.getHeapPolls());
+        assertEquals(4, stats.getPeakMapSize());
+        assertTrue(stats.getPeakHeapSize() >= 1);
+        assertTrue(stats.getSearchNanos() >= 0 && stats.getExtractNanos() >= 0);
+    }
+
+    @Test
+    public void testAccumulates()
+    {
+        QueryStats stats = new QueryStats();
+        new AStar(createGraph(), weighting).setQueryStats(stats).calcPath(0, 3);
+        new DijkstraBidirectionRef(createGraph(), weighting).setQueryStats(stats).calcPath(0, 3);
+        new AStarBidirection(createGraph(), weighting).setQueryStats(stats).calcPath(3, 0);
+
+        assertEquals(3, stats.getQueries());
+        assertTrue(stats.getHeapPolls() > 0);
+        assertTrue(stats.getPeakMapSize() >= 4);
+    }
+}
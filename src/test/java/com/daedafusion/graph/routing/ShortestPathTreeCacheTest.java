@@ -0,0 +1,129 @@
+package com.daedafusion.graph.routing;
+
+import com.daedafusion.graph.impl.CompactGraph;
+import com.daedafusion.graph.impl.DefaultEdge;
+import com.daedafusion.graph.routing.util.Weighting;
+import com.daedafusion.graph.util.Edge;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ShortestPathTreeCacheTest
+{
+    private static final Weighting DISTANCE = new Weighting()
+    {
+        @Override
+        public double getMinWeight( double distance )
+        {
+            return distance;
+        }
+
+        @Override
+        public double calcWeight( Edge edge )
+        {
+            return edge.getDistance();
+        }
+    };
+
+    private static CompactGraph createGraph( int nodes, long seed )
+    {
+        Random rand = new Random(seed);
+        CompactGraph graph = new CompactGraph();
+        for (int i = 0; i < nodes; i++)
+        {
+            graph.addNode(i);
+        }
+        for (int i = 0; i < nodes * 3; i++)
+        {
+            graph.edge(rand.nextInt(nodes), 0, rand.nextInt(nodes), 1 + rand.nextInt(20));
+        }
+        return graph;
+    }
+
+    @Test
+    public void testSameAsDijkstra()
+    {
+        CompactGraph graph = createGraph(300, 1);
+        ShortestPathTreeCache cache = new ShortestPathTreeCache(graph, DISTANCE, 100000);
+        Random rand = new Random(2);
+        for (int i = 0; i < 400; i++)
+        {
+            long from = rand.nextInt(5), to = rand.nextInt(300);
+            Path expected = new Dijkstra(graph, DISTANCE).calcPath(from, to);
+            Path actual = cache.calcPath(from, to);
+            assertEquals(from + "->" + to, expected.isFound(), actual.isFound());
+            if (!expected.isFound())
+            {
+                assertEquals(Double.POSITIVE_INFINITY, cache.calcWeight(from, to), 0);
+                continue;
+            }
+
+            assertEquals(expected.getWeight(), actual.getWeight(), 1e-9);
+            assertEquals(expected.getWeight(), cache.calcWeight(from, to), 1e-9);
+            assertEquals(from, actual.getNode(0));
+            assertEquals(to, actual.getNode(actual.getEdgeCount()));
+            double weight = 0;
+            for (int e = 0; e < actual.getEdgeCount(); e++)
+            {
+                Edge edge = actual.getEdge(e);
+                assertEquals(actual.getNode(e), edge.getSubject());
+                weight += edge.getDistance();
+            }
+            assertEquals(expected.getWeight(), weight, 1e-9);
+        }
+
+        assertEquals(5, cache.getTreeCount());
+        assertEquals(5, cache.getMissCount());
+        assertTrue(cache.getHitCount() > 300);
+        assertTrue(cache.getResumedCount() > 0);
+        assertEquals(0, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testResumesSearch()
+    {
+        CompactGraph graph = new CompactGraph();
+        for (int i = 0; i < 100; i++)
+        {
+            graph.edge(i, 0, i + 1, 1);
+        }
+        ShortestPathTreeCache cache = new ShortestPathTreeCache(graph, DISTANCE, 1000);
+        assertEquals(10, cache.calcWeight(0, 10), 0);
+        long reached = cache.getReachedNodeCount();
+        assertTrue(reached < 20);
+
+        assertEquals(5, cache.calcWeight(0, 5), 0);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(reached, cache.getReachedNodeCount());
+
+        assertEquals(50, cache.calcWeight(0, 50), 0);
+        assertEquals(1, cache.getResumedCount());
+        assertEquals(1, cache.getMissCount());
+
+        // a changed graph discards the trees
+        graph.updateDistance(DefaultEdge.createEdgeId(0, 0, 1), 3);
+        assertEquals(12, cache.calcWeight(0, 10), 0);
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void testEviction()
+    {
+        CompactGraph graph = createGraph(200, 3);
+        ShortestPathTreeCache cache = new ShortestPathTreeCache(graph, DISTANCE, 250);
+        for (int source = 0; source < 10; source++)
+        {
+            cache.calcWeight(source, 199);
+            assertTrue(cache.getReachedNodeCount() <= 250 || cache.getTreeCount() == 1);
+        }
+        assertTrue(cache.getEvictionCount() > 0);
+        assertTrue(cache.getTreeCount() < 10);
+
+        // the most recent source is kept
+        long misses = cache.getMissCount();
+        cache.calcWeight(9, 199);
+        assertEquals(misses, cache.getMissCount());
+    }
+}
@@ -0,0 +1,155 @@
+package com.daedafusion.graph.routing;
+
+import com.daedafusion.graph.impl.CompactGraph;
+import com.daedafusion.graph.impl.DefaultEdge;
+import com.daedafusion.graph.routing.util.TravelTimeFunctions;
+import com.daedafusion.graph.routing.util.Weighting;
+import com.daedafusion.graph.util.Edge;
+import com.daedafusion.graph.util.Traversal;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TimeDependentDijkstraTest
+{
+    private static final Weighting DISTANCE = new Weighting()
+    {
+        @Override
+        public double getMinWeight( double distance )
+        {
+            return 0;
+        }
+
+        @Override
+        public double calcWeight( Edge edge )
+        {
+            return edge.getDistance();
+        }
+    };
+
+    @Test
+    public void testFunctions()
+    {
+        CompactGraph graph = new CompactGraph();
+        Edge edge = graph.edge(1, 0, 2, 4);
+        TravelTimeFunctions functions = new TravelTimeFunctions(DISTANCE, 100);
+        assertEquals(4, functions.calcWeight(edge, 30), 0);
+
+        functions.setFunction(edge.getEdgeId(), new double[]{10, 60}, new double[]{5, 15});
+        assertEquals(5, functions.calcWeight(edge), 0);
+        assertEquals(5, functions.calcWeight(edge, 10), 1e-9);
+        assertEquals(10, functions.calcWeight(edge, 35), 1e-9);
+        // wrapping into the next period
+        assertEquals(11, functions.calcWeight(edge, 80), 1e-9);
+        assertEquals(7, functions.calcWeight(edge, 0), 1e-9);
+        assertEquals(11, functions.calcWeight(edge, -20), 1e-9);
+        assertEquals(10, functions.calcWeight(edge, 235), 1e-9);
+        assertTrue(functions.isFifo());
+
+        // entering at 10 arrives at 30, entering at 20 would arrive at 25
+        functions.setFunction(edge.getEdgeId(), new double[]{10, 20}, new double[]{20, 5});
+        assertFalse(functions.isFifo(edge.getEdgeId()));
+        assertEquals(1, functions.getNonFifoEdges().size());
+        // checked per query, the functions can change after the algorithm was created
+        TimeDependentDijkstra dijkstra = new TimeDependentDijkstra(graph, functions);
+        try
+        {
+            dijkstra.calcPath(1, 2);
+            fail();
+        } catch (IllegalArgumentException ex)
+        {
+        }
+
+        functions.setFunction(edge.getEdgeId(), new double[]{50}, new double[]{2});
+        assertTrue(functions.isFifo());
+        assertEquals(2, functions.calcWeight(edge, 17), 0);
+        assertEquals(1, functions.getEdgeCount());
+
+        try
+        {
+            functions.setFunction(edge.getEdgeId(), new double[]{20, 10}, new double[]{1, 1});
+            fail();
+        } catch (IllegalArgumentException ex)
+        {
+        }
+    }
+
+    @Test
+    public void testDepartureTime()
+    {
+        CompactGraph graph = new CompactGraph();
+        graph.edge(1, 0, 2, 10);
+        graph.edge(1, 0, 3, 1);
+        graph.edge(3, 0, 2, 1);
+        TravelTimeFunctions functions = new TravelTimeFunctions(DISTANCE, 100);
+        functions.setFunction(DefaultEdge.createEdgeId(1, 0, 3), new double[]{0, 50}, new double[]{1, 30});
+        functions.setFunction(DefaultEdge.createEdgeId(3, 0, 2), new double[]{0, 20}, new double[]{1, 1});
+
+        Path early = new TimeDependentDijkstra(graph, functions).setDepartureTime(0).calcPath(1, 2);
+        assertEquals(2, early.getWeight(), 1e-9);
+        assertEquals(3, early.calcNodes().size());
+
+        Path late = new TimeDependentDijkstra(graph, functions).setDepartureTime(50).calcPath(1, 2);
+        assertEquals(10, late.getWeight(), 1e-9);
+        assertEquals(2, late.calcNodes().size());
+
+        Path astar = new TimeDependentAStar(graph, functions).setDepartureTime(150).calcPath(1, 2);
+        assertEquals(10, astar.getWeight(), 1e-9);
+
+        try
+        {
+            new TimeDependentDijkstra(graph, functions).setTraversal(Traversal.REVERSE);
+            fail();
+        } catch (IllegalArgumentException ex)
+        {
+        }
+    }
+
+    @Test
+    public void testSameAsAStar()
+    {
+        Random rand = new Random(3);
+        CompactGraph graph = new CompactGraph();
+        TravelTimeFunctions functions = new TravelTimeFunctions(DISTANCE, 1000);
+        int size = 10;
+        for (long node = 0; node < size * size; node++)
+        {
+            if (node % size + 1 < size)
+                addFifoEdge(graph, functions, rand, node, node + 1);
+            if (node + size < size * size)
+                addFifoEdge(graph, functions, rand, node, node + size);
+            addFifoEdge(graph, functions, rand, node, (node + 37) % (size * size));
+        }
+        assertTrue(functions.isFifo());
+
+        for (int i = 0; i < 50; i++)
+        {
+            long from = rand.nextInt(size * size), to = rand.nextInt(size * size);
+            double departure = rand.nextInt(3000);
+            Path dijkstra = new TimeDependentDijkstra(graph, functions).setDepartureTime(departure).calcPath(from, to);
+            Path astar = new TimeDependentAStar(graph, functions).setDepartureTime(departure).calcPath(from, to);
+            assertEquals(dijkstra.isFound(), astar.isFound());
+            assertEquals(dijkstra.getWeight(), astar.getWeight(), 1e-3);
+            assertTrue(dijkstra.getWeight() >= new Dijkstra(graph, functions).calcPath(from, to).getWeight() - 1e-9);
+        }
+    }
+
+    /**
+     * Random breakpoints whose travel time changes by less than the time between them.
+     */
+    private static void addFifoEdge( CompactGraph graph, TravelTimeFunctions functions, Random rand, long a, long b )
+    {
+        Edge edge = graph.edge(a, 0, b, 1 + rand.nextInt(20));
+        int count = 1 + rand.nextInt(5);
+        double[] times = new double[count];
+        double[] travelTimes = new double[count];
+        for (int i = 0; i < count; i++)
+        {
+            times[i] = i * 200 + rand.nextInt(100);
+            travelTimes[i] = 20 + rand.nextInt(80);
+        }
+        functions.setFunction(edge.getEdgeId(), times, travelTimes);
+    }
+}
@@ -0,0 +1,160 @@
+package com.daedafusion.graph.routing.metrics;
+
+import com.daedafusion.graph.impl.DefaultMemoryGraph;
+import com.daedafusion.graph.routing.AStar;
+import com.daedafusion.graph.routing.Dijkstra;
+import com.daedafusion.graph.routing.util.Weighting;
+import com.daedafusion.graph.storage.Graph;
+import com.daedafusion.graph.util.Edge;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class RoutingMetricsTest
+{
+    private final Weighting weighting = new Weighting()
+    {
+        @Override
+        public double getMinWeight(double distance)
+        {
+            return 0;
+        }
+
+        @Override
+        public double calcWeight(Edge edge)
+        {
+            return edge.getDistance();
+        }
+    };
+
+    private Graph createGraph()
+    {
+        Graph graph = new DefaultMemoryGraph();
+        graph.edge(0, 0, 1, 1);
+        graph.edge(1, 0, 2, 1);
+        graph.edge(2, 0, 3, 1);
+        graph.edge(3, 0, 4, 1);
+        return graph;
+    }
+
+    @Test
+    public void testBuckets()
+    {
+        LogLinearHistogram histogram = new LogLinearHistogram();
+        long[] values = {0, 1, 63, 64, 65, 1000, 123456789L, Long.MAX_VALUE};
+        for (long value : values)
+        {
+            int bucket = histogram.getBucket(value);
+            assertTrue(histogram.getLowestValue(bucket) <= value);
+            assertTrue(histogram.getHighestValue(bucket) >= value);
+        }
+
+        for (int bucket = 0; bucket < 2000 && histogram.getLowestValue(bucket) >= 0; bucket++)
+        {
+            assertEquals(bucket, histogram.getBucket(histogram.getLowestValue(bucket)));
+        }
+    }
+
+    @Test
+    public void testPercentiles()
+    {
+        LogLinearHistogram histogram = new LogLinearHistogram();
+        for (int i = 1; i <= 10000; i++)
+        {
+            histogram.record(i * 1000L);
+        }
+        LogLinearHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(10000, snapshot.getCount());
+        assertEquals(1000, snapshot.getMin());
+        assertEquals(10000000, snapshot.getMax());
+        assertEquals(5000500, snapshot.getMean(), 1e-6);
+        assertEquals(5000000, snapshot.getValueAtPercentile(50), 5000000 * 0.04);
+        assertEquals(9900000, snapshot.getValueAtPercentile(99), 9900000 * 0.04);
+        assertEquals(10000000, snapshot.getValueAtPercentile(100));
+
+        histogram.reset();
+        assertEquals(0, histogram.snapshot().getValueAtPercentile(50));
+    }
+
+    @Test
+    public void testConcurrentRecord() throws Exception
+    {
+        final LogLinearHistogram histogram = new LogLinearHistogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++)
+        {
+            final long seed = t;
+            threads[t] = new Thread(() -> {
+                Random rand = new Random(seed);
+                for (int i = 0; i < 50000; i++)
+                {
+                    histogram.record(rand.nextInt(1000000));
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads)
+        {
+            thread.join();
+        }
+        assertEquals(200000, histogram.getCount());
+        assertEquals(200000, histogram.snapshot().getCount());
+    }
+
+    @Test
+    public void testAlgorithms()
+    {
+        RoutingMetrics metrics = new RoutingMetrics();
+        Graph graph = createGraph();
+        new Dijkstra(graph, weighting).setMetrics(metrics).calcPath(0, 4);
+        new Dijkstra(graph, weighting).setMetrics(metrics).calcPath(4, 0);
+        Dijkstra limited = new Dijkstra(graph, weighting);
+        limited.setMetrics(metrics);
+        limited.setWeightLimit(2);
+        assertFalse(limited.calcPath(0, 4).isFound());
+        new AStar(graph, weighting).setMetrics(metrics).calcPath(0, 3);
+
+        assertEquals(4, metrics.getTotalQueries());
+        List<AlgorithmMetricsSnapshot> snapshots = metrics.getAlgorithms();
+        assertEquals(2, snapshots.size());
+        assertEquals("astar", snapshots.get(0).getAlgorithm());
+
+        AlgorithmMetricsSnapshot dijkstra = snapshots.get(1);
+        assertEquals("dijkstra", dijkstra.getAlgorithm());
+        assertEquals(3, dijkstra.getQueries());
+        assertEquals(1, dijkstra.getFound());
+        assertEquals(2, dijkstra.getNotFound());
+        assertEquals(1, dijkstra.getWeightLimitReached());
+        assertTrue(dijkstra.getVisitedNodesMax() >= 4);
+        assertTrue(dijkstra.getLatencyP99Micros() >= dijkstra.getLatencyP50Micros());
+
+        metrics.reset();
+        assertEquals(0, metrics.getTotalQueries());
+    }
+
+    @Test
+    public void testMBean() throws Exception
+    {
+        RoutingMetrics metrics = new RoutingMetrics();
+        new Dijkstra(createGraph(), weighting).setMetrics(metrics).calcPath(0, 4);
+
+        MBeanServer server = MBeanServerFactory.newMBeanServer();
+        ObjectName name = metrics.register(server, "test");
+        assertEquals(1L, server.getAttribute(name, "TotalQueries"));
+
+        CompositeData[] algorithms = (CompositeData[]) server.getAttribute(name, "Algorithms");
+        assertEquals(1, algorithms.length);
+        assertEquals("dijkstra", algorithms[0].get("algorithm"));
+        assertEquals(1L, algorithms[0].get("found"));
+
+        server.invoke(name, "reset", null, null);
+        assertEquals(0L, server.getAttribute(name, "TotalQueries"));
+    }
+}
@@ -0,0 +1,170 @@
+package com.daedafusion.graph.storage.index;
+
+import com.daedafusion.graph.impl.CompactGraph;
+import com.daedafusion.graph.impl.DefaultMemoryGraph;
+import com.daedafusion.graph.storage.Graph;
+import com.daedafusion.graph.util.DistanceCalc;
+import com.daedafusion.graph.util.DistanceCalcEarth;
+import com.daedafusion.graph.util.Edge;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LocationIndexGridTest
+{
+    private static final int NODES = 500;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final DistanceCalc calc = new DistanceCalcEarth();
+
+    private double[] lats = new double[NODES];
+    private double[] lons = new double[NODES];
+
+    private Graph createRandomGraph( Graph graph )
+    {
+        Random rand = new Random(12);
+        for (int i = 0; i < NODES; i++)
+        {
+            lats[i] = 48 + rand.nextDouble() * 0.2;
+            lons[i] = 11 + rand.nextDouble() * 0.3;
+            graph.setNode(i, lats[i], lons[i]);
+        }
+        for (int i = 1; i < NODES; i++)
+        {
+            int other = rand.nextInt(i);
+            graph.edge(i, 0, other, calc.calcDist(lats[i], lons[i], lats[other], lons[other]));
+        }
+        return graph;
+    }
+
+    private List<Double> bruteForce( double lat, double lon )
+    {
+        List<Double> dists = new ArrayList<>();
+        for (int i = 0; i < NODES; i++)
+        {
+            dists.add(calc.calcDist(lat, lon, lats[i], lons[i]));
+        }
+        Collections.sort(dists);
+        return dists;
+    }
+
+    @Test
+    public void testNearestNodes()
+    {
+        for (Graph graph : new Graph[]{new DefaultMemoryGraph(), new CompactGraph()})
+        {
+            LocationIndexGrid index = LocationIndexGrid.create(createRandomGraph(graph));
+            assertEquals(NODES, index.getNodeCount());
+            assertEquals(NODES - 1, index.getEdgeCount());
+            assertTrue(index.getTileCount() > 1);
+
+            Random rand = new Random(3);
+            for (int q = 0; q < 50; q++)
+            {
+                // some queries outside of the graph bounds
+                double lat = 47.95 + rand.nextDouble() * 0.3;
+                double lon = 10.95 + rand.nextDouble() * 0.4;
+                List<Double> expected = bruteForce(lat, lon);
+                List<QueryResult> result = index.findNearestNodes(lat, lon, 5);
+                assertEquals(5, result.size());
+                for (int i = 0; i < 5; i++)
+                {
+                    assertEquals(expected.get(i), result.get(i).getDistance(), 0.5);
+                    assertEquals(QueryResult.Position.NODE, result.get(i).getPosition());
+                }
+
+                QueryResult closest = index.findClosest(lat, lon);
+                assertTrue(closest.getDistance() <= expected.get(0) + 0.5);
+            }
+
+            assertEquals(NODES, index.findNearestNodes(48, 11, NODES * 2).size());
+        }
+    }
+
+    @Test
+    public void testNodesWithin()
+    {
+        LocationIndexGrid index = LocationIndexGrid.create(createRandomGraph(new CompactGraph()));
+        double lat = 48.1, lon = 11.15;
+        List<Double> expected = bruteForce(lat, lon);
+        List<QueryResult> result = index.findNodesWithin(lat, lon, 2000);
+
+        int count = 0;
+        while (expected.get(count) <= 2000)
+            count++;
+        // the normalized distance deviates slightly from the great circle distance at the border
+        assertEquals(count, result.size(), 1);
+        for (int i = 1; i < result.size(); i++)
+        {
+            assertTrue(result.get(i - 1).getDistance() <= result.get(i).getDistance());
+        }
+    }
+
+    @Test
+    public void testSnapToEdge()
+    {
+        Graph graph = new DefaultMemoryGraph();
+        graph.setNode(1, 48.0, 11.0);
+        graph.setNode(2, 48.0, 11.1);
+        graph.setNode(3, 48.05, 11.1);
+        Edge edge = graph.edge(1, 0, 2, 7400);
+        graph.edge(2, 0, 3, 5500);
+
+        LocationIndexGrid index = LocationIndexGrid.create(graph);
+        QueryResult result = index.findClosest(48.001, 11.03);
+        assertEquals(QueryResult.Position.EDGE, result.getPosition());
+        assertEquals(edge.getEdgeId(), result.getClosestEdge());
+        assertEquals(1, result.getClosestNode());
+        assertEquals(48.0, result.getSnappedLat(), 1e-6);
+        assertEquals(11.03, result.getSnappedLon(), 1e-6);
+        assertEquals(111, result.getDistance(), 1);
+
+        result = index.findClosest(47.99, 10.99);
+        assertEquals(QueryResult.Position.NODE, result.getPosition());
+        assertEquals(1, result.getClosestNode());
+        assertEquals(Long.MIN_VALUE, result.getClosestEdge());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoCoordinates()
+    {
+        Graph graph = new DefaultMemoryGraph();
+        graph.edge(1, 0, 2, 1);
+        LocationIndexGrid.create(graph);
+    }
+
+    @Test
+    public void testWriteAndLoad() throws Exception
+    {
+        LocationIndexGrid index = LocationIndexGrid.create(createRandomGraph(new CompactGraph()));
+        File file = folder.newFile("location.idx");
+        index.write(file);
+
+        for (boolean mapped : new boolean[]{false, true})
+        {
+            LocationIndexGrid loaded = LocationIndexGrid.load(file, mapped);
+            assertEquals(index.getTileCount(), loaded.getTileCount());
+            Random rand = new Random(7);
+            for (int q = 0; q < 20; q++)
+            {
+                double lat = 48 + rand.nextDouble() * 0.2;
+                double lon = 11 + rand.nextDouble() * 0.3;
+                QueryResult expected = index.findClosest(lat, lon);
+                QueryResult actual = loaded.findClosest(lat, lon);
+                assertEquals(expected.getClosestNode(), actual.getClosestNode());
+                assertEquals(expected.getClosestEdge(), actual.getClosestEdge());
+                assertEquals(expected.getDistance(), actual.getDistance(), 1e-9);
+            }
+        }
+    }
+}
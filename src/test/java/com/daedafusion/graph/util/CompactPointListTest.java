@@ -0,0 +1,194 @@
+package com.daedafusion.graph.util;
+
+import com.daedafusion.graph.util.shapes.GHPoint3D;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class CompactPointListTest
+{
+    private static PointList createTrack( int count, boolean is3D )
+    {
+        Random rand = new Random(5);
+        PointList points = new PointList(count, is3D);
+        double lat = -33.9, lon = 151.2, ele = 20;
+        for (int i = 0; i < count; i++)
+        {
+            // roughly 10 to 100m between points
+            lat += (rand.nextDouble() - 0.5) * 0.001;
+            lon += (rand.nextDouble() - 0.5) * 0.001;
+            ele += (rand.nextDouble() - 0.5) * 4;
+            if (is3D)
+                points.add(lat, lon, ele);
+            else
+                points.add(lat, lon);
+        }
+        return points;
+    }
+
+    @Test
+    public void testConcurrentReads() throws Exception
+    {
+        final PointList expected = createTrack(2000, true);
+        final CompactPointList list = CompactPointList.from(expected);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Thread[] readers = new Thread[4];
+        for (int t = 0; t < readers.length; t++)
+        {
+            final int seed = t;
+            readers[t] = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        Random rand = new Random(seed);
+                        for (int i = 0; i < 20000; i++)
+                        {
+                            int index = rand.nextInt(expected.size());
+                            assertEquals(expected.getLatitude(index), list.getLatitude(index), 1e-6);
+                            assertEquals(expected.getLongitude(index), list.getLongitude(index), 1e-6);
+                            assertEquals(expected.getElevation(index), list.getElevation(index), 1e-2);
+                            if (i % 1000 == 0)
+                                assertEquals(expected.size(), list.toPointList().size());
+                        }
+                    } catch (Throwable ex)
+                    {
+                        failure.set(ex);
+                    }
+                }
+            });
+            readers[t].start();
+        }
+        for (Thread reader : readers)
+        {
+            reader.join();
+        }
+        assertNull(failure.get());
+    }
+
+    @Test
+    public void testRandomAccess()
+    {
+        PointList expected = createTrack(1000, true);
+        CompactPointList list = CompactPointList.from(expected);
+        assertEquals(1000, list.size());
+        assertTrue(list.is3D());
+
+        Random rand = new Random(1);
+        for (int i = 0; i < 3000; i++)
+        {
+            int index = rand.nextInt(expected.size());
+            assertEquals(expected.getLatitude(index), list.getLatitude(index), 1e-6);
+            assertEquals(expected.getLongitude(index), list.getLongitude(index), 1e-6);
+            assertEquals(expected.getElevation(index), list.getElevation(index), 1e-2);
+        }
+
+        int index = 0;
+        for (GHPoint3D point : list)
+        {
+            assertEquals(expected.getLongitude(index++), point.lon, 1e-6);
+        }
+        assertEquals(expected.calcDistance(Helper.DIST_EARTH), list.calcDistance(Helper.DIST_EARTH), 1);
+        assertEquals(expected.size(), list.toPointList().size());
+    }
+
+    @Test
+    public void test2D()
+    {
+        CompactPointList list = new CompactPointList(2, false, 2);
+        list.add(49.5, 11.1);
+        list.setNode(1, 49.6, -11.2);
+        list.add(-49.7, 11.3);
+        assertEquals(3, list.size());
+        assertEquals(-11.2, list.getLongitude(1), 1e-6);
+        assertEquals(-49.7, list.getLatitude(2), 1e-6);
+        assertEquals(49.5, list.getLatitude(0), 1e-6);
+        assertTrue(Double.isNaN(list.getElevation(0)));
+
+        PointList points = list.toPointList();
+        assertEquals(list.calcDistance(Helper.DIST_EARTH), points.calcDistance(Helper.DIST_EARTH), 1e-3);
+
+        try
+        {
+            list.add(1, 2, 3);
+            fail();
+        } catch (IllegalStateException ex)
+        {
+        }
+
+        try
+        {
+            list.getLatitude(3);
+            fail();
+        } catch (ArrayIndexOutOfBoundsException ex)
+        {
+        }
+    }
+
+    @Test
+    public void testSetNode()
+    {
+        for (boolean is3D : new boolean[]{false, true})
+        {
+            PointList expected = createTrack(100, is3D);
+            CompactPointList list = CompactPointList.from(expected);
+            // first, last and middle of a block, the last point and a far away value
+            for (int index : new int[]{0, 31, 32, 50, 99, 64})
+            {
+                double lat = index == 64 ? -89 : 10 + index * 0.5, lon = index == 64 ? 179 : -20 - index * 0.25;
+                if (is3D)
+                {
+                    expected.set(index, lat, lon, index);
+                    list.setNode(index, lat, lon, index);
+                } else
+                {
+                    expected.set(index, lat, lon, Double.NaN);
+                    list.setNode(index, lat, lon);
+                }
+            }
+            // appending continues from the replaced last point
+            if (is3D)
+                expected.add(1, 2, 3);
+            else
+                expected.add(1, 2);
+            list.setNode(100, 1, 2, is3D ? 3 : Double.NaN);
+
+            assertEquals(expected.size(), list.size());
+            for (int i = 0; i < expected.size(); i++)
+            {
+                assertEquals(expected.getLatitude(i), list.getLatitude(i), 1e-6);
+                assertEquals(expected.getLongitude(i), list.getLongitude(i), 1e-6);
+                if (is3D)
+                    assertEquals(expected.getElevation(i), list.getElevation(i), 1e-2);
+            }
+        }
+
+        CompactPointList list = new CompactPointList(false);
+        list.add(1, 2);
+        try
+        {
+            list.setNode(2, 3, 4);
+            fail();
+        } catch (ArrayIndexOutOfBoundsException ex)
+        {
+        }
+    }
+
+    @Test
+    public void testMemory()
+    {
+        int count = 100000;
+        CompactPointList list = CompactPointList.from(createTrack(count, true));
+        // PointList needs 3 doubles per point without its growth slack, deltas need about 2 bytes per value
+        assertTrue("bytes:" + list.getCapacityInBytes(), list.getCapacityInBytes() * 3.5 <= count * 24L);
+
+        list = CompactPointList.from(createTrack(count, false));
+        assertTrue("bytes:" + list.getCapacityInBytes(), list.getCapacityInBytes() * 3.5 <= count * 16L);
+    }
+}
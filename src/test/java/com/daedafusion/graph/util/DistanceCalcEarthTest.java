@@ -20,6 +20,8 @@ package com.daedafusion.graph.util;
 import com.daedafusion.graph.util.shapes.GHPoint;
 import org.junit.Test;
 
+import java.util.Random;
+
 import static org.junit.Assert.*;
 
 /**
@@ -178,4 +180,49 @@ public class DistanceCalcEarthTest
         assertEquals(new GHPoint(55.81863, 37.594626), distCalc.calcCrossingPointToEdge(queryLat, queryLon,
                 tmpLat, tmpLon, wayLat, wayLon));
     }
+
+    @Test
+    public void testBulkDistances()
+    {
+        Random rand = new Random(1);
+        int count = 1000;
+        double[] lats = new double[count + 3];
+        double[] lons = new double[count + 3];
+        for (int i = 0; i < count; i++)
+        {
+            lats[i] = 50 + rand.nextDouble() * 2 - 1;
+            lons[i] = 10 + rand.nextDouble() * 2 - 1;
+        }
+
+        DistanceCalc plane = new DistancePlaneProjection();
+        double[] exact = new double[count];
+        double[] approx = new double[count];
+        dc.calcDists(50.2, 10.1, lats, lons, exact, count);
+        plane.calcDists(50.2, 10.1, lats, lons, approx, count);
+        for (int i = 0; i < count; i++)
+        {
+            assertEquals(dc.calcDist(50.2, 10.1, lats[i], lons[i]), exact[i], 0);
+            double expected = plane.calcDist(50.2, 10.1, lats[i], lons[i]);
+            assertEquals(expected, approx[i], expected * 1e-6);
+            assertEquals(exact[i], approx[i], exact[i] * 1e-3);
+        }
+
+        double sum = 0, planeSum = 0;
+        for (int i = 1; i < count; i++)
+        {
+            sum += dc.calcDist(lats[i - 1], lons[i - 1], lats[i], lons[i]);
+            planeSum += plane.calcDist(lats[i - 1], lons[i - 1], lats[i], lons[i]);
+        }
+        assertEquals(sum, dc.calcPolylineDist(lats, lons, count), 0);
+        assertEquals(planeSum, plane.calcPolylineDist(lats, lons, count), 0);
+        assertEquals(0, dc.calcPolylineDist(lats, lons, 1), 0);
+
+        try
+        {
+            dc.calcDists(50, 10, lats, new double[1], exact, count);
+            fail();
+        } catch (IllegalArgumentException ex)
+        {
+        }
+    }
 }
@@ -0,0 +1,86 @@
+package com.daedafusion.graph.util;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class DouglasPeuckerTest
+{
+    @Test
+    public void testStraightLine()
+    {
+        PointList points = Helper.createPointList(49.0, 11.0, 49.0001, 11.0001, 49.0002, 11.0002, 49.0003, 11.0003);
+        assertEquals(2, new DouglasPeucker().simplify(points));
+        assertEquals(Helper.createPointList(49.0, 11.0, 49.0003, 11.0003), points);
+    }
+
+    @Test
+    public void testKeepCorner()
+    {
+        // ~110m detour to the north in the middle
+        PointList points = Helper.createPointList(49.0, 11.0, 49.0005, 11.001, 49.001, 11.002, 49.0005, 11.003, 49.0, 11.004);
+        assertEquals(2, new DouglasPeucker().setMaxDistance(10).simplify(points));
+        assertEquals(Helper.createPointList(49.0, 11.0, 49.001, 11.002, 49.0, 11.004), points);
+
+        points = Helper.createPointList(49.0, 11.0, 49.0005, 11.001, 49.001, 11.002, 49.0005, 11.003, 49.0, 11.004);
+        assertEquals(3, new DouglasPeucker().setMaxDistance(200).simplify(points));
+        assertEquals(2, points.size());
+    }
+
+    @Test
+    public void testClosedRing()
+    {
+        PointList points = Helper.createPointList(49.0, 11.0, 49.0, 11.001, 49.001, 11.001, 49.001, 11.0, 49.0, 11.0);
+        new DouglasPeucker().setMaxDistance(10).simplify(points);
+        assertEquals(5, points.size());
+    }
+
+    @Test
+    public void testElevation()
+    {
+        PointList points = Helper.createPointList3D(49.0, 11.0, 100, 49.0, 11.001, 150, 49.0, 11.002, 100);
+        DouglasPeucker simplifier = new DouglasPeucker();
+        assertEquals(1, simplifier.simplify(points.clone(false)));
+        assertEquals(0, simplifier.setMaxElevationDistance(10).simplify(points));
+        assertEquals(1, simplifier.setMaxElevationDistance(60).simplify(points));
+    }
+
+    @Test
+    public void testLargeTrack()
+    {
+        Random rand = new Random(3);
+        int count = 100000;
+        PointList points = new PointList(count, false);
+        double lat = 49, lon = 11;
+        for (int i = 0; i < count; i++)
+        {
+            lat += (rand.nextDouble() - 0.45) * 0.0001;
+            lon += (rand.nextDouble() - 0.45) * 0.0001;
+            points.add(lat, lon);
+        }
+        PointList original = points.clone(false);
+
+        int removed = new DouglasPeucker().setMaxDistance(5).simplify(points);
+        assertEquals(count - removed, points.size());
+        assertTrue(removed > count / 2);
+        assertEquals(original.getLatitude(count - 1), points.getLatitude(points.size() - 1), 1e-9);
+
+        // every original point stays within the tolerance of the simplified line
+        DistanceCalcEarth calc = Helper.DIST_PLANE;
+        int segment = 0;
+        for (int i = 0; i < count; i++)
+        {
+            if (original.getLatitude(i) == points.getLatitude(segment + 1)
+                    && original.getLongitude(i) == points.getLongitude(segment + 1) && segment + 2 < points.size())
+                segment++;
+
+            double dist = calc.calcDenormalizedDist(calc.calcNormalizedEdgeDistanceNew(
+                    original.getLatitude(i), original.getLongitude(i),
+                    points.getLatitude(segment), points.getLongitude(segment),
+                    points.getLatitude(segment + 1), points.getLongitude(segment + 1), true));
+            assertTrue("index " + i + " dist " + dist, dist <= 5.01);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.daedafusion.graph.util;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class GeoJsonWriterTest
+{
+    @Test
+    public void testFormat() throws Exception
+    {
+        PointList points = Helper.createPointList3D(49.1, 11.5, 512.345, -0.0000004, -179.9999996, -3.2, 0.05, 1e-6, 0);
+        StringBuilder sb = new StringBuilder();
+        GeoJsonWriter.writeCoordinates(points, true, sb);
+        assertEquals("[[11.5,49.1,512.35],[-180,0,-3.2],[0.000001,0.05,0]]", sb.toString());
+
+        sb.setLength(0);
+        GeoJsonWriter.writeLineString(points, false, sb);
+        assertEquals("{\"type\":\"LineString\",\"coordinates\":[[11.5,49.1],[-180,0],[0.000001,0.05]]}", sb.toString());
+
+        // positions hold numbers only, a missing elevation is left out
+        sb.setLength(0);
+        GeoJsonWriter.writeCoordinates(Helper.createPointList3D(1, 2, Double.NaN, 3, 4, 5), true, sb);
+        assertEquals("[[2,1],[4,3,5]]", sb.toString());
+        ByteBuffer bytes = ByteBuffer.allocate(64);
+        GeoJsonWriter.writeCoordinates(Helper.createPointList3D(1, 2, Double.NaN), true, bytes);
+        assertEquals("[[2,1]]", new String(bytes.array(), 0, bytes.position(), StandardCharsets.US_ASCII));
+
+        for (double[] invalid : new double[][]{{Double.NaN, 0}, {0, Double.NaN}, {90.5, 0}, {0, -180.5}})
+        {
+            try
+            {
+                GeoJsonWriter.writeCoordinates(Helper.createPointList(invalid[0], invalid[1]), false, sb);
+                fail();
+            } catch (IllegalArgumentException ex)
+            {
+            }
+        }
+
+        char[] buffer = new char[24];
+        for (double invalid : new double[]{-1e300, Double.NEGATIVE_INFINITY, Double.NaN})
+        {
+            try
+            {
+                GeoJsonWriter.format(buffer, invalid, 2);
+                fail();
+            } catch (IllegalArgumentException ex)
+            {
+            }
+        }
+        int start = GeoJsonWriter.format(buffer, -1e12, 6);
+        assertEquals("-1000000000000", new String(buffer, start, buffer.length - start));
+    }
+
+    @Test
+    public void testSameAsToGeoJson() throws Exception
+    {
+        Random rand = new Random(2);
+        PointList points = new PointList(100, true);
+        for (int i = 0; i < 100; i++)
+        {
+            points.add(rand.nextDouble() * 180 - 90, rand.nextDouble() * 360 - 180, rand.nextDouble() * 1000);
+        }
+
+        StringBuilder sb = new StringBuilder();
+        GeoJsonWriter.writeCoordinates(points, true, sb);
+        PointList parsed = new PointList(100, true);
+        assertEquals(100, GeoJsonParser.parse(sb, parsed));
+
+        List<Double[]> expected = points.toGeoJson();
+        for (int i = 0; i < 100; i++)
+        {
+            assertEquals(expected.get(i)[0], parsed.getLongitude(i), 0);
+            assertEquals(expected.get(i)[1], parsed.getLatitude(i), 0);
+            assertEquals(expected.get(i)[2], parsed.getElevation(i), 0);
+        }
+    }
+
+    @Test
+    public void testByteBuffer()
+    {
+        PointList points = Helper.createPointList(38.5, -120.2, 43.252, -126.453, 40.7, -120.95);
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        GeoJsonWriter.writeCoordinates(points, false, buffer);
+        buffer.flip();
+        assertEquals("[[-120.2,38.5],[-126.453,43.252],[-120.95,40.7]]",
+                new String(buffer.array(), 0, buffer.limit(), StandardCharsets.US_ASCII));
+
+        PointList parsed = new PointList();
+        GeoJsonParser.parse(buffer, parsed);
+        assertEquals(points, parsed);
+        assertEquals(0, buffer.position());
+    }
+
+    @Test
+    public void testParse()
+    {
+        PointList points = new PointList();
+        GeoJsonParser.parse("{\"type\": \"LineString\", \"coordinates\": [ [ 11.5 , 49.1 ], [1.5e1, -4.91E1, 3] ]}", points);
+        assertEquals(Helper.createPointList(49.1, 11.5, -49.1, 15), points);
+
+        points = new PointList();
+        points.parse2DJSON("[11.5,49.1], [11.6,49.2]");
+        assertEquals(Helper.createPointList(49.1, 11.5, 49.2, 11.6), points);
+
+        points = new PointList(2, true);
+        GeoJsonParser.parse("[[11.123456789012345678,49.1]]", points);
+        assertEquals(11.123456789012345678, points.getLongitude(0), 0);
+        assertTrue(Double.isNaN(points.getElevation(0)));
+
+        // bbox, properties and foreign members do not add points
+        points = new PointList();
+        assertEquals(2, GeoJsonParser.parse("{\"type\":\"LineString\",\"bbox\":[11.5,49.1,11.6,49.2],"
+                + "\"coordinates\":[[11.5,49.1],[11.6,49.2]],\"extra\":{\"coordinates\":[[1,2]]}}", points));
+        assertEquals(Helper.createPointList(49.1, 11.5, 49.2, 11.6), points);
+
+        points = new PointList();
+        assertEquals(3, GeoJsonParser.parse("{\"type\":\"FeatureCollection\",\"features\":[{\"type\":\"Feature\","
+                + "\"properties\":{\"name\":\"a [1,2] \\\"b\",\"speeds\":[[30,50]]},"
+                + "\"geometry\":{\"type\":\"Point\",\"coordinates\":[11.5,49.1]}},"
+                + "{\"type\":\"Feature\",\"properties\":null,\"geometry\":{\"type\":\"GeometryCollection\","
+                + "\"geometries\":[{\"type\":\"MultiPoint\",\"coordinates\":[[11.6,49.2],[11.7,49.3]]}]}}]}", points));
+        assertEquals(Helper.createPointList(49.1, 11.5, 49.2, 11.6, 49.3, 11.7), points);
+
+        try
+        {
+            GeoJsonParser.parse("[[11.5;49.1]]", new PointList());
+            fail();
+        } catch (IllegalArgumentException ex)
+        {
+        }
+    }
+
+    @Test
+    public void testRound2()
+    {
+        assertEquals(1.23, Helper.round2(1.234), 1e-9);
+    }
+}
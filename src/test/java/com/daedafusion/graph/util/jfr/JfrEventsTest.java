@@ -0,0 +1,150 @@
+package com.daedafusion.graph.util.jfr;
+
+import com.daedafusion.graph.impl.CompactGraph;
+import com.daedafusion.graph.impl.GraphSnapshot;
+import com.daedafusion.graph.routing.Dijkstra;
+import com.daedafusion.graph.routing.util.Weighting;
+import com.daedafusion.graph.util.Edge;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class JfrEventsTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Weighting weighting = new Weighting()
+    {
+        @Override
+        public double getMinWeight(double distance)
+        {
+            return 0;
+        }
+
+        @Override
+        public double calcWeight(Edge edge)
+        {
+            return edge.getDistance();
+        }
+    };
+
+    private static List<RecordedEvent> events( List<RecordedEvent> all, String name )
+    {
+        List<RecordedEvent> result = new ArrayList<>();
+        for (RecordedEvent e : all)
+        {
+            if (e.getEventType().getName().equals(name))
+                result.add(e);
+        }
+        return result;
+    }
+
+    @Test
+    public void testEvents() throws Exception
+    {
+        assumeTrue(JfrEvents.AVAILABLE);
+
+        File snapshot = folder.newFile("graph.snap");
+        File output = folder.newFile("events.jfr");
+        List<RecordedEvent> all;
+        try (Recording recording = new Recording())
+        {
+            recording.enable("com.daedafusion.graph.RoutingQuery");
+            recording.enable("com.daedafusion.graph.GraphIngest");
+            recording.enable("com.daedafusion.graph.GraphLoad");
+            recording.start();
+
+            CompactGraph graph = new CompactGraph();
+            for (int i = 0; i < IngestRecorder.DEFAULT_BATCH_SIZE; i++)
+            {
+                graph.edge(i, 0, i + 1, 2);
+            }
+            assertTrue(new Dijkstra(graph, weighting).calcPath(0, 3).isFound());
+            assertFalse(new Dijkstra(graph, weighting).calcPath(3, 0).isFound());
+
+            new GraphSnapshot().write(graph, snapshot);
+            new GraphSnapshot().read(snapshot);
+
+            recording.stop();
+            recording.dump(output.toPath());
+            all = RecordingFile.readAllEvents(output.toPath());
+        }
+
+        List<RecordedEvent> queries = events(all, "com.daedafusion.graph.RoutingQuery");
+        assertEquals(2, queries.size());
+        RecordedEvent found = queries.get(0);
+        assertEquals("dijkstra", found.getString("algorithm"));
+        assertEquals(0, found.getLong("from"));
+        assertEquals(3, found.getLong("to"));
+        assertTrue(found.getBoolean("found"));
+        assertEquals(6, found.getDouble("weight"), 1e-9);
+        assertTrue(found.getInt("visitedNodes") > 0);
+        assertFalse(queries.get(1).getBoolean("found"));
+
+        // reading the snapshot bypasses Graph.edge, so only the explicit inserts form a batch
+        List<RecordedEvent> ingest = events(all, "com.daedafusion.graph.GraphIngest");
+        assertEquals(1, ingest.size());
+        assertEquals(IngestRecorder.DEFAULT_BATCH_SIZE, ingest.get(0).getInt("edges"));
+
+        List<RecordedEvent> loads = events(all, "com.daedafusion.graph.GraphLoad");
+        assertEquals(1, loads.size());
+        assertEquals(IngestRecorder.DEFAULT_BATCH_SIZE, loads.get(0).getInt("edges"));
+    }
+
+    @Test
+    public void testPartialBatch() throws Exception
+    {
+        assumeTrue(JfrEvents.AVAILABLE);
+
+        File output = folder.newFile("ingest.jfr");
+        List<RecordedEvent> all;
+        try (Recording recording = new Recording())
+        {
+            recording.enable("com.daedafusion.graph.GraphIngest");
+            recording.start();
+
+            CompactGraph graph = new CompactGraph();
+            graph.edge(1, 0, 2, 1);
+            graph.edge(2, 0, 3, 1);
+            graph.edge(3, 0, 1, 1);
+            graph.flushIngest();
+            // nothing left to report
+            graph.flushIngest();
+
+            // the bulk copy ends its batch itself
+            CompactGraph.copyOf(graph);
+
+            recording.stop();
+            recording.dump(output.toPath());
+            all = RecordingFile.readAllEvents(output.toPath());
+        }
+
+        List<RecordedEvent> ingest = events(all, "com.daedafusion.graph.GraphIngest");
+        assertEquals(2, ingest.size());
+        for (RecordedEvent e : ingest)
+        {
+            assertEquals(3, e.getInt("edges"));
+            assertEquals(3, e.getLong("totalEdges"));
+        }
+    }
+
+    @Test
+    public void testNoRecording()
+    {
+        // without a running recording no handle is created
+        assertNull(JfrEvents.beginQuery());
+        JfrEvents.commitQuery(null, "test", 0, 1, 0, false, 0);
+        new IngestRecorder("test", 2).edgeAdded();
+    }
+}